@@ -64,6 +64,7 @@ import com.android.settings.applications.manageapplications.ManageApplications;
 import com.android.settings.core.OnActivityResultListener;
 import com.android.settings.core.SettingsBaseActivity;
 import com.android.settings.core.SubSettingLauncher;
+import com.android.settings.core.gateway.EntryFragmentRegistry;
 import com.android.settings.core.gateway.SettingsGateway;
 import com.android.settings.dashboard.DashboardFeatureProvider;
 import com.android.settings.homepage.DeepLinkHomepageActivityInternal;
@@ -686,10 +687,7 @@ public class SettingsActivity extends SettingsBaseActivity
     protected boolean isValidFragment(String fragmentName) {
         // Almost all fragments are wrapped in this,
         // except for a few that have their own activities.
-        for (int i = 0; i < SettingsGateway.ENTRY_FRAGMENTS.length; i++) {
-            if (SettingsGateway.ENTRY_FRAGMENTS[i].equals(fragmentName)) return true;
-        }
-        return false;
+        return EntryFragmentRegistry.isEntryFragment(fragmentName);
     }
 
     @Override
@@ -775,6 +773,7 @@ public class SettingsActivity extends SettingsBaseActivity
         transaction.commitAllowingStateLoss();
         getSupportFragmentManager().executePendingTransactions();
         Log.d(LOG_TAG, "Executed frag manager pendingTransactions");
+        EntryFragmentRegistry.onFragmentLaunched(this, fragmentName);
     }
 
     private void updateTilesList() {
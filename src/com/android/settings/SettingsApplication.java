@@ -17,9 +17,16 @@
 package com.android.settings;
 
 import android.app.Application;
+import android.content.pm.PackageManager;
+import android.util.FeatureFlagUtils;
 
 import com.android.settings.activityembedding.ActivityEmbeddingRulesController;
+import com.android.settings.applications.InstalledPackagesSnapshot;
+import com.android.settings.core.FeatureFlags;
+import com.android.settings.core.SettingsStateStore;
+import com.android.settings.core.gateway.EntryFragmentRegistry;
 import com.android.settings.homepage.SettingsHomepageActivity;
+import com.android.settings.network.CarrierConfigCache;
 import com.android.settingslib.applications.AppIconCacheManager;
 
 import java.lang.ref.WeakReference;
@@ -33,6 +40,14 @@ public class SettingsApplication extends Application {
     public void onCreate() {
         super.onCreate();
 
+        // Start loading the Settings state while the first page is being created.
+        SettingsStateStore.getInstance(this);
+        EntryFragmentRegistry.preloadLikelyFragments(this);
+        if (FeatureFlagUtils.isEnabled(this, FeatureFlags.PRELOAD_CARRIER_CONFIGS)
+                && getPackageManager().hasSystemFeature(PackageManager.FEATURE_TELEPHONY)) {
+            CarrierConfigCache.getInstance(this).preloadActiveSubscriptions(this);
+        }
+
         final ActivityEmbeddingRulesController controller =
                 new ActivityEmbeddingRulesController(this);
         controller.initRules();
@@ -50,5 +65,6 @@ public class SettingsApplication extends Application {
     public void onTrimMemory(int level) {
         super.onTrimMemory(level);
         AppIconCacheManager.getInstance().trimMemory(level);
+        InstalledPackagesSnapshot.trimMemory(level);
     }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.http.SslCertificate;
+import android.os.UserHandle;
+import android.security.KeyChain;
+import android.util.ArrayMap;
+
+import java.security.cert.X509Certificate;
+
+/**
+ * Keeps the parsed CA certificates shown by {@link TrustedCredentialsFragment} across visits,
+ * by profile and alias. Every trust store change bumps a change counter and drops the cache, and
+ * entries are only returned for the change counter they were loaded with.
+ */
+final class TrustedCertificateCache {
+
+    private static TrustedCertificateCache sInstance;
+
+    private final Object mLock = new Object();
+    private final ArrayMap<String, ParsedCertificate> mCertificates = new ArrayMap<>();
+    private int mChangeCount;
+
+    private final BroadcastReceiver mTrustStoreChangedReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            onTrustStoreChanged();
+        }
+    };
+
+    static TrustedCertificateCache getInstance(Context context) {
+        synchronized (TrustedCertificateCache.class) {
+            if (sInstance == null) {
+                final Context appContext = context.getApplicationContext();
+                sInstance = new TrustedCertificateCache();
+                final IntentFilter filter = new IntentFilter();
+                filter.addAction(KeyChain.ACTION_TRUST_STORE_CHANGED);
+                filter.addAction(KeyChain.ACTION_KEYCHAIN_CHANGED);
+                appContext.registerReceiverAsUser(sInstance.mTrustStoreChangedReceiver,
+                        UserHandle.ALL, filter, null, null);
+            }
+            return sInstance;
+        }
+    }
+
+    /** Returns the current change counter, to pass to {@link #get} and {@link #put}. */
+    int getChangeCount() {
+        synchronized (mLock) {
+            return mChangeCount;
+        }
+    }
+
+    /** Returns the certificate loaded for {@code changeCount}, or {@code null}. */
+    ParsedCertificate get(int profileId, String alias, int changeCount) {
+        synchronized (mLock) {
+            return changeCount == mChangeCount ? mCertificates.get(getKey(profileId, alias))
+                    : null;
+        }
+    }
+
+    /** Caches {@code certificate} unless the trust store changed since {@code changeCount}. */
+    void put(int profileId, String alias, int changeCount, ParsedCertificate certificate) {
+        synchronized (mLock) {
+            if (changeCount == mChangeCount) {
+                mCertificates.put(getKey(profileId, alias), certificate);
+            }
+        }
+    }
+
+    void onTrustStoreChanged() {
+        synchronized (mLock) {
+            mChangeCount++;
+            mCertificates.clear();
+        }
+    }
+
+    private static String getKey(int profileId, String alias) {
+        return profileId + ":" + alias;
+    }
+
+    /** A CA certificate and the subject names shown for it. */
+    static final class ParsedCertificate {
+        final X509Certificate mX509Cert;
+        final SslCertificate mSslCert;
+        final String mSubjectPrimary;
+        final String mSubjectSecondary;
+
+        ParsedCertificate(X509Certificate x509Cert) {
+            mX509Cert = x509Cert;
+            mSslCert = new SslCertificate(x509Cert);
+
+            String cn = mSslCert.getIssuedTo().getCName();
+            String o = mSslCert.getIssuedTo().getOName();
+            String ou = mSslCert.getIssuedTo().getUName();
+            // if we have a O, use O as primary subject, secondary prefer CN over OU
+            // if we don't have an O, use CN as primary, empty secondary
+            // if we don't have O or CN, use DName as primary, empty secondary
+            if (!o.isEmpty()) {
+                if (!cn.isEmpty()) {
+                    mSubjectPrimary = o;
+                    mSubjectSecondary = cn;
+                } else {
+                    mSubjectPrimary = o;
+                    mSubjectSecondary = ou;
+                }
+            } else {
+                if (!cn.isEmpty()) {
+                    mSubjectPrimary = cn;
+                    mSubjectSecondary = "";
+                } else {
+                    mSubjectPrimary = mSslCert.getIssuedTo().getDName();
+                    mSubjectSecondary = "";
+                }
+            }
+        }
+    }
+}
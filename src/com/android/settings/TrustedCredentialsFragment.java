@@ -76,6 +76,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.IntConsumer;
 
 /**
@@ -97,6 +103,18 @@ public class TrustedCredentialsFragment extends InstrumentedFragment
     private static final String SAVED_CONFIRMED_CREDENTIAL_USERS = "ConfirmedCredentialUsers";
     private static final String SAVED_CONFIRMING_CREDENTIAL_USER = "ConfirmingCredentialUser";
     private static final int REQUEST_CONFIRM_CREDENTIALS = 1;
+    // Number of certificates loaded before the list is updated.
+    private static final int PAGE_SIZE = 32;
+    private static final int CERTIFICATE_LOADER_THREADS = 3;
+
+    // Loads the certificates of each profile in parallel, shared by all the loaders.
+    private static final ThreadPoolExecutor sCertificateExecutor = new ThreadPoolExecutor(
+            CERTIFICATE_LOADER_THREADS, CERTIFICATE_LOADER_THREADS, 10, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>());
+
+    static {
+        sCertificateExecutor.allowCoreThreadTimeOut(true);
+    }
 
     private GroupAdapter mGroupAdapter;
     private AliasOperation mAliasOperation;
@@ -107,6 +125,11 @@ public class TrustedCredentialsFragment extends InstrumentedFragment
     @GuardedBy("mKeyChainConnectionByProfileId")
     private final SparseArray<KeyChainConnection>
             mKeyChainConnectionByProfileId = new SparseArray<>();
+    // Certificate loads using the connections, which are only closed once they are done.
+    @GuardedBy("mKeyChainConnectionByProfileId")
+    private int mCertificateLoadCount;
+    @GuardedBy("mKeyChainConnectionByProfileId")
+    private boolean mKeyChainConnectionsClosed;
     private ViewGroup mFragmentView;
 
     private final BroadcastReceiver mWorkProfileChangedReceiver = new BroadcastReceiver() {
@@ -242,11 +265,44 @@ public class TrustedCredentialsFragment extends InstrumentedFragment
 
     private void closeKeyChainConnections() {
         synchronized (mKeyChainConnectionByProfileId) {
-            int n = mKeyChainConnectionByProfileId.size();
-            for (int i = 0; i < n; ++i) {
-                mKeyChainConnectionByProfileId.valueAt(i).close();
+            mKeyChainConnectionsClosed = true;
+            if (mCertificateLoadCount == 0) {
+                closeKeyChainConnectionsLocked();
+            }
+        }
+    }
+
+    @GuardedBy("mKeyChainConnectionByProfileId")
+    private void closeKeyChainConnectionsLocked() {
+        int n = mKeyChainConnectionByProfileId.size();
+        for (int i = 0; i < n; ++i) {
+            mKeyChainConnectionByProfileId.valueAt(i).close();
+        }
+        mKeyChainConnectionByProfileId.clear();
+    }
+
+    /**
+     * Registers a certificate load which uses the connections outside of the lock.
+     *
+     * @return false if the connections are already closed
+     */
+    private boolean beginCertificateLoad() {
+        synchronized (mKeyChainConnectionByProfileId) {
+            if (mKeyChainConnectionsClosed) {
+                return false;
+            }
+            mCertificateLoadCount++;
+            return true;
+        }
+    }
+
+    /** Ends a load begun by {@link #beginCertificateLoad}, closing the connections if needed. */
+    private void endCertificateLoad() {
+        synchronized (mKeyChainConnectionByProfileId) {
+            mCertificateLoadCount--;
+            if (mCertificateLoadCount == 0 && mKeyChainConnectionsClosed) {
+                closeKeyChainConnectionsLocked();
             }
-            mKeyChainConnectionByProfileId.clear();
         }
     }
 
@@ -654,13 +710,17 @@ public class TrustedCredentialsFragment extends InstrumentedFragment
             mTab = tab;
         }
 
-        private class AliasLoader extends AsyncTask<Void, Integer, SparseArray<List<CertHolder>>> {
+        private class AliasLoader
+                extends AsyncTask<Void, AliasLoader.Page, SparseArray<List<CertHolder>>> {
             private ProgressBar mProgressBar;
             private View mContentView;
             private Context mContext;
+            private final TrustedCertificateCache mCertificateCache;
+            private final AtomicInteger mProgress = new AtomicInteger();
 
             AliasLoader() {
                 mContext = getActivity();
+                mCertificateCache = TrustedCertificateCache.getInstance(mContext);
                 mAliasLoaders.add(this);
                 List<UserHandle> profiles = mUserManager.getUserProfiles();
                 for (UserHandle profile : profiles) {
@@ -685,17 +745,23 @@ public class TrustedCredentialsFragment extends InstrumentedFragment
             protected SparseArray<List<CertHolder>> doInBackground(Void... params) {
                 SparseArray<List<CertHolder>> certHoldersByProfile =
                         new SparseArray<>();
+                final int changeCount = mCertificateCache.getChangeCount();
+                // First we get all aliases for all profiles in order to show progress
+                // correctly, then the certificates of each profile are loaded in parallel.
+                final SparseArray<IKeyChainService> servicesByProfileId;
+                final SparseArray<List<String>> aliasesByProfileId;
+                int max = 0;
                 try {
                     synchronized (mKeyChainConnectionByProfileId) {
+                        if (mKeyChainConnectionsClosed) {
+                            return new SparseArray<>();
+                        }
                         List<UserHandle> profiles = mUserManager.getUserProfiles();
-                        // First we get all aliases for all profiles in order to show progress
-                        // correctly. Otherwise this could all be in a single loop.
-                        SparseArray<List<String>> aliasesByProfileId =
-                                new SparseArray<>(profiles.size());
-                        int max = 0;
-                        int progress = 0;
+                        servicesByProfileId = new SparseArray<>(profiles.size());
+                        aliasesByProfileId = new SparseArray<>(profiles.size());
                         for (UserHandle profile : profiles) {
                             int profileId = profile.getIdentifier();
+                            certHoldersByProfile.put(profileId, new ArrayList<>(0));
                             if (shouldSkipProfile(profile)) {
                                 continue;
                             }
@@ -709,36 +775,9 @@ public class TrustedCredentialsFragment extends InstrumentedFragment
                                 return new SparseArray<>();
                             }
                             max += aliases.size();
+                            servicesByProfileId.put(profileId, service);
                             aliasesByProfileId.put(profileId, aliases);
                         }
-                        for (UserHandle profile : profiles) {
-                            int profileId = profile.getIdentifier();
-                            List<String> aliases = aliasesByProfileId.get(profileId);
-                            if (isCancelled()) {
-                                return new SparseArray<>();
-                            }
-                            KeyChainConnection keyChainConnection =
-                                    mKeyChainConnectionByProfileId.get(
-                                            profileId);
-                            if (shouldSkipProfile(profile) || aliases == null
-                                    || keyChainConnection == null) {
-                                certHoldersByProfile.put(profileId, new ArrayList<>(0));
-                                continue;
-                            }
-                            IKeyChainService service = keyChainConnection.getService();
-                            List<CertHolder> certHolders = new ArrayList<>(max);
-                            for (String alias : aliases) {
-                                byte[] encodedCertificate = service.getEncodedCaCertificate(alias,
-                                        true);
-                                X509Certificate cert = KeyChain.toCertificate(encodedCertificate);
-                                certHolders.add(new CertHolder(service, mAdapter,
-                                        mTab, alias, cert, profileId));
-                                publishProgress(++progress, max);
-                            }
-                            Collections.sort(certHolders);
-                            certHoldersByProfile.put(profileId, certHolders);
-                        }
-                        return certHoldersByProfile;
                     }
                 } catch (RemoteException e) {
                     Log.e(TAG, "Remote exception while loading aliases.", e);
@@ -747,16 +786,84 @@ public class TrustedCredentialsFragment extends InstrumentedFragment
                     Log.e(TAG, "InterruptedException while loading aliases.", e);
                     return new SparseArray<>();
                 }
+
+                final int profileCount = aliasesByProfileId.size();
+                if (profileCount == 0) {
+                    return certHoldersByProfile;
+                }
+                final int total = max;
+                final List<Future<List<CertHolder>>> futures = new ArrayList<>(profileCount);
+                for (int i = 0; i < profileCount; i++) {
+                    final int profileId = aliasesByProfileId.keyAt(i);
+                    final IKeyChainService service = servicesByProfileId.get(profileId);
+                    final List<String> aliases = aliasesByProfileId.valueAt(i);
+                    if (!beginCertificateLoad()) {
+                        return new SparseArray<>();
+                    }
+                    // The tasks are never cancelled so that each one ends its load, they stop
+                    // early once this loader is cancelled.
+                    futures.add(sCertificateExecutor.submit(() -> {
+                        try {
+                            return loadCertHolders(profileId, service, aliases, changeCount,
+                                    total);
+                        } finally {
+                            endCertificateLoad();
+                        }
+                    }));
+                }
+                try {
+                    for (int i = 0; i < profileCount; i++) {
+                        certHoldersByProfile.put(aliasesByProfileId.keyAt(i),
+                                futures.get(i).get());
+                    }
+                    return certHoldersByProfile;
+                } catch (ExecutionException e) {
+                    Log.e(TAG, "Exception while loading certificates.", e.getCause());
+                    return new SparseArray<>();
+                } catch (InterruptedException e) {
+                    Log.e(TAG, "InterruptedException while loading certificates.", e);
+                    return new SparseArray<>();
+                }
+            }
+
+            private List<CertHolder> loadCertHolders(int profileId, IKeyChainService service,
+                    List<String> aliases, int changeCount, int max) throws RemoteException {
+                List<CertHolder> certHolders = new ArrayList<>(aliases.size());
+                for (String alias : aliases) {
+                    if (isCancelled()) {
+                        break;
+                    }
+                    TrustedCertificateCache.ParsedCertificate certificate =
+                            mCertificateCache.get(profileId, alias, changeCount);
+                    if (certificate == null) {
+                        byte[] encodedCertificate = service.getEncodedCaCertificate(alias, true);
+                        certificate = new TrustedCertificateCache.ParsedCertificate(
+                                KeyChain.toCertificate(encodedCertificate));
+                        mCertificateCache.put(profileId, alias, changeCount, certificate);
+                    }
+                    certHolders.add(new CertHolder(service, mAdapter,
+                            mTab, alias, certificate, profileId));
+                    final int progress = mProgress.incrementAndGet();
+                    if (certHolders.size() % PAGE_SIZE == 0) {
+                        publishProgress(new Page(profileId, certHolders, progress, max));
+                    }
+                }
+                Collections.sort(certHolders);
+                return certHolders;
             }
 
             @Override
-            protected void onProgressUpdate(Integer... progressAndMax) {
-                int progress = progressAndMax[0];
-                int max = progressAndMax[1];
-                if (max != mProgressBar.getMax()) {
-                    mProgressBar.setMax(max);
+            protected void onProgressUpdate(Page... pages) {
+                final Page page = pages[0];
+                if (page.mMax != mProgressBar.getMax()) {
+                    mProgressBar.setMax(page.mMax);
                 }
-                mProgressBar.setProgress(progress);
+                mProgressBar.setProgress(page.mProgress);
+                // Shows the certificates loaded so far, the rest is added as it is loaded.
+                mCertHoldersByUserId.put(page.mProfileId, page.mCertHolders);
+                mAdapter.notifyDataSetChanged();
+                mProgressBar.setVisibility(View.GONE);
+                mContentView.setVisibility(View.VISIBLE);
             }
 
             @Override
@@ -774,6 +881,22 @@ public class TrustedCredentialsFragment extends InstrumentedFragment
                 showTrustAllCaDialogIfNeeded();
             }
 
+            /** The certificates of a profile loaded so far. */
+            private class Page {
+                final int mProfileId;
+                final List<CertHolder> mCertHolders;
+                final int mProgress;
+                final int mMax;
+
+                Page(int profileId, List<CertHolder> certHolders, int progress, int max) {
+                    mProfileId = profileId;
+                    mCertHolders = new ArrayList<>(certHolders);
+                    Collections.sort(mCertHolders);
+                    mProgress = progress;
+                    mMax = max;
+                }
+            }
+
             private boolean isUserTabAndTrustAllCertMode() {
                 return isTrustAllCaCertModeInProgress() && mTab == Tab.USER;
             }
@@ -831,40 +954,18 @@ public class TrustedCredentialsFragment extends InstrumentedFragment
                 GroupAdapter adapter,
                 Tab tab,
                 String alias,
-                X509Certificate x509Cert,
+                TrustedCertificateCache.ParsedCertificate certificate,
                 int profileId) {
             mProfileId = profileId;
             mService = service;
             mAdapter = adapter;
             mTab = tab;
             mAlias = alias;
-            mX509Cert = x509Cert;
-
-            mSslCert = new SslCertificate(x509Cert);
-
-            String cn = mSslCert.getIssuedTo().getCName();
-            String o = mSslCert.getIssuedTo().getOName();
-            String ou = mSslCert.getIssuedTo().getUName();
-            // if we have a O, use O as primary subject, secondary prefer CN over OU
-            // if we don't have an O, use CN as primary, empty secondary
-            // if we don't have O or CN, use DName as primary, empty secondary
-            if (!o.isEmpty()) {
-                if (!cn.isEmpty()) {
-                    mSubjectPrimary = o;
-                    mSubjectSecondary = cn;
-                } else {
-                    mSubjectPrimary = o;
-                    mSubjectSecondary = ou;
-                }
-            } else {
-                if (!cn.isEmpty()) {
-                    mSubjectPrimary = cn;
-                    mSubjectSecondary = "";
-                } else {
-                    mSubjectPrimary = mSslCert.getIssuedTo().getDName();
-                    mSubjectSecondary = "";
-                }
-            }
+            mX509Cert = certificate.mX509Cert;
+            mSslCert = certificate.mSslCert;
+            mSubjectPrimary = certificate.mSubjectPrimary;
+            mSubjectSecondary = certificate.mSubjectSecondary;
+
             try {
                 mDeleted = mTab.deleted(mService, mAlias);
             } catch (RemoteException e) {
@@ -1014,6 +1115,7 @@ public class TrustedCredentialsFragment extends InstrumentedFragment
         @Override
         protected void onPostExecute(Boolean ok) {
             if (ok) {
+                TrustedCertificateCache.getInstance(getActivity()).onTrustStoreChanged();
                 if (mCertHolder.mTab.mSwitch) {
                     mCertHolder.mDeleted = !mCertHolder.mDeleted;
                 } else {
@@ -29,8 +29,10 @@ import android.os.UserHandle;
 import android.provider.Settings;
 import android.text.TextUtils;
 import android.util.ArrayMap;
+import android.util.ArraySet;
 import android.view.accessibility.AccessibilityManager;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceCategory;
@@ -50,6 +52,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /** Activity with the accessibility settings. */
 @SearchIndexable(forTarget = SearchIndexable.ALL & ~SearchIndexable.ARC)
@@ -96,11 +99,16 @@ public class AccessibilitySettings extends DashboardFragment {
 
     private final Handler mHandler = new Handler();
 
+    // Packages changed since the last update, which only runs once the changes settle.
+    private final ArraySet<String> mChangedPackages = new ArraySet<>();
+
     private final Runnable mUpdateRunnable = new Runnable() {
         @Override
         public void run() {
+            final ArraySet<String> changedPackages = new ArraySet<>(mChangedPackages);
+            mChangedPackages.clear();
             if (getActivity() != null) {
-                onContentChanged();
+                onPackagesChanged(changedPackages);
             }
         }
     };
@@ -108,25 +116,27 @@ public class AccessibilitySettings extends DashboardFragment {
     private final PackageMonitor mSettingsPackageMonitor = new PackageMonitor() {
         @Override
         public void onPackageAdded(String packageName, int uid) {
-            sendUpdate();
+            sendUpdate(packageName);
         }
 
         @Override
         public void onPackageAppeared(String packageName, int reason) {
-            sendUpdate();
+            sendUpdate(packageName);
         }
 
         @Override
         public void onPackageDisappeared(String packageName, int reason) {
-            sendUpdate();
+            sendUpdate(packageName);
         }
 
         @Override
         public void onPackageRemoved(String packageName, int uid) {
-            sendUpdate();
+            sendUpdate(packageName);
         }
 
-        private void sendUpdate() {
+        private void sendUpdate(String packageName) {
+            mChangedPackages.add(packageName);
+            mHandler.removeCallbacks(mUpdateRunnable);
             mHandler.postDelayed(mUpdateRunnable, DELAY_UPDATE_SERVICES_MILLIS);
         }
     };
@@ -140,6 +150,9 @@ public class AccessibilitySettings extends DashboardFragment {
             new ArrayMap<>();
     private final Map<ComponentName, PreferenceCategory> mPreBundledServiceComponentToCategoryMap =
             new ArrayMap<>();
+    // Position of each preference key in the order defined in xml, by category key.
+    private final Map<String, Map<String, Integer>> mCategoryToPreferenceOrderMap =
+            new ArrayMap<>();
 
     private boolean mNeedPreferencesUpdate = false;
     private boolean mIsForeground = true;
@@ -291,6 +304,24 @@ public class AccessibilitySettings extends DashboardFragment {
         }
     }
 
+    /**
+     * Updates the service preferences of {@code packageNames} only, or all preferences if any
+     * of them is unknown.
+     */
+    @VisibleForTesting
+    void onPackagesChanged(Set<String> packageNames) {
+        if (!mIsForeground) {
+            mNeedPreferencesUpdate = true;
+            return;
+        }
+        if (packageNames.isEmpty() || packageNames.contains(null)
+                || mServicePreferenceToPreferenceCategoryMap.isEmpty()) {
+            updateAllPreferences();
+            return;
+        }
+        updateServicePreferences(packageNames);
+    }
+
     private void initializeAllPreferences() {
         for (int i = 0; i < CATEGORIES.length; i++) {
             PreferenceCategory prefCategory = findPreference(CATEGORIES[i]);
@@ -318,6 +349,14 @@ public class AccessibilitySettings extends DashboardFragment {
     }
 
     protected void updateServicePreferences() {
+        updateServicePreferences(null /* packageNames */);
+    }
+
+    /**
+     * Updates the service preferences of {@code packageNames}, or all of them if
+     * {@code packageNames} is {@code null}.
+     */
+    private void updateServicePreferences(@Nullable Set<String> packageNames) {
         // Since services category is auto generated we have to do a pass
         // to generate it since services can come and go and then based on
         // the global accessibility state to decided whether it is enabled.
@@ -325,31 +364,36 @@ public class AccessibilitySettings extends DashboardFragment {
                 new ArrayList<>(mServicePreferenceToPreferenceCategoryMap.keySet());
         for (int i = 0; i < servicePreferences.size(); i++) {
             Preference service = servicePreferences.get(i);
-            PreferenceCategory category = mServicePreferenceToPreferenceCategoryMap.get(service);
+            if (packageNames != null
+                    && !packageNames.contains(getComponentName(service).getPackageName())) {
+                continue;
+            }
+            PreferenceCategory category = mServicePreferenceToPreferenceCategoryMap.remove(service);
             category.removePreference(service);
         }
 
-        initializePreBundledServicesMapFromArray(CATEGORY_SCREEN_READER,
-                R.array.config_preinstalled_screen_reader_services);
-        initializePreBundledServicesMapFromArray(CATEGORY_CAPTIONS,
-                R.array.config_preinstalled_captions_services);
-        initializePreBundledServicesMapFromArray(CATEGORY_AUDIO,
-                R.array.config_preinstalled_audio_services);
-        initializePreBundledServicesMapFromArray(CATEGORY_DISPLAY,
-                R.array.config_preinstalled_display_services);
-        initializePreBundledServicesMapFromArray(CATEGORY_INTERACTION_CONTROL,
-                R.array.config_preinstalled_interaction_control_services);
+        if (mPreBundledServiceComponentToCategoryMap.isEmpty()) {
+            initializePreBundledServicesMapFromArray(CATEGORY_SCREEN_READER,
+                    R.array.config_preinstalled_screen_reader_services);
+            initializePreBundledServicesMapFromArray(CATEGORY_CAPTIONS,
+                    R.array.config_preinstalled_captions_services);
+            initializePreBundledServicesMapFromArray(CATEGORY_AUDIO,
+                    R.array.config_preinstalled_audio_services);
+            initializePreBundledServicesMapFromArray(CATEGORY_DISPLAY,
+                    R.array.config_preinstalled_display_services);
+            initializePreBundledServicesMapFromArray(CATEGORY_INTERACTION_CONTROL,
+                    R.array.config_preinstalled_interaction_control_services);
+        }
 
         final List<RestrictedPreference> preferenceList = getInstalledAccessibilityList(
-                getPrefContext());
+                getPrefContext(), packageNames);
 
         final PreferenceCategory downloadedServicesCategory =
                 mCategoryToPrefCategoryMap.get(CATEGORY_DOWNLOADED_SERVICES);
 
         for (int i = 0, count = preferenceList.size(); i < count; ++i) {
             final RestrictedPreference preference = preferenceList.get(i);
-            final ComponentName componentName = preference.getExtras().getParcelable(
-                    EXTRA_COMPONENT_NAME);
+            final ComponentName componentName = getComponentName(preference);
             PreferenceCategory prefCategory = downloadedServicesCategory;
             // Set the appropriate category if the service comes pre-installed.
             if (mPreBundledServiceComponentToCategoryMap.containsKey(componentName)) {
@@ -382,18 +426,30 @@ public class AccessibilitySettings extends DashboardFragment {
         updatePreferenceCategoryVisibility(CATEGORY_SCREEN_READER);
     }
 
-    private List<RestrictedPreference> getInstalledAccessibilityList(Context context) {
+    private static ComponentName getComponentName(Preference preference) {
+        return preference.getExtras().getParcelable(EXTRA_COMPONENT_NAME);
+    }
+
+    private List<RestrictedPreference> getInstalledAccessibilityList(Context context,
+            @Nullable Set<String> packageNames) {
         final AccessibilityManager a11yManager = AccessibilityManager.getInstance(context);
         final RestrictedPreferenceHelper preferenceHelper = new RestrictedPreferenceHelper(context);
 
-        final List<AccessibilityShortcutInfo> installedShortcutList =
+        // New ArrayLists to copy the unmodifiable list results.
+        final List<AccessibilityShortcutInfo> installedShortcutList = new ArrayList<>(
                 a11yManager.getInstalledAccessibilityShortcutListAsUser(context,
-                        UserHandle.myUserId());
-
-        // Remove duplicate item here, new a ArrayList to copy unmodifiable list result
-        // (getInstalledAccessibilityServiceList).
+                        UserHandle.myUserId()));
         final List<AccessibilityServiceInfo> installedServiceList = new ArrayList<>(
                 a11yManager.getInstalledAccessibilityServiceList());
+        if (packageNames != null) {
+            // Only create the preferences of the changed packages.
+            installedShortcutList.removeIf(target -> !packageNames.contains(
+                    target.getComponentName().getPackageName()));
+            installedServiceList.removeIf(target -> !packageNames.contains(
+                    target.getComponentName().getPackageName()));
+        }
+
+        // Remove duplicate item here.
         installedServiceList.removeIf(
                 target -> containsTargetNameInList(installedShortcutList, target));
 
@@ -445,17 +501,23 @@ public class AccessibilitySettings extends DashboardFragment {
      * @param key         The key of the string array which defines the order of category
      */
     private void updateCategoryOrderFromArray(String categoryKey, int key) {
-        String[] services = getResources().getStringArray(key);
+        Map<String, Integer> orderMap = mCategoryToPreferenceOrderMap.get(categoryKey);
+        if (orderMap == null) {
+            final String[] services = getResources().getStringArray(key);
+            orderMap = new ArrayMap<>(services.length);
+            for (int serviceIndex = 0; serviceIndex < services.length; serviceIndex++) {
+                // Keep the first position of keys listed twice, as the nested scan did.
+                orderMap.putIfAbsent(services[serviceIndex], serviceIndex);
+            }
+            mCategoryToPreferenceOrderMap.put(categoryKey, orderMap);
+        }
         PreferenceCategory category = mCategoryToPrefCategoryMap.get(categoryKey);
         int preferenceCount = category.getPreferenceCount();
-        int serviceLength = services.length;
         for (int preferenceIndex = 0; preferenceIndex < preferenceCount; preferenceIndex++) {
-            for (int serviceIndex = 0; serviceIndex < serviceLength; serviceIndex++) {
-                if (category.getPreference(preferenceIndex).getKey()
-                        .equals(services[serviceIndex])) {
-                    category.getPreference(preferenceIndex).setOrder(serviceIndex);
-                    break;
-                }
+            final Preference preference = category.getPreference(preferenceIndex);
+            final Integer order = orderMap.get(preference.getKey());
+            if (order != null) {
+                preference.setOrder(order);
             }
         }
     }
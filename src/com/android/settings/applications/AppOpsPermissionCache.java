@@ -0,0 +1,332 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.app.AppGlobals;
+import android.app.AppOpsManager;
+import android.app.AppOpsManager.PackageOps;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.IPackageManager;
+import android.content.pm.PackageInfo;
+import android.net.Uri;
+import android.os.RemoteException;
+import android.os.UserHandle;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+import android.util.SparseArray;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.internal.util.ArrayUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A process wide, per user snapshot of the app op permission and app op state that the
+ * special app access bridges query, such as {@link AppStateAppOpsBridge}. Opening several
+ * special access pages in a row reuses the same results instead of repeating the package
+ * manager and app ops calls.
+ *
+ * <p>Results are dropped incrementally: package changes only drop the state of the changed
+ * package and its user, and app op changes only drop the op lists containing the changed op.
+ * Callers that reload on app op changes should do so from an {@link OnOpChangedListener}, which
+ * is called once the op lists are dropped. The package manager and app ops calls are made
+ * without holding the lock, and their results are only cached if nothing was dropped meanwhile.
+ */
+public class AppOpsPermissionCache {
+
+    /** Listener for app op changes, called after the cached state of the op is dropped. */
+    public interface OnOpChangedListener {
+        /**
+         * Called when an app op watched by the cache changed.
+         *
+         * @param op the changed op, or {@link AppOpsManager#OP_NONE} if unknown
+         */
+        void onOpChanged(int op);
+    }
+
+    private static AppOpsPermissionCache sInstance;
+
+    private final IPackageManager mPackageManager;
+    private final AppOpsManager mAppOpsManager;
+    private final boolean mWatchChanges;
+
+    private final Object mLock = new Object();
+    // Packages requesting an app op permission, by permission.
+    private final ArrayMap<String, String[]> mAppOpPermissionPackages = new ArrayMap<>();
+    // Package availability, by user and package name.
+    private final SparseArray<ArrayMap<String, Boolean>> mAvailablePackages = new SparseArray<>();
+    // Packages holding a set of permissions, by user and permission set.
+    private final SparseArray<ArrayMap<String, List<PackageInfo>>> mPackagesHoldingPermissions =
+            new SparseArray<>();
+    // Package ops, by op set.
+    private final ArrayMap<String, OpsEntry> mPackagesForOps = new ArrayMap<>();
+    // Ops that we already registered a mode watcher for.
+    private final ArraySet<Integer> mWatchedOps = new ArraySet<>();
+    // Incremented whenever cached state is dropped, so that results loaded before are not kept.
+    private int mGeneration;
+    private final List<OnOpChangedListener> mOpChangedListeners =
+            new CopyOnWriteArrayList<>();
+
+    private final AppOpsManager.OnOpChangedListener mOpChangedListener =
+            (op, packageName) -> onOpChanged(AppOpsManager.strOpToOp(op));
+
+    private final BroadcastReceiver mPackageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            final Uri data = intent.getData();
+            final String packageName = data != null ? data.getSchemeSpecificPart() : null;
+            final int uid = intent.getIntExtra(Intent.EXTRA_UID, -1);
+            onPackageChanged(packageName,
+                    uid != -1 ? UserHandle.getUserId(uid) : getSendingUserId());
+        }
+    };
+
+    /** Returns the shared instance, which tracks package and app op changes. */
+    public static AppOpsPermissionCache getInstance(Context context) {
+        synchronized (AppOpsPermissionCache.class) {
+            if (sInstance == null) {
+                final Context appContext = context.getApplicationContext();
+                sInstance = new AppOpsPermissionCache(AppGlobals.getPackageManager(),
+                        appContext.getSystemService(AppOpsManager.class),
+                        /* watchChanges= */ true);
+                sInstance.registerPackageReceiver(appContext);
+            }
+            return sInstance;
+        }
+    }
+
+    /**
+     * Creates an unshared instance which does not watch for changes, for callers that supply
+     * their own package manager.
+     */
+    public AppOpsPermissionCache(IPackageManager packageManager, AppOpsManager appOpsManager) {
+        this(packageManager, appOpsManager, /* watchChanges= */ false);
+    }
+
+    @VisibleForTesting
+    AppOpsPermissionCache(IPackageManager packageManager, AppOpsManager appOpsManager,
+            boolean watchChanges) {
+        mPackageManager = packageManager;
+        mAppOpsManager = appOpsManager;
+        mWatchChanges = watchChanges;
+    }
+
+    /** See {@link IPackageManager#getAppOpPermissionPackages(String)}. */
+    public String[] getAppOpPermissionPackages(String permission) throws RemoteException {
+        final int generation;
+        synchronized (mLock) {
+            final String[] packages = mAppOpPermissionPackages.get(permission);
+            if (packages != null) {
+                return packages;
+            }
+            generation = mGeneration;
+        }
+        String[] packages = mPackageManager.getAppOpPermissionPackages(permission);
+        if (packages == null) {
+            packages = new String[0];
+        }
+        synchronized (mLock) {
+            if (generation == mGeneration) {
+                mAppOpPermissionPackages.put(permission, packages);
+            }
+        }
+        return packages;
+    }
+
+    /** See {@link IPackageManager#isPackageAvailable(String, int)}. */
+    public boolean isPackageAvailable(String packageName, int userId) throws RemoteException {
+        final int generation;
+        synchronized (mLock) {
+            final ArrayMap<String, Boolean> userPackages = mAvailablePackages.get(userId);
+            final Boolean available = userPackages != null ? userPackages.get(packageName) : null;
+            if (available != null) {
+                return available;
+            }
+            generation = mGeneration;
+        }
+        final boolean available = mPackageManager.isPackageAvailable(packageName, userId);
+        synchronized (mLock) {
+            if (generation == mGeneration) {
+                ArrayMap<String, Boolean> userPackages = mAvailablePackages.get(userId);
+                if (userPackages == null) {
+                    userPackages = new ArrayMap<>();
+                    mAvailablePackages.put(userId, userPackages);
+                }
+                userPackages.put(packageName, available);
+            }
+        }
+        return available;
+    }
+
+    /**
+     * See {@link IPackageManager#getPackagesHoldingPermissions(String[], long, int)}, without
+     * any flags. The returned list must not be modified.
+     */
+    @SuppressWarnings("unchecked")
+    public List<PackageInfo> getPackagesHoldingPermissions(String[] permissions, int userId)
+            throws RemoteException {
+        final String key = Arrays.toString(permissions);
+        final int generation;
+        synchronized (mLock) {
+            final ArrayMap<String, List<PackageInfo>> userPackages =
+                    mPackagesHoldingPermissions.get(userId);
+            if (userPackages != null && userPackages.containsKey(key)) {
+                return userPackages.get(key);
+            }
+            generation = mGeneration;
+        }
+        final List<PackageInfo> packageInfos = mPackageManager.getPackagesHoldingPermissions(
+                permissions, 0, userId).getList();
+        synchronized (mLock) {
+            if (generation == mGeneration) {
+                ArrayMap<String, List<PackageInfo>> userPackages =
+                        mPackagesHoldingPermissions.get(userId);
+                if (userPackages == null) {
+                    userPackages = new ArrayMap<>();
+                    mPackagesHoldingPermissions.put(userId, userPackages);
+                }
+                userPackages.put(key, packageInfos);
+            }
+        }
+        return packageInfos;
+    }
+
+    /**
+     * See {@link AppOpsManager#getPackagesForOps(int[])}. The returned list must not be
+     * modified.
+     */
+    public List<PackageOps> getPackagesForOps(int[] ops) {
+        final String key = Arrays.toString(ops);
+        final int generation;
+        synchronized (mLock) {
+            final OpsEntry entry = mPackagesForOps.get(key);
+            if (entry != null) {
+                return entry.mPackageOps;
+            }
+            generation = mGeneration;
+        }
+        // Watch first, so that a change made while loading drops the result.
+        watchOps(ops);
+        final List<PackageOps> packageOps = mAppOpsManager.getPackagesForOps(ops);
+        synchronized (mLock) {
+            if (generation == mGeneration) {
+                mPackagesForOps.put(key, new OpsEntry(ops, packageOps));
+            }
+        }
+        return packageOps;
+    }
+
+    /** Registers a listener called after an app op watched by the cache changed. */
+    public void addOnOpChangedListener(OnOpChangedListener listener) {
+        mOpChangedListeners.add(listener);
+    }
+
+    /** Unregisters a listener added by {@link #addOnOpChangedListener}. */
+    public void removeOnOpChangedListener(OnOpChangedListener listener) {
+        mOpChangedListeners.remove(listener);
+    }
+
+    /** Drops all cached state. */
+    public void invalidate() {
+        synchronized (mLock) {
+            mGeneration++;
+            mAppOpPermissionPackages.clear();
+            mAvailablePackages.clear();
+            mPackagesHoldingPermissions.clear();
+            mPackagesForOps.clear();
+        }
+    }
+
+    @VisibleForTesting
+    void onPackageChanged(String packageName, int userId) {
+        synchronized (mLock) {
+            mGeneration++;
+            // Requested permissions are not tracked per package, and package ops lists may
+            // now include or miss this package.
+            mAppOpPermissionPackages.clear();
+            mPackagesForOps.clear();
+            mPackagesHoldingPermissions.remove(userId);
+            final ArrayMap<String, Boolean> userPackages = mAvailablePackages.get(userId);
+            if (userPackages != null) {
+                if (packageName != null) {
+                    userPackages.remove(packageName);
+                } else {
+                    userPackages.clear();
+                }
+            }
+        }
+    }
+
+    @VisibleForTesting
+    void onOpChanged(int op) {
+        synchronized (mLock) {
+            mGeneration++;
+            for (int i = mPackagesForOps.size() - 1; i >= 0; i--) {
+                if (op == AppOpsManager.OP_NONE
+                        || ArrayUtils.contains(mPackagesForOps.valueAt(i).mOps, op)) {
+                    mPackagesForOps.removeAt(i);
+                }
+            }
+        }
+        for (OnOpChangedListener listener : mOpChangedListeners) {
+            listener.onOpChanged(op);
+        }
+    }
+
+    private void watchOps(int[] ops) {
+        if (!mWatchChanges) {
+            return;
+        }
+        final List<Integer> newOps = new ArrayList<>();
+        synchronized (mLock) {
+            for (int op : ops) {
+                if (mWatchedOps.add(op)) {
+                    newOps.add(op);
+                }
+            }
+        }
+        for (int op : newOps) {
+            mAppOpsManager.startWatchingMode(op, null, mOpChangedListener);
+        }
+    }
+
+    private void registerPackageReceiver(Context context) {
+        final IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addDataScheme("package");
+        context.registerReceiverAsUser(mPackageReceiver, UserHandle.ALL, filter, null, null);
+    }
+
+    private static final class OpsEntry {
+        final int[] mOps;
+        final List<PackageOps> mPackageOps;
+
+        OpsEntry(int[] ops, List<PackageOps> packageOps) {
+            mOps = ops.clone();
+            mPackageOps = packageOps;
+        }
+    }
+}
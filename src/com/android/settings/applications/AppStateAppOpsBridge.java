@@ -31,6 +31,7 @@ import android.util.SparseArray;
 
 import androidx.annotation.VisibleForTesting;
 
+import com.android.internal.util.ArrayUtils;
 import com.android.settingslib.applications.ApplicationsState;
 import com.android.settingslib.applications.ApplicationsState.AppEntry;
 
@@ -49,23 +50,29 @@ public abstract class AppStateAppOpsBridge extends AppStateBaseBridge {
     private static final String TAG = "AppStateAppOpsBridge";
 
     private final IPackageManager mIPackageManager;
+    private final AppOpsPermissionCache mPermissionCache;
     private final UserManager mUserManager;
     private final List<UserHandle> mProfiles;
     private final AppOpsManager mAppOpsManager;
     private final Context mContext;
     private final int[] mAppOpsOpCodes;
     private final String[] mPermissions;
+    // Reloads once the cache dropped the state of a changed op, rather than racing with it.
+    private final AppOpsPermissionCache.OnOpChangedListener mOpChangedListener = op -> {
+        if (op == AppOpsManager.OP_NONE || ArrayUtils.contains(mAppOpsOpCodes, op)) {
+            onPackageListChanged();
+        }
+    };
 
     public AppStateAppOpsBridge(Context context, ApplicationsState appState, Callback callback,
             int appOpsOpCode, String[] permissions) {
-        this(context, appState, callback, appOpsOpCode, permissions,
-                AppGlobals.getPackageManager());
+        this(context, appState, callback, new int[]{appOpsOpCode}, permissions);
     }
 
     AppStateAppOpsBridge(Context context, ApplicationsState appState, Callback callback,
             int[] appOpsOpCodes, String[] permissions) {
         this(context, appState, callback, appOpsOpCodes, permissions,
-                AppGlobals.getPackageManager());
+                AppGlobals.getPackageManager(), AppOpsPermissionCache.getInstance(context));
     }
 
     @VisibleForTesting
@@ -77,9 +84,18 @@ public abstract class AppStateAppOpsBridge extends AppStateBaseBridge {
 
     AppStateAppOpsBridge(Context context, ApplicationsState appState, Callback callback,
             int[] appOpsOpCodes, String[] permissions, IPackageManager packageManager) {
+        this(context, appState, callback, appOpsOpCodes, permissions, packageManager,
+                new AppOpsPermissionCache(packageManager,
+                        (AppOpsManager) context.getSystemService(Context.APP_OPS_SERVICE)));
+    }
+
+    private AppStateAppOpsBridge(Context context, ApplicationsState appState, Callback callback,
+            int[] appOpsOpCodes, String[] permissions, IPackageManager packageManager,
+            AppOpsPermissionCache permissionCache) {
         super(appState, callback);
         mContext = context;
         mIPackageManager = packageManager;
+        mPermissionCache = permissionCache;
         mUserManager = UserManager.get(context);
         mProfiles = mUserManager.getUserProfiles();
         mAppOpsManager = (AppOpsManager) context.getSystemService(Context.APP_OPS_SERVICE);
@@ -87,6 +103,18 @@ public abstract class AppStateAppOpsBridge extends AppStateBaseBridge {
         mPermissions = permissions;
     }
 
+    @Override
+    public void resume(boolean forceLoadAllApps) {
+        super.resume(forceLoadAllApps);
+        mPermissionCache.addOnOpChangedListener(mOpChangedListener);
+    }
+
+    @Override
+    public void pause() {
+        mPermissionCache.removeOnOpChangedListener(mOpChangedListener);
+        super.pause();
+    }
+
     private boolean isThisUserAProfileOfCurrentUser(final int userId) {
         final int profilesMax = mProfiles.size();
         for (int i = 0; i < profilesMax; i++) {
@@ -174,7 +202,7 @@ public abstract class AppStateAppOpsBridge extends AppStateBaseBridge {
         try {
             Set<String> packagesSet = new HashSet<>();
             for (String permission : mPermissions) {
-                String[] pkgs = mIPackageManager.getAppOpPermissionPackages(permission);
+                String[] pkgs = mPermissionCache.getAppOpPermissionPackages(permission);
                 if (pkgs != null) {
                     packagesSet.addAll(Arrays.asList(pkgs));
                 }
@@ -193,7 +221,7 @@ public abstract class AppStateAppOpsBridge extends AppStateBaseBridge {
                 final int profileId = profile.getIdentifier();
                 entries.put(profileId, entriesForProfile);
                 for (final String packageName : packagesSet) {
-                    final boolean isAvailable = mIPackageManager.isPackageAvailable(packageName,
+                    final boolean isAvailable = mPermissionCache.isPackageAvailable(packageName,
                             profileId);
                     if (!shouldIgnorePackage(packageName) && isAvailable) {
                         final PermissionState newEntry = new PermissionState(packageName, profile);
@@ -227,10 +255,8 @@ public abstract class AppStateAppOpsBridge extends AppStateBaseBridge {
                 if (entriesForProfile == null) {
                     continue;
                 }
-                @SuppressWarnings("unchecked") final List<PackageInfo> packageInfos =
-                        mIPackageManager
-                                .getPackagesHoldingPermissions(mPermissions, 0,
-                                        profileId).getList();
+                final List<PackageInfo> packageInfos =
+                        mPermissionCache.getPackagesHoldingPermissions(mPermissions, profileId);
                 final int packageInfoCount = packageInfos != null ? packageInfos.size() : 0;
                 for (int i = 0; i < packageInfoCount; i++) {
                     final PackageInfo packageInfo = packageInfos.get(i);
@@ -258,7 +284,7 @@ public abstract class AppStateAppOpsBridge extends AppStateBaseBridge {
         }
 
         // Find out which packages have been granted permission from AppOps.
-        final List<AppOpsManager.PackageOps> packageOps = mAppOpsManager.getPackagesForOps(
+        final List<AppOpsManager.PackageOps> packageOps = mPermissionCache.getPackagesForOps(
                 mAppOpsOpCodes);
         final int packageOpsCount = packageOps != null ? packageOps.size() : 0;
         for (int i = 0; i < packageOpsCount; i++) {
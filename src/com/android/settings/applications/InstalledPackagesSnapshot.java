@@ -0,0 +1,479 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.content.BroadcastReceiver;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.os.UserHandle;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+import android.util.SparseArray;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * A process wide, per user snapshot of the installed applications, packages and resolved
+ * components that Settings pages list, so that opening several of them in a row does not
+ * fetch the whole package list again for each page.
+ *
+ * <p>Every distinct query (flags, and intent for component queries) is loaded lazily on first
+ * use. Package broadcasts only mark the changed packages as stale; they are fetched again the
+ * next time a query that may contain them is read. The queries of a removed user are dropped,
+ * as are the queries not read for {@link #UNUSED_ENTRY_TIMEOUT_MS} and all of them when the
+ * process is trimmed in the background.
+ *
+ * <p>Loading runs outside of the lock of the snapshot, so that reading one query does not wait
+ * for another one to load. Callers of a query being loaded wait for that load.
+ *
+ * <p>The returned lists belong to the caller, but the {@link ApplicationInfo},
+ * {@link PackageInfo} and {@link ResolveInfo} objects in them are shared by every caller of the
+ * same query and must not be modified.
+ */
+public class InstalledPackagesSnapshot {
+
+    // Queries not read for this long are dropped.
+    @VisibleForTesting
+    static final long UNUSED_ENTRY_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(10);
+
+    private static InstalledPackagesSnapshot sInstance;
+
+    private final PackageManager mPackageManager;
+
+    private final Object mLock = new Object();
+    // Loaded queries, by user and query key.
+    private final SparseArray<ArrayMap<String, Entry<?>>> mEntries = new SparseArray<>();
+    private int mHitCount;
+    private int mMissCount;
+
+    private final BroadcastReceiver mPackageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            final String action = intent.getAction();
+            if (Intent.ACTION_USER_REMOVED.equals(action)) {
+                onUserRemoved(intent.getIntExtra(Intent.EXTRA_USER_HANDLE, UserHandle.USER_NULL));
+                return;
+            }
+            final String[] packageNames =
+                    intent.getStringArrayExtra(Intent.EXTRA_CHANGED_PACKAGE_LIST);
+            if (packageNames != null) {
+                // Suspended, unsuspended or external packages, for the sending user.
+                for (String packageName : packageNames) {
+                    onPackageChanged(packageName, getSendingUserId());
+                }
+                return;
+            }
+            final Uri data = intent.getData();
+            final String packageName = data != null ? data.getSchemeSpecificPart() : null;
+            final int uid = intent.getIntExtra(Intent.EXTRA_UID, -1);
+            onPackageChanged(packageName,
+                    uid != -1 ? UserHandle.getUserId(uid) : getSendingUserId());
+        }
+    };
+
+    /** Returns the shared instance, which tracks package changes. */
+    public static InstalledPackagesSnapshot getInstance(Context context) {
+        synchronized (InstalledPackagesSnapshot.class) {
+            if (sInstance == null) {
+                final Context appContext = context.getApplicationContext();
+                sInstance = new InstalledPackagesSnapshot(appContext.getPackageManager());
+                sInstance.registerPackageReceiver(appContext);
+            }
+            return sInstance;
+        }
+    }
+
+    /** Drops the loaded queries of the shared instance, if any, when the process is trimmed. */
+    public static void trimMemory(int level) {
+        final InstalledPackagesSnapshot instance;
+        synchronized (InstalledPackagesSnapshot.class) {
+            instance = sInstance;
+        }
+        if (instance != null) {
+            instance.onTrimMemory(level);
+        }
+    }
+
+    /**
+     * Creates an unshared instance which does not watch for package changes, for callers that
+     * supply their own package manager.
+     */
+    public InstalledPackagesSnapshot(PackageManager packageManager) {
+        mPackageManager = packageManager;
+    }
+
+    /** See {@link PackageManager#getInstalledApplicationsAsUser(int, int)}. */
+    public List<ApplicationInfo> getInstalledApplications(int flags, int userId) {
+        return getInstalledApplications(flags, userId, null /* filter */);
+    }
+
+    /**
+     * See {@link PackageManager#getInstalledApplicationsAsUser(int, int)}, only returning the
+     * applications accepted by {@code filter}.
+     */
+    public List<ApplicationInfo> getInstalledApplications(int flags, int userId,
+            Predicate<ApplicationInfo> filter) {
+        return query("applications:" + flags, userId, filter,
+                () -> new ApplicationsEntry(flags, userId));
+    }
+
+    /** See {@link PackageManager#getInstalledPackagesAsUser(int, int)}. */
+    public List<PackageInfo> getInstalledPackages(int flags, int userId) {
+        return getInstalledPackages(flags, userId, null /* filter */);
+    }
+
+    /**
+     * See {@link PackageManager#getInstalledPackagesAsUser(int, int)}, only returning the
+     * packages accepted by {@code filter}.
+     */
+    public List<PackageInfo> getInstalledPackages(int flags, int userId,
+            Predicate<PackageInfo> filter) {
+        return query("packages:" + flags, userId, filter,
+                () -> new PackagesEntry(flags, userId));
+    }
+
+    /** See {@link PackageManager#queryIntentActivitiesAsUser(Intent, int, int)}. */
+    public List<ResolveInfo> queryIntentActivities(Intent intent, int flags, int userId) {
+        return query("activities:" + flags + ":" + intent.toUri(0), userId, null /* filter */,
+                () -> new ResolveEntry(intent, flags, userId, /* services= */ false));
+    }
+
+    /** See {@link PackageManager#queryIntentServicesAsUser(Intent, int, int)}. */
+    public List<ResolveInfo> queryIntentServices(Intent intent, int flags, int userId) {
+        return query("services:" + flags + ":" + intent.toUri(0), userId, null /* filter */,
+                () -> new ResolveEntry(intent, flags, userId, /* services= */ true));
+    }
+
+    /** Returns how many queries were answered without loading the whole list. */
+    public int getHitCount() {
+        synchronized (mLock) {
+            return mHitCount;
+        }
+    }
+
+    /** Returns how many queries had to load the whole list. */
+    public int getMissCount() {
+        synchronized (mLock) {
+            return mMissCount;
+        }
+    }
+
+    /** Drops all loaded queries. */
+    public void invalidate() {
+        synchronized (mLock) {
+            mEntries.clear();
+        }
+    }
+
+    @VisibleForTesting
+    void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            invalidate();
+        }
+    }
+
+    @VisibleForTesting
+    void onPackageChanged(String packageName, int userId) {
+        synchronized (mLock) {
+            final ArrayMap<String, Entry<?>> userEntries = mEntries.get(userId);
+            if (userEntries == null) {
+                return;
+            }
+            if (packageName == null) {
+                mEntries.remove(userId);
+                return;
+            }
+            for (int i = 0; i < userEntries.size(); i++) {
+                userEntries.valueAt(i).mStalePackages.add(packageName);
+            }
+        }
+    }
+
+    @VisibleForTesting
+    void onUserRemoved(int userId) {
+        synchronized (mLock) {
+            mEntries.remove(userId);
+        }
+    }
+
+    private <T> List<T> query(String key, int userId, Predicate<T> filter,
+            EntryFactory<T> factory) {
+        Entry<T> entry;
+        List<T> items = null;
+        synchronized (mLock) {
+            final long now = SystemClock.elapsedRealtime();
+            dropUnusedEntriesLocked(now);
+            ArrayMap<String, Entry<?>> userEntries = mEntries.get(userId);
+            if (userEntries == null) {
+                userEntries = new ArrayMap<>();
+                mEntries.put(userId, userEntries);
+            }
+            @SuppressWarnings("unchecked")
+            final Entry<T> existingEntry = (Entry<T>) userEntries.get(key);
+            entry = existingEntry;
+            if (entry == null) {
+                entry = factory.create();
+                userEntries.put(key, entry);
+            }
+            entry.mLastUsedTime = now;
+            if (entry.mItems != null && entry.mStalePackages.isEmpty()) {
+                items = entry.mItems;
+                mHitCount++;
+            }
+        }
+        if (items == null) {
+            // Only one caller loads the query, the others wait for its result.
+            synchronized (entry) {
+                items = load(entry);
+            }
+        }
+        final List<T> result = new ArrayList<>(items.size());
+        for (T item : items) {
+            if (filter == null || filter.test(item)) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    /** Loads or refreshes the items of {@code entry} and publishes them. */
+    private <T> List<T> load(Entry<T> entry) {
+        final List<T> items;
+        final ArraySet<String> stalePackages;
+        synchronized (mLock) {
+            if (entry.mItems != null && entry.mStalePackages.isEmpty()) {
+                // Loaded by the caller this one waited for.
+                mHitCount++;
+                return entry.mItems;
+            }
+            items = entry.mItems;
+            stalePackages = new ArraySet<>(entry.mStalePackages);
+            entry.mStalePackages.clear();
+            if (items == null) {
+                mMissCount++;
+            } else {
+                mHitCount++;
+            }
+        }
+        final List<T> loadedItems;
+        try {
+            loadedItems = items == null
+                    ? entry.loadAll() : entry.refresh(items, stalePackages);
+        } catch (RuntimeException e) {
+            synchronized (mLock) {
+                entry.mStalePackages.addAll(stalePackages);
+            }
+            throw e;
+        }
+        synchronized (mLock) {
+            // Packages changed during the load are still stale, and refreshed on the next read.
+            entry.mItems = loadedItems;
+        }
+        return loadedItems;
+    }
+
+    private void dropUnusedEntriesLocked(long now) {
+        for (int i = mEntries.size() - 1; i >= 0; i--) {
+            final ArrayMap<String, Entry<?>> userEntries = mEntries.valueAt(i);
+            for (int j = userEntries.size() - 1; j >= 0; j--) {
+                if (now - userEntries.valueAt(j).mLastUsedTime >= UNUSED_ENTRY_TIMEOUT_MS) {
+                    userEntries.removeAt(j);
+                }
+            }
+            if (userEntries.isEmpty()) {
+                mEntries.removeAt(i);
+            }
+        }
+    }
+
+    private void registerPackageReceiver(Context context) {
+        final IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addDataScheme("package");
+        context.registerReceiverAsUser(mPackageReceiver, UserHandle.ALL, filter, null, null);
+
+        final IntentFilter packageListFilter = new IntentFilter();
+        packageListFilter.addAction(Intent.ACTION_PACKAGES_SUSPENDED);
+        packageListFilter.addAction(Intent.ACTION_PACKAGES_UNSUSPENDED);
+        packageListFilter.addAction(Intent.ACTION_EXTERNAL_APPLICATIONS_AVAILABLE);
+        packageListFilter.addAction(Intent.ACTION_EXTERNAL_APPLICATIONS_UNAVAILABLE);
+        packageListFilter.addAction(Intent.ACTION_USER_REMOVED);
+        context.registerReceiverAsUser(mPackageReceiver, UserHandle.ALL, packageListFilter, null,
+                null);
+    }
+
+    private interface EntryFactory<T> {
+        Entry<T> create();
+    }
+
+    /**
+     * The loaded result of one query, and the packages that changed since. The fields are
+     * guarded by the lock of the snapshot, and the entry itself is locked while loading.
+     */
+    private abstract static class Entry<T> {
+        // Null until loaded. Replaced as a whole, never modified once published.
+        List<T> mItems;
+        final ArraySet<String> mStalePackages = new ArraySet<>();
+        long mLastUsedTime;
+
+        abstract List<T> loadAll();
+
+        /** Returns {@code items} with the items of {@code stalePackages} brought up to date. */
+        abstract List<T> refresh(List<T> items, ArraySet<String> stalePackages);
+    }
+
+    /** A query whose items are fetched again one package at a time. */
+    private abstract static class PackageEntry<T> extends Entry<T> {
+        abstract List<T> loadPackage(String packageName);
+
+        abstract String getPackageName(T item);
+
+        /** Replaces the items of the stale packages in place, keeping the order of the list. */
+        @Override
+        List<T> refresh(List<T> items, ArraySet<String> stalePackages) {
+            final ArrayList<T> refreshedItems = new ArrayList<>(items);
+            for (int i = 0; i < stalePackages.size(); i++) {
+                final String packageName = stalePackages.valueAt(i);
+                int index = -1;
+                for (int j = refreshedItems.size() - 1; j >= 0; j--) {
+                    if (packageName.equals(getPackageName(refreshedItems.get(j)))) {
+                        refreshedItems.remove(j);
+                        index = j;
+                    }
+                }
+                refreshedItems.addAll(index >= 0 ? index : refreshedItems.size(),
+                        loadPackage(packageName));
+            }
+            return refreshedItems;
+        }
+    }
+
+    private final class ApplicationsEntry extends PackageEntry<ApplicationInfo> {
+        private final int mFlags;
+        private final int mUserId;
+
+        ApplicationsEntry(int flags, int userId) {
+            mFlags = flags;
+            mUserId = userId;
+        }
+
+        @Override
+        List<ApplicationInfo> loadAll() {
+            return mPackageManager.getInstalledApplicationsAsUser(mFlags, mUserId);
+        }
+
+        @Override
+        List<ApplicationInfo> loadPackage(String packageName) {
+            try {
+                return List.of(
+                        mPackageManager.getApplicationInfoAsUser(packageName, mFlags, mUserId));
+            } catch (PackageManager.NameNotFoundException e) {
+                return List.of();
+            }
+        }
+
+        @Override
+        String getPackageName(ApplicationInfo item) {
+            return item.packageName;
+        }
+    }
+
+    private final class PackagesEntry extends PackageEntry<PackageInfo> {
+        private final int mFlags;
+        private final int mUserId;
+
+        PackagesEntry(int flags, int userId) {
+            mFlags = flags;
+            mUserId = userId;
+        }
+
+        @Override
+        List<PackageInfo> loadAll() {
+            return mPackageManager.getInstalledPackagesAsUser(mFlags, mUserId);
+        }
+
+        @Override
+        List<PackageInfo> loadPackage(String packageName) {
+            try {
+                return List.of(
+                        mPackageManager.getPackageInfoAsUser(packageName, mFlags, mUserId));
+            } catch (PackageManager.NameNotFoundException e) {
+                return List.of();
+            }
+        }
+
+        @Override
+        String getPackageName(PackageInfo item) {
+            return item.packageName;
+        }
+    }
+
+    private final class ResolveEntry extends Entry<ResolveInfo> {
+        private final Intent mIntent;
+        private final int mFlags;
+        private final int mUserId;
+        private final boolean mServices;
+
+        ResolveEntry(Intent intent, int flags, int userId, boolean services) {
+            mIntent = new Intent(intent);
+            mFlags = flags;
+            mUserId = userId;
+            mServices = services;
+        }
+
+        @Override
+        List<ResolveInfo> loadAll() {
+            return query(mIntent);
+        }
+
+        /**
+         * Queries everything again when a package that may match changed, since the results
+         * are sorted by priority and a changed component can move anywhere in them.
+         */
+        @Override
+        List<ResolveInfo> refresh(List<ResolveInfo> items, ArraySet<String> stalePackages) {
+            for (int i = 0; i < stalePackages.size(); i++) {
+                final String packageName = stalePackages.valueAt(i);
+                if (mIntent.getPackage() == null || packageName.equals(mIntent.getPackage())) {
+                    return loadAll();
+                }
+            }
+            return items;
+        }
+
+        private List<ResolveInfo> query(Intent intent) {
+            return mServices
+                    ? mPackageManager.queryIntentServicesAsUser(intent, mFlags, mUserId)
+                    : mPackageManager.queryIntentActivitiesAsUser(intent, mFlags, mUserId);
+        }
+    }
+}
@@ -25,10 +25,13 @@ import android.os.ServiceManager;
 import android.os.SystemClock;
 import android.text.format.Formatter;
 import android.util.ArrayMap;
+import android.util.IntArray;
 import android.util.Log;
 import android.util.LongSparseArray;
 import android.util.SparseArray;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.android.internal.app.ProcessMap;
 import com.android.internal.app.procstats.DumpUtils;
 import com.android.internal.app.procstats.IProcessStats;
@@ -44,6 +47,7 @@ import com.android.settings.Utils;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 
@@ -53,8 +57,18 @@ public class ProcStatsData {
 
     private static final boolean DEBUG = ProcessStatsUi.DEBUG;
 
+    // How long loaded stats and the entries aggregated from them are reused when switching
+    // back to a previously shown duration or memory state. Older ones are dropped.
+    @VisibleForTesting
+    static final long CACHE_VALIDITY_MS = 60 * 1000;
+
     private static ProcessStats sStatsXfer;
 
+    // Process stats loaded from the service, keyed by the requested duration.
+    private final LongSparseArray<LoadedStats> mLoadedStats = new LongSparseArray<>();
+    // Aggregated results, keyed by duration and the memory / process states selected.
+    private final ArrayMap<String, AggregatedStats> mAggregatedStats = new ArrayMap<>();
+
     private PackageManager mPm;
     private Context mContext;
     private long memTotalTime;
@@ -125,7 +139,13 @@ public class ProcStatsData {
     public void setDuration(long duration) {
         if (duration != mDuration) {
             mDuration = duration;
-            refreshStats(true);
+            final ProcessStats stats = getCachedStats(duration);
+            if (stats != null) {
+                mStats = stats;
+                refreshStats(false);
+            } else {
+                refreshStats(true);
+            }
         }
     }
 
@@ -141,11 +161,21 @@ public class ProcStatsData {
         if (mStats == null || forceLoad) {
             load();
         }
-
-        pkgEntries = new ArrayList<>();
+        pruneCache();
 
         long now = SystemClock.uptimeMillis();
 
+        final String key = getAggregationKey();
+        final AggregatedStats aggregated = mAggregatedStats.get(key);
+        if (aggregated != null && aggregated.mStats == mStats && isFresh(aggregated.mTime)) {
+            memTotalTime = aggregated.mMemTotalTime;
+            mMemInfo = aggregated.mMemInfo;
+            pkgEntries = aggregated.mEntries;
+            return;
+        }
+
+        pkgEntries = new ArrayList<>();
+
         memTotalTime = DumpUtils.dumpSingleTime(null, null, mStats.mMemFactorDurations,
                 mStats.mMemFactor, mStats.mStartTime, now);
 
@@ -168,6 +198,63 @@ public class ProcStatsData {
         ProcStatsPackageEntry osPkg = createOsEntry(bgTotals, runTotals, totalMem,
                 mMemInfo.baseCacheRam);
         pkgEntries.add(osPkg);
+
+        mAggregatedStats.put(key,
+                new AggregatedStats(mStats, now, memTotalTime, mMemInfo, pkgEntries));
+    }
+
+    private String getAggregationKey() {
+        return mDuration + "/" + Arrays.toString(mMemStates) + "/" + Arrays.toString(mStates);
+    }
+
+    private static boolean isFresh(long time) {
+        return SystemClock.uptimeMillis() - time < CACHE_VALIDITY_MS;
+    }
+
+    /** Returns the stats loaded for {@code duration}, or null if there are none fresh. */
+    @VisibleForTesting
+    ProcessStats getCachedStats(long duration) {
+        pruneCache();
+        final LoadedStats loaded = mLoadedStats.get(duration);
+        return loaded != null ? loaded.mStats : null;
+    }
+
+    @VisibleForTesting
+    void putCachedStats(long duration, ProcessStats stats) {
+        mLoadedStats.put(duration, new LoadedStats(stats, SystemClock.uptimeMillis()));
+        pruneCache();
+    }
+
+    @VisibleForTesting
+    int getCachedStatsCount() {
+        return mLoadedStats.size();
+    }
+
+    /**
+     * Drops the expired stats, and the aggregations of stats which expired or were replaced by
+     * a newer load of the same duration.
+     */
+    private void pruneCache() {
+        for (int i = mLoadedStats.size() - 1; i >= 0; i--) {
+            if (!isFresh(mLoadedStats.valueAt(i).mLoadTime)) {
+                mLoadedStats.removeAt(i);
+            }
+        }
+        for (int i = mAggregatedStats.size() - 1; i >= 0; i--) {
+            final AggregatedStats aggregated = mAggregatedStats.valueAt(i);
+            if (!isFresh(aggregated.mTime) || !isLoaded(aggregated.mStats)) {
+                mAggregatedStats.removeAt(i);
+            }
+        }
+    }
+
+    private boolean isLoaded(ProcessStats stats) {
+        for (int i = 0; i < mLoadedStats.size(); i++) {
+            if (mLoadedStats.valueAt(i).mStats == stats) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private void createPkgMap(ArrayList<ProcStatsEntry> procEntries, ProcessDataCollection bgTotals,
@@ -270,6 +357,11 @@ public class ProcStatsData {
         if (DEBUG) Log.d(TAG, "-------------------- PULLING PROCESSES");
 
         final ProcessMap<ProcStatsEntry> entriesMap = new ProcessMap<ProcStatsEntry>();
+        // Services are collected during the same walk over the packages, and mapped to their
+        // process entries once all processes are known.
+        final ArrayList<ServiceState> services = new ArrayList<>();
+        final ArrayList<String> servicePackages = new ArrayList<>();
+        final IntArray serviceUids = new IntArray();
         for (int ipkg = 0, N = mStats.mPackages.getMap().size(); ipkg < N; ipkg++) {
             final SparseArray<LongSparseArray<ProcessStats.PackageState>> pkgUids = mStats.mPackages
                     .getMap().valueAt(ipkg);
@@ -304,6 +396,14 @@ public class ProcStatsData {
                             ent.addPackage(st.mPackageName);
                         }
                     }
+                    for (int is = 0, NS = st.mServices.size(); is < NS; is++) {
+                        final ServiceState ss = st.mServices.valueAt(is);
+                        if (ss.getProcessName() != null) {
+                            services.add(ss);
+                            servicePackages.add(st.mPackageName);
+                            serviceUids.add(pkgUids.keyAt(iu));
+                        }
+                    }
                 }
             }
         }
@@ -311,30 +411,18 @@ public class ProcStatsData {
         if (DEBUG) Log.d(TAG, "-------------------- MAPPING SERVICES");
 
         // Add in service info.
-        for (int ip = 0, N = mStats.mPackages.getMap().size(); ip < N; ip++) {
-            SparseArray<LongSparseArray<ProcessStats.PackageState>> uids = mStats.mPackages.getMap()
-                    .valueAt(ip);
-            for (int iu = 0; iu < uids.size(); iu++) {
-                LongSparseArray<ProcessStats.PackageState> vpkgs = uids.valueAt(iu);
-                for (int iv = 0; iv < vpkgs.size(); iv++) {
-                    ProcessStats.PackageState ps = vpkgs.valueAt(iv);
-                    for (int is = 0, NS = ps.mServices.size(); is < NS; is++) {
-                        ServiceState ss = ps.mServices.valueAt(is);
-                        if (ss.getProcessName() != null) {
-                            ProcStatsEntry ent = entriesMap.get(ss.getProcessName(),
-                                    uids.keyAt(iu));
-                            if (ent != null) {
-                                if (DEBUG) Log.d(TAG, "Adding service " + ps.mPackageName
-                                            + "/" + ss.getName() + "/" + uids.keyAt(iu)
-                                            + " to proc " + ss.getProcessName());
-                                ent.addService(ss);
-                            } else {
-                                Log.w(TAG, "No process " + ss.getProcessName() + "/"
-                                        + uids.keyAt(iu) + " for service " + ss.getName());
-                            }
-                        }
-                    }
-                }
+        for (int is = 0, NS = services.size(); is < NS; is++) {
+            final ServiceState ss = services.get(is);
+            final int uid = serviceUids.get(is);
+            ProcStatsEntry ent = entriesMap.get(ss.getProcessName(), uid);
+            if (ent != null) {
+                if (DEBUG) Log.d(TAG, "Adding service " + servicePackages.get(is)
+                            + "/" + ss.getName() + "/" + uid
+                            + " to proc " + ss.getProcessName());
+                ent.addService(ss);
+            } else {
+                Log.w(TAG, "No process " + ss.getProcessName() + "/"
+                        + uid + " for service " + ss.getName());
             }
         }
 
@@ -354,11 +442,39 @@ public class ProcStatsData {
             if (mStats.mReadError != null) {
                 Log.w(TAG, "Failure reading process stats: " + mStats.mReadError);
             }
+            putCachedStats(mDuration, mStats);
         } catch (RemoteException e) {
             Log.e(TAG, "RemoteException:", e);
         }
     }
 
+    private static final class LoadedStats {
+        final ProcessStats mStats;
+        final long mLoadTime;
+
+        LoadedStats(ProcessStats stats, long loadTime) {
+            mStats = stats;
+            mLoadTime = loadTime;
+        }
+    }
+
+    private static final class AggregatedStats {
+        final ProcessStats mStats;
+        final long mTime;
+        final long mMemTotalTime;
+        final MemInfo mMemInfo;
+        final ArrayList<ProcStatsPackageEntry> mEntries;
+
+        AggregatedStats(ProcessStats stats, long time, long memTotalTime, MemInfo memInfo,
+                ArrayList<ProcStatsPackageEntry> entries) {
+            mStats = stats;
+            mTime = time;
+            mMemTotalTime = memTotalTime;
+            mMemInfo = memInfo;
+            mEntries = entries;
+        }
+    }
+
     public static class MemInfo {
         public double realUsedRam;
         public double realFreeRam;
@@ -19,7 +19,6 @@ package com.android.settings.applications;
 import android.app.ActivityManager;
 import android.app.Dialog;
 import android.content.Context;
-import android.content.pm.PackageManager;
 import android.content.res.ColorStateList;
 import android.graphics.PorterDuff;
 import android.os.Bundle;
@@ -28,6 +27,8 @@ import android.os.UserHandle;
 import android.text.BidiFormatter;
 import android.text.format.DateUtils;
 import android.text.format.Formatter;
+import android.util.ArrayMap;
+import android.util.ArraySet;
 import android.util.AttributeSet;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -48,9 +49,9 @@ import com.android.settings.Utils;
 import com.android.settings.core.SubSettingLauncher;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 
 public class RunningProcessesView extends FrameLayout
         implements AdapterView.OnItemClickListener, RecyclerListener,
@@ -97,34 +98,35 @@ public class RunningProcessesView extends FrameLayout
 
     public static class ActiveItem {
         View mRootView;
-        RunningState.BaseItem mItem;
+        RunningState.ItemRow mRow;
         ActivityManager.RunningServiceInfo mService;
         ViewHolder mHolder;
         long mFirstRunTime;
         boolean mSetBackground;
+        String mCurSizeStr;
 
         void updateTime(Context context, StringBuilder builder) {
             TextView uptimeView = null;
 
-            if (mItem instanceof RunningState.ServiceItem) {
+            if (mRow.mItem instanceof RunningState.ServiceItem) {
                 // If we are displaying a service, then the service
                 // uptime goes at the top.
                 uptimeView = mHolder.size;
 
             } else {
-                String size = mItem.mSizeStr != null ? mItem.mSizeStr : "";
-                if (!size.equals(mItem.mCurSizeStr)) {
-                    mItem.mCurSizeStr = size;
+                String size = mRow.mSizeStr != null ? mRow.mSizeStr : "";
+                if (!size.equals(mCurSizeStr)) {
+                    mCurSizeStr = size;
                     mHolder.size.setText(size);
                 }
 
-                if (mItem.mBackground) {
+                if (mRow.mBackground) {
                     // This is a background process; no uptime.
                     if (!mSetBackground) {
                         mSetBackground = true;
                         mHolder.uptime.setText("");
                     }
-                } else if (mItem instanceof RunningState.MergedItem) {
+                } else if (mRow.mItem instanceof RunningState.MergedItem) {
                     // This item represents both services and processes,
                     // so show the service uptime below.
                     uptimeView = mHolder.uptime;
@@ -139,11 +141,7 @@ public class RunningProcessesView extends FrameLayout
                     uptimeView.setText(DateUtils.formatElapsedTime(builder,
                             (SystemClock.elapsedRealtime()-mFirstRunTime)/1000));
                 } else {
-                    boolean isService = false;
-                    if (mItem instanceof RunningState.MergedItem) {
-                        isService = ((RunningState.MergedItem)mItem).mServices.size() > 0;
-                    }
-                    if (isService) {
+                    if (mRow.mHasServices) {
                         uptimeView.setText(context.getResources().getText(
                                 R.string.service_restarting));
                     } else {
@@ -174,35 +172,26 @@ public class RunningProcessesView extends FrameLayout
 
         public ActiveItem bind(RunningState state, RunningState.BaseItem item,
                 StringBuilder builder) {
-            synchronized (state.mLock) {
-                PackageManager pm = rootView.getContext().getPackageManager();
-                if (item.mPackageInfo == null && item instanceof RunningState.MergedItem) {
-                    // Items for background processes don't normally load
-                    // their labels for performance reasons.  Do it now.
-                    RunningState.MergedItem mergedItem = (RunningState.MergedItem)item;
-                    if (mergedItem.mProcess != null) {
-                        ((RunningState.MergedItem)item).mProcess.ensureLabel(pm);
-                        item.mPackageInfo = ((RunningState.MergedItem)item).mProcess.mPackageInfo;
-                        item.mDisplayLabel = ((RunningState.MergedItem)item).mProcess.mDisplayLabel;
-                    }
-                }
-                name.setText(item.mDisplayLabel);
-                ActiveItem ai = new ActiveItem();
-                ai.mRootView = rootView;
-                ai.mItem = item;
-                ai.mHolder = this;
-                ai.mFirstRunTime = item.mActiveSince;
-                if (item.mBackground) {
-                    description.setText(rootView.getContext().getText(R.string.cached));
-                } else {
-                    description.setText(item.mDescription);
-                }
-                item.mCurSizeStr = null;
-                icon.setImageDrawable(item.loadIcon(rootView.getContext(), state));
-                icon.setVisibility(View.VISIBLE);
-                ai.updateTime(rootView.getContext(), builder);
-                return ai;
+            return bind(state, new RunningState.ItemRow(item), builder);
+        }
+
+        public ActiveItem bind(RunningState state, RunningState.ItemRow row,
+                StringBuilder builder) {
+            name.setText(row.mDisplayLabel);
+            ActiveItem ai = new ActiveItem();
+            ai.mRootView = rootView;
+            ai.mRow = row;
+            ai.mHolder = this;
+            ai.mFirstRunTime = row.mActiveSince;
+            if (row.mBackground) {
+                description.setText(rootView.getContext().getText(R.string.cached));
+            } else {
+                description.setText(row.mDescription);
             }
+            icon.setImageDrawable(row.loadIcon(rootView.getContext(), state));
+            icon.setVisibility(View.VISIBLE);
+            ai.updateTime(rootView.getContext(), builder);
+            return ai;
         }
     }
 
@@ -210,9 +199,8 @@ public class RunningProcessesView extends FrameLayout
         final RunningState mState;
         final LayoutInflater mInflater;
         boolean mShowBackground;
-        ArrayList<RunningState.MergedItem> mOrigItems;
-        final ArrayList<RunningState.MergedItem> mItems
-                = new ArrayList<RunningState.MergedItem>();
+        // Rows of the last published snapshot; they are never modified.
+        ArrayList<RunningState.ItemRow> mItems = new ArrayList<RunningState.ItemRow>();
 
         ServiceListAdapter(RunningState state) {
             mState = state;
@@ -234,22 +222,20 @@ public class RunningProcessesView extends FrameLayout
             return mShowBackground;
         }
 
-        void refreshItems() {
-            ArrayList<RunningState.MergedItem> newItems =
-                mShowBackground ? mState.getCurrentBackgroundItems()
-                        : mState.getCurrentMergedItems();
-            if (mOrigItems != newItems) {
-                mOrigItems = newItems;
-                if (newItems == null) {
-                    mItems.clear();
-                } else {
-                    mItems.clear();
-                    mItems.addAll(newItems);
-                    if (mShowBackground) {
-                        Collections.sort(mItems, mState.mBackgroundComparator);
-                    }
-                }
+        /**
+         * Takes the rows of the last published snapshot, and returns whether they are for
+         * other items than before.
+         */
+        boolean refreshItems() {
+            final RunningState.Snapshot snapshot = mState.getSnapshot();
+            final ArrayList<RunningState.ItemRow> newItems =
+                    mShowBackground ? snapshot.mBackgroundRows : snapshot.mMergedRows;
+            boolean changed = newItems.size() != mItems.size();
+            for (int i = 0; !changed && i < newItems.size(); i++) {
+                changed = newItems.get(i).mItem != mItems.get(i).mItem;
             }
+            mItems = newItems;
+            return changed;
         }
 
         public boolean hasStableIds() {
@@ -270,7 +256,7 @@ public class RunningProcessesView extends FrameLayout
         }
 
         public long getItemId(int position) {
-            return mItems.get(position).hashCode();
+            return mItems.get(position).mItem.hashCode();
         }
 
         public boolean areAllItemsEnabled() {
@@ -299,18 +285,15 @@ public class RunningProcessesView extends FrameLayout
         }
 
         public void bindView(View view, int position) {
-            synchronized (mState.mLock) {
-                if (position >= mItems.size()) {
-                    // List must have changed since we last reported its
-                    // size...  ignore here, we will be doing a data changed
-                    // to refresh the entire list.
-                    return;
-                }
-                ViewHolder vh = (ViewHolder) view.getTag();
-                RunningState.MergedItem item = mItems.get(position);
-                ActiveItem ai = vh.bind(mState, item, mBuilder);
-                mActiveItems.put(view, ai);
+            if (position >= mItems.size()) {
+                // List must have changed since we last reported its
+                // size...  ignore here, we will be doing a data changed
+                // to refresh the entire list.
+                return;
             }
+            ViewHolder vh = (ViewHolder) view.getTag();
+            ActiveItem ai = vh.bind(mState, mItems.get(position), mBuilder);
+            mActiveItems.put(view, ai);
         }
     }
 
@@ -338,79 +321,78 @@ public class RunningProcessesView extends FrameLayout
         }
         */
 
-        synchronized (mState.mLock) {
-            if (mCurShowCached != mAdapter.mShowBackground) {
-                mCurShowCached = mAdapter.mShowBackground;
-                if (mCurShowCached) {
-                    mForegroundProcessPrefix.setText(getResources().getText(
-                            R.string.running_processes_header_used_prefix));
-                    mAppsProcessPrefix.setText(getResources().getText(
-                            R.string.running_processes_header_cached_prefix));
-                } else {
-                    mForegroundProcessPrefix.setText(getResources().getText(
-                            R.string.running_processes_header_system_prefix));
-                    mAppsProcessPrefix.setText(getResources().getText(
-                            R.string.running_processes_header_apps_prefix));
-                }
-            }
-
-            final long totalRam = mMemInfoReader.getTotalSize();
-            final long medRam;
-            final long lowRam;
+        final RunningState.Snapshot snapshot = mState.getSnapshot();
+        if (mCurShowCached != mAdapter.mShowBackground) {
+            mCurShowCached = mAdapter.mShowBackground;
             if (mCurShowCached) {
-                lowRam = mMemInfoReader.getFreeSize() + mMemInfoReader.getCachedSize();
-                medRam = mState.mBackgroundProcessMemory;
+                mForegroundProcessPrefix.setText(getResources().getText(
+                        R.string.running_processes_header_used_prefix));
+                mAppsProcessPrefix.setText(getResources().getText(
+                        R.string.running_processes_header_cached_prefix));
             } else {
-                lowRam = mMemInfoReader.getFreeSize() + mMemInfoReader.getCachedSize()
-                        + mState.mBackgroundProcessMemory;
-                medRam = mState.mServiceProcessMemory;
-
-            }
-            final long highRam = totalRam - medRam - lowRam;
-
-            if (mCurTotalRam != totalRam || mCurHighRam != highRam || mCurMedRam != medRam
-                    || mCurLowRam != lowRam) {
-                mCurTotalRam = totalRam;
-                mCurHighRam = highRam;
-                mCurMedRam = medRam;
-                mCurLowRam = lowRam;
-                BidiFormatter bidiFormatter = BidiFormatter.getInstance();
-                String sizeStr = bidiFormatter.unicodeWrap(
-                        Formatter.formatShortFileSize(getContext(), lowRam));
-                mBackgroundProcessText.setText(getResources().getString(
-                        R.string.running_processes_header_ram, sizeStr));
-                sizeStr = bidiFormatter.unicodeWrap(
-                        Formatter.formatShortFileSize(getContext(), medRam));
-                mAppsProcessText.setText(getResources().getString(
-                        R.string.running_processes_header_ram, sizeStr));
-                sizeStr = bidiFormatter.unicodeWrap(
-                        Formatter.formatShortFileSize(getContext(), highRam));
-                mForegroundProcessText.setText(getResources().getString(
-                        R.string.running_processes_header_ram, sizeStr));
-                int progress = (int) ((highRam/(float) totalRam) * 100);
-                mColorBar.setProgress(progress);
-                mColorBar.setSecondaryProgress(progress + (int) ((medRam/(float) totalRam) * 100));
+                mForegroundProcessPrefix.setText(getResources().getText(
+                        R.string.running_processes_header_system_prefix));
+                mAppsProcessPrefix.setText(getResources().getText(
+                        R.string.running_processes_header_apps_prefix));
             }
         }
+
+        final long totalRam = mMemInfoReader.getTotalSize();
+        final long medRam;
+        final long lowRam;
+        if (mCurShowCached) {
+            lowRam = mMemInfoReader.getFreeSize() + mMemInfoReader.getCachedSize();
+            medRam = snapshot.mBackgroundProcessMemory;
+        } else {
+            lowRam = mMemInfoReader.getFreeSize() + mMemInfoReader.getCachedSize()
+                    + snapshot.mBackgroundProcessMemory;
+            medRam = snapshot.mServiceProcessMemory;
+
+        }
+        final long highRam = totalRam - medRam - lowRam;
+
+        if (mCurTotalRam != totalRam || mCurHighRam != highRam || mCurMedRam != medRam
+                || mCurLowRam != lowRam) {
+            mCurTotalRam = totalRam;
+            mCurHighRam = highRam;
+            mCurMedRam = medRam;
+            mCurLowRam = lowRam;
+            BidiFormatter bidiFormatter = BidiFormatter.getInstance();
+            String sizeStr = bidiFormatter.unicodeWrap(
+                    Formatter.formatShortFileSize(getContext(), lowRam));
+            mBackgroundProcessText.setText(getResources().getString(
+                    R.string.running_processes_header_ram, sizeStr));
+            sizeStr = bidiFormatter.unicodeWrap(
+                    Formatter.formatShortFileSize(getContext(), medRam));
+            mAppsProcessText.setText(getResources().getString(
+                    R.string.running_processes_header_ram, sizeStr));
+            sizeStr = bidiFormatter.unicodeWrap(
+                    Formatter.formatShortFileSize(getContext(), highRam));
+            mForegroundProcessText.setText(getResources().getString(
+                    R.string.running_processes_header_ram, sizeStr));
+            int progress = (int) ((highRam/(float) totalRam) * 100);
+            mColorBar.setProgress(progress);
+            mColorBar.setSecondaryProgress(progress + (int) ((medRam/(float) totalRam) * 100));
+        }
     }
 
     public void onItemClick(AdapterView<?> parent, View v, int position, long id) {
         ListView l = (ListView)parent;
-        RunningState.MergedItem mi = (RunningState.MergedItem)l.getAdapter().getItem(position);
-        mCurSelected = mi;
-        startServiceDetailsActivity(mi);
+        RunningState.ItemRow row = (RunningState.ItemRow)l.getAdapter().getItem(position);
+        mCurSelected = row.mItem;
+        startServiceDetailsActivity(row);
     }
 
     // utility method used to start sub activity
-    private void startServiceDetailsActivity(RunningState.MergedItem mi) {
-        if (mOwner != null && mi != null) {
+    private void startServiceDetailsActivity(RunningState.ItemRow row) {
+        if (mOwner != null && row != null) {
             // start new fragment to display extended information
             Bundle args = new Bundle();
-            if (mi.mProcess != null) {
-                args.putInt(RunningServiceDetails.KEY_UID, mi.mProcess.mUid);
-                args.putString(RunningServiceDetails.KEY_PROCESS, mi.mProcess.mProcessName);
+            if (row.mProcessName != null) {
+                args.putInt(RunningServiceDetails.KEY_UID, row.mUid);
+                args.putString(RunningServiceDetails.KEY_PROCESS, row.mProcessName);
             }
-            args.putInt(RunningServiceDetails.KEY_USER_ID, mi.mUserId);
+            args.putInt(RunningServiceDetails.KEY_USER_ID, row.mUserId);
             args.putBoolean(RunningServiceDetails.KEY_BACKGROUND, mAdapter.mShowBackground);
 
             new SubSettingLauncher(getContext())
@@ -501,6 +483,36 @@ public class RunningProcessesView extends FrameLayout
         }
     }
 
+    /**
+     * Rebinds only the visible rows whose items changed since the last refresh, instead
+     * of invalidating the whole list.
+     */
+    void rebindChangedItems() {
+        final ArraySet<RunningState.BaseItem> changedItems = mState.consumeChangedItems();
+        if (mAdapter.refreshItems()) {
+            // A structure change was published after this refresh was requested.
+            mAdapter.notifyDataSetChanged();
+            return;
+        }
+        if (changedItems.isEmpty()) {
+            return;
+        }
+        final ArrayMap<RunningState.BaseItem, RunningState.ItemRow> changedRows =
+                new ArrayMap<RunningState.BaseItem, RunningState.ItemRow>();
+        for (RunningState.ItemRow row : mAdapter.mItems) {
+            if (changedItems.contains(row.mItem)) {
+                changedRows.put(row.mItem, row);
+            }
+        }
+        for (Map.Entry<View, ActiveItem> entry : mActiveItems.entrySet()) {
+            final ActiveItem ai = entry.getValue();
+            final RunningState.ItemRow row = changedRows.get(ai.mRow.mItem);
+            if (row != null) {
+                entry.setValue(ai.mHolder.bind(mState, row, mBuilder));
+            }
+        }
+    }
+
     @Override
     public void onRefreshUi(int what) {
         switch (what) {
@@ -509,9 +521,12 @@ public class RunningProcessesView extends FrameLayout
                 break;
             case REFRESH_DATA:
                 refreshUi(false);
+                rebindChangedItems();
                 updateTimes();
                 break;
             case REFRESH_STRUCTURE:
+                // Every row is rebound, so the pending item changes are not needed.
+                mState.consumeChangedItems();
                 refreshUi(true);
                 updateTimes();
                 break;
@@ -182,13 +182,13 @@ public class RunningServiceDetails extends InstrumentedFragment
                 }
             } else if (mServiceItem != null) {
                 stopActiveService(false);
-            } else if (mActiveItem.mItem.mBackground) {
+            } else if (mActiveItem.mRow.mBackground) {
                 // Background process.  Just kill it.
-                mAm.killBackgroundProcesses(mActiveItem.mItem.mPackageInfo.packageName);
+                mAm.killBackgroundProcesses(mActiveItem.mRow.mPackageInfo.packageName);
                 finish();
             } else {
                 // Heavy-weight process.  We'll do a force-stop on it.
-                mAm.forceStopPackage(mActiveItem.mItem.mPackageInfo.packageName);
+                mAm.forceStopPackage(mActiveItem.mRow.mPackageInfo.packageName);
                 finish();
             }
         }
@@ -40,6 +40,7 @@ import android.os.RemoteException;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.text.format.Formatter;
+import android.util.ArraySet;
 import android.util.Log;
 import android.util.SparseArray;
 
@@ -53,6 +54,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Singleton for retrieving and monitoring the state about all running
@@ -201,27 +203,73 @@ public class RunningState {
                 }
             };
 
-    // ----- following protected by mLock -----
-
-    // Lock for protecting the state that will be shared between the
-    // background update thread and the UI thread.
-    final Object mLock = new Object();
-
-    boolean mResumed;
-    boolean mHaveData;
-    boolean mWatchingBackgroundItems;
+    // ----- following only touched by the background thread -----
 
+    // Working lists of the last update, diffed against by the next one.  The lists and
+    // their items are only changed by the background thread.
     ArrayList<BaseItem> mItems = new ArrayList<BaseItem>();
     ArrayList<MergedItem> mMergedItems = new ArrayList<MergedItem>();
     ArrayList<MergedItem> mBackgroundItems = new ArrayList<MergedItem>();
     ArrayList<MergedItem> mUserBackgroundItems = new ArrayList<MergedItem>();
 
-    int mNumBackgroundProcesses;
-    long mBackgroundProcessMemory;
-    int mNumForegroundProcesses;
-    long mForegroundProcessMemory;
-    int mNumServiceProcesses;
-    long mServiceProcessMemory;
+    /**
+     * The result of a completed update, published by the background thread.  The snapshot
+     * and its lists are not modified once published.  The background thread keeps updating
+     * the items in place, so the list UI only reads the immutable {@link ItemRow}s.
+     */
+    static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new ArrayList<MergedItem>(),
+                new ArrayList<MergedItem>(), new ArrayList<ItemRow>(), new ArrayList<ItemRow>(),
+                0, 0, 0, 0, 0, 0);
+
+        final ArrayList<MergedItem> mMergedItems;
+        final ArrayList<MergedItem> mUserBackgroundItems;
+        /** The rows of {@link #mMergedItems}. */
+        final ArrayList<ItemRow> mMergedRows;
+        /** The rows of {@link #mUserBackgroundItems}, in display order. */
+        final ArrayList<ItemRow> mBackgroundRows;
+
+        final int mNumBackgroundProcesses;
+        final long mBackgroundProcessMemory;
+        final int mNumForegroundProcesses;
+        final long mForegroundProcessMemory;
+        final int mNumServiceProcesses;
+        final long mServiceProcessMemory;
+
+        Snapshot(ArrayList<MergedItem> mergedItems, ArrayList<MergedItem> userBackgroundItems,
+                ArrayList<ItemRow> mergedRows, ArrayList<ItemRow> backgroundRows,
+                int numBackgroundProcesses, long backgroundProcessMemory,
+                int numForegroundProcesses, long foregroundProcessMemory,
+                int numServiceProcesses, long serviceProcessMemory) {
+            mMergedItems = mergedItems;
+            mUserBackgroundItems = userBackgroundItems;
+            mMergedRows = mergedRows;
+            mBackgroundRows = backgroundRows;
+            mNumBackgroundProcesses = numBackgroundProcesses;
+            mBackgroundProcessMemory = backgroundProcessMemory;
+            mNumForegroundProcesses = numForegroundProcesses;
+            mForegroundProcessMemory = foregroundProcessMemory;
+            mNumServiceProcesses = numServiceProcesses;
+            mServiceProcessMemory = serviceProcessMemory;
+        }
+    }
+
+    volatile Snapshot mSnapshot = Snapshot.EMPTY;
+
+    // Items whose displayed data changed since the UI last consumed them, without
+    // the overall list structure changing.  Replaced as a whole, never mutated.
+    final AtomicReference<ArraySet<BaseItem>> mChangedItems =
+            new AtomicReference<ArraySet<BaseItem>>(new ArraySet<BaseItem>());
+
+    volatile boolean mHaveData;
+    volatile boolean mWatchingBackgroundItems;
+
+    // ----- following protected by mLock -----
+
+    // Lock for protecting the resume state.
+    final Object mLock = new Object();
+
+    boolean mResumed;
 
     // ----- BACKGROUND MONITORING THREAD -----
 
@@ -245,7 +293,7 @@ public class RunningState {
                         }
                     }
                     Message cmd = mHandler.obtainMessage(MSG_REFRESH_UI);
-                    cmd.arg1 = update(mApplicationContext, mAm) ? 1 : 0;
+                    cmd.arg1 = update(mApplicationContext, mAm);
                     mHandler.sendMessage(cmd);
                     removeMessages(MSG_UPDATE_CONTENTS);
                     msg = obtainMessage(MSG_UPDATE_CONTENTS);
@@ -264,9 +312,9 @@ public class RunningState {
         public void handleMessage(Message msg) {
             switch (msg.what) {
                 case MSG_REFRESH_UI:
-                    mNextUpdate = msg.arg1 != 0
-                            ? OnRefreshUiListener.REFRESH_STRUCTURE
-                            : OnRefreshUiListener.REFRESH_DATA;
+                    // Several updates may land between two UI ticks; never downgrade a
+                    // pending structure refresh to a data one.
+                    mNextUpdate = Math.max(mNextUpdate, msg.arg1);
                     break;
                 case MSG_UPDATE_TIME:
                     synchronized (mLock) {
@@ -332,6 +380,10 @@ public class RunningState {
         public static final int REFRESH_DATA = 1;
         public static final int REFRESH_STRUCTURE = 2;
 
+        /**
+         * Called with the kind of refresh needed.  For {@link #REFRESH_DATA}, the items
+         * that actually changed are available from {@link #consumeChangedItems()}.
+         */
         public void onRefreshUi(int what);
     }
 
@@ -355,7 +407,6 @@ public class RunningState {
         long mActiveSince;
         long mSize;
         String mSizeStr;
-        String mCurSizeStr;
         boolean mNeedDivider;
         boolean mBackground;
 
@@ -363,15 +414,6 @@ public class RunningState {
             mIsProcess = isProcess;
             mUserId = userId;
         }
-
-        public Drawable loadIcon(Context context, RunningState state) {
-            if (mPackageInfo != null) {
-                Drawable unbadgedIcon = mPackageInfo.loadUnbadgedIcon(state.mPm);
-                Drawable icon = state.mPm.getUserBadgedIcon(unbadgedIcon, new UserHandle(mUserId));
-                return icon;
-            }
-            return null;
-        }
     }
 
     static class ServiceItem extends BaseItem {
@@ -379,6 +421,10 @@ public class RunningState {
         ServiceInfo mServiceInfo;
         boolean mShownAsStarted;
 
+        // The client binding the description was last resolved for.
+        String mClientPackage;
+        int mClientLabel;
+
         MergedItem mMergedItem;
 
         public ServiceItem(int userId) {
@@ -534,21 +580,30 @@ public class RunningState {
                     si.mShownAsStarted = false;
                     changed = true;
                 }
-                try {
-                    Resources clientr = pm.getResourcesForApplication(service.clientPackage);
-                    String label = clientr.getString(service.clientLabel);
-                    si.mDescription = context.getResources().getString(
-                            R.string.service_client_name, label);
-                } catch (PackageManager.NameNotFoundException e) {
-                    si.mDescription = null;
+                // Only resolve the client label when the client binding differs from the
+                // previous snapshot; it is otherwise stable across updates.
+                if (si.mClientLabel != service.clientLabel
+                        || !service.clientPackage.equals(si.mClientPackage)) {
+                    si.mClientPackage = service.clientPackage;
+                    si.mClientLabel = service.clientLabel;
+                    try {
+                        Resources clientr = pm.getResourcesForApplication(service.clientPackage);
+                        String label = clientr.getString(service.clientLabel);
+                        si.mDescription = context.getResources().getString(
+                                R.string.service_client_name, label);
+                    } catch (PackageManager.NameNotFoundException e) {
+                        si.mDescription = null;
+                    }
                 }
             } else {
                 if (!si.mShownAsStarted) {
                     si.mShownAsStarted = true;
+                    si.mClientPackage = null;
+                    si.mClientLabel = 0;
+                    si.mDescription = context.getResources().getString(
+                            R.string.service_started_by_app);
                     changed = true;
                 }
-                si.mDescription = context.getResources().getString(
-                        R.string.service_started_by_app);
             }
 
             return changed;
@@ -619,7 +674,7 @@ public class RunningState {
             super(false, userId);
         }
 
-        private void setDescription(Context context, int numProcesses, int numServices) {
+        private boolean setDescription(Context context, int numProcesses, int numServices) {
             if (mLastNumProcesses != numProcesses || mLastNumServices != numServices) {
                 mLastNumProcesses = numProcesses;
                 mLastNumServices = numServices;
@@ -633,10 +688,14 @@ public class RunningState {
                 }
                 mDescription = context.getResources().getString(resid, numProcesses,
                         numServices);
+                return true;
             }
+            return false;
         }
 
+        /** Returns true if the displayed description or uptime of this item changed. */
         boolean update(Context context, boolean background) {
+            boolean changed = mBackground != background;
             mBackground = background;
 
             if (mUser != null) {
@@ -651,17 +710,19 @@ public class RunningState {
                 mDisplayLabel = mLabel;
                 int numProcesses = 0;
                 int numServices = 0;
-                mActiveSince = -1;
+                long activeSince = -1;
                 for (int i = 0; i < mChildren.size(); i++) {
                     MergedItem child = mChildren.get(i);
                     numProcesses += child.mLastNumProcesses;
                     numServices += child.mLastNumServices;
-                    if (child.mActiveSince >= 0 && mActiveSince < child.mActiveSince) {
-                        mActiveSince = child.mActiveSince;
+                    if (child.mActiveSince >= 0 && activeSince < child.mActiveSince) {
+                        activeSince = child.mActiveSince;
                     }
                 }
+                changed |= mActiveSince != activeSince;
+                mActiveSince = activeSince;
                 if (!mBackground) {
-                    setDescription(context, numProcesses, numServices);
+                    changed |= setDescription(context, numProcesses, numServices);
                 }
             } else {
                 mPackageInfo = mProcess.mPackageInfo;
@@ -669,22 +730,26 @@ public class RunningState {
                 mLabel = mProcess.mLabel;
 
                 if (!mBackground) {
-                    setDescription(context, (mProcess.mPid > 0 ? 1 : 0) + mOtherProcesses.size(),
+                    changed |= setDescription(context,
+                            (mProcess.mPid > 0 ? 1 : 0) + mOtherProcesses.size(),
                             mServices.size());
                 }
 
-                mActiveSince = -1;
+                long activeSince = -1;
                 for (int i = 0; i < mServices.size(); i++) {
                     ServiceItem si = mServices.get(i);
-                    if (si.mActiveSince >= 0 && mActiveSince < si.mActiveSince) {
-                        mActiveSince = si.mActiveSince;
+                    if (si.mActiveSince >= 0 && activeSince < si.mActiveSince) {
+                        activeSince = si.mActiveSince;
                     }
                 }
+                changed |= mActiveSince != activeSince;
+                mActiveSince = activeSince;
             }
 
-            return false;
+            return changed;
         }
 
+        /** Returns true if the displayed size of this item changed. */
         boolean updateSize(Context context) {
             if (mUser != null) {
                 mSize = 0;
@@ -704,17 +769,75 @@ public class RunningState {
                     context, mSize);
             if (!sizeStr.equals(mSizeStr)) {
                 mSizeStr = sizeStr;
-                // We update this on the second tick where we update just
-                // the text in the current items, so no need to say we
-                // changed here.
-                return false;
+                // This only changes the text in the current items, it is
+                // reported as a data change rather than a structure change.
+                return true;
             }
             return false;
         }
+    }
+
+    /**
+     * The displayed data of an item, copied when it is published.  Unlike the item, it is
+     * never modified, so the UI can read it without any locking.
+     */
+    static final class ItemRow {
+        /** The item the row was copied from, only used to identify it. */
+        final BaseItem mItem;
+        final int mUserId;
+        final boolean mIsProcess;
+        final PackageItemInfo mPackageInfo;
+        final CharSequence mDisplayLabel;
+        final String mDescription;
+        final String mSizeStr;
+        final long mActiveSince;
+        final boolean mBackground;
+        /** Whether the item is a merged item with running services. */
+        final boolean mHasServices;
+        /** The uid and name of the process of a merged item, or -1 and null. */
+        final int mUid;
+        final String mProcessName;
+        /** The user of a merged item that stands for all the items of another user. */
+        final UserState mUser;
+
+        ItemRow(BaseItem item) {
+            mItem = item;
+            mUserId = item.mUserId;
+            mIsProcess = item.mIsProcess;
+            mDescription = item.mDescription;
+            mSizeStr = item.mSizeStr;
+            mActiveSince = item.mActiveSince;
+            mBackground = item.mBackground;
+            PackageItemInfo packageInfo = item.mPackageInfo;
+            CharSequence displayLabel = item.mDisplayLabel;
+            if (item instanceof MergedItem) {
+                final MergedItem mergedItem = (MergedItem) item;
+                final ProcessItem process = mergedItem.mProcess;
+                if (packageInfo == null && process != null) {
+                    packageInfo = process.mPackageInfo;
+                    displayLabel = process.mDisplayLabel;
+                }
+                mHasServices = mergedItem.mServices.size() > 0;
+                mUid = process != null ? process.mUid : -1;
+                mProcessName = process != null ? process.mProcessName : null;
+                mUser = mergedItem.mUser;
+            } else {
+                mHasServices = false;
+                mUid = -1;
+                mProcessName = null;
+                mUser = null;
+            }
+            mPackageInfo = packageInfo;
+            mDisplayLabel = displayLabel;
+        }
 
         public Drawable loadIcon(Context context, RunningState state) {
             if (mUser == null) {
-                return super.loadIcon(context, state);
+                if (mPackageInfo != null) {
+                    Drawable unbadgedIcon = mPackageInfo.loadUnbadgedIcon(state.mPm);
+                    return state.mPm.getUserBadgedIcon(unbadgedIcon, new UserHandle(mUserId));
+                }
+                return null;
             }
             if (mUser.mIcon != null) {
                 ConstantState constState = mUser.mIcon.getConstantState();
@@ -799,6 +922,8 @@ public class RunningState {
         synchronized (mLock) {
             mResumed = true;
             mRefreshUiListener = listener;
+            // Item changes are only tracked for the currently resumed listener.
+            mChangedItems.set(new ArraySet<BaseItem>());
             boolean usersChanged = mUmBroadcastReceiver.checkUsersChangedLocked();
             boolean configChanged =
                     mInterestingConfigChanges.applyNewConfig(mApplicationContext.getResources());
@@ -823,9 +948,7 @@ public class RunningState {
     }
 
     boolean hasData() {
-        synchronized (mLock) {
-            return mHaveData;
-        }
+        return mHaveData;
     }
 
     void waitForData() {
@@ -899,13 +1022,11 @@ public class RunningState {
         userItem.mChildren.add(newItem);
     }
 
-    private boolean update(Context context, ActivityManager am) {
-        final PackageManager pm = context.getPackageManager();
-
-        mSequence++;
-
-        boolean changed = false;
-
+    /**
+     * Diffs the current running services and processes against the previous snapshot,
+     * and returns the {@link OnRefreshUiListener} refresh level needed to show the result.
+     */
+    private int update(Context context, ActivityManager am) {
         // Retrieve list of services, filtering out anything that definitely
         // won't be shown in the UI.
         List<ActivityManager.RunningServiceInfo> services
@@ -937,6 +1058,16 @@ public class RunningState {
         // array for easy retrieval.
         List<ActivityManager.RunningAppProcessInfo> processes
                 = am.getRunningAppProcesses();
+
+        final PackageManager pm = context.getPackageManager();
+
+        mSequence++;
+
+        // Whether the list structure changed, requiring the UI to rebuild its rows.
+        boolean changed = false;
+        // Items that only need their rows to be rebound.
+        final ArraySet<BaseItem> changedItems = new ArraySet<BaseItem>();
+
         final int NP = processes != null ? processes.size() : 0;
         mTmpAppProcesses.clear();
         for (int i = 0; i < NP; i++) {
@@ -1276,10 +1407,8 @@ public class RunningState {
                 }
             }
 
-            synchronized (mLock) {
-                mItems = newItems;
-                mMergedItems = newMergedItems;
-            }
+            mItems = newItems;
+            mMergedItems = newMergedItems;
         }
 
         // Count number of interesting other (non-active) processes, and
@@ -1358,8 +1487,15 @@ public class RunningState {
                             mergedItem = mBackgroundItems.get(bgIndex);
                         }
                     }
-                    mergedItem.update(context, true);
-                    mergedItem.updateSize(context);
+                    // Background processes are sorted and shown by label, so load it here
+                    // instead of when their rows are bound.
+                    proc.ensureLabel(pm);
+                    if (mergedItem.update(context, true)) {
+                        changedItems.add(mergedItem);
+                    }
+                    if (mergedItem.updateSize(context)) {
+                        changedItems.add(mergedItem);
+                    }
                     bgIndex++;
                 } else if (proc.mRunningProcessInfo.importance <=
                         ActivityManager.RunningAppProcessInfo.IMPORTANCE_VISIBLE) {
@@ -1415,47 +1551,74 @@ public class RunningState {
         }
 
         for (int i = 0; i < mMergedItems.size(); i++) {
-            mMergedItems.get(i).updateSize(context);
+            final MergedItem mergedItem = mMergedItems.get(i);
+            if (mergedItem.updateSize(context)) {
+                changedItems.add(mergedItem);
+            }
         }
 
-        synchronized (mLock) {
-            mNumBackgroundProcesses = numBackgroundProcesses;
-            mNumForegroundProcesses = numForegroundProcesses;
-            mNumServiceProcesses = numServiceProcesses;
-            mBackgroundProcessMemory = backgroundProcessMemory;
-            mForegroundProcessMemory = foregroundProcessMemory;
-            mServiceProcessMemory = serviceProcessMemory;
-            if (newBackgroundItems != null) {
-                mBackgroundItems = newBackgroundItems;
-                mUserBackgroundItems = newUserBackgroundItems;
-                if (mWatchingBackgroundItems) {
-                    changed = true;
-                }
+        if (newBackgroundItems != null) {
+            mBackgroundItems = newBackgroundItems;
+            mUserBackgroundItems = newUserBackgroundItems;
+            if (mWatchingBackgroundItems) {
+                changed = true;
             }
-            if (!mHaveData) {
+        }
+        final ArrayList<MergedItem> sortedBackgroundItems =
+                new ArrayList<MergedItem>(mUserBackgroundItems);
+        Collections.sort(sortedBackgroundItems, mBackgroundComparator);
+        mSnapshot = new Snapshot(mMergedItems, mUserBackgroundItems,
+                makeRows(mMergedItems), makeRows(sortedBackgroundItems),
+                numBackgroundProcesses, backgroundProcessMemory,
+                numForegroundProcesses, foregroundProcessMemory,
+                numServiceProcesses, serviceProcessMemory);
+        if (!changedItems.isEmpty()) {
+            mChangedItems.accumulateAndGet(changedItems, (pending, items) -> {
+                final ArraySet<BaseItem> merged = new ArraySet<BaseItem>(pending);
+                merged.addAll(items);
+                return merged;
+            });
+        }
+        if (!mHaveData) {
+            synchronized (mLock) {
                 mHaveData = true;
                 mLock.notifyAll();
             }
         }
 
-        return changed;
+        return changed ? OnRefreshUiListener.REFRESH_STRUCTURE : OnRefreshUiListener.REFRESH_DATA;
     }
 
-    void setWatchingBackgroundItems(boolean watching) {
-        synchronized (mLock) {
-            mWatchingBackgroundItems = watching;
+    private static ArrayList<ItemRow> makeRows(ArrayList<MergedItem> items) {
+        final ArrayList<ItemRow> rows = new ArrayList<ItemRow>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            rows.add(new ItemRow(items.get(i)));
         }
+        return rows;
+    }
+
+    void setWatchingBackgroundItems(boolean watching) {
+        mWatchingBackgroundItems = watching;
+    }
+
+    /** Returns the last published snapshot; never blocks behind a running update. */
+    Snapshot getSnapshot() {
+        return mSnapshot;
     }
 
     ArrayList<MergedItem> getCurrentMergedItems() {
-        synchronized (mLock) {
-            return mMergedItems;
-        }
+        return mSnapshot.mMergedItems;
     }
 
     ArrayList<MergedItem> getCurrentBackgroundItems() {
-        synchronized (mLock) {
-            return mUserBackgroundItems;
-        }
+        return mSnapshot.mUserBackgroundItems;
+    }
+
+    /**
+     * Returns the items whose displayed data changed since the last call, and clears
+     * them.  Used by the UI to rebind only the changed rows on a data refresh.
+     */
+    ArraySet<BaseItem> consumeChangedItems() {
+        return mChangedItems.getAndSet(new ArraySet<BaseItem>());
     }
 }
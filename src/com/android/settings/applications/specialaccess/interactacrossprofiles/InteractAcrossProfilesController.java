@@ -18,12 +18,12 @@ package com.android.settings.applications.specialaccess.interactacrossprofiles;
 
 import android.content.Context;
 import android.content.pm.CrossProfileApps;
-import android.content.pm.PackageManager;
 import android.content.pm.UserInfo;
 import android.os.UserHandle;
 import android.os.UserManager;
 
 import com.android.settings.R;
+import com.android.settings.applications.InstalledPackagesSnapshot;
 import com.android.settings.core.BasePreferenceController;
 
 import java.util.List;
@@ -36,7 +36,6 @@ public class InteractAcrossProfilesController extends BasePreferenceController {
 
     private final Context mContext;
     private final UserManager mUserManager;
-    private final PackageManager mPackageManager;
     private final CrossProfileApps mCrossProfileApps;
 
     public InteractAcrossProfilesController(Context context, String preferenceKey) {
@@ -45,7 +44,6 @@ public class InteractAcrossProfilesController extends BasePreferenceController {
         mContext = context;
         mUserManager = mContext.getSystemService(UserManager.class);
         mCrossProfileApps = mContext.getSystemService(CrossProfileApps.class);
-        mPackageManager = mContext.getPackageManager();
     }
 
     @Override
@@ -61,8 +59,8 @@ public class InteractAcrossProfilesController extends BasePreferenceController {
 
     @Override
     public CharSequence getSummary() {
-        final int connectedApps = InteractAcrossProfilesSettings.getNumberOfEnabledApps(
-                mContext, mPackageManager, mUserManager, mCrossProfileApps);
+        final int connectedApps = InteractAcrossProfilesSettings.getNumberOfEnabledApps(mContext,
+                InstalledPackagesSnapshot.getInstance(mContext), mUserManager, mCrossProfileApps);
         return connectedApps == 0
                 ? mContext.getResources().getString(
                         R.string.interact_across_profiles_number_of_connected_apps_none)
@@ -30,6 +30,7 @@ import android.content.pm.UserInfo;
 import android.os.Bundle;
 import android.os.UserHandle;
 import android.os.UserManager;
+import android.util.ArraySet;
 import android.util.IconDrawableFactory;
 import android.util.Pair;
 import android.view.View;
@@ -40,6 +41,7 @@ import androidx.preference.PreferenceScreen;
 
 import com.android.settings.R;
 import com.android.settings.applications.AppInfoBase;
+import com.android.settings.applications.InstalledPackagesSnapshot;
 import com.android.settings.search.BaseSearchIndexProvider;
 import com.android.settings.widget.EmptyTextSettings;
 import com.android.settingslib.search.SearchIndexable;
@@ -78,7 +80,8 @@ public class InteractAcrossProfilesSettings extends EmptyTextSettings {
                 R.string.interact_across_profiles_title);
 
         final ArrayList<Pair<ApplicationInfo, UserHandle>> crossProfileApps =
-                collectConfigurableApps(mPackageManager, mUserManager, mCrossProfileApps);
+                collectConfigurableApps(InstalledPackagesSnapshot.getInstance(mContext),
+                        mUserManager, mCrossProfileApps);
 
         final Context prefContext = getPrefContext();
         for (final Pair<ApplicationInfo, UserHandle> appData : crossProfileApps) {
@@ -134,6 +137,17 @@ public class InteractAcrossProfilesSettings extends EmptyTextSettings {
     static ArrayList<Pair<ApplicationInfo, UserHandle>> collectConfigurableApps(
             PackageManager packageManager, UserManager userManager,
             CrossProfileApps crossProfileApps) {
+        return collectConfigurableApps(new InstalledPackagesSnapshot(packageManager),
+                userManager, crossProfileApps);
+    }
+
+    /**
+     * Same as {@link #collectConfigurableApps(PackageManager, UserManager, CrossProfileApps)},
+     * reading the installed packages from {@code snapshot}.
+     */
+    static ArrayList<Pair<ApplicationInfo, UserHandle>> collectConfigurableApps(
+            InstalledPackagesSnapshot snapshot, UserManager userManager,
+            CrossProfileApps crossProfileApps) {
         final UserHandle workProfile = getWorkProfile(userManager);
         if (workProfile == null) {
             return new ArrayList<>();
@@ -145,7 +159,7 @@ public class InteractAcrossProfilesSettings extends EmptyTextSettings {
 
         final ArrayList<Pair<ApplicationInfo, UserHandle>> apps = new ArrayList<>();
         for (PackageInfo packageInfo : getAllInstalledPackages(
-                packageManager, personalProfile, workProfile)) {
+                snapshot, personalProfile, workProfile)) {
             if (crossProfileApps.canUserAttemptToConfigureInteractAcrossProfiles(
                     packageInfo.packageName)) {
                 apps.add(new Pair<>(packageInfo.applicationInfo, personalProfile));
@@ -154,16 +168,19 @@ public class InteractAcrossProfilesSettings extends EmptyTextSettings {
         return apps;
     }
 
-    private static List<PackageInfo> getAllInstalledPackages(
-            PackageManager packageManager, UserHandle personalProfile, UserHandle workProfile) {
-        List<PackageInfo> personalPackages = packageManager.getInstalledPackagesAsUser(
+    private static List<PackageInfo> getAllInstalledPackages(InstalledPackagesSnapshot snapshot,
+            UserHandle personalProfile, UserHandle workProfile) {
+        List<PackageInfo> personalPackages = snapshot.getInstalledPackages(
                 GET_ACTIVITIES, personalProfile.getIdentifier());
-        List<PackageInfo> workPackages = packageManager.getInstalledPackagesAsUser(
+        List<PackageInfo> workPackages = snapshot.getInstalledPackages(
                 GET_ACTIVITIES, workProfile.getIdentifier());
         List<PackageInfo> allPackages = new ArrayList<>(personalPackages);
+        final ArraySet<String> packageNames = new ArraySet<>(personalPackages.size());
+        for (PackageInfo personalPackage : personalPackages) {
+            packageNames.add(personalPackage.packageName);
+        }
         for (PackageInfo workPackage : workPackages) {
-            if (allPackages.stream().noneMatch(
-                    p -> workPackage.packageName.equals(p.packageName))) {
+            if (packageNames.add(workPackage.packageName)) {
                 allPackages.add(workPackage);
             }
         }
@@ -176,6 +193,17 @@ public class InteractAcrossProfilesSettings extends EmptyTextSettings {
     static int getNumberOfEnabledApps(
             Context context, PackageManager packageManager, UserManager userManager,
             CrossProfileApps crossProfileApps) {
+        return getNumberOfEnabledApps(context, new InstalledPackagesSnapshot(packageManager),
+                userManager, crossProfileApps);
+    }
+
+    /**
+     * Same as {@link #getNumberOfEnabledApps(Context, PackageManager, UserManager,
+     * CrossProfileApps)}, reading the installed packages from {@code snapshot}.
+     */
+    static int getNumberOfEnabledApps(
+            Context context, InstalledPackagesSnapshot snapshot, UserManager userManager,
+            CrossProfileApps crossProfileApps) {
         UserHandle workProfile = getWorkProfile(userManager);
         if (workProfile == null) {
             return 0;
@@ -185,7 +213,7 @@ public class InteractAcrossProfilesSettings extends EmptyTextSettings {
             return 0;
         }
         final ArrayList<Pair<ApplicationInfo, UserHandle>> apps =
-                collectConfigurableApps(packageManager, userManager, crossProfileApps);
+                collectConfigurableApps(snapshot, userManager, crossProfileApps);
         apps.removeIf(
                 app -> !InteractAcrossProfilesDetails.isInteractAcrossProfilesEnabled(
                         context, app.first.packageName)
@@ -19,6 +19,8 @@ package com.android.settings.bluetooth;
 import static android.os.UserManager.DISALLOW_CONFIG_BLUETOOTH;
 
 import android.app.settings.SettingsEnums;
+import android.bluetooth.BluetoothClass;
+import android.bluetooth.BluetoothCsipSetCoordinator;
 import android.bluetooth.BluetoothDevice;
 import android.content.Context;
 import android.content.DialogInterface;
@@ -27,8 +29,10 @@ import android.graphics.drawable.Drawable;
 import android.os.UserManager;
 import android.text.Html;
 import android.text.TextUtils;
+import android.util.LruCache;
 import android.util.Pair;
 import android.util.TypedValue;
+import android.view.Choreographer;
 import android.view.View;
 import android.widget.ImageView;
 
@@ -43,11 +47,15 @@ import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.widget.GearPreference;
 import com.android.settingslib.bluetooth.BluetoothUtils;
 import com.android.settingslib.bluetooth.CachedBluetoothDevice;
+import com.android.settingslib.bluetooth.LocalBluetoothProfile;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
 import com.android.settingslib.utils.ThreadUtils;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * BluetoothDevicePreference is the preference type used to display each remote
@@ -57,6 +65,19 @@ public final class BluetoothDevicePreference extends GearPreference {
     private static final String TAG = "BluetoothDevicePref";
 
     private static int sDimAlpha = Integer.MIN_VALUE;
+    private static int sIconColorCount;
+
+    private static final int MAX_CACHED_ICONS = 16;
+    /**
+     * Icons of the devices which are not bonded by device class, profiles and icon color. Only
+     * bonded devices may have their own icon from metadata.
+     */
+    private static final LruCache<String, Pair<Drawable.ConstantState, String>> sIconCache =
+            new LruCache<>(MAX_CACHED_ICONS);
+    /** Preferences to update on the next frame, only accessed from the main thread. */
+    private static final List<BluetoothDevicePreference> sPendingUpdates = new ArrayList<>();
+    private static final Choreographer.FrameCallback sUpdateFrameCallback =
+            frameTimeNanos -> updatePendingPreferences();
 
     @Retention(RetentionPolicy.SOURCE)
     @IntDef({SortType.TYPE_DEFAULT,
@@ -80,6 +101,8 @@ public final class BluetoothDevicePreference extends GearPreference {
     private boolean mIsCallbackRemoved = false;
     @VisibleForTesting
     boolean mNeedNotifyHierarchyChanged = false;
+    private boolean mIsUpdatePending = false;
+    private String mIconKey;
     /* Talk-back descriptions for various BT icons */
     Resources mResources;
     final BluetoothDevicePreferenceCallback mCallback;
@@ -88,7 +111,7 @@ public final class BluetoothDevicePreference extends GearPreference {
 
         @Override
         public void onDeviceAttributesChanged() {
-            onPreferenceAttributesChanged();
+            scheduleAttributesUpdate();
         }
     }
 
@@ -138,6 +161,7 @@ public final class BluetoothDevicePreference extends GearPreference {
     @Override
     protected void onPrepareForRemoval() {
         super.onPrepareForRemoval();
+        cancelAttributesUpdate();
         if (!mIsCallbackRemoved) {
             mCachedDevice.unregisterCallback(mCallback);
             mIsCallbackRemoved = true;
@@ -161,6 +185,7 @@ public final class BluetoothDevicePreference extends GearPreference {
     @Override
     public void onDetached() {
         super.onDetached();
+        cancelAttributesUpdate();
         if (!mIsCallbackRemoved) {
             mCachedDevice.unregisterCallback(mCallback);
             mIsCallbackRemoved = true;
@@ -176,9 +201,69 @@ public final class BluetoothDevicePreference extends GearPreference {
     }
 
     void onPreferenceAttributesChanged() {
-        Pair<Drawable, String> pair = mCachedDevice.getDrawableWithDescription();
-        setIcon(pair.first);
-        contentDescription = pair.second;
+        cancelAttributesUpdate();
+        updateAttributes();
+
+        // This could affect ordering, so notify that
+        if (mNeedNotifyHierarchyChanged) {
+            notifyHierarchyChanged();
+        }
+    }
+
+    /**
+     * Update the attributes on the next frame. Devices report changes many times per second
+     * while discovering, so all of the changes within a frame are applied together.
+     */
+    @VisibleForTesting
+    void scheduleAttributesUpdate() {
+        if (mIsUpdatePending) {
+            return;
+        }
+        mIsUpdatePending = true;
+        if (sPendingUpdates.isEmpty()) {
+            Choreographer.getInstance().postFrameCallback(sUpdateFrameCallback);
+        }
+        sPendingUpdates.add(this);
+    }
+
+    private void cancelAttributesUpdate() {
+        if (!mIsUpdatePending) {
+            return;
+        }
+        mIsUpdatePending = false;
+        sPendingUpdates.remove(this);
+        if (sPendingUpdates.isEmpty()) {
+            Choreographer.getInstance().removeFrameCallback(sUpdateFrameCallback);
+        }
+    }
+
+    private static void updatePendingPreferences() {
+        final List<BluetoothDevicePreference> preferences = new ArrayList<>(sPendingUpdates);
+        sPendingUpdates.clear();
+
+        final List<Object> notifiedParents = new ArrayList<>();
+        for (BluetoothDevicePreference preference : preferences) {
+            preference.mIsUpdatePending = false;
+            preference.updateAttributes();
+            // Each hierarchy change rebuilds the whole list, so notify once per list
+            if (preference.mNeedNotifyHierarchyChanged
+                    && !notifiedParents.contains(preference.getParent())) {
+                notifiedParents.add(preference.getParent());
+                preference.notifyHierarchyChanged();
+            }
+        }
+    }
+
+    private void updateAttributes() {
+        // Bonded devices may get their own icon from their metadata at any time, so it is
+        // only skipped for the devices seen while scanning.
+        final String iconKey = getIconKey();
+        if (iconKey == null || !Objects.equals(iconKey, mIconKey)) {
+            mIconKey = iconKey;
+            final Pair<Drawable, String> pair = getDrawableWithDescription(iconKey);
+            setIcon(pair.first);
+            contentDescription = pair.second;
+        }
 
         /*
          * The preference framework takes care of making sure the value has
@@ -195,11 +280,55 @@ public final class BluetoothDevicePreference extends GearPreference {
         // Device is only visible in the UI if it has a valid name besides MAC address or when user
         // allows showing devices without user-friendly name in developer settings
         setVisible(mShowDevicesWithoutNames || mCachedDevice.hasHumanReadableName());
+    }
 
-        // This could affect ordering, so notify that
-        if (mNeedNotifyHierarchyChanged) {
-            notifyHierarchyChanged();
+    /**
+     * Get what the icon of a device that is not bonded depends on: its device class, profiles
+     * and color. Returns {@code null} for bonded devices, whose icon is always resolved again.
+     */
+    private String getIconKey() {
+        if (mCachedDevice.getBondState() == BluetoothDevice.BOND_BONDED) {
+            return null;
+        }
+        final StringBuilder key = new StringBuilder();
+        final BluetoothClass btClass = mCachedDevice.getBtClass();
+        key.append((btClass == null) ? "" : btClass.getDeviceClass());
+        for (LocalBluetoothProfile profile : mCachedDevice.getProfiles()) {
+            key.append('/').append(profile);
+        }
+        key.append('#').append(getIconColorIndex());
+        return key.toString();
+    }
+
+    /**
+     * Get the index of the colors of the icon, picked by SettingsLib from the group of the
+     * device or else its address.
+     */
+    private int getIconColorIndex() {
+        if (sIconColorCount == 0) {
+            sIconColorCount = mResources.getIntArray(
+                    com.android.settingslib.R.array.bt_icon_bg_colors).length;
+        }
+        final int hashCode =
+                (mCachedDevice.getGroupId() != BluetoothCsipSetCoordinator.GROUP_ID_INVALID)
+                        ? Integer.hashCode(mCachedDevice.getGroupId())
+                        : Objects.hashCode(mCachedDevice.getAddress());
+        return Math.abs(hashCode % Math.max(sIconColorCount, 1));
+    }
+
+    private Pair<Drawable, String> getDrawableWithDescription(String iconKey) {
+        final boolean isShared = (iconKey != null);
+        if (isShared) {
+            final Pair<Drawable.ConstantState, String> cached = sIconCache.get(iconKey);
+            if (cached != null) {
+                return new Pair<>(cached.first.newDrawable(mResources), cached.second);
+            }
+        }
+        final Pair<Drawable, String> pair = mCachedDevice.getDrawableWithDescription();
+        if (isShared && (pair.first != null) && (pair.first.getConstantState() != null)) {
+            sIconCache.put(iconKey, new Pair<>(pair.first.getConstantState(), pair.second));
         }
+        return pair;
     }
 
     @Override
@@ -30,4 +30,5 @@ public class FeatureFlags {
     public static final String CONTEXTUAL_HOME = "settings_contextual_home";
     public static final String SETTINGS_SEARCH_ALWAYS_EXPAND =
             "settings_search_always_expand";
+    public static final String PRELOAD_CARRIER_CONFIGS = "settings_preload_carrier_configs";
 }
@@ -24,6 +24,7 @@ import android.annotation.NonNull;
 import android.annotation.XmlRes;
 import android.content.Context;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -67,6 +68,7 @@ public class PreferenceControllerListHelper {
             if (TextUtils.isEmpty(controllerName)) {
                 continue;
             }
+            final long startTime = SystemClock.elapsedRealtimeNanos();
             BasePreferenceController controller;
             try {
                 controller = BasePreferenceController.createInstance(context, controllerName);
@@ -87,6 +89,8 @@ public class PreferenceControllerListHelper {
                     continue;
                 }
             }
+            PreferenceControllerTimings.record(controller.getClass(),
+                    PreferenceControllerTimings.PHASE_CONSTRUCT, startTime);
             controllers.add(controller);
         }
         return controllers;
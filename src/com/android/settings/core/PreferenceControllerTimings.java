@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.ArrayMap;
+
+import androidx.annotation.VisibleForTesting;
+import androidx.preference.Preference;
+import androidx.preference.PreferenceScreen;
+
+import com.android.settingslib.core.AbstractPreferenceController;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Traces the preference framework and aggregates how long each phase takes into histograms,
+ * per controller or fragment class.
+ *
+ * The sections show up in system traces when tracing is enabled, and the histograms are dumped
+ * by {@link com.android.settings.SettingsDumpService}.
+ */
+public final class PreferenceControllerTimings {
+
+    /** Instantiation of a controller. */
+    public static final int PHASE_CONSTRUCT = 0;
+    /** {@link AbstractPreferenceController#isAvailable()} */
+    public static final int PHASE_IS_AVAILABLE = 1;
+    /** {@link AbstractPreferenceController#displayPreference(PreferenceScreen)} */
+    public static final int PHASE_DISPLAY_PREFERENCE = 2;
+    /** {@link AbstractPreferenceController#updateState(Preference)} */
+    public static final int PHASE_UPDATE_STATE = 3;
+    /** Binding of an injected tile to its preference. */
+    public static final int PHASE_BIND_TILE = 4;
+    /** Creation of the controllers of a fragment. */
+    public static final int PHASE_CREATE_CONTROLLERS = 5;
+    /** Creation of the preferences of a fragment. */
+    public static final int PHASE_CREATE_PREFERENCES = 6;
+    /** Update of the preferences of a fragment. */
+    public static final int PHASE_UPDATE_PREFERENCES = 7;
+
+    @VisibleForTesting
+    static final String[] PHASE_NAMES = {
+            "construct",
+            "isAvailable",
+            "displayPreference",
+            "updateState",
+            "bindTile",
+            "createControllers",
+            "createPreferences",
+            "updatePreferences",
+    };
+
+    /** Upper bounds of the histogram buckets in microseconds, the last bucket has none. */
+    @VisibleForTesting
+    static final long[] BUCKET_LIMITS_US = {100, 500, 1000, 4000, 16000};
+
+    private static final int MAX_SECTION_NAME_LENGTH = 127;
+
+    private static final Map<Class<?>, Histogram[]> sHistograms = new ArrayMap<>();
+
+    private PreferenceControllerTimings() {
+    }
+
+    /**
+     * Calls {@link AbstractPreferenceController#isAvailable()} and records how long it takes.
+     */
+    public static boolean isAvailable(AbstractPreferenceController controller) {
+        final boolean traced = beginSection(controller.getClass(), PHASE_IS_AVAILABLE);
+        final long startTime = SystemClock.elapsedRealtimeNanos();
+        try {
+            return controller.isAvailable();
+        } finally {
+            endSection(traced, controller.getClass(), PHASE_IS_AVAILABLE, startTime);
+        }
+    }
+
+    /**
+     * Calls {@link AbstractPreferenceController#displayPreference(PreferenceScreen)} and
+     * records how long it takes.
+     */
+    public static void displayPreference(AbstractPreferenceController controller,
+            PreferenceScreen screen) {
+        final boolean traced = beginSection(controller.getClass(), PHASE_DISPLAY_PREFERENCE);
+        final long startTime = SystemClock.elapsedRealtimeNanos();
+        try {
+            controller.displayPreference(screen);
+        } finally {
+            endSection(traced, controller.getClass(), PHASE_DISPLAY_PREFERENCE, startTime);
+        }
+    }
+
+    /**
+     * Calls {@link AbstractPreferenceController#updateState(Preference)} and records how long
+     * it takes.
+     */
+    public static void updateState(AbstractPreferenceController controller,
+            Preference preference) {
+        final boolean traced = beginSection(controller.getClass(), PHASE_UPDATE_STATE);
+        final long startTime = SystemClock.elapsedRealtimeNanos();
+        try {
+            controller.updateState(preference);
+        } finally {
+            endSection(traced, controller.getClass(), PHASE_UPDATE_STATE, startTime);
+        }
+    }
+
+    /**
+     * Begins a trace section for a phase of {@code owner}, if tracing is enabled.
+     *
+     * @return whether the section has to be ended by {@link #endSection}
+     */
+    public static boolean beginSection(Class<?> owner, int phase) {
+        if (!Trace.isEnabled()) {
+            return false;
+        }
+        final String name = owner.getSimpleName() + "#" + PHASE_NAMES[phase];
+        Trace.beginSection(name.length() > MAX_SECTION_NAME_LENGTH
+                ? name.substring(0, MAX_SECTION_NAME_LENGTH) : name);
+        return true;
+    }
+
+    /**
+     * Ends a section begun by {@link #beginSection} and records its time.
+     *
+     * @param startTime the start time from {@link SystemClock#elapsedRealtimeNanos()}
+     */
+    public static void endSection(boolean traced, Class<?> owner, int phase, long startTime) {
+        if (traced) {
+            Trace.endSection();
+        }
+        record(owner, phase, startTime);
+    }
+
+    /**
+     * Records the time of a phase of {@code owner}.
+     *
+     * @param startTime the start time from {@link SystemClock#elapsedRealtimeNanos()}
+     */
+    public static void record(Class<?> owner, int phase, long startTime) {
+        final long timeUs = TimeUnit.NANOSECONDS.toMicros(
+                SystemClock.elapsedRealtimeNanos() - startTime);
+        synchronized (sHistograms) {
+            Histogram[] histograms = sHistograms.get(owner);
+            if (histograms == null) {
+                histograms = new Histogram[PHASE_NAMES.length];
+                sHistograms.put(owner, histograms);
+            }
+            if (histograms[phase] == null) {
+                histograms[phase] = new Histogram();
+            }
+            histograms[phase].add(timeUs);
+        }
+    }
+
+    /**
+     * Returns the histograms by class name and phase. Each has the count, total and maximum
+     * time in microseconds, and the count of each bucket of {@link #BUCKET_LIMITS_US}.
+     */
+    public static JSONObject dumpToJson() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        synchronized (sHistograms) {
+            for (Map.Entry<Class<?>, Histogram[]> entry : sHistograms.entrySet()) {
+                final JSONObject phases = new JSONObject();
+                final Histogram[] histograms = entry.getValue();
+                for (int phase = 0; phase < histograms.length; phase++) {
+                    if (histograms[phase] != null) {
+                        phases.put(PHASE_NAMES[phase], histograms[phase].toJson());
+                    }
+                }
+                obj.put(entry.getKey().getName(), phases);
+            }
+        }
+        return obj;
+    }
+
+    @VisibleForTesting
+    static void clear() {
+        synchronized (sHistograms) {
+            sHistograms.clear();
+        }
+    }
+
+    private static class Histogram {
+        private final long[] mBucketCounts = new long[BUCKET_LIMITS_US.length + 1];
+        private long mCount;
+        private long mTotalUs;
+        private long mMaxUs;
+
+        void add(long timeUs) {
+            int bucket = 0;
+            while (bucket < BUCKET_LIMITS_US.length && timeUs >= BUCKET_LIMITS_US[bucket]) {
+                bucket++;
+            }
+            mBucketCounts[bucket]++;
+            mCount++;
+            mTotalUs += timeUs;
+            mMaxUs = Math.max(mMaxUs, timeUs);
+        }
+
+        JSONObject toJson() throws JSONException {
+            final JSONObject obj = new JSONObject();
+            obj.put("count", mCount);
+            obj.put("total_us", mTotalUs);
+            obj.put("max_us", mMaxUs);
+            final JSONArray buckets = new JSONArray();
+            for (long count : mBucketCounts) {
+                buckets.put(count);
+            }
+            obj.put("buckets", buckets);
+            return obj;
+        }
+    }
+}
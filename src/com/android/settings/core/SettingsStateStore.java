@@ -0,0 +1,674 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * A process wide key-value store for state that Settings keeps for itself, such as caches and
+ * counters, as a replacement for many small {@link SharedPreferences} files.
+ *
+ * <p>All namespaces live in one file, which is memory mapped and read on a background thread as
+ * soon as the store is created, so that pages opened later do not each wait for their own file
+ * on the main thread. {@link SharedPreferences.Editor#apply()} updates the memory copy right
+ * away and batches the disk writes of all namespaces into one write shortly after.
+ *
+ * <p>Each namespace is exposed as {@link SharedPreferences}, so callers only need to change how
+ * they get it. The first time a namespace is opened, the {@link SharedPreferences} file of the
+ * same name is moved into the store on the background thread.
+ *
+ * <p>Getting a namespace never waits for the file. Until its stored values are loaded, a
+ * namespace only holds the values written since, like an empty cache, and those writes win over
+ * the stored values once loaded. Callers that need the stored values use
+ * {@link #getNamespace(String, Executor, Consumer)}, or {@link #getLoadedNamespace(String)} if
+ * they can't be made asynchronous.
+ */
+public class SettingsStateStore {
+
+    private static final String TAG = "SettingsStateStore";
+    private static final String FILE_NAME = "settings_state.kv";
+    private static final int MAGIC = 0x53534b56;
+    private static final int FORMAT_VERSION = 1;
+    // Keys are stored as "<namespace>/<key>".
+    private static final char SEPARATOR = '/';
+    // Marks the namespaces whose SharedPreferences file was already migrated.
+    private static final String MIGRATED_PREFIX = "\u0000migrated" + SEPARATOR;
+
+    private static final byte TYPE_BOOLEAN = 0;
+    private static final byte TYPE_INT = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_FLOAT = 3;
+    private static final byte TYPE_STRING = 4;
+    private static final byte TYPE_STRING_SET = 5;
+
+    // How long getLoadedNamespace() waits at most for the stored values.
+    @VisibleForTesting
+    static final long LOAD_TIMEOUT_MS = 200;
+
+    // Writes made within this delay of each other are batched.
+    @VisibleForTesting
+    static final long WRITE_DELAY_MS = 500;
+
+    private static SettingsStateStore sInstance;
+
+    private final Context mContext;
+    private final AtomicFile mFile;
+    private final Handler mHandler;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mWriteRunnable = this::writeToDisk;
+
+    private final Object mLock = new Object();
+    private final ArrayMap<String, Object> mValues = new ArrayMap<>();
+    private final ArrayMap<String, Namespace> mNamespaces = new ArrayMap<>();
+    private boolean mLoaded;
+    private boolean mWriteScheduled;
+
+    /** Returns the shared store, which starts loading in the background when first created. */
+    public static SettingsStateStore getInstance(Context context) {
+        synchronized (SettingsStateStore.class) {
+            if (sInstance == null) {
+                final HandlerThread thread = new HandlerThread(TAG,
+                        Process.THREAD_PRIORITY_BACKGROUND);
+                thread.start();
+                sInstance = create(context, thread.getLooper());
+            }
+            return sInstance;
+        }
+    }
+
+    /**
+     * Replaces the shared store with a new one for the application context of the test, which
+     * loads and writes on {@code looper}.
+     */
+    @VisibleForTesting
+    public static SettingsStateStore setupForTest(Context context, Looper looper) {
+        synchronized (SettingsStateStore.class) {
+            sInstance = create(context, looper);
+            return sInstance;
+        }
+    }
+
+    private static SettingsStateStore create(Context context, Looper looper) {
+        final Context appContext = context.getApplicationContext();
+        return new SettingsStateStore(appContext, new File(appContext.getFilesDir(), FILE_NAME),
+                looper);
+    }
+
+    @VisibleForTesting
+    SettingsStateStore(Context context, File file, Looper looper) {
+        mContext = context;
+        mFile = new AtomicFile(file);
+        mHandler = new Handler(looper);
+        mHandler.post(this::load);
+    }
+
+    /**
+     * Returns the namespace {@code name} without waiting for its stored values, see the class
+     * documentation. Its keys, if still stored in the {@link SharedPreferences} file
+     * {@code name}, are moved into the store in the background.
+     */
+    public SharedPreferences getNamespace(String name) {
+        if (name.indexOf(SEPARATOR) >= 0) {
+            throw new IllegalArgumentException("Invalid namespace: " + name);
+        }
+        synchronized (mLock) {
+            Namespace namespace = mNamespaces.get(name);
+            if (namespace == null) {
+                namespace = new Namespace(name);
+                mNamespaces.put(name, namespace);
+                // Runs after the load, which was posted first.
+                mHandler.post(() -> migrate(name));
+            }
+            return namespace;
+        }
+    }
+
+    /**
+     * Calls {@code callback} on {@code executor} with the namespace {@code name} once its stored
+     * values are loaded.
+     */
+    public void getNamespace(String name, Executor executor,
+            Consumer<SharedPreferences> callback) {
+        final SharedPreferences namespace = getNamespace(name);
+        // Runs after the load and the migration of the namespace, which were posted before.
+        mHandler.post(() -> executor.execute(() -> callback.accept(namespace)));
+    }
+
+    private void load() {
+        final ArrayMap<String, Object> values = new ArrayMap<>();
+        try (FileInputStream in = mFile.openRead(); FileChannel channel = in.getChannel()) {
+            final MappedByteBuffer buffer =
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            readValues(buffer, values);
+        } catch (FileNotFoundException e) {
+            // Nothing stored yet.
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Failed to load " + mFile.getBaseFile(), e);
+            values.clear();
+        }
+        synchronized (mLock) {
+            for (int i = 0; i < values.size(); i++) {
+                final String key = values.keyAt(i);
+                if (!isWrittenBeforeLoadedLocked(key)) {
+                    mValues.put(key, values.valueAt(i));
+                }
+            }
+            mLoaded = true;
+            mLock.notifyAll();
+        }
+    }
+
+    /** Returns whether {@code storeKey} was written since, and must not be loaded over. */
+    private boolean isWrittenBeforeLoadedLocked(String storeKey) {
+        final int index = storeKey.indexOf(SEPARATOR);
+        if (index < 0) {
+            return false;
+        }
+        final Namespace namespace = mNamespaces.get(storeKey.substring(0, index));
+        return namespace != null && namespace.isWrittenBeforeLoadedLocked(
+                storeKey.substring(index + 1));
+    }
+
+    private void awaitLoadedLocked() {
+        while (!mLoaded) {
+            try {
+                mLock.wait();
+            } catch (InterruptedException e) {
+                // Keep waiting, like SharedPreferences.
+            }
+        }
+    }
+
+    /**
+     * Returns the namespace {@code name} once its stored values are loaded, waiting up to
+     * {@link #LOAD_TIMEOUT_MS} for them. Only for small namespaces read synchronously when a
+     * page is created, which is usually after the load anyway.
+     */
+    public SharedPreferences getLoadedNamespace(String name) {
+        final Namespace namespace = (Namespace) getNamespace(name);
+        if (Looper.myLooper() == mHandler.getLooper()) {
+            // The load would only run after this returns.
+            return namespace;
+        }
+        synchronized (mLock) {
+            final long deadline = SystemClock.uptimeMillis() + LOAD_TIMEOUT_MS;
+            long remaining = LOAD_TIMEOUT_MS;
+            while (!namespace.mReady && remaining > 0) {
+                try {
+                    mLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    // Keep waiting until the deadline.
+                }
+                remaining = deadline - SystemClock.uptimeMillis();
+            }
+            if (!namespace.mReady) {
+                Log.w(TAG, "Timed out loading " + name);
+            }
+        }
+        return namespace;
+    }
+
+    /** Moves the {@link SharedPreferences} file {@code name} into the store, on its thread. */
+    private void migrate(String name) {
+        final String marker = MIGRATED_PREFIX + name;
+        synchronized (mLock) {
+            if (mValues.containsKey(marker)) {
+                mNamespaces.get(name).onLoadedLocked();
+                return;
+            }
+        }
+        final File legacyFile = new File(new File(mContext.getDataDir(), "shared_prefs"),
+                name + ".xml");
+        final Map<String, ?> legacyValues = legacyFile.exists()
+                ? mContext.getSharedPreferences(name, Context.MODE_PRIVATE).getAll() : null;
+        synchronized (mLock) {
+            final Namespace namespace = mNamespaces.get(name);
+            if (legacyValues != null) {
+                for (Map.Entry<String, ?> entry : legacyValues.entrySet()) {
+                    final String storeKey = getStoreKey(name, entry.getKey());
+                    // A previous migration whose file could not be deleted may have stored the
+                    // key already, possibly changed since.
+                    if (entry.getValue() != null && !mValues.containsKey(storeKey)
+                            && !namespace.isWrittenBeforeLoadedLocked(entry.getKey())) {
+                        mValues.put(storeKey, entry.getValue());
+                    }
+                }
+            }
+            mValues.put(marker, true);
+            namespace.onLoadedLocked();
+            if (legacyValues == null) {
+                scheduleWriteLocked();
+                return;
+            }
+        }
+        // The file may only go once its values are committed, a scheduled write could be lost
+        // to the process being killed.
+        mHandler.removeCallbacks(mWriteRunnable);
+        if (writeToDisk()) {
+            mContext.deleteSharedPreferences(name);
+            Log.i(TAG, "Migrated " + legacyValues.size() + " values of " + name);
+        } else {
+            synchronized (mLock) {
+                // Migrate again next time, the values stay in memory until then.
+                mValues.remove(marker);
+                scheduleWriteLocked();
+            }
+        }
+    }
+
+    private void scheduleWriteLocked() {
+        if (!mWriteScheduled) {
+            mWriteScheduled = true;
+            mHandler.postDelayed(mWriteRunnable, WRITE_DELAY_MS);
+        }
+    }
+
+    private boolean writeToDisk() {
+        final byte[] data;
+        synchronized (mLock) {
+            // Never replace the file before it was read. Only commit() and flush() may have
+            // to wait here, the scheduled writes run after the load.
+            awaitLoadedLocked();
+            mWriteScheduled = false;
+            try {
+                data = writeValues(mValues);
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to serialize values", e);
+                return false;
+            }
+        }
+        synchronized (mFile) {
+            FileOutputStream out = null;
+            try {
+                out = mFile.startWrite();
+                out.write(data);
+                mFile.finishWrite(out);
+                return true;
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to write " + mFile.getBaseFile(), e);
+                mFile.failWrite(out);
+                return false;
+            }
+        }
+    }
+
+    private static String getStoreKey(String namespace, String key) {
+        return namespace + SEPARATOR + key;
+    }
+
+    @VisibleForTesting
+    static void readValues(ByteBuffer buffer, Map<String, Object> values) {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                Log.w(TAG, "Unknown file format");
+                return;
+            }
+            final int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                final String key = readString(buffer);
+                final byte type = buffer.get();
+                switch (type) {
+                    case TYPE_BOOLEAN:
+                        values.put(key, buffer.get() != 0);
+                        break;
+                    case TYPE_INT:
+                        values.put(key, buffer.getInt());
+                        break;
+                    case TYPE_LONG:
+                        values.put(key, buffer.getLong());
+                        break;
+                    case TYPE_FLOAT:
+                        values.put(key, buffer.getFloat());
+                        break;
+                    case TYPE_STRING:
+                        values.put(key, readString(buffer));
+                        break;
+                    case TYPE_STRING_SET:
+                        final int size = buffer.getInt();
+                        final ArraySet<String> set = new ArraySet<>(size);
+                        for (int j = 0; j < size; j++) {
+                            set.add(readString(buffer));
+                        }
+                        values.put(key, set);
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown type " + type);
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalStateException("Truncated file", e);
+        }
+    }
+
+    @VisibleForTesting
+    static byte[] writeValues(Map<String, Object> values) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(values.size());
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            writeString(out, entry.getKey());
+            final Object value = entry.getValue();
+            if (value instanceof Boolean) {
+                out.writeByte(TYPE_BOOLEAN);
+                out.writeByte((Boolean) value ? 1 : 0);
+            } else if (value instanceof Integer) {
+                out.writeByte(TYPE_INT);
+                out.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                out.writeByte(TYPE_LONG);
+                out.writeLong((Long) value);
+            } else if (value instanceof Float) {
+                out.writeByte(TYPE_FLOAT);
+                out.writeFloat((Float) value);
+            } else if (value instanceof String) {
+                out.writeByte(TYPE_STRING);
+                writeString(out, (String) value);
+            } else if (value instanceof Set) {
+                out.writeByte(TYPE_STRING_SET);
+                final Set<?> set = (Set<?>) value;
+                out.writeInt(set.size());
+                for (Object item : set) {
+                    writeString(out, (String) item);
+                }
+            } else {
+                throw new IOException("Unsupported value for " + entry.getKey());
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** The keys of one namespace, exposed as {@link SharedPreferences}. */
+    private final class Namespace implements SharedPreferences {
+        private final String mName;
+        private final String mPrefix;
+        // Registered listeners, held weakly like SharedPreferences does.
+        private final WeakHashMap<OnSharedPreferenceChangeListener, Object> mListeners =
+                new WeakHashMap<>();
+        // Until the stored values are loaded, the keys written since, which win over them.
+        private final ArraySet<String> mWrittenKeys = new ArraySet<>();
+        private boolean mCleared;
+        private boolean mReady;
+
+        Namespace(String name) {
+            mName = name;
+            mPrefix = name + SEPARATOR;
+        }
+
+        @Override
+        public Map<String, ?> getAll() {
+            final ArrayMap<String, Object> all = new ArrayMap<>();
+            synchronized (mLock) {
+                for (int i = 0; i < mValues.size(); i++) {
+                    final String key = mValues.keyAt(i);
+                    if (key.startsWith(mPrefix)) {
+                        final Object value = mValues.valueAt(i);
+                        all.put(key.substring(mPrefix.length()), value instanceof Set
+                                ? new ArraySet<>((Set<?>) value) : value);
+                    }
+                }
+            }
+            return all;
+        }
+
+        @Nullable
+        @Override
+        public String getString(String key, @Nullable String defValue) {
+            final String value = (String) get(key);
+            return value != null ? value : defValue;
+        }
+
+        @Nullable
+        @Override
+        @SuppressWarnings("unchecked")
+        public Set<String> getStringSet(String key, @Nullable Set<String> defValues) {
+            final Set<String> value = (Set<String>) get(key);
+            return value != null ? new ArraySet<>(value) : defValues;
+        }
+
+        @Override
+        public int getInt(String key, int defValue) {
+            final Integer value = (Integer) get(key);
+            return value != null ? value : defValue;
+        }
+
+        @Override
+        public long getLong(String key, long defValue) {
+            final Long value = (Long) get(key);
+            return value != null ? value : defValue;
+        }
+
+        @Override
+        public float getFloat(String key, float defValue) {
+            final Float value = (Float) get(key);
+            return value != null ? value : defValue;
+        }
+
+        @Override
+        public boolean getBoolean(String key, boolean defValue) {
+            final Boolean value = (Boolean) get(key);
+            return value != null ? value : defValue;
+        }
+
+        @Override
+        public boolean contains(String key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Editor edit() {
+            return new NamespaceEditor(this);
+        }
+
+        @Override
+        public void registerOnSharedPreferenceChangeListener(
+                OnSharedPreferenceChangeListener listener) {
+            synchronized (mLock) {
+                mListeners.put(listener, this);
+            }
+        }
+
+        @Override
+        public void unregisterOnSharedPreferenceChangeListener(
+                OnSharedPreferenceChangeListener listener) {
+            synchronized (mLock) {
+                mListeners.remove(listener);
+            }
+        }
+
+        private Object get(String key) {
+            synchronized (mLock) {
+                return mValues.get(mPrefix + key);
+            }
+        }
+
+        private boolean isWrittenBeforeLoadedLocked(String key) {
+            return !mReady && (mCleared || mWrittenKeys.contains(key));
+        }
+
+        private void onLoadedLocked() {
+            mReady = true;
+            mCleared = false;
+            mWrittenKeys.clear();
+            mLock.notifyAll();
+        }
+
+        /** Applies {@code changes}, where a {@code null} value removes the key. */
+        private void applyChanges(boolean clear, ArrayMap<String, Object> changes) {
+            final ArraySet<String> changedKeys = new ArraySet<>();
+            final ArraySet<OnSharedPreferenceChangeListener> listeners;
+            synchronized (mLock) {
+                if (!mReady) {
+                    mCleared |= clear;
+                    mWrittenKeys.addAll(changes.keySet());
+                }
+                if (clear) {
+                    for (int i = mValues.size() - 1; i >= 0; i--) {
+                        if (mValues.keyAt(i).startsWith(mPrefix)) {
+                            mValues.removeAt(i);
+                        }
+                    }
+                }
+                for (int i = 0; i < changes.size(); i++) {
+                    final String key = mPrefix + changes.keyAt(i);
+                    final Object value = changes.valueAt(i);
+                    final Object oldValue = value != null ? mValues.put(key, value)
+                            : mValues.remove(key);
+                    if (value == null ? oldValue != null : !value.equals(oldValue)) {
+                        changedKeys.add(changes.keyAt(i));
+                    }
+                }
+                if (!clear && changedKeys.isEmpty()) {
+                    return;
+                }
+                scheduleWriteLocked();
+                listeners = new ArraySet<>(mListeners.keySet());
+            }
+            if (listeners.isEmpty()) {
+                return;
+            }
+            // Listeners are called on the main thread, like SharedPreferences does.
+            mMainHandler.post(() -> {
+                for (OnSharedPreferenceChangeListener listener : listeners) {
+                    for (String key : changedKeys) {
+                        listener.onSharedPreferenceChanged(this, key);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public String toString() {
+            return TAG + ":" + mName;
+        }
+    }
+
+    private final class NamespaceEditor implements SharedPreferences.Editor {
+        private final Namespace mNamespace;
+        private final ArrayMap<String, Object> mChanges = new ArrayMap<>();
+        private boolean mClear;
+
+        NamespaceEditor(Namespace namespace) {
+            mNamespace = namespace;
+        }
+
+        @Override
+        public SharedPreferences.Editor putString(String key, @Nullable String value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+        @Override
+        public SharedPreferences.Editor putStringSet(String key, @Nullable Set<String> values) {
+            mChanges.put(key, values != null ? new ArraySet<>(values) : null);
+            return this;
+        }
+
+        @Override
+        public SharedPreferences.Editor putInt(String key, int value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+        @Override
+        public SharedPreferences.Editor putLong(String key, long value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+        @Override
+        public SharedPreferences.Editor putFloat(String key, float value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+        @Override
+        public SharedPreferences.Editor putBoolean(String key, boolean value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+        @Override
+        public SharedPreferences.Editor remove(String key) {
+            mChanges.put(key, null);
+            return this;
+        }
+
+        @Override
+        public SharedPreferences.Editor clear() {
+            mClear = true;
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            mNamespace.applyChanges(mClear, mChanges);
+            mHandler.removeCallbacks(mWriteRunnable);
+            return writeToDisk();
+        }
+
+        @Override
+        public void apply() {
+            mNamespace.applyChanges(mClear, mChanges);
+        }
+    }
+}
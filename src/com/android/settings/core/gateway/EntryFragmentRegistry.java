@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.gateway;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.util.ArraySet;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.core.SettingsStateStore;
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Indexes {@link SettingsGateway#ENTRY_FRAGMENTS} for fragment validation, and keeps launch
+ * counts of the entry fragments so that the classes most likely to be opened next can be loaded
+ * in the background, from process start and after each launch.
+ */
+public final class EntryFragmentRegistry {
+
+    private static final String TAG = "EntryFragmentRegistry";
+    private static final String PREF_FILE = "entry_fragment_launches";
+
+    // Number of fragment classes loaded ahead of time.
+    @VisibleForTesting
+    static final int PRELOAD_COUNT = 5;
+    // Once the launch counts add up to this, they are halved so that recent launches weigh more.
+    @VisibleForTesting
+    static final int MAX_TOTAL_LAUNCHES = 100;
+
+    private static final ArraySet<String> sPreloadedFragments = new ArraySet<>();
+
+    private EntryFragmentRegistry() {
+    }
+
+    /** Returns whether {@code fragmentName} is one of {@link SettingsGateway#ENTRY_FRAGMENTS}. */
+    public static boolean isEntryFragment(String fragmentName) {
+        return fragmentName != null && EntryFragments.NAMES.contains(fragmentName);
+    }
+
+    /**
+     * Loads the entry fragment classes launched most often on a background thread, once the
+     * launch counts are loaded. Called when the process starts, so that the first page opened
+     * can benefit too.
+     */
+    public static void preloadLikelyFragments(Context context) {
+        final Context appContext = context.getApplicationContext();
+        getSharedPreferences(appContext, prefs ->
+                preloadFragments(appContext.getClassLoader(), getLikelyFragments(prefs)));
+    }
+
+    /**
+     * Records that {@code fragmentName} was launched, then loads the entry fragment classes
+     * launched most often once the main thread is idle. Both happen on a background thread.
+     */
+    public static void onFragmentLaunched(Context context, String fragmentName) {
+        final Context appContext = context.getApplicationContext();
+        Looper.myQueue().addIdleHandler(() -> {
+            getSharedPreferences(appContext, prefs -> {
+                recordLaunch(prefs, fragmentName);
+                preloadFragments(appContext.getClassLoader(), getLikelyFragments(prefs));
+            });
+            return false;
+        });
+    }
+
+    @VisibleForTesting
+    static void recordLaunch(SharedPreferences prefs, String fragmentName) {
+        if (!isEntryFragment(fragmentName)) {
+            return;
+        }
+        synchronized (EntryFragmentRegistry.class) {
+            final Map<String, ?> counts = prefs.getAll();
+            final SharedPreferences.Editor editor = prefs.edit();
+            int total = 1;
+            for (Object count : counts.values()) {
+                if (count instanceof Integer) {
+                    total += (Integer) count;
+                }
+            }
+            if (total > MAX_TOTAL_LAUNCHES) {
+                for (Map.Entry<String, ?> entry : counts.entrySet()) {
+                    if (!(entry.getValue() instanceof Integer)) {
+                        continue;
+                    }
+                    final int count = (Integer) entry.getValue() / 2;
+                    if (count > 0) {
+                        editor.putInt(entry.getKey(), count);
+                    } else {
+                        editor.remove(entry.getKey());
+                    }
+                }
+            }
+            final int count = prefs.getInt(fragmentName, 0);
+            editor.putInt(fragmentName, (total > MAX_TOTAL_LAUNCHES ? count / 2 : count) + 1);
+            editor.apply();
+        }
+    }
+
+    /** Returns the entry fragments launched most often, most launched first. */
+    @VisibleForTesting
+    static List<String> getLikelyFragments(SharedPreferences prefs) {
+        final List<Map.Entry<String, ?>> entries = new ArrayList<>(prefs.getAll().entrySet());
+        entries.removeIf(entry -> !(entry.getValue() instanceof Integer)
+                || !isEntryFragment(entry.getKey()));
+        entries.sort((a, b) -> Integer.compare((Integer) b.getValue(), (Integer) a.getValue()));
+        final List<String> fragments = new ArrayList<>();
+        for (int i = 0; i < Math.min(PRELOAD_COUNT, entries.size()); i++) {
+            fragments.add(entries.get(i).getKey());
+        }
+        return fragments;
+    }
+
+    private static void preloadFragments(ClassLoader classLoader, List<String> fragments) {
+        for (String fragmentName : fragments) {
+            synchronized (sPreloadedFragments) {
+                if (!sPreloadedFragments.add(fragmentName)) {
+                    continue;
+                }
+            }
+            try {
+                Class.forName(fragmentName, true /* initialize */, classLoader);
+            } catch (ClassNotFoundException | LinkageError e) {
+                Log.w(TAG, "Failed to preload " + fragmentName, e);
+            }
+        }
+    }
+
+    /** Calls {@code callback} on a background thread once the launch counts are loaded. */
+    private static void getSharedPreferences(Context context,
+            Consumer<SharedPreferences> callback) {
+        SettingsStateStore.getInstance(context).getNamespace(PREF_FILE,
+                ThreadUtils::postOnBackgroundThread, callback);
+    }
+
+    /** Holds the index, which is built the first time a fragment is validated. */
+    private static final class EntryFragments {
+        static final Set<String> NAMES = new HashSet<>(SettingsGateway.ENTRY_FRAGMENTS.length * 2);
+
+        static {
+            for (String fragmentName : SettingsGateway.ENTRY_FRAGMENTS) {
+                if (!TextUtils.isEmpty(fragmentName)) {
+                    NAMES.add(fragmentName);
+                }
+            }
+        }
+    }
+}
@@ -17,8 +17,10 @@
 package com.android.settings.core.instrumentation;
 
 import android.app.settings.SettingsEnums;
+import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.Looper;
@@ -29,6 +31,7 @@ import android.text.format.DateUtils;
 import android.util.Log;
 import android.util.Pair;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.R;
@@ -36,11 +39,12 @@ import com.android.settings.intelligence.LogProto.SettingsLog;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.core.instrumentation.LogWriter;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
+import com.google.protobuf.CodedOutputStream;
+
+import java.io.IOException;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
 
 public class SettingsIntelligenceLogWriter implements LogWriter {
@@ -50,16 +54,37 @@ public class SettingsIntelligenceLogWriter implements LogWriter {
     private static final long MESSAGE_DELAY = DateUtils.MINUTE_IN_MILLIS; // 1 minute
     // Based on the exp, 99.5% users collect less than 150 data in 1 minute.
     private static final int CACHE_LOG_THRESHOLD = 150;
+    private static final int CACHE_BYTES_THRESHOLD = 32 * 1024;
+
+    private static final FlushPolicy DEFAULT_FLUSH_POLICY = new FlushPolicy(CACHE_LOG_THRESHOLD,
+            CACHE_BYTES_THRESHOLD, MESSAGE_DELAY, true /* flushOnScreenOff */);
 
-    private List<SettingsLog> mSettingsLogList;
-    private SendLogHandler mLogHandler;
+    // The context to send the logs with, or null to use the one of the feature factory.
+    @Nullable
+    private final Context mContext;
+    private final FlushPolicy mFlushPolicy;
+    // Only accessed on the thread of mLogHandler.
+    private final LogBuffer mLogBuffer = new LogBuffer();
+    private final SendLogHandler mLogHandler;
+    private boolean mScreenOffReceiverRegistered;
 
     public SettingsIntelligenceLogWriter() {
-        mSettingsLogList = new LinkedList<>();
+        this(null /* context */, createWorkerLooper(), DEFAULT_FLUSH_POLICY);
+    }
+
+    @VisibleForTesting
+    SettingsIntelligenceLogWriter(@Nullable Context context, Looper looper,
+            FlushPolicy flushPolicy) {
+        mContext = context;
+        mFlushPolicy = flushPolicy;
+        mLogHandler = new SendLogHandler(looper);
+    }
+
+    private static Looper createWorkerLooper() {
         final HandlerThread workerThread = new HandlerThread("SettingsIntelligenceLogWriter",
                 Process.THREAD_PRIORITY_BACKGROUND);
         workerThread.start();
-        mLogHandler = new SendLogHandler(workerThread.getLooper());
+        return workerThread.getLooper();
     }
 
     @Override
@@ -128,40 +153,144 @@ public class SettingsIntelligenceLogWriter implements LogWriter {
                 .setTimestamp(now.toString())
                 .build();
         mLogHandler.post(() -> {
-            mSettingsLogList.add(settingsLog);
+            final boolean firstLog = mLogBuffer.getCount() == 0;
+            if (!mLogBuffer.append(settingsLog)) {
+                return;
+            }
+            registerScreenOffReceiverIfNeeded();
+            if (action == SettingsEnums.ACTION_CONTEXTUAL_CARD_DISMISS
+                    || mLogBuffer.getCount() >= mFlushPolicy.mMaxCount
+                    || mLogBuffer.getSize() >= mFlushPolicy.mMaxBytes) {
+                // Directly send this event to notify SI instantly that the card is dismissed
+                mLogHandler.sendLog();
+            } else if (firstLog) {
+                mLogHandler.scheduleSendLog();
+            }
         });
-        if (action == SettingsEnums.ACTION_CONTEXTUAL_CARD_DISMISS
-                || mSettingsLogList.size() >= CACHE_LOG_THRESHOLD) {
-            // Directly send this event to notify SI instantly that the card is dismissed
-            mLogHandler.sendLog();
-        } else {
-            mLogHandler.scheduleSendLog();
-        }
     }
 
     @VisibleForTesting
     static byte[] serialize(List<SettingsLog> settingsLogs) {
-        final int size = settingsLogs.size();
-        final ByteArrayOutputStream bout = new ByteArrayOutputStream();
-        final DataOutputStream output = new DataOutputStream(bout);
-        // The data format is "size, length, byte array, length, byte array ..."
-        try {
-            output.writeInt(size);
-            for (SettingsLog settingsLog : settingsLogs) {
-                final byte[] data = settingsLog.toByteArray();
-                output.writeInt(data.length);
-                output.write(data);
+        final LogBuffer buffer = new LogBuffer();
+        for (SettingsLog settingsLog : settingsLogs) {
+            if (!buffer.append(settingsLog)) {
+                return null;
             }
-            return bout.toByteArray();
-        } catch (Exception e) {
-            Log.e(TAG, "serialize error", e);
-            return null;
-        } finally {
+        }
+        return buffer.toByteArray();
+    }
+
+    @Nullable
+    private Context getContext() {
+        return mContext != null ? mContext : FeatureFactory.getAppContext();
+    }
+
+    private void registerScreenOffReceiverIfNeeded() {
+        if (!mFlushPolicy.mFlushOnScreenOff || mScreenOffReceiverRegistered) {
+            return;
+        }
+        final Context context = getContext();
+        if (context == null) {
+            return;
+        }
+        context.registerReceiver(mScreenOffReceiver,
+                new IntentFilter(Intent.ACTION_SCREEN_OFF), null /* permission */, mLogHandler);
+        mScreenOffReceiverRegistered = true;
+    }
+
+    /**
+     * When the buffered logs are sent to SettingsIntelligence.
+     */
+    @VisibleForTesting
+    static class FlushPolicy {
+        final int mMaxCount;
+        final int mMaxBytes;
+        final long mMaxDelayMillis;
+        final boolean mFlushOnScreenOff;
+
+        /**
+         * @param maxCount send once this many logs are buffered
+         * @param maxBytes send once the buffered logs take this many bytes
+         * @param maxDelayMillis send this long after the first buffered log at the latest
+         * @param flushOnScreenOff send when the screen turns off
+         */
+        FlushPolicy(int maxCount, int maxBytes, long maxDelayMillis, boolean flushOnScreenOff) {
+            mMaxCount = maxCount;
+            mMaxBytes = maxBytes;
+            mMaxDelayMillis = maxDelayMillis;
+            mFlushOnScreenOff = flushOnScreenOff;
+        }
+    }
+
+    /**
+     * Encodes logs directly into a reusable byte array, in the format expected by
+     * SettingsIntelligence: "size, length, byte array, length, byte array ...".
+     */
+    @VisibleForTesting
+    static class LogBuffer {
+        private static final int HEADER_SIZE = Integer.BYTES;
+        private static final int INITIAL_CAPACITY = 8 * 1024;
+
+        private byte[] mBuffer = new byte[INITIAL_CAPACITY];
+        private int mPosition = HEADER_SIZE;
+        private int mCount;
+
+        /**
+         * Appends a log to the buffer.
+         *
+         * @return false if the log could not be encoded
+         */
+        boolean append(SettingsLog settingsLog) {
+            final int length = settingsLog.getSerializedSize();
+            ensureCapacity(mPosition + Integer.BYTES + length);
             try {
-                output.close();
-            } catch (Exception e) {
-                Log.e(TAG, "close error", e);
+                final CodedOutputStream output = CodedOutputStream.newInstance(mBuffer,
+                        mPosition + Integer.BYTES, length);
+                settingsLog.writeTo(output);
+                output.checkNoSpaceLeft();
+            } catch (IOException | IllegalStateException e) {
+                Log.e(TAG, "serialize error", e);
+                return false;
             }
+            writeInt(mBuffer, mPosition, length);
+            mPosition += Integer.BYTES + length;
+            mCount++;
+            return true;
+        }
+
+        int getCount() {
+            return mCount;
+        }
+
+        /** Returns the size of the encoded logs in bytes. */
+        int getSize() {
+            return mPosition - HEADER_SIZE;
+        }
+
+        /** Returns the buffered logs. */
+        byte[] toByteArray() {
+            final byte[] data = Arrays.copyOf(mBuffer, mPosition);
+            writeInt(data, 0, mCount);
+            return data;
+        }
+
+        /** Empties the buffer, keeping its capacity for the next logs. */
+        void clear() {
+            mPosition = HEADER_SIZE;
+            mCount = 0;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > mBuffer.length) {
+                mBuffer = Arrays.copyOf(mBuffer, Math.max(capacity, mBuffer.length * 2));
+            }
+        }
+
+        private static void writeInt(byte[] data, int offset, int value) {
+            data[offset] = (byte) (value >>> 24);
+            data[offset + 1] = (byte) (value >>> 16);
+            data[offset + 2] = (byte) (value >>> 8);
+            data[offset + 3] = (byte) value;
         }
     }
 
@@ -173,7 +302,7 @@ public class SettingsIntelligenceLogWriter implements LogWriter {
 
         void scheduleSendLog() {
             removeCallbacks(mSendLogsRunnable);
-            postDelayed(mSendLogsRunnable, MESSAGE_DELAY);
+            postDelayed(mSendLogsRunnable, mFlushPolicy.mMaxDelayMillis);
         }
 
         void sendLog() {
@@ -182,22 +311,37 @@ public class SettingsIntelligenceLogWriter implements LogWriter {
         }
     }
 
+    private final BroadcastReceiver mScreenOffReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (mLogBuffer.getCount() > 0) {
+                mLogHandler.sendLog();
+            }
+        }
+    };
+
     private final Runnable mSendLogsRunnable = () -> {
-        final Context context = FeatureFactory.getAppContext();
+        final Context context = getContext();
         if (context == null) {
             Log.e(TAG, "context is null");
             return;
         }
+        if (mLogBuffer.getCount() == 0) {
+            return;
+        }
         final String action = context.getString(R.string
                 .config_settingsintelligence_log_action);
-        if (!TextUtils.isEmpty(action) && !mSettingsLogList.isEmpty()) {
-            final Intent intent = new Intent();
-            intent.setPackage(context.getString(R.string
-                    .config_settingsintelligence_package_name));
-            intent.setAction(action);
-            intent.putExtra(LOG, serialize(mSettingsLogList));
-            context.sendBroadcastAsUser(intent, UserHandle.CURRENT);
-            mSettingsLogList.clear();
+        if (TextUtils.isEmpty(action)) {
+            // Nothing receives the logs, don't keep them.
+            mLogBuffer.clear();
+            return;
         }
+        final Intent intent = new Intent();
+        intent.setPackage(context.getString(R.string
+                .config_settingsintelligence_package_name));
+        intent.setAction(action);
+        intent.putExtra(LOG, mLogBuffer.toByteArray());
+        mLogBuffer.clear();
+        context.sendBroadcastAsUser(intent, UserHandle.CURRENT);
     };
 }
@@ -20,6 +20,7 @@ import android.app.settings.SettingsEnums;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.ArrayMap;
 import android.util.Log;
@@ -39,6 +40,7 @@ import com.android.settings.core.BasePreferenceController;
 import com.android.settings.core.CategoryMixin.CategoryHandler;
 import com.android.settings.core.CategoryMixin.CategoryListener;
 import com.android.settings.core.PreferenceControllerListHelper;
+import com.android.settings.core.PreferenceControllerTimings;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.PrimarySwitchPreference;
 import com.android.settingslib.core.AbstractPreferenceController;
@@ -68,6 +70,8 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     public static final String CATEGORY = "category";
     private static final String TAG = "DashboardFragment";
     private static final long TIMEOUT_MILLIS = 50L;
+    /** Controllers updating slower than one frame are logged. */
+    private static final long SLOW_CONTROLLER_THRESHOLD_US = 16000L;
 
     @VisibleForTesting
     final ArrayMap<String, List<DynamicDataObserver>> mDashboardTilePrefKeys = new ArrayMap<>();
@@ -89,6 +93,9 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                 R.array.config_suppress_injected_tile_keys));
         mDashboardFeatureProvider = FeatureFactory.getFactory(context).
                 getDashboardFeatureProvider(context);
+        final boolean traced = PreferenceControllerTimings.beginSection(getClass(),
+                PreferenceControllerTimings.PHASE_CREATE_CONTROLLERS);
+        final long startTime = SystemClock.elapsedRealtimeNanos();
         // Load preference controllers from code
         final List<AbstractPreferenceController> controllersFromCode =
                 createPreferenceControllers(context);
@@ -128,6 +135,8 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         for (AbstractPreferenceController controller : mControllers) {
             addPreferenceController(controller);
         }
+        PreferenceControllerTimings.endSection(traced, getClass(),
+                PreferenceControllerTimings.PHASE_CREATE_CONTROLLERS, startTime);
     }
 
     @VisibleForTesting
@@ -136,7 +145,7 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         final List<BasePreferenceController> baseControllers = new ArrayList<>();
         controllers.forEach(controller -> {
             if (controller instanceof BasePreferenceController.UiBlocker
-                    && controller.isAvailable()) {
+                    && PreferenceControllerTimings.isAvailable(controller)) {
                 ((BasePreferenceController) controller).setUiBlockListener(this);
                 keys.add(controller.getPreferenceKey());
                 baseControllers.add((BasePreferenceController) controller);
@@ -185,6 +194,9 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
 
     @Override
     public void onCreatePreferences(Bundle savedInstanceState, String rootKey) {
+        final boolean traced = PreferenceControllerTimings.beginSection(getClass(),
+                PreferenceControllerTimings.PHASE_CREATE_PREFERENCES);
+        final long startTime = SystemClock.elapsedRealtimeNanos();
         checkUiBlocker(mControllers);
         refreshAllPreferences(getLogTag());
         mControllers.stream()
@@ -194,6 +206,8 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                     // Give all controllers a chance to handle click.
                     preference.getExtras().putInt(CATEGORY, getMetricsCategory());
                 });
+        PreferenceControllerTimings.endSection(traced, getClass(),
+                PreferenceControllerTimings.PHASE_CREATE_PREFERENCES, startTime);
     }
 
     @Override
@@ -348,7 +362,7 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
      */
     protected void displayResourceTilesToScreen(PreferenceScreen screen) {
         mPreferenceControllers.values().stream().flatMap(Collection::stream).forEach(
-                controller -> controller.displayPreference(screen));
+                controller -> PreferenceControllerTimings.displayPreference(controller, screen));
     }
 
     /**
@@ -362,12 +376,18 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
      * Update state of each preference managed by PreferenceController.
      */
     protected void updatePreferenceStates() {
+        final boolean traced = PreferenceControllerTimings.beginSection(getClass(),
+                PreferenceControllerTimings.PHASE_UPDATE_PREFERENCES);
+        final long startTime = SystemClock.elapsedRealtimeNanos();
         final PreferenceScreen screen = getPreferenceScreen();
+        AbstractPreferenceController slowestController = null;
+        long slowestTimeNanos = 0L;
         Collection<List<AbstractPreferenceController>> controllerLists =
                 mPreferenceControllers.values();
         for (List<AbstractPreferenceController> controllerList : controllerLists) {
             for (AbstractPreferenceController controller : controllerList) {
-                if (!controller.isAvailable()) {
+                final long controllerStartTime = SystemClock.elapsedRealtimeNanos();
+                if (!PreferenceControllerTimings.isAvailable(controller)) {
                     continue;
                 }
 
@@ -384,9 +404,22 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                             key, controller.getClass().getSimpleName()));
                     continue;
                 }
-                controller.updateState(preference);
+                PreferenceControllerTimings.updateState(controller, preference);
+                final long timeNanos = SystemClock.elapsedRealtimeNanos() - controllerStartTime;
+                if (timeNanos > slowestTimeNanos) {
+                    slowestController = controller;
+                    slowestTimeNanos = timeNanos;
+                }
             }
         }
+        PreferenceControllerTimings.endSection(traced, getClass(),
+                PreferenceControllerTimings.PHASE_UPDATE_PREFERENCES, startTime);
+        final long slowestTimeUs = TimeUnit.NANOSECONDS.toMicros(slowestTimeNanos);
+        if (slowestTimeUs >= SLOW_CONTROLLER_THRESHOLD_US) {
+            Log.w(TAG, "Slowest controller of " + getClass().getSimpleName() + ": "
+                    + slowestController.getClass().getSimpleName() + " took "
+                    + slowestTimeUs + "us to update");
+        }
     }
 
     /**
@@ -430,9 +463,9 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                 if (preference == null) {
                     continue;
                 }
-                final boolean available = controller.isAvailable();
+                final boolean available = PreferenceControllerTimings.isAvailable(controller);
                 if (available) {
-                    controller.updateState(preference);
+                    PreferenceControllerTimings.updateState(controller, preference);
                 }
                 preference.setVisible(available);
             }
@@ -499,6 +532,9 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
             if (!displayTile(tile)) {
                 continue;
             }
+            final boolean traced = PreferenceControllerTimings.beginSection(getClass(),
+                    PreferenceControllerTimings.PHASE_BIND_TILE);
+            final long startTime = SystemClock.elapsedRealtimeNanos();
             final List<DynamicDataObserver> observers;
             if (mDashboardTilePrefKeys.containsKey(key)) {
                 // Have the key already, will rebind.
@@ -516,6 +552,8 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                 registerDynamicDataObservers(observers);
                 mDashboardTilePrefKeys.put(key, observers);
             }
+            PreferenceControllerTimings.endSection(traced, getClass(),
+                    PreferenceControllerTimings.PHASE_BIND_TILE, startTime);
             if (observers != null) {
                 pendingObservers.addAll(observers);
             }
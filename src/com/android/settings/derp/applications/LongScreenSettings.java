@@ -23,6 +23,7 @@ import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.UserHandle;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -41,6 +42,7 @@ import com.android.internal.logging.nano.MetricsProto.MetricsEvent;
 import com.android.internal.derp.applications.LongScreen;
 import com.android.settings.R;
 import com.android.settings.SettingsPreferenceFragment;
+import com.android.settings.applications.InstalledPackagesSnapshot;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -68,7 +70,7 @@ public class LongScreenSettings extends SettingsPreferenceFragment
         mApplicationsState = ApplicationsState.getInstance(getActivity().getApplication());
         mSession = mApplicationsState.newSession(this);
         mSession.onResume();
-        mActivityFilter = new ActivityFilter(getActivity().getPackageManager());
+        mActivityFilter = new ActivityFilter(getActivity());
         mAllPackagesAdapter = new AllPackagesAdapter(getActivity());
 
         mLongScreen = new LongScreen(getContext());
@@ -199,7 +201,7 @@ public class LongScreenSettings extends SettingsPreferenceFragment
 
         public AllPackagesAdapter(Context context) {
             mInflater = LayoutInflater.from(context);
-            mActivityFilter = new ActivityFilter(context.getPackageManager());
+            mActivityFilter = new ActivityFilter(context);
         }
 
         @Override
@@ -319,11 +321,11 @@ public class LongScreenSettings extends SettingsPreferenceFragment
 
     private class ActivityFilter implements ApplicationsState.AppFilter {
 
-        private final PackageManager mPackageManager;
+        private final InstalledPackagesSnapshot mPackagesSnapshot;
         private final List<String> mLauncherResolveInfoList = new ArrayList<String>();
 
-        private ActivityFilter(PackageManager packageManager) {
-            this.mPackageManager = packageManager;
+        private ActivityFilter(Context context) {
+            this.mPackagesSnapshot = InstalledPackagesSnapshot.getInstance(context);
 
             updateLauncherInfoList();
         }
@@ -331,7 +333,8 @@ public class LongScreenSettings extends SettingsPreferenceFragment
         public void updateLauncherInfoList() {
             Intent i = new Intent(Intent.ACTION_MAIN);
             i.addCategory(Intent.CATEGORY_LAUNCHER);
-            List<ResolveInfo> resolveInfoList = mPackageManager.queryIntentActivities(i, 0);
+            List<ResolveInfo> resolveInfoList = mPackagesSnapshot.queryIntentActivities(
+                    i, 0 /* flags */, UserHandle.myUserId());
 
             synchronized (mLauncherResolveInfoList) {
                 mLauncherResolveInfoList.clear();
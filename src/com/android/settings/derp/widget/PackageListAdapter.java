@@ -20,13 +20,18 @@ package com.android.settings.derp.widget;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
+import android.content.res.Resources;
 import android.graphics.drawable.Drawable;
 import android.os.Handler;
+import android.os.LocaleList;
 import android.os.Looper;
-import android.os.Message;
+import android.os.UserHandle;
 import android.text.TextUtils;
+import android.util.ArrayMap;
+import android.util.LruCache;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -35,19 +40,59 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.android.settings.R;
+import com.android.settings.applications.InstalledPackagesSnapshot;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
+/**
+ * Lists the launchable packages. The list is first published with the labels already cached,
+ * falling back to package names, and published again once the other labels are loaded. Labels
+ * are cached across adapters for the current locales, and icons are only loaded for the rows
+ * being shown.
+ */
 public class PackageListAdapter extends BaseAdapter implements Runnable {
+    private static final int LOADER_THREADS = 2;
+    private static final int ICON_CACHE_SIZE = 64;
+    private static final int LABEL_CACHE_SIZE = 512;
+
+    // Shared by all adapters, so that opening several pickers does not start more threads.
+    private static final ThreadPoolExecutor sExecutor = new ThreadPoolExecutor(
+            LOADER_THREADS, LOADER_THREADS, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+    // Labels by package name or component, validated against the source directory.
+    private static final LruCache<String, CachedLabel> sLabelCache =
+            new LruCache<>(LABEL_CACHE_SIZE);
+    // The locales of the cached labels.
+    private static LocaleList sLabelLocales;
+    // Icons by package name and last update time. Only their constant states are shared, a
+    // drawable holds on to the view showing it.
+    private static final LruCache<String, Drawable.ConstantState> sIconCache =
+            new LruCache<>(ICON_CACHE_SIZE);
+
+    static {
+        sExecutor.allowCoreThreadTimeOut(true);
+    }
+
     private final PackageManager mPm;
+    private final Resources mResources;
+    private final InstalledPackagesSnapshot mPackagesSnapshot;
     private final LayoutInflater mInflater;
-    private final List<PackageItem> mInstalledPackages = new LinkedList<>();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private List<PackageItem> mInstalledPackages = new ArrayList<>();
     private Set<String> mExcludedPackages = new HashSet<>();
+    private Future<?> mLoadTask;
+    private int mGeneration;
 
     // Packages which don't have launcher icons, but which we want to show nevertheless
     private static final String[] PACKAGE_WHITELIST = new String[] {
@@ -56,30 +101,16 @@ public class PackageListAdapter extends BaseAdapter implements Runnable {
         "com.android.providers.downloads"   /* download provider */
     };
 
-    private final Handler mHandler = new Handler(Looper.getMainLooper()) {
-        @Override
-        public void handleMessage(Message msg) {
-            PackageItem item = (PackageItem) msg.obj;
-            int index = Collections.binarySearch(mInstalledPackages, item);
-            if (index < 0) {
-                mInstalledPackages.add(-index - 1, item);
-            } else {
-                mInstalledPackages.get(index).activityTitles.addAll(item.activityTitles);
-            }
-            notifyDataSetChanged();
-        }
-    };
-
     public static class PackageItem implements Comparable<PackageItem> {
         public final String packageName;
         public final CharSequence title;
+        private final long lastUpdateTime;
         private final TreeSet<CharSequence> activityTitles = new TreeSet<>();
-        public final Drawable icon;
 
-        PackageItem(String packageName, CharSequence title, Drawable icon) {
+        PackageItem(String packageName, CharSequence title, long lastUpdateTime) {
             this.packageName = packageName;
             this.title = title;
-            this.icon = icon;
+            this.lastUpdateTime = lastUpdateTime;
         }
 
         @Override
@@ -91,30 +122,26 @@ public class PackageListAdapter extends BaseAdapter implements Runnable {
 
     public PackageListAdapter(Context context) {
         mPm = context.getPackageManager();
+        mResources = context.getResources();
+        mPackagesSnapshot = InstalledPackagesSnapshot.getInstance(context);
         mInflater = LayoutInflater.from(context);
         reloadList();
     }
 
     @Override
     public int getCount() {
-        synchronized (mInstalledPackages) {
-            return mInstalledPackages.size();
-        }
+        return mInstalledPackages.size();
     }
 
     @Override
     public PackageItem getItem(int position) {
-        synchronized (mInstalledPackages) {
-            return mInstalledPackages.get(position);
-        }
+        return mInstalledPackages.get(position);
     }
 
     @Override
     public long getItemId(int position) {
-        synchronized (mInstalledPackages) {
-            // packageName is guaranteed to be unique in mInstalledPackages
-            return mInstalledPackages.get(position).packageName.hashCode();
-        }
+        // packageName is guaranteed to be unique in mInstalledPackages
+        return mInstalledPackages.get(position).packageName.hashCode();
     }
 
     @Override
@@ -133,7 +160,7 @@ public class PackageListAdapter extends BaseAdapter implements Runnable {
 
         PackageItem applicationInfo = getItem(position);
         holder.title.setText(applicationInfo.title);
-        holder.icon.setImageDrawable(applicationInfo.icon);
+        bindIcon(holder, applicationInfo);
 
         boolean needSummary = applicationInfo.activityTitles.size() > 0;
         if (applicationInfo.activityTitles.size() == 1) {
@@ -152,52 +179,226 @@ public class PackageListAdapter extends BaseAdapter implements Runnable {
         return convertView;
     }
 
+    private void bindIcon(ViewHolder holder, PackageItem item) {
+        final String iconKey = item.packageName + "@" + item.lastUpdateTime;
+        if (Objects.equals(holder.iconKey, iconKey)) {
+            // Already shown or still loading.
+            return;
+        }
+        if (holder.iconTask != null) {
+            holder.iconTask.cancel(false /* mayInterruptIfRunning */);
+            holder.iconTask = null;
+        }
+        holder.iconKey = iconKey;
+
+        final Drawable.ConstantState cachedIcon = sIconCache.get(iconKey);
+        if (cachedIcon != null) {
+            holder.icon.setImageDrawable(cachedIcon.newDrawable(mResources));
+            return;
+        }
+        holder.icon.setImageDrawable(null);
+        holder.iconTask = sExecutor.submit(() -> {
+            final Drawable icon = loadIcon(item.packageName, iconKey);
+            mHandler.post(() -> {
+                if (TextUtils.equals(holder.iconKey, iconKey)) {
+                    holder.icon.setImageDrawable(icon);
+                    holder.iconTask = null;
+                }
+            });
+        });
+    }
+
+    private Drawable loadIcon(String packageName, String iconKey) {
+        Drawable icon;
+        try {
+            icon = mPm.getApplicationIcon(packageName);
+        } catch (PackageManager.NameNotFoundException e) {
+            icon = mPm.getDefaultActivityIcon();
+        }
+        final Drawable.ConstantState state = icon.getConstantState();
+        if (state != null) {
+            sIconCache.put(iconKey, state);
+        }
+        return icon;
+    }
+
     private void reloadList() {
-        mInstalledPackages.clear();
-        new Thread(this).start();
+        if (mLoadTask != null) {
+            mLoadTask.cancel(false /* mayInterruptIfRunning */);
+        }
+        synchronized (this) {
+            mGeneration++;
+        }
+        mLoadTask = sExecutor.submit(this);
     }
 
     @Override
     public void run() {
+        final int generation;
+        final Set<String> excludedPackages;
+        synchronized (this) {
+            generation = mGeneration;
+            excludedPackages = mExcludedPackages;
+        }
+        synchronized (sLabelCache) {
+            final LocaleList locales = LocaleList.getDefault();
+            if (!locales.equals(sLabelLocales)) {
+                sLabelCache.evictAll();
+                sLabelLocales = locales;
+            }
+        }
         final Intent mainIntent = new Intent(Intent.ACTION_MAIN, null);
         mainIntent.addCategory(Intent.CATEGORY_LAUNCHER);
-        List<ResolveInfo> installedAppsInfo = mPm.queryIntentActivities(mainIntent, 0);
+        List<ResolveInfo> installedAppsInfo = mPackagesSnapshot.queryIntentActivities(
+                mainIntent, 0 /* flags */, UserHandle.myUserId());
+        // Keys the cached icons, so that updated packages show their new icon.
+        final Map<String, Long> updateTimes = new ArrayMap<>();
+        for (PackageInfo info : mPackagesSnapshot.getInstalledPackages(0 /* flags */,
+                UserHandle.myUserId())) {
+            updateTimes.put(info.packageName, info.lastUpdateTime);
+        }
+
+        final List<ApplicationInfo> whitelistedApps = new ArrayList<>();
+        for (String packageName : PACKAGE_WHITELIST) {
+            if (excludedPackages.contains(packageName)) {
+                continue;
+            }
+            try {
+                whitelistedApps.add(mPm.getApplicationInfo(packageName, 0));
+            } catch (PackageManager.NameNotFoundException ignored) {
+                // package not present, so nothing to add -> ignore it
+            }
+        }
+
+        // Show the list right away with the cached labels, then with all of them.
+        final List<PackageItem> cachedPackages = new ArrayList<>();
+        final boolean complete = collectPackages(installedAppsInfo, whitelistedApps,
+                excludedPackages, updateTimes, true /* cachedOnly */, cachedPackages);
+        publish(generation, cachedPackages);
+        if (complete || isStale(generation)) {
+            return;
+        }
+        final List<PackageItem> packages = new ArrayList<>();
+        collectPackages(installedAppsInfo, whitelistedApps, excludedPackages, updateTimes,
+                false /* cachedOnly */, packages);
+        publish(generation, packages);
+    }
 
+    /**
+     * Collects the sorted packages into {@code packages}. With {@code cachedOnly}, labels which
+     * are not cached are replaced by the package name or left out.
+     *
+     * @return whether every label was available
+     */
+    private boolean collectPackages(List<ResolveInfo> installedAppsInfo,
+            List<ApplicationInfo> whitelistedApps, Set<String> excludedPackages,
+            Map<String, Long> updateTimes, boolean cachedOnly, List<PackageItem> packages) {
+        boolean complete = true;
+        final Map<String, PackageItem> items = new ArrayMap<>();
         for (ResolveInfo info : installedAppsInfo) {
             ApplicationInfo appInfo = info.activityInfo.applicationInfo;
-            if (mExcludedPackages.contains(appInfo.packageName)) {
+            if (excludedPackages.contains(appInfo.packageName)) {
                 continue;
             }
 
-            final PackageItem item = new PackageItem(appInfo.packageName,
-                    appInfo.loadLabel(mPm), appInfo.loadIcon(mPm));
-            item.activityTitles.add(info.loadLabel(mPm));
-            mHandler.obtainMessage(0, item).sendToTarget();
+            PackageItem item = items.get(appInfo.packageName);
+            if (item == null) {
+                CharSequence title = getLabel(appInfo.packageName, appInfo.sourceDir,
+                        cachedOnly ? null : () -> appInfo.loadLabel(mPm));
+                if (title == null) {
+                    title = appInfo.packageName;
+                    complete = false;
+                }
+                item = new PackageItem(appInfo.packageName, title,
+                        updateTimes.getOrDefault(appInfo.packageName, 0L));
+                items.put(appInfo.packageName, item);
+            }
+            final CharSequence activityTitle = getLabel(
+                    appInfo.packageName + "/" + info.activityInfo.name, appInfo.sourceDir,
+                    cachedOnly ? null : () -> info.loadLabel(mPm));
+            if (activityTitle != null) {
+                item.activityTitles.add(activityTitle);
+            } else {
+                complete = false;
+            }
         }
 
-        for (String packageName : PACKAGE_WHITELIST) {
-            if (mExcludedPackages.contains(packageName)) {
+        for (ApplicationInfo appInfo : whitelistedApps) {
+            if (items.containsKey(appInfo.packageName)) {
                 continue;
             }
-            try {
-                ApplicationInfo appInfo = mPm.getApplicationInfo(packageName, 0);
-                final PackageItem item = new PackageItem(appInfo.packageName,
-                        appInfo.loadLabel(mPm), appInfo.loadIcon(mPm));
-                mHandler.obtainMessage(0, item).sendToTarget();
-            } catch (PackageManager.NameNotFoundException ignored) {
-                // package not present, so nothing to add -> ignore it
+            CharSequence title = getLabel(appInfo.packageName, appInfo.sourceDir,
+                    cachedOnly ? null : () -> appInfo.loadLabel(mPm));
+            if (title == null) {
+                title = appInfo.packageName;
+                complete = false;
             }
+            items.put(appInfo.packageName, new PackageItem(appInfo.packageName, title,
+                    updateTimes.getOrDefault(appInfo.packageName, 0L)));
         }
+
+        packages.addAll(items.values());
+        Collections.sort(packages);
+        return complete;
+    }
+
+    private synchronized boolean isStale(int generation) {
+        return generation != mGeneration;
+    }
+
+    private void publish(int generation, List<PackageItem> packages) {
+        mHandler.post(() -> {
+            if (generation == mGeneration) {
+                mInstalledPackages = packages;
+                notifyDataSetChanged();
+            }
+        });
+    }
+
+    /**
+     * Returns the cached label of {@code key}, or loads and caches it. Returns null if it is
+     * not cached and there is no {@code loader}.
+     */
+    private static CharSequence getLabel(String key, String sourceDir,
+            Supplier<CharSequence> loader) {
+        synchronized (sLabelCache) {
+            final CachedLabel cachedLabel = sLabelCache.get(key);
+            if (cachedLabel != null && TextUtils.equals(cachedLabel.sourceDir, sourceDir)) {
+                return cachedLabel.label;
+            }
+        }
+        if (loader == null) {
+            return null;
+        }
+        final CharSequence label = loader.get();
+        synchronized (sLabelCache) {
+            sLabelCache.put(key, new CachedLabel(sourceDir, label));
+        }
+        return label;
     }
 
     public void setExcludedPackages(HashSet<String> packages) {
-        mExcludedPackages = packages;
+        synchronized (this) {
+            mExcludedPackages = packages;
+        }
         reloadList();
     }
 
+    private static class CachedLabel {
+        final String sourceDir;
+        final CharSequence label;
+
+        CachedLabel(String sourceDir, CharSequence label) {
+            this.sourceDir = sourceDir;
+            this.label = label;
+        }
+    }
+
     private static class ViewHolder {
         TextView title;
         TextView summary;
         ImageView icon;
+        String iconKey;
+        Future<?> iconTask;
     }
 }
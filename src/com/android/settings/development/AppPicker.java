@@ -25,6 +25,7 @@ import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Process;
+import android.os.UserHandle;
 import android.view.LayoutInflater;
 import android.view.MenuItem;
 import android.view.View;
@@ -33,6 +34,7 @@ import android.widget.ArrayAdapter;
 import android.widget.ListView;
 
 import com.android.settings.R;
+import com.android.settings.applications.InstalledPackagesSnapshot;
 
 import java.text.Collator;
 import java.util.ArrayList;
@@ -114,7 +116,8 @@ public class AppPicker extends ListActivity {
         public AppListAdapter(Context context) {
             super(context, 0);
             mInflater = (LayoutInflater)context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
-            List<ApplicationInfo> pkgs = context.getPackageManager().getInstalledApplications(0);
+            List<ApplicationInfo> pkgs = InstalledPackagesSnapshot.getInstance(context)
+                    .getInstalledApplications(0 /* flags */, UserHandle.myUserId());
             for (int i=0; i<pkgs.size(); i++) {
                 ApplicationInfo ai = pkgs.get(i);
                 if (ai.uid == Process.SYSTEM_UID) {
@@ -33,6 +33,7 @@ import android.os.Bundle;
 import android.os.SystemProperties;
 import android.os.UserManager;
 import android.text.TextUtils;
+import android.util.ArrayMap;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -41,10 +42,18 @@ import android.widget.Switch;
 
 import androidx.annotation.VisibleForTesting;
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
+import androidx.preference.Preference;
+import androidx.preference.PreferenceGroup;
+import androidx.preference.PreferenceGroupAdapter;
+import androidx.preference.PreferenceScreen;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.android.settings.R;
 import com.android.settings.SettingsActivity;
 import com.android.settings.Utils;
+import com.android.settings.core.BasePreferenceController;
+import com.android.settings.core.PreferenceControllerTimings;
 import com.android.settings.core.SubSettingLauncher;
 import com.android.settings.dashboard.RestrictedDashboardFragment;
 import com.android.settings.development.autofill.AutofillCategoryController;
@@ -76,6 +85,7 @@ import com.google.android.setupcompat.util.WizardManagerHelper;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
 
 @SearchIndexable(forTarget = SearchIndexable.ALL & ~SearchIndexable.ARC)
 public class DevelopmentSettingsDashboardFragment extends RestrictedDashboardFragment
@@ -85,6 +95,11 @@ public class DevelopmentSettingsDashboardFragment extends RestrictedDashboardFra
         AbstractBluetoothPreferenceController.Callback {
 
     private static final String TAG = "DevSettingsDashboard";
+    // How many preferences at the top of the screen have their controllers created upfront.
+    private static final int INITIAL_PREFERENCE_COUNT = 12;
+    // How many preferences past the last visible one have their controllers created ahead of
+    // scrolling.
+    private static final int PREFETCH_PREFERENCE_COUNT = 6;
 
     private final BluetoothA2dpConfigStore mBluetoothA2dpConfigStore =
             new BluetoothA2dpConfigStore();
@@ -93,6 +108,10 @@ public class DevelopmentSettingsDashboardFragment extends RestrictedDashboardFra
     private SettingsMainSwitchBar mSwitchBar;
     private DevelopmentSwitchBarController mSwitchBarController;
     private List<AbstractPreferenceController> mPreferenceControllers = new ArrayList<>();
+    // The controllers that are not created yet, by preference key.
+    private final ArrayMap<String, PreferenceControllerDescriptor> mPendingDescriptors =
+            new ArrayMap<>();
+    private boolean mDeveloperOptionsEnabled;
     private BluetoothA2dp mBluetoothA2dp;
 
     private final BroadcastReceiver mEnableAdbReceiver = new BroadcastReceiver() {
@@ -156,6 +175,21 @@ public class DevelopmentSettingsDashboardFragment extends RestrictedDashboardFra
                 }
             };
 
+    private final Runnable mShowControllersNearViewport = () -> showControllersNearViewport();
+
+    private final RecyclerView.OnScrollListener mScrollListener =
+            new RecyclerView.OnScrollListener() {
+                @Override
+                public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                    // Also called when the visible items change on layout, during which the
+                    // preferences can't be changed.
+                    if (!mPendingDescriptors.isEmpty()) {
+                        recyclerView.removeCallbacks(mShowControllersNearViewport);
+                        recyclerView.post(mShowControllersNearViewport);
+                    }
+                }
+            };
+
     private final Runnable mSystemPropertiesChanged = new Runnable() {
         @Override
         public void run() {
@@ -265,6 +299,12 @@ public class DevelopmentSettingsDashboardFragment extends RestrictedDashboardFra
         return super.onCreateView(inflater, container, savedInstanceState);
     }
 
+    @Override
+    public void onViewCreated(View view, Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        getListView().addOnScrollListener(mScrollListener);
+    }
+
     @Override
     public void onDestroyView() {
         super.onDestroyView();
@@ -400,6 +440,8 @@ public class DevelopmentSettingsDashboardFragment extends RestrictedDashboardFra
 
     @Override
     public void onActivityResult(int requestCode, int resultCode, Intent data) {
+        showDeferredControllers(descriptor -> OnActivityResultListener.class.isAssignableFrom(
+                descriptor.mControllerClass));
         boolean handledResult = false;
         for (AbstractPreferenceController controller : mPreferenceControllers) {
             if (controller instanceof OnActivityResultListener) {
@@ -436,12 +478,141 @@ public class DevelopmentSettingsDashboardFragment extends RestrictedDashboardFra
             mPreferenceControllers = new ArrayList<>();
             return null;
         }
-        mPreferenceControllers = buildPreferenceControllers(context, getActivity(),
-                getSettingsLifecycle(), this /* devOptionsDashboardFragment */,
-                new BluetoothA2dpConfigStore());
+        // Only the controllers observing the lifecycle are created with the fragment, the others
+        // are created when their preferences are displayed or needed by a callback.
+        mPreferenceControllers = new ArrayList<>();
+        mPendingDescriptors.clear();
+        for (PreferenceControllerDescriptor descriptor : buildControllerDescriptors(context,
+                getActivity(), getSettingsLifecycle(), this /* devOptionsDashboardFragment */,
+                new BluetoothA2dpConfigStore())) {
+            if (descriptor.mEager) {
+                mPreferenceControllers.add(descriptor.create());
+            } else {
+                mPendingDescriptors.put(descriptor.mKey, descriptor);
+            }
+        }
         return mPreferenceControllers;
     }
 
+    @Override
+    protected void displayResourceTilesToScreen(PreferenceScreen screen) {
+        // The controllers of the first preferences are displayed with the eager ones, so the
+        // first frame is complete.
+        final List<String> keys = new ArrayList<>();
+        collectPreferenceKeys(screen, keys, INITIAL_PREFERENCE_COUNT);
+        for (String key : keys) {
+            createDeferredController(key);
+        }
+        super.displayResourceTilesToScreen(screen);
+    }
+
+    @Override
+    protected <T extends AbstractPreferenceController> T use(Class<T> clazz) {
+        showDeferredControllers(descriptor -> descriptor.mControllerClass == clazz);
+        return super.use(clazz);
+    }
+
+    @Override
+    public boolean onPreferenceTreeClick(Preference preference) {
+        showDeferredController(preference.getKey());
+        return super.onPreferenceTreeClick(preference);
+    }
+
+    private static void collectPreferenceKeys(PreferenceGroup group, List<String> keys,
+            int maxCount) {
+        for (int i = 0; i < group.getPreferenceCount() && keys.size() < maxCount; i++) {
+            final Preference preference = group.getPreference(i);
+            if (preference.getKey() != null) {
+                keys.add(preference.getKey());
+            }
+            if (preference instanceof PreferenceGroup) {
+                collectPreferenceKeys((PreferenceGroup) preference, keys, maxCount);
+            }
+        }
+    }
+
+    /** Shows the deferred controllers of the preferences around the visible ones. */
+    private void showControllersNearViewport() {
+        final RecyclerView listView = getListView();
+        if (listView == null || mPendingDescriptors.isEmpty()
+                || !(listView.getLayoutManager() instanceof LinearLayoutManager)
+                || !(listView.getAdapter() instanceof PreferenceGroupAdapter)) {
+            return;
+        }
+        final LinearLayoutManager layoutManager = (LinearLayoutManager) listView.getLayoutManager();
+        final PreferenceGroupAdapter adapter = (PreferenceGroupAdapter) listView.getAdapter();
+        final int firstPosition = layoutManager.findFirstVisibleItemPosition();
+        if (firstPosition == RecyclerView.NO_POSITION) {
+            return;
+        }
+        final int lastPosition = Math.min(
+                layoutManager.findLastVisibleItemPosition() + PREFETCH_PREFERENCE_COUNT,
+                adapter.getItemCount() - 1);
+        for (int position = firstPosition; position <= lastPosition; position++) {
+            final Preference preference = adapter.getItem(position);
+            if (preference != null) {
+                showDeferredController(preference.getKey());
+            }
+        }
+    }
+
+    private void showDeferredControllers(Predicate<PreferenceControllerDescriptor> filter) {
+        for (PreferenceControllerDescriptor descriptor :
+                new ArrayList<>(mPendingDescriptors.values())) {
+            if (filter.test(descriptor)) {
+                showDeferredController(descriptor.mKey);
+            }
+        }
+    }
+
+    /**
+     * Creates the deferred controller of a preference and brings it to the state the eager
+     * controllers are in.
+     */
+    private void showDeferredController(String key) {
+        final AbstractPreferenceController controller = createDeferredController(key);
+        final PreferenceScreen screen = getPreferenceScreen();
+        if (controller == null || screen == null) {
+            return;
+        }
+        PreferenceControllerTimings.displayPreference(controller, screen);
+        if (mDeveloperOptionsEnabled
+                && controller instanceof DeveloperOptionsPreferenceController) {
+            ((DeveloperOptionsPreferenceController) controller).onDeveloperOptionsEnabled();
+        }
+        if (mBluetoothA2dp != null && controller instanceof BluetoothServiceConnectionListener) {
+            ((BluetoothServiceConnectionListener) controller)
+                    .onBluetoothServiceConnected(mBluetoothA2dp);
+        }
+        if (isResumed()) {
+            final Preference preference = screen.findPreference(key);
+            if (preference != null && PreferenceControllerTimings.isAvailable(controller)) {
+                PreferenceControllerTimings.updateState(controller, preference);
+            }
+        }
+    }
+
+    /** Creates and registers the deferred controller of a preference, if it has one. */
+    private AbstractPreferenceController createDeferredController(String key) {
+        final PreferenceControllerDescriptor descriptor = mPendingDescriptors.remove(key);
+        if (descriptor == null) {
+            return null;
+        }
+        final AbstractPreferenceController controller = descriptor.create();
+        if (controller instanceof BasePreferenceController) {
+            ((BasePreferenceController) controller).setMetricsCategory(getMetricsCategory());
+        }
+        mPreferenceControllers.add(controller);
+        addPreferenceController(controller);
+        final PreferenceScreen screen = getPreferenceScreen();
+        final Preference preference = screen != null ? screen.findPreference(key) : null;
+        if (preference != null) {
+            // Give the controller a chance to handle click.
+            preference.getExtras().putInt(CATEGORY, getMetricsCategory());
+        }
+        return controller;
+    }
+
     private void registerReceivers() {
         LocalBroadcastManager.getInstance(getContext())
                 .registerReceiver(mEnableAdbReceiver, new IntentFilter(
@@ -462,6 +633,7 @@ public class DevelopmentSettingsDashboardFragment extends RestrictedDashboardFra
             return;
         }
         DevelopmentSettingsEnabler.setDevelopmentSettingsEnabled(getContext(), true);
+        mDeveloperOptionsEnabled = true;
         for (AbstractPreferenceController controller : mPreferenceControllers) {
             if (controller instanceof DeveloperOptionsPreferenceController) {
                 ((DeveloperOptionsPreferenceController) controller).onDeveloperOptionsEnabled();
@@ -474,6 +646,9 @@ public class DevelopmentSettingsDashboardFragment extends RestrictedDashboardFra
             return;
         }
         DevelopmentSettingsEnabler.setDevelopmentSettingsEnabled(getContext(), false);
+        mDeveloperOptionsEnabled = false;
+        // Every controller resets its setting.
+        showDeferredControllers(descriptor -> true);
         final SystemPropPoker poker = SystemPropPoker.getInstance();
         poker.blockPokes();
         for (AbstractPreferenceController controller : mPreferenceControllers) {
@@ -508,121 +683,339 @@ public class DevelopmentSettingsDashboardFragment extends RestrictedDashboardFra
             Activity activity, Lifecycle lifecycle, DevelopmentSettingsDashboardFragment fragment,
             BluetoothA2dpConfigStore bluetoothA2dpConfigStore) {
         final List<AbstractPreferenceController> controllers = new ArrayList<>();
-        controllers.add(new MemoryUsagePreferenceController(context));
+        for (PreferenceControllerDescriptor descriptor : buildControllerDescriptors(context,
+                activity, lifecycle, fragment, bluetoothA2dpConfigStore)) {
+            controllers.add(descriptor.create());
+        }
+        return controllers;
+    }
+
+    @VisibleForTesting
+    static List<PreferenceControllerDescriptor> buildControllerDescriptors(Context context,
+            Activity activity, Lifecycle lifecycle, DevelopmentSettingsDashboardFragment fragment,
+            BluetoothA2dpConfigStore bluetoothA2dpConfigStore) {
+        final List<PreferenceControllerDescriptor> descriptors = new ArrayList<>();
+        descriptors.add(PreferenceControllerDescriptor.of("memory",
+                MemoryUsagePreferenceController.class,
+                () -> new MemoryUsagePreferenceController(context)));
         //controllers.add(new BugReportPreferenceController(context));
         //controllers.add(new BugReportHandlerPreferenceController(context));
-        controllers.add(new SystemServerHeapDumpPreferenceController(context));
-        controllers.add(new RebootWithMtePreferenceController(context, fragment));
-        controllers.add(new LocalBackupPasswordPreferenceController(context));
-        controllers.add(new StayAwakePreferenceController(context, lifecycle));
-        controllers.add(new HdcpCheckingPreferenceController(context));
-        controllers.add(new BluetoothSnoopLogPreferenceController(context));
-        controllers.add(new OemUnlockPreferenceController(context, activity, fragment));
-        controllers.add(new PictureColorModePreferenceController(context, lifecycle));
-        controllers.add(new WebViewAppPreferenceController(context));
-        controllers.add(new CoolColorTemperaturePreferenceController(context));
-     // controllers.add(new DisableAutomaticUpdatesPreferenceController(context));
-        controllers.add(new SelectDSUPreferenceController(context));
-        controllers.add(new AdbPreferenceController(context, fragment));
-        controllers.add(new AdbRootPreferenceController(context, fragment));
-        controllers.add(new ClearAdbKeysPreferenceController(context, fragment));
-        controllers.add(new WirelessDebuggingPreferenceController(context, lifecycle));
-        controllers.add(new AdbAuthorizationTimeoutPreferenceController(context));
-        controllers.add(new LocalTerminalPreferenceController(context));
+        descriptors.add(PreferenceControllerDescriptor.of("system_server_heap_dump",
+                SystemServerHeapDumpPreferenceController.class,
+                () -> new SystemServerHeapDumpPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("reboot_with_mte",
+                RebootWithMtePreferenceController.class,
+                () -> new RebootWithMtePreferenceController(context, fragment)));
+        descriptors.add(PreferenceControllerDescriptor.of("local_backup_password",
+                LocalBackupPasswordPreferenceController.class,
+                () -> new LocalBackupPasswordPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.eager("keep_screen_on",
+                StayAwakePreferenceController.class,
+                () -> new StayAwakePreferenceController(context, lifecycle)));
+        descriptors.add(PreferenceControllerDescriptor.of("hdcp_checking",
+                HdcpCheckingPreferenceController.class,
+                () -> new HdcpCheckingPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("bt_hci_snoop_log",
+                BluetoothSnoopLogPreferenceController.class,
+                () -> new BluetoothSnoopLogPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("oem_unlock_enable",
+                OemUnlockPreferenceController.class,
+                () -> new OemUnlockPreferenceController(context, activity, fragment)));
+        descriptors.add(PreferenceControllerDescriptor.eager("picture_color_mode",
+                PictureColorModePreferenceController.class,
+                () -> new PictureColorModePreferenceController(context, lifecycle)));
+        descriptors.add(PreferenceControllerDescriptor.of("select_webview_provider",
+                WebViewAppPreferenceController.class,
+                () -> new WebViewAppPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("color_temperature",
+                CoolColorTemperaturePreferenceController.class,
+                () -> new CoolColorTemperaturePreferenceController(context)));
+        //controllers.add(new DisableAutomaticUpdatesPreferenceController(context));
+        descriptors.add(PreferenceControllerDescriptor.of("dsu_loader",
+                SelectDSUPreferenceController.class,
+                () -> new SelectDSUPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("enable_adb",
+                AdbPreferenceController.class,
+                () -> new AdbPreferenceController(context, fragment)));
+        descriptors.add(PreferenceControllerDescriptor.of("enable_adb_root",
+                AdbRootPreferenceController.class,
+                () -> new AdbRootPreferenceController(context, fragment)));
+        descriptors.add(PreferenceControllerDescriptor.of("clear_adb_keys",
+                ClearAdbKeysPreferenceController.class,
+                () -> new ClearAdbKeysPreferenceController(context, fragment)));
+        descriptors.add(PreferenceControllerDescriptor.eager("toggle_adb_wireless",
+                WirelessDebuggingPreferenceController.class,
+                () -> new WirelessDebuggingPreferenceController(context, lifecycle)));
+        descriptors.add(PreferenceControllerDescriptor.of("adb_authorization_timeout",
+                AdbAuthorizationTimeoutPreferenceController.class,
+                () -> new AdbAuthorizationTimeoutPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("enable_terminal",
+                LocalTerminalPreferenceController.class,
+                () -> new LocalTerminalPreferenceController(context)));
         //controllers.add(new BugReportInPowerPreferenceController(context));
-        controllers.add(new AutomaticSystemServerHeapDumpPreferenceController(context));
-        controllers.add(new MockLocationAppPreferenceController(context, fragment));
-        controllers.add(new MockModemPreferenceController(context));
-        controllers.add(new DebugViewAttributesPreferenceController(context));
-        controllers.add(new SelectDebugAppPreferenceController(context, fragment));
-        controllers.add(new WaitForDebuggerPreferenceController(context));
-        controllers.add(new EnableGpuDebugLayersPreferenceController(context));
-        controllers.add(new ForcePeakRefreshRatePreferenceController(context));
-        controllers.add(new EnableVerboseVendorLoggingPreferenceController(context));
-        controllers.add(new VerifyAppsOverUsbPreferenceController(context));
-        controllers.add(new ArtVerifierPreferenceController(context));
-        controllers.add(new LogdSizePreferenceController(context));
-        controllers.add(new LogPersistPreferenceController(context, fragment, lifecycle));
-        controllers.add(new CameraLaserSensorPreferenceController(context));
-        controllers.add(new WifiDisplayCertificationPreferenceController(context));
-        controllers.add(new WifiVerboseLoggingPreferenceController(context));
-        controllers.add(new WifiScanThrottlingPreferenceController(context));
-        controllers.add(new WifiNonPersistentMacRandomizationPreferenceController(context));
-        controllers.add(new MobileDataAlwaysOnPreferenceController(context));
-        controllers.add(new TetheringHardwareAccelPreferenceController(context));
-        controllers.add(new BluetoothDeviceNoNamePreferenceController(context));
-        controllers.add(new BluetoothAbsoluteVolumePreferenceController(context));
-        controllers.add(new BluetoothAvrcpVersionPreferenceController(context));
-        controllers.add(new BluetoothMapVersionPreferenceController(context));
-        controllers.add(new BluetoothLeAudioPreferenceController(context, fragment));
-        controllers.add(new BluetoothA2dpHwOffloadPreferenceController(context, fragment));
-        controllers.add(new BluetoothLeAudioHwOffloadPreferenceController(context, fragment));
-        controllers.add(new BluetoothMaxConnectedAudioDevicesPreferenceController(context));
-        controllers.add(new NfcStackDebugLogPreferenceController(context));
-        controllers.add(new ShowTapsPreferenceController(context));
-        controllers.add(new PointerLocationPreferenceController(context));
-        controllers.add(new ShowSurfaceUpdatesPreferenceController(context));
-        controllers.add(new ShowLayoutBoundsPreferenceController(context));
-        controllers.add(new ShowRefreshRatePreferenceController(context));
-        controllers.add(new RtlLayoutPreferenceController(context));
-        controllers.add(new WindowAnimationScalePreferenceController(context));
-        controllers.add(new TransitionAnimationScalePreferenceController(context));
-        controllers.add(new AnimatorDurationScalePreferenceController(context));
-        controllers.add(new SecondaryDisplayPreferenceController(context));
-        controllers.add(new GpuViewUpdatesPreferenceController(context));
-        controllers.add(new HardwareLayersUpdatesPreferenceController(context));
-        controllers.add(new DebugGpuOverdrawPreferenceController(context));
-        controllers.add(new DebugNonRectClipOperationsPreferenceController(context));
-        controllers.add(new ForceDarkPreferenceController(context));
-        controllers.add(new ForceMSAAPreferenceController(context));
-        controllers.add(new HardwareOverlaysPreferenceController(context));
-        controllers.add(new SimulateColorSpacePreferenceController(context));
-        controllers.add(new UsbAudioRoutingPreferenceController(context));
-        controllers.add(new StrictModePreferenceController(context));
-        controllers.add(new ProfileGpuRenderingPreferenceController(context));
-        controllers.add(new KeepActivitiesPreferenceController(context));
-        controllers.add(new BackgroundProcessLimitPreferenceController(context));
-        controllers.add(new CachedAppsFreezerPreferenceController(context));
-        controllers.add(new ShowFirstCrashDialogPreferenceController(context));
-        controllers.add(new AppsNotRespondingPreferenceController(context));
-        controllers.add(new NotificationChannelWarningsPreferenceController(context));
-        controllers.add(new AllowAppsOnExternalPreferenceController(context));
-        controllers.add(new ResizableActivityPreferenceController(context));
-        controllers.add(new FreeformWindowsPreferenceController(context, fragment));
-        controllers.add(new DesktopModePreferenceController(context, fragment));
-        controllers.add(new NonResizableMultiWindowPreferenceController(context));
-        controllers.add(new ShortcutManagerThrottlingPreferenceController(context));
-        controllers.add(new EnableGnssRawMeasFullTrackingPreferenceController(context));
-        controllers.add(new DefaultLaunchPreferenceController(context, "running_apps"));
-        controllers.add(new DefaultLaunchPreferenceController(context, "demo_mode"));
-        controllers.add(new DefaultLaunchPreferenceController(context, "quick_settings_tiles"));
-        controllers.add(new DefaultLaunchPreferenceController(context, "feature_flags_dashboard"));
-        controllers.add(new DefaultUsbConfigurationPreferenceController(context));
-        controllers.add(new DefaultLaunchPreferenceController(context, "density"));
-        controllers.add(new DefaultLaunchPreferenceController(context, "background_check"));
-        controllers.add(new DefaultLaunchPreferenceController(context, "inactive_apps"));
-        controllers.add(new AutofillCategoryController(context, lifecycle));
-        controllers.add(new AutofillLoggingLevelPreferenceController(context, lifecycle));
-        controllers.add(new AutofillResetOptionsPreferenceController(context));
-        controllers.add(new BluetoothCodecDialogPreferenceController(context, lifecycle,
-                bluetoothA2dpConfigStore, fragment));
-        controllers.add(new BluetoothSampleRateDialogPreferenceController(context, lifecycle,
-                bluetoothA2dpConfigStore));
-        controllers.add(new BluetoothBitPerSampleDialogPreferenceController(context, lifecycle,
-                bluetoothA2dpConfigStore));
-        controllers.add(new BluetoothQualityDialogPreferenceController(context, lifecycle,
-                bluetoothA2dpConfigStore));
-        controllers.add(new BluetoothChannelModeDialogPreferenceController(context, lifecycle,
-                bluetoothA2dpConfigStore));
-        controllers.add(new BluetoothHDAudioPreferenceController(context, lifecycle,
-                bluetoothA2dpConfigStore, fragment));
-        controllers.add(new SharedDataPreferenceController(context));
-        controllers.add(new OverlaySettingsPreferenceController(context));
-        controllers.add(new StylusHandwritingPreferenceController(context));
-        controllers.add(new IngressRateLimitPreferenceController((context)));
-        controllers.add(new BackAnimationPreferenceController(context, fragment));
-
-        return controllers;
+        descriptors.add(PreferenceControllerDescriptor.of("automatic_system_server_heap_dumps",
+                AutomaticSystemServerHeapDumpPreferenceController.class,
+                () -> new AutomaticSystemServerHeapDumpPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("mock_location_app",
+                MockLocationAppPreferenceController.class,
+                () -> new MockLocationAppPreferenceController(context, fragment)));
+        descriptors.add(PreferenceControllerDescriptor.of("allow_mock_modem",
+                MockModemPreferenceController.class,
+                () -> new MockModemPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("debug_view_attributes",
+                DebugViewAttributesPreferenceController.class,
+                () -> new DebugViewAttributesPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("debug_app",
+                SelectDebugAppPreferenceController.class,
+                () -> new SelectDebugAppPreferenceController(context, fragment)));
+        descriptors.add(PreferenceControllerDescriptor.of("wait_for_debugger",
+                WaitForDebuggerPreferenceController.class,
+                () -> new WaitForDebuggerPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("enable_gpu_debug_layers",
+                EnableGpuDebugLayersPreferenceController.class,
+                () -> new EnableGpuDebugLayersPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("pref_key_peak_refresh_rate",
+                ForcePeakRefreshRatePreferenceController.class,
+                () -> new ForcePeakRefreshRatePreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("enable_verbose_vendor_logging",
+                EnableVerboseVendorLoggingPreferenceController.class,
+                () -> new EnableVerboseVendorLoggingPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("verify_apps_over_usb",
+                VerifyAppsOverUsbPreferenceController.class,
+                () -> new VerifyAppsOverUsbPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("art_verifier_for_debuggable",
+                ArtVerifierPreferenceController.class,
+                () -> new ArtVerifierPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("select_logd_size",
+                LogdSizePreferenceController.class,
+                () -> new LogdSizePreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.eager("select_logpersist",
+                LogPersistPreferenceController.class,
+                () -> new LogPersistPreferenceController(context, fragment, lifecycle)));
+        descriptors.add(PreferenceControllerDescriptor.of("camera_laser_sensor_switch",
+                CameraLaserSensorPreferenceController.class,
+                () -> new CameraLaserSensorPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("wifi_display_certification",
+                WifiDisplayCertificationPreferenceController.class,
+                () -> new WifiDisplayCertificationPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("wifi_verbose_logging",
+                WifiVerboseLoggingPreferenceController.class,
+                () -> new WifiVerboseLoggingPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("wifi_scan_throttling",
+                WifiScanThrottlingPreferenceController.class,
+                () -> new WifiScanThrottlingPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("wifi_non_persistent_mac_randomization",
+                WifiNonPersistentMacRandomizationPreferenceController.class,
+                () -> new WifiNonPersistentMacRandomizationPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("mobile_data_always_on",
+                MobileDataAlwaysOnPreferenceController.class,
+                () -> new MobileDataAlwaysOnPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("tethering_hardware_offload",
+                TetheringHardwareAccelPreferenceController.class,
+                () -> new TetheringHardwareAccelPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("bluetooth_show_devices_without_names",
+                BluetoothDeviceNoNamePreferenceController.class,
+                () -> new BluetoothDeviceNoNamePreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("bluetooth_disable_absolute_volume",
+                BluetoothAbsoluteVolumePreferenceController.class,
+                () -> new BluetoothAbsoluteVolumePreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("bluetooth_select_avrcp_version",
+                BluetoothAvrcpVersionPreferenceController.class,
+                () -> new BluetoothAvrcpVersionPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("bluetooth_select_map_version",
+                BluetoothMapVersionPreferenceController.class,
+                () -> new BluetoothMapVersionPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("bluetooth_enable_leaudio",
+                BluetoothLeAudioPreferenceController.class,
+                () -> new BluetoothLeAudioPreferenceController(context, fragment)));
+        descriptors.add(PreferenceControllerDescriptor.of("bluetooth_disable_a2dp_hw_offload",
+                BluetoothA2dpHwOffloadPreferenceController.class,
+                () -> new BluetoothA2dpHwOffloadPreferenceController(context, fragment)));
+        descriptors.add(PreferenceControllerDescriptor.of("bluetooth_disable_le_audio_hw_offload",
+                BluetoothLeAudioHwOffloadPreferenceController.class,
+                () -> new BluetoothLeAudioHwOffloadPreferenceController(context, fragment)));
+        descriptors.add(PreferenceControllerDescriptor.of("bluetooth_max_connected_audio_devices",
+                BluetoothMaxConnectedAudioDevicesPreferenceController.class,
+                () -> new BluetoothMaxConnectedAudioDevicesPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("nfc_stack_debuglog_enabled",
+                NfcStackDebugLogPreferenceController.class,
+                () -> new NfcStackDebugLogPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("show_touches",
+                ShowTapsPreferenceController.class,
+                () -> new ShowTapsPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("pointer_location",
+                PointerLocationPreferenceController.class,
+                () -> new PointerLocationPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("show_screen_updates",
+                ShowSurfaceUpdatesPreferenceController.class,
+                () -> new ShowSurfaceUpdatesPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("debug_layout",
+                ShowLayoutBoundsPreferenceController.class,
+                () -> new ShowLayoutBoundsPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("show_refresh_rate",
+                ShowRefreshRatePreferenceController.class,
+                () -> new ShowRefreshRatePreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("force_rtl_layout_all_locales",
+                RtlLayoutPreferenceController.class,
+                () -> new RtlLayoutPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("window_animation_scale",
+                WindowAnimationScalePreferenceController.class,
+                () -> new WindowAnimationScalePreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("transition_animation_scale",
+                TransitionAnimationScalePreferenceController.class,
+                () -> new TransitionAnimationScalePreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("animator_duration_scale",
+                AnimatorDurationScalePreferenceController.class,
+                () -> new AnimatorDurationScalePreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("overlay_display_devices",
+                SecondaryDisplayPreferenceController.class,
+                () -> new SecondaryDisplayPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("show_hw_screen_updates",
+                GpuViewUpdatesPreferenceController.class,
+                () -> new GpuViewUpdatesPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("show_hw_layers_updates",
+                HardwareLayersUpdatesPreferenceController.class,
+                () -> new HardwareLayersUpdatesPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("debug_hw_overdraw",
+                DebugGpuOverdrawPreferenceController.class,
+                () -> new DebugGpuOverdrawPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("show_non_rect_clip",
+                DebugNonRectClipOperationsPreferenceController.class,
+                () -> new DebugNonRectClipOperationsPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("hwui_force_dark",
+                ForceDarkPreferenceController.class,
+                () -> new ForceDarkPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("force_msaa",
+                ForceMSAAPreferenceController.class,
+                () -> new ForceMSAAPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("disable_overlays",
+                HardwareOverlaysPreferenceController.class,
+                () -> new HardwareOverlaysPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("simulate_color_space",
+                SimulateColorSpacePreferenceController.class,
+                () -> new SimulateColorSpacePreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("usb_audio",
+                UsbAudioRoutingPreferenceController.class,
+                () -> new UsbAudioRoutingPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("strict_mode",
+                StrictModePreferenceController.class,
+                () -> new StrictModePreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("track_frame_time",
+                ProfileGpuRenderingPreferenceController.class,
+                () -> new ProfileGpuRenderingPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("immediately_destroy_activities",
+                KeepActivitiesPreferenceController.class,
+                () -> new KeepActivitiesPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("app_process_limit",
+                BackgroundProcessLimitPreferenceController.class,
+                () -> new BackgroundProcessLimitPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("cached_apps_freezer",
+                CachedAppsFreezerPreferenceController.class,
+                () -> new CachedAppsFreezerPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("show_first_crash_dialog",
+                ShowFirstCrashDialogPreferenceController.class,
+                () -> new ShowFirstCrashDialogPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("show_all_anrs",
+                AppsNotRespondingPreferenceController.class,
+                () -> new AppsNotRespondingPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("show_notification_channel_warnings",
+                NotificationChannelWarningsPreferenceController.class,
+                () -> new NotificationChannelWarningsPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("force_allow_on_external",
+                AllowAppsOnExternalPreferenceController.class,
+                () -> new AllowAppsOnExternalPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("force_resizable_activities",
+                ResizableActivityPreferenceController.class,
+                () -> new ResizableActivityPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("enable_freeform_support",
+                FreeformWindowsPreferenceController.class,
+                () -> new FreeformWindowsPreferenceController(context, fragment)));
+        descriptors.add(PreferenceControllerDescriptor.of("force_desktop_mode_on_external_displays",
+                DesktopModePreferenceController.class,
+                () -> new DesktopModePreferenceController(context, fragment)));
+        descriptors.add(PreferenceControllerDescriptor.of("enable_non_resizable_multi_window",
+                NonResizableMultiWindowPreferenceController.class,
+                () -> new NonResizableMultiWindowPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("reset_shortcut_manager_throttling",
+                ShortcutManagerThrottlingPreferenceController.class,
+                () -> new ShortcutManagerThrottlingPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("enable_gnss_raw_meas_full_tracking",
+                EnableGnssRawMeasFullTrackingPreferenceController.class,
+                () -> new EnableGnssRawMeasFullTrackingPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("running_apps",
+                DefaultLaunchPreferenceController.class,
+                () -> new DefaultLaunchPreferenceController(context, "running_apps")));
+        descriptors.add(PreferenceControllerDescriptor.of("demo_mode",
+                DefaultLaunchPreferenceController.class,
+                () -> new DefaultLaunchPreferenceController(context, "demo_mode")));
+        descriptors.add(PreferenceControllerDescriptor.of("quick_settings_tiles",
+                DefaultLaunchPreferenceController.class,
+                () -> new DefaultLaunchPreferenceController(context, "quick_settings_tiles")));
+        descriptors.add(PreferenceControllerDescriptor.of("feature_flags_dashboard",
+                DefaultLaunchPreferenceController.class,
+                () -> new DefaultLaunchPreferenceController(context, "feature_flags_dashboard")));
+        descriptors.add(PreferenceControllerDescriptor.of("default_usb_configuration",
+                DefaultUsbConfigurationPreferenceController.class,
+                () -> new DefaultUsbConfigurationPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("density",
+                DefaultLaunchPreferenceController.class,
+                () -> new DefaultLaunchPreferenceController(context, "density")));
+        descriptors.add(PreferenceControllerDescriptor.of("background_check",
+                DefaultLaunchPreferenceController.class,
+                () -> new DefaultLaunchPreferenceController(context, "background_check")));
+        descriptors.add(PreferenceControllerDescriptor.of("inactive_apps",
+                DefaultLaunchPreferenceController.class,
+                () -> new DefaultLaunchPreferenceController(context, "inactive_apps")));
+        descriptors.add(PreferenceControllerDescriptor.eager("debug_autofill_category",
+                AutofillCategoryController.class,
+                () -> new AutofillCategoryController(context, lifecycle)));
+        descriptors.add(PreferenceControllerDescriptor.eager("autofill_logging_level",
+                AutofillLoggingLevelPreferenceController.class,
+                () -> new AutofillLoggingLevelPreferenceController(context, lifecycle)));
+        descriptors.add(PreferenceControllerDescriptor.of("autofill_reset_developer_options",
+                AutofillResetOptionsPreferenceController.class,
+                () -> new AutofillResetOptionsPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.eager("bluetooth_audio_codec_settings",
+                BluetoothCodecDialogPreferenceController.class,
+                () -> new BluetoothCodecDialogPreferenceController(context, lifecycle,
+                        bluetoothA2dpConfigStore, fragment));
+        descriptors.add(PreferenceControllerDescriptor.eager("bluetooth_sample_rate_settings",
+                BluetoothSampleRateDialogPreferenceController.class,
+                () -> new BluetoothSampleRateDialogPreferenceController(context, lifecycle,
+                        bluetoothA2dpConfigStore));
+        descriptors.add(PreferenceControllerDescriptor.eager("bluetooth_bit_per_sample_settings",
+                BluetoothBitPerSampleDialogPreferenceController.class,
+                () -> new BluetoothBitPerSampleDialogPreferenceController(context, lifecycle,
+                        bluetoothA2dpConfigStore));
+        descriptors.add(PreferenceControllerDescriptor.eager("bluetooth_a2dp_ldac_playback_quality",
+                BluetoothQualityDialogPreferenceController.class,
+                () -> new BluetoothQualityDialogPreferenceController(context, lifecycle,
+                        bluetoothA2dpConfigStore));
+        descriptors.add(PreferenceControllerDescriptor.eager("bluetooth_channel_mode_settings",
+                BluetoothChannelModeDialogPreferenceController.class,
+                () -> new BluetoothChannelModeDialogPreferenceController(context, lifecycle,
+                        bluetoothA2dpConfigStore));
+        descriptors.add(PreferenceControllerDescriptor.eager("bluetooth_hd_audio_settings",
+                BluetoothHDAudioPreferenceController.class,
+                () -> new BluetoothHDAudioPreferenceController(context, lifecycle,
+                        bluetoothA2dpConfigStore, fragment));
+        descriptors.add(PreferenceControllerDescriptor.of("shared_data",
+                SharedDataPreferenceController.class,
+                () -> new SharedDataPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("overlay_settings",
+                OverlaySettingsPreferenceController.class,
+                () -> new OverlaySettingsPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("stylus_handwriting",
+                StylusHandwritingPreferenceController.class,
+                () -> new StylusHandwritingPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("ingress_rate_limit",
+                IngressRateLimitPreferenceController.class,
+                () -> new IngressRateLimitPreferenceController(context)));
+        descriptors.add(PreferenceControllerDescriptor.of("back_navigation_animation",
+                BackAnimationPreferenceController.class,
+                () -> new BackAnimationPreferenceController(context, fragment)));
+
+        return descriptors;
     }
 
     @VisibleForTesting
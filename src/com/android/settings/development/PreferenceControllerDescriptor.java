@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.development;
+
+import android.os.SystemClock;
+
+import com.android.settings.core.PreferenceControllerTimings;
+import com.android.settingslib.core.AbstractPreferenceController;
+
+import java.util.function.Supplier;
+
+/**
+ * Describes a preference controller of developer options without instantiating it, so that
+ * {@link DevelopmentSettingsDashboardFragment} only creates it once its preference is needed.
+ */
+final class PreferenceControllerDescriptor {
+
+    /** The key of the preference of the controller. */
+    final String mKey;
+    /** The class of the controller, which {@link #create()} returns an instance of. */
+    final Class<? extends AbstractPreferenceController> mControllerClass;
+    /**
+     * Whether the controller has to be created with the fragment, e.g. because it observes the
+     * lifecycle, which does not replay the events to late observers.
+     */
+    final boolean mEager;
+    private final Supplier<? extends AbstractPreferenceController> mFactory;
+
+    private <T extends AbstractPreferenceController> PreferenceControllerDescriptor(String key,
+            Class<T> controllerClass, Supplier<T> factory, boolean eager) {
+        mKey = key;
+        mControllerClass = controllerClass;
+        mFactory = factory;
+        mEager = eager;
+    }
+
+    /** Describes a controller that is created when its preference is needed. */
+    static <T extends AbstractPreferenceController> PreferenceControllerDescriptor of(
+            String key, Class<T> controllerClass, Supplier<T> factory) {
+        return new PreferenceControllerDescriptor(key, controllerClass, factory,
+                false /* eager */);
+    }
+
+    /** Describes a controller that is created with the fragment. */
+    static <T extends AbstractPreferenceController> PreferenceControllerDescriptor eager(
+            String key, Class<T> controllerClass, Supplier<T> factory) {
+        return new PreferenceControllerDescriptor(key, controllerClass, factory,
+                true /* eager */);
+    }
+
+    /** Instantiates the controller and records how long it takes. */
+    AbstractPreferenceController create() {
+        final boolean traced = PreferenceControllerTimings.beginSection(mControllerClass,
+                PreferenceControllerTimings.PHASE_CONSTRUCT);
+        final long startTime = SystemClock.elapsedRealtimeNanos();
+        try {
+            return mFactory.get();
+        } finally {
+            PreferenceControllerTimings.endSection(traced, mControllerClass,
+                    PreferenceControllerTimings.PHASE_CONSTRUCT, startTime);
+        }
+    }
+}
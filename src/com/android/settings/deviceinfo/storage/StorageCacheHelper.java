@@ -19,6 +19,8 @@ package com.android.settings.deviceinfo.storage;
 import android.content.Context;
 import android.content.SharedPreferences;
 
+import com.android.settings.core.SettingsStateStore;
+
 /**
  * A utility class to cache and restore the storage size information.
  */
@@ -41,7 +43,9 @@ public class StorageCacheHelper {
 
     public StorageCacheHelper(Context context, int userId) {
         String sharedPrefName = SHARED_PREFERENCE_NAME + userId;
-        mSharedPreferences = context.getSharedPreferences(sharedPrefName, Context.MODE_PRIVATE);
+        // Read synchronously by the storage pages as they are created.
+        mSharedPreferences =
+                SettingsStateStore.getInstance(context).getLoadedNamespace(sharedPrefName);
     }
 
     /**
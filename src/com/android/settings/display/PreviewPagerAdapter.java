@@ -19,6 +19,9 @@ import android.animation.Animator;
 import android.animation.Animator.AnimatorListener;
 import android.content.Context;
 import android.content.res.Configuration;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewStub;
@@ -28,8 +31,14 @@ import android.view.animation.Interpolator;
 import android.widget.FrameLayout;
 import android.widget.LinearLayout;
 
+import androidx.annotation.VisibleForTesting;
 import androidx.viewpager.widget.PagerAdapter;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
 /**
  * A PagerAdapter used by PreviewSeekBarPreferenceFragment that for showing multiple preview screen
  * regarding a single setting and allowing the user to swipe across them.
@@ -45,6 +54,20 @@ public class PreviewPagerAdapter extends PagerAdapter {
     /** Interpolator to use when cross-fading between previews. */
     private static final Interpolator FADE_OUT_INTERPOLATOR = new AccelerateInterpolator();
 
+    /** Number of inflated layers kept for each preview frame. */
+    @VisibleForTesting
+    static final int MAX_INFLATED_LAYERS = 5;
+
+    private final Context mContext;
+
+    private final Configuration[] mConfigurations;
+
+    /** Contexts of each configuration, created when their layers are first inflated. */
+    private final Context[] mConfigurationContexts;
+
+    /** Sample layout of each preview frame. */
+    private final int[] mPreviewSampleResIds;
+
     private FrameLayout[] mPreviewFrames;
 
     private boolean mIsLayoutRtl;
@@ -55,14 +78,44 @@ public class PreviewPagerAdapter extends PagerAdapter {
 
     private boolean[][] mViewStubInflated;
 
+    /** Inflated layers of each preview frame, from the least recently shown. */
+    private final List<Deque<Integer>> mInflatedLayers;
+
+    private int mCurrentLayerIndex = -1;
+
+    private int mCurrentFrameIndex;
+
+    private boolean mIsPreInflationScheduled;
+
+    /**
+     * Inflates one layer per idle time: first the layer shown by the other preview frames,
+     * then the layers next to the one shown by the current frame.
+     */
+    private final MessageQueue.IdleHandler mPreInflater = () -> {
+        if (preInflateNextLayer()) {
+            return true;
+        }
+        mIsPreInflationScheduled = false;
+        return false;
+    };
+
     public PreviewPagerAdapter(Context context, boolean isLayoutRtl,
             int[] previewSampleResIds, Configuration[] configurations) {
+        mContext = context;
         mIsLayoutRtl = isLayoutRtl;
+        mConfigurations = configurations;
+        mConfigurationContexts = new Context[configurations.length];
         mPreviewFrames = new FrameLayout[previewSampleResIds.length];
+        mPreviewSampleResIds = new int[previewSampleResIds.length];
         mViewStubInflated = new boolean[previewSampleResIds.length][configurations.length];
+        mInflatedLayers = new ArrayList<>(previewSampleResIds.length);
 
+        for (int i = 0; i < previewSampleResIds.length; ++i) {
+            mInflatedLayers.add(new ArrayDeque<>());
+        }
         for (int i = 0; i < previewSampleResIds.length; ++i) {
             int p = mIsLayoutRtl ? previewSampleResIds.length - 1 - i : i;
+            mPreviewSampleResIds[p] = previewSampleResIds[i];
             mPreviewFrames[p] = new FrameLayout(context);
             mPreviewFrames[p].setLayoutParams(new LinearLayout.LayoutParams(
                     LinearLayout.LayoutParams.MATCH_PARENT,
@@ -70,20 +123,7 @@ public class PreviewPagerAdapter extends PagerAdapter {
             mPreviewFrames[p].setClipToPadding(true);
             mPreviewFrames[p].setClipChildren(true);
             for (int j = 0; j < configurations.length; ++j) {
-                // Create a new configuration for the specified value. It won't
-                // have any theme set, so manually apply the current theme.
-                final Context configContext = context.createConfigurationContext(configurations[j]);
-                configContext.getTheme().setTo(context.getTheme());
-
-                final ViewStub sampleViewStub = new ViewStub(configContext);
-                sampleViewStub.setLayoutResource(previewSampleResIds[i]);
-                final int fi = i, fj = j;
-                sampleViewStub.setOnInflateListener((stub, inflated) -> {
-                    inflated.setVisibility(stub.getVisibility());
-                    mViewStubInflated[fi][fj] = true;
-                });
-
-                mPreviewFrames[p].addView(sampleViewStub);
+                mPreviewFrames[p].addView(createViewStub(p, j));
             }
         }
     }
@@ -127,33 +167,133 @@ public class PreviewPagerAdapter extends PagerAdapter {
      */
     public void setPreviewLayer(int newLayerIndex, int currentLayerIndex, int currentFrameIndex,
             final boolean animate) {
-        for (FrameLayout previewFrame : mPreviewFrames) {
-            if (currentLayerIndex >= 0) {
+        mCurrentLayerIndex = newLayerIndex;
+        mCurrentFrameIndex = currentFrameIndex;
+        for (int frame = 0; frame < mPreviewFrames.length; ++frame) {
+            final FrameLayout previewFrame = mPreviewFrames[frame];
+            final boolean isCurrentFrame = (frame == currentFrameIndex);
+            if (currentLayerIndex >= 0 && mViewStubInflated[frame][currentLayerIndex]) {
+                // Explicitly set to INVISIBLE only when the stub has
+                // already been inflated.
                 final View lastLayer = previewFrame.getChildAt(currentLayerIndex);
-                if (mViewStubInflated[currentFrameIndex][currentLayerIndex]) {
-                    // Explicitly set to INVISIBLE only when the stub has
-                    // already been inflated.
-                    if (previewFrame == mPreviewFrames[currentFrameIndex]) {
-                        setVisibility(lastLayer, View.INVISIBLE, animate);
-                    } else {
-                        setVisibility(lastLayer, View.INVISIBLE, false);
-                    }
-                }
+                setVisibility(lastLayer, View.INVISIBLE, animate && isCurrentFrame);
             }
 
             // Set next layer visible, as well as inflate necessary views.
-            View nextLayer = previewFrame.getChildAt(newLayerIndex);
-            if (previewFrame == mPreviewFrames[currentFrameIndex]) {
+            View nextLayer;
+            if (mViewStubInflated[frame][newLayerIndex]) {
+                nextLayer = previewFrame.getChildAt(newLayerIndex);
+            } else if (isCurrentFrame) {
                 // Inflate immediately if the stub has not yet been inflated.
-                if (!mViewStubInflated[currentFrameIndex][newLayerIndex]) {
-                    nextLayer = ((ViewStub) nextLayer).inflate();
-                    nextLayer.setAlpha(0.0f);
-                }
-                setVisibility(nextLayer, View.VISIBLE, animate);
+                nextLayer = inflateLayer(frame, newLayerIndex);
             } else {
-                setVisibility(nextLayer, View.VISIBLE, false);
+                // The other frames are not seen, so inflate them when idle.
+                continue;
+            }
+            markLayerShown(frame, newLayerIndex);
+            setVisibility(nextLayer, View.VISIBLE, animate && isCurrentFrame);
+        }
+        schedulePreInflation();
+    }
+
+    private ViewStub createViewStub(int frame, int layer) {
+        final ViewStub sampleViewStub = new ViewStub(mContext);
+        sampleViewStub.setLayoutResource(mPreviewSampleResIds[frame]);
+        sampleViewStub.setOnInflateListener((stub, inflated) -> {
+            inflated.setVisibility(stub.getVisibility());
+            mViewStubInflated[frame][layer] = true;
+        });
+        return sampleViewStub;
+    }
+
+    private Context getConfigurationContext(int layer) {
+        if (mConfigurationContexts[layer] == null) {
+            // Create a new configuration for the specified value. It won't
+            // have any theme set, so manually apply the current theme.
+            final Context configContext =
+                    mContext.createConfigurationContext(mConfigurations[layer]);
+            configContext.getTheme().setTo(mContext.getTheme());
+            mConfigurationContexts[layer] = configContext;
+        }
+        return mConfigurationContexts[layer];
+    }
+
+    private View inflateLayer(int frame, int layer) {
+        final ViewStub stub = (ViewStub) mPreviewFrames[frame].getChildAt(layer);
+        stub.setLayoutInflater(LayoutInflater.from(getConfigurationContext(layer)));
+        final View inflated = stub.inflate();
+        inflated.setAlpha(0.0f);
+        mInflatedLayers.get(frame).addFirst(layer);
+        releaseLeastRecentLayers(frame);
+        return inflated;
+    }
+
+    private void markLayerShown(int frame, int layer) {
+        mInflatedLayers.get(frame).remove(layer);
+        mInflatedLayers.get(frame).addLast(layer);
+    }
+
+    /**
+     * Turns the least recently shown layers of a frame back into stubs, so that dragging across
+     * all of the values does not keep every layer inflated.
+     */
+    private void releaseLeastRecentLayers(int frame) {
+        final Deque<Integer> inflatedLayers = mInflatedLayers.get(frame);
+        final int count = inflatedLayers.size();
+        for (int i = 0; i < count && inflatedLayers.size() > MAX_INFLATED_LAYERS; ++i) {
+            final int layer = inflatedLayers.pollFirst();
+            final FrameLayout previewFrame = mPreviewFrames[frame];
+            if (Math.abs(layer - mCurrentLayerIndex) <= 1
+                    || previewFrame.getChildAt(layer).getVisibility() == View.VISIBLE) {
+                // Keep the shown layers, which may still be fading out, and the neighbors.
+                inflatedLayers.addLast(layer);
+                continue;
             }
+            previewFrame.removeViewAt(layer);
+            previewFrame.addView(createViewStub(frame, layer), layer);
+            mViewStubInflated[frame][layer] = false;
+        }
+    }
+
+    private void schedulePreInflation() {
+        if (mIsPreInflationScheduled) {
+            return;
         }
+        mIsPreInflationScheduled = true;
+        Looper.myQueue().addIdleHandler(mPreInflater);
+    }
+
+    /**
+     * Inflates the next layer needed soon.
+     *
+     * @return true if a layer has been inflated
+     */
+    @VisibleForTesting
+    boolean preInflateNextLayer() {
+        if (mCurrentLayerIndex < 0) {
+            return false;
+        }
+        for (int frame = 0; frame < mPreviewFrames.length; ++frame) {
+            if (!mViewStubInflated[frame][mCurrentLayerIndex]) {
+                final View layer = inflateLayer(frame, mCurrentLayerIndex);
+                markLayerShown(frame, mCurrentLayerIndex);
+                setVisibility(layer, View.VISIBLE, false);
+                return true;
+            }
+        }
+        for (int layer = mCurrentLayerIndex - 1; layer <= mCurrentLayerIndex + 1; layer += 2) {
+            if (layer >= 0 && layer < mConfigurations.length
+                    && !mViewStubInflated[mCurrentFrameIndex][layer]) {
+                inflateLayer(mCurrentFrameIndex, layer);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @VisibleForTesting
+    boolean isLayerInflated(int frame, int layer) {
+        return mViewStubInflated[frame][layer];
     }
 
     private void setVisibility(final View view, final int visibility, boolean animate) {
@@ -16,7 +16,6 @@
 
 package com.android.settings.fuelgauge;
 
-import android.app.AppGlobals;
 import android.app.AppOpsManager;
 import android.app.backup.BackupDataInputStream;
 import android.app.backup.BackupDataOutput;
@@ -24,12 +23,14 @@ import android.app.backup.BackupHelper;
 import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.IPackageManager;
+import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.IDeviceIdleController;
 import android.os.ParcelFileDescriptor;
 import android.os.RemoteException;
 import android.os.ServiceManager;
 import android.os.UserHandle;
+import android.util.ArrayMap;
 import android.util.ArraySet;
 import android.util.Log;
 
@@ -37,6 +38,10 @@ import androidx.annotation.VisibleForTesting;
 
 import com.android.settingslib.fuelgauge.PowerAllowlistBackend;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -66,6 +71,8 @@ public final class BatteryBackupHelper implements BackupHelper {
     IPackageManager mIPackageManager;
     @VisibleForTesting
     BatteryOptimizeUtils mBatteryOptimizeUtils;
+    @VisibleForTesting
+    BatteryOptimizeJournal mBatteryOptimizeJournal;
 
     private final Context mContext;
 
@@ -82,7 +89,9 @@ public final class BatteryBackupHelper implements BackupHelper {
         }
         final List<String> allowlistedApps = backupFullPowerList(data);
         if (allowlistedApps != null) {
-            backupOptimizationMode(data, allowlistedApps);
+            final int generation = backupOptimizationMode(
+                    data, allowlistedApps, readStateGeneration(oldState));
+            writeStateGeneration(newState, generation);
         }
     }
 
@@ -133,38 +142,103 @@ public final class BatteryBackupHelper implements BackupHelper {
 
     @VisibleForTesting
     void backupOptimizationMode(BackupDataOutput data, List<String> allowlistedApps) {
+        backupOptimizationMode(data, allowlistedApps, BatteryOptimizeJournal.NO_GENERATION);
+    }
+
+    /**
+     * Backs up the optimization modes, only checking the packages recorded in the
+     * {@link BatteryOptimizeJournal} when the previous backup is still valid. Returns the
+     * journal generation of the data the backup now holds.
+     */
+    @VisibleForTesting
+    int backupOptimizationMode(
+            BackupDataOutput data, List<String> allowlistedApps, int oldGeneration) {
         final long timestamp = System.currentTimeMillis();
-        final ArraySet<ApplicationInfo> applications = getInstalledApplications();
-        if (applications == null || applications.isEmpty()) {
-            Log.w(TAG, "no data found in the getInstalledApplications()");
-            return;
+        final BatteryOptimizeJournal journal = getBatteryOptimizeJournal();
+        final String allowlist =
+                allowlistedApps != null ? String.join(DELIMITER, allowlistedApps) : "";
+        final ArraySet<String> changes = journal.getChanges();
+        ArrayMap<String, Integer> optimizationModes = journal.getBaseline(allowlist, timestamp);
+        if (optimizationModes != null && changes.isEmpty()
+                && oldGeneration == journal.getGeneration()) {
+            // The backup already holds the current optimization modes.
+            Log.d(TAG, "backupOptimizationMode() unchanged since the last backup");
+            return oldGeneration;
         }
-        int backupCount = 0;
-        final StringBuilder builder = new StringBuilder();
+
+        final boolean fullSnapshot = optimizationModes == null;
         final AppOpsManager appOps = mContext.getSystemService(AppOpsManager.class);
-        // Converts application into the AppUsageState.
-        for (ApplicationInfo info : applications) {
-            final int mode = appOps.checkOpNoThrow(
-                    AppOpsManager.OP_RUN_ANY_IN_BACKGROUND, info.uid, info.packageName);
-            @BatteryOptimizeUtils.OptimizationMode
-            final int optimizationMode = BatteryOptimizeUtils.getAppOptimizationMode(
-                    mode, allowlistedApps.contains(info.packageName));
-            // Ignores default optimized/unknown state or system/default apps.
-            if (optimizationMode == BatteryOptimizeUtils.MODE_OPTIMIZED
-                    || optimizationMode == BatteryOptimizeUtils.MODE_UNKNOWN
-                    || isSystemOrDefaultApp(info.packageName)) {
-                continue;
+        if (fullSnapshot) {
+            final ArraySet<ApplicationInfo> applications = getInstalledApplications();
+            if (applications == null || applications.isEmpty()) {
+                Log.w(TAG, "no data found in the getInstalledApplications()");
+                return BatteryOptimizeJournal.NO_GENERATION;
+            }
+            optimizationModes = new ArrayMap<>();
+            // Converts application into the AppUsageState.
+            for (ApplicationInfo info : applications) {
+                putOptimizationMode(optimizationModes, appOps, allowlistedApps,
+                        info.uid, info.packageName);
             }
+        } else {
+            for (String change : changes) {
+                final String packageName = BatteryOptimizeJournal.getPackageName(change);
+                optimizationModes.remove(packageName);
+                final int uid = getInstalledUid(packageName, BatteryOptimizeJournal.getUid(change));
+                if (uid != BatteryUtils.UID_NULL) {
+                    putOptimizationMode(optimizationModes, appOps, allowlistedApps,
+                            uid, packageName);
+                }
+            }
+        }
+
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < optimizationModes.size(); i++) {
             final String packageOptimizeMode =
-                    info.packageName + DELIMITER_MODE + optimizationMode;
+                    optimizationModes.keyAt(i) + DELIMITER_MODE + optimizationModes.valueAt(i);
             builder.append(packageOptimizeMode + DELIMITER);
             debugLog(packageOptimizeMode);
-            backupCount++;
         }
+        final String content = builder.toString();
+        writeBackupData(data, KEY_OPTIMIZATION_LIST, content);
+        final int generation = journal.commit(
+                content, allowlist, timestamp, fullSnapshot, changes);
+        Log.d(TAG, String.format("backup %s changed=%d count=%d in %d/ms",
+                fullSnapshot ? "full snapshot" : "incremental", changes.size(),
+                optimizationModes.size(), (System.currentTimeMillis() - timestamp)));
+        return generation;
+    }
 
-        writeBackupData(data, KEY_OPTIMIZATION_LIST, builder.toString());
-        Log.d(TAG, String.format("backup getInstalledApplications():%d count=%d in %d/ms",
-                applications.size(), backupCount, (System.currentTimeMillis() - timestamp)));
+    /**
+     * Returns the uid of {@code packageName} for the user of {@code uid}, the uid a change was
+     * recorded for, or {@link BatteryUtils#UID_NULL} if it is not installed for that user.
+     */
+    private int getInstalledUid(String packageName, int uid) {
+        if (uid == BatteryUtils.UID_NULL) {
+            return BatteryUtils.getInstance(mContext).getPackageUid(packageName);
+        }
+        try {
+            return mContext.getPackageManager().getPackageUidAsUser(
+                    packageName, UserHandle.getUserId(uid));
+        } catch (PackageManager.NameNotFoundException e) {
+            return BatteryUtils.UID_NULL;
+        }
+    }
+
+    private void putOptimizationMode(ArrayMap<String, Integer> optimizationModes,
+            AppOpsManager appOps, List<String> allowlistedApps, int uid, String packageName) {
+        final int mode = appOps.checkOpNoThrow(
+                AppOpsManager.OP_RUN_ANY_IN_BACKGROUND, uid, packageName);
+        @BatteryOptimizeUtils.OptimizationMode
+        final int optimizationMode = BatteryOptimizeUtils.getAppOptimizationMode(
+                mode, allowlistedApps.contains(packageName));
+        // Ignores default optimized/unknown state or system/default apps.
+        if (optimizationMode == BatteryOptimizeUtils.MODE_OPTIMIZED
+                || optimizationMode == BatteryOptimizeUtils.MODE_UNKNOWN
+                || isSystemOrDefaultApp(packageName)) {
+            return;
+        }
+        optimizationModes.put(packageName, optimizationMode);
     }
 
     @VisibleForTesting
@@ -235,12 +309,12 @@ public final class BatteryBackupHelper implements BackupHelper {
         return mIDeviceIdleController;
     }
 
-    private IPackageManager getIPackageManager() {
-        if (mIPackageManager != null) {
-            return mIPackageManager;
+    private BatteryOptimizeJournal getBatteryOptimizeJournal() {
+        if (mBatteryOptimizeJournal != null) {
+            return mBatteryOptimizeJournal;
         }
-        mIPackageManager = AppGlobals.getPackageManager();
-        return mIPackageManager;
+        mBatteryOptimizeJournal = new BatteryOptimizeJournal(mContext);
+        return mBatteryOptimizeJournal;
     }
 
     private PowerAllowlistBackend getPowerAllowlistBackend() {
@@ -261,7 +335,10 @@ public final class BatteryBackupHelper implements BackupHelper {
         if (mTestApplicationInfoList != null) {
             return mTestApplicationInfoList;
         }
-        return BatteryOptimizeUtils.getInstalledApplications(mContext, getIPackageManager());
+        if (mIPackageManager != null) {
+            return BatteryOptimizeUtils.getInstalledApplications(mContext, mIPackageManager);
+        }
+        return BatteryOptimizeUtils.getInstalledApplications(mContext);
     }
 
     private void debugLog(String debugContent) {
@@ -279,6 +356,34 @@ public final class BatteryBackupHelper implements BackupHelper {
         }
     }
 
+    private static int readStateGeneration(ParcelFileDescriptor oldState) {
+        if (oldState == null) {
+            return BatteryOptimizeJournal.NO_GENERATION;
+        }
+        try {
+            final DataInputStream in =
+                    new DataInputStream(new FileInputStream(oldState.getFileDescriptor()));
+            return in.readInt();
+        } catch (IOException e) {
+            // No previous backup state, for example on the first backup.
+            return BatteryOptimizeJournal.NO_GENERATION;
+        }
+    }
+
+    private static void writeStateGeneration(ParcelFileDescriptor newState, int generation) {
+        if (newState == null) {
+            return;
+        }
+        try {
+            final DataOutputStream out =
+                    new DataOutputStream(new FileOutputStream(newState.getFileDescriptor()));
+            out.writeInt(generation);
+            out.flush();
+        } catch (IOException e) {
+            Log.e(TAG, "writeStateGeneration() is failed", e);
+        }
+    }
+
     private static boolean isOwner() {
         return UserHandle.myUserId() == UserHandle.USER_OWNER;
     }
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.text.TextUtils;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the packages whose {@link BatteryOptimizeUtils.OptimizationMode} changed since the last
+ * battery backup, together with the optimization modes that backup contained. This lets
+ * {@link BatteryBackupHelper} update the previous backup with the changed packages instead of
+ * checking every installed application.
+ */
+final class BatteryOptimizeJournal {
+    private static final String TAG = "BatteryOptimizeJournal";
+    private static final String PREF_FILE = "battery_optimize_backup_journal";
+    private static final String KEY_BASELINE = "baseline";
+    private static final String KEY_BASELINE_ALLOWLIST = "baseline_allowlist";
+    private static final String KEY_BASELINE_TIME = "baseline_time";
+    private static final String KEY_CHANGED_PACKAGES = "changed_packages";
+    private static final String KEY_GENERATION = "generation";
+
+    // Changes made outside of Settings are not recorded, so a full snapshot is taken regularly.
+    @VisibleForTesting
+    static final long FULL_SNAPSHOT_INTERVAL_MS = TimeUnit.DAYS.toMillis(7);
+    // Past this many changes it is cheaper to take a full snapshot.
+    @VisibleForTesting
+    static final int MAX_CHANGED_PACKAGES = 200;
+
+    static final int NO_GENERATION = -1;
+
+    private static final Object sLock = new Object();
+
+    private final SharedPreferences mSharedPreferences;
+
+    BatteryOptimizeJournal(Context context) {
+        mSharedPreferences = context.getApplicationContext()
+                .getSharedPreferences(PREF_FILE, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Records that the optimization mode of {@code packageName} may have changed for the user
+     * of {@code uid}.
+     */
+    void recordChange(int uid, String packageName) {
+        if (TextUtils.isEmpty(packageName)) {
+            return;
+        }
+        synchronized (sLock) {
+            if (!mSharedPreferences.contains(KEY_BASELINE)) {
+                // The next backup takes a full snapshot anyway.
+                return;
+            }
+            final ArraySet<String> changes = getChanges();
+            if (!changes.add(packageName + BatteryBackupHelper.DELIMITER_MODE + uid)) {
+                return;
+            }
+            final SharedPreferences.Editor editor = mSharedPreferences.edit();
+            if (changes.size() > MAX_CHANGED_PACKAGES) {
+                editor.remove(KEY_BASELINE).remove(KEY_CHANGED_PACKAGES);
+            } else {
+                editor.putStringSet(KEY_CHANGED_PACKAGES, changes);
+            }
+            editor.apply();
+        }
+    }
+
+    /**
+     * Returns the changes recorded by {@link #recordChange(int, String)} since the last backup.
+     * Use {@link #getPackageName(String)} and {@link #getUid(String)} to read them.
+     */
+    ArraySet<String> getChanges() {
+        synchronized (sLock) {
+            final Set<String> changes =
+                    mSharedPreferences.getStringSet(KEY_CHANGED_PACKAGES, null);
+            return changes != null ? new ArraySet<>(changes) : new ArraySet<>();
+        }
+    }
+
+    /** Returns the package name of a change from {@link #getChanges()}. */
+    static String getPackageName(String change) {
+        final int index = change.lastIndexOf(BatteryBackupHelper.DELIMITER_MODE);
+        return index < 0 ? change : change.substring(0, index);
+    }
+
+    /**
+     * Returns the uid of a change from {@link #getChanges()}, or {@link BatteryUtils#UID_NULL}
+     * if it has none.
+     */
+    static int getUid(String change) {
+        final int index = change.lastIndexOf(BatteryBackupHelper.DELIMITER_MODE);
+        if (index < 0) {
+            return BatteryUtils.UID_NULL;
+        }
+        try {
+            return Integer.parseInt(change.substring(index + 1));
+        } catch (NumberFormatException e) {
+            Log.w(TAG, "invalid change entry: " + change);
+            return BatteryUtils.UID_NULL;
+        }
+    }
+
+    /**
+     * Returns the optimization modes of the last backup by package name, or {@code null} if a
+     * full snapshot is needed because there is none, it is too old, or it was taken with a
+     * different full power allowlist.
+     */
+    ArrayMap<String, Integer> getBaseline(String allowlist, long currentTime) {
+        final String baseline;
+        synchronized (sLock) {
+            baseline = mSharedPreferences.getString(KEY_BASELINE, null);
+            if (baseline == null
+                    || !TextUtils.equals(allowlist,
+                            mSharedPreferences.getString(KEY_BASELINE_ALLOWLIST, null))) {
+                return null;
+            }
+            final long baselineTime = mSharedPreferences.getLong(KEY_BASELINE_TIME, 0L);
+            if (currentTime < baselineTime
+                    || currentTime - baselineTime > FULL_SNAPSHOT_INTERVAL_MS) {
+                return null;
+            }
+        }
+        final ArrayMap<String, Integer> modes = new ArrayMap<>();
+        for (String appConfiguration : baseline.split(BatteryBackupHelper.DELIMITER)) {
+            final String[] results = appConfiguration.split(BatteryBackupHelper.DELIMITER_MODE);
+            if (results.length != 2) {
+                continue;
+            }
+            try {
+                modes.put(results[0], Integer.parseInt(results[1]));
+            } catch (NumberFormatException e) {
+                Log.w(TAG, "invalid baseline entry: " + appConfiguration);
+                return null;
+            }
+        }
+        return modes;
+    }
+
+    /** Returns the generation of the last committed backup. */
+    int getGeneration() {
+        synchronized (sLock) {
+            return mSharedPreferences.getInt(KEY_GENERATION, NO_GENERATION);
+        }
+    }
+
+    /**
+     * Stores {@code content} as the last backup and drops {@code consumedChanges}, as returned
+     * by {@link #getChanges()}. Returns the new generation.
+     */
+    int commit(String content, String allowlist, long currentTime, boolean fullSnapshot,
+            Set<String> consumedChanges) {
+        synchronized (sLock) {
+            final ArraySet<String> changes = getChanges();
+            changes.removeAll(consumedChanges);
+            final int generation = getGeneration() + 1;
+            final SharedPreferences.Editor editor = mSharedPreferences.edit()
+                    .putString(KEY_BASELINE, content)
+                    .putString(KEY_BASELINE_ALLOWLIST, allowlist)
+                    .putStringSet(KEY_CHANGED_PACKAGES, changes)
+                    .putInt(KEY_GENERATION, generation);
+            if (fullSnapshot) {
+                editor.putLong(KEY_BASELINE_TIME, currentTime);
+            }
+            editor.apply();
+            return generation;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+
+/**
+ * Records removed packages in the {@link BatteryOptimizeJournal}, so that the next battery
+ * backup drops them.
+ */
+public class BatteryOptimizeJournalReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (!Intent.ACTION_PACKAGE_FULLY_REMOVED.equals(intent.getAction())) {
+            return;
+        }
+        final Uri data = intent.getData();
+        if (data != null) {
+            new BatteryOptimizeJournal(context).recordChange(
+                    intent.getIntExtra(Intent.EXTRA_UID, BatteryUtils.UID_NULL),
+                    data.getSchemeSpecificPart());
+        }
+    }
+}
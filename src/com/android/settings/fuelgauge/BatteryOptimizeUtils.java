@@ -31,6 +31,7 @@ import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settings.applications.InstalledPackagesSnapshot;
 import com.android.settingslib.fuelgauge.PowerAllowlistBackend;
 
 import java.lang.annotation.Retention;
@@ -47,6 +48,7 @@ public class BatteryOptimizeUtils {
     @VisibleForTesting int mMode;
     @VisibleForTesting boolean mAllowListed;
 
+    private final Context mContext;
     private final String mPackageName;
     private final int mUid;
 
@@ -75,6 +77,7 @@ public class BatteryOptimizeUtils {
     static @interface OptimizationMode {}
 
     public BatteryOptimizeUtils(Context context, int uid, String packageName) {
+        mContext = context;
         mUid = uid;
         mPackageName = packageName;
         mAppOpsManager = context.getSystemService(AppOpsManager.class);
@@ -120,6 +123,7 @@ public class BatteryOptimizeUtils {
             return;
         }
         setAppUsageStateInternal(mode, mUid, mPackageName, mBatteryUtils, mPowerAllowListBackend);
+        new BatteryOptimizeJournal(mContext).recordChange(mUid, mPackageName);
     }
 
     /**
@@ -158,11 +162,36 @@ public class BatteryOptimizeUtils {
                 return null;
             }
         }
+        removeDisabledApplications(applications);
+        return applications;
+    }
+
+    /**
+      * Gets the list of installed applications from the shared {@link InstalledPackagesSnapshot}.
+      */
+    public static ArraySet<ApplicationInfo> getInstalledApplications(Context context) {
+        final ArraySet<ApplicationInfo> applications = new ArraySet<>();
+        final InstalledPackagesSnapshot snapshot = InstalledPackagesSnapshot.getInstance(context);
+        final UserManager um = context.getSystemService(UserManager.class);
+        for (UserInfo userInfo : um.getProfiles(UserHandle.myUserId())) {
+            try {
+                applications.addAll(snapshot.getInstalledApplications(
+                        userInfo.isAdmin() ? RETRIEVE_FLAG_ADMIN : RETRIEVE_FLAG,
+                        userInfo.id));
+            } catch (Exception e) {
+                Log.e(TAG, "getInstalledApplications() is failed", e);
+                return null;
+            }
+        }
+        removeDisabledApplications(applications);
+        return applications;
+    }
+
+    private static void removeDisabledApplications(ArraySet<ApplicationInfo> applications) {
         // Removes the application which is disabled by the system.
         applications.removeIf(
                 info -> info.enabledSetting != PackageManager.COMPONENT_ENABLED_STATE_DISABLED_USER
                     && !info.enabled);
-        return applications;
     }
 
     @VisibleForTesting
@@ -176,6 +205,7 @@ public class BatteryOptimizeUtils {
         }
 
         allowlistBackend.refreshList();
+        final BatteryOptimizeJournal journal = new BatteryOptimizeJournal(context);
         // Resets optimization mode for each application.
         for (ApplicationInfo info : applications) {
             final int mode = aom.checkOpNoThrow(
@@ -193,6 +223,7 @@ public class BatteryOptimizeUtils {
             // Resets to the default mode: MODE_OPTIMIZED.
             setAppUsageStateInternal(MODE_OPTIMIZED, info.uid, info.packageName, batteryUtils,
                     allowlistBackend);
+            journal.recordChange(info.uid, info.packageName);
         }
     }
 
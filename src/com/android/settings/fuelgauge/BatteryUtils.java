@@ -365,6 +365,8 @@ public class BatteryUtils {
         mAppOpsManager.setMode(AppOpsManager.OP_RUN_ANY_IN_BACKGROUND, uid, packageName, mode);
 
         ThreadUtils.postOnBackgroundThread(() -> {
+            // Every caller changing the restriction is picked up by the next battery backup.
+            new BatteryOptimizeJournal(mContext).recordChange(uid, packageName);
             final BatteryDatabaseManager batteryDatabaseManager = BatteryDatabaseManager
                     .getInstance(mContext);
             if (mode == AppOpsManager.MODE_IGNORED) {
@@ -32,6 +32,7 @@ import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.content.res.Resources;
 import android.os.Bundle;
+import android.os.UserHandle;
 import android.provider.Settings;
 import android.text.TextUtils;
 
@@ -41,6 +42,7 @@ import androidx.preference.PreferenceGroup;
 
 import com.android.settings.R;
 import com.android.settings.SettingsPreferenceFragment;
+import com.android.settings.applications.InstalledPackagesSnapshot;
 
 import java.util.Arrays;
 import java.util.List;
@@ -104,7 +106,8 @@ public class InactiveApps extends SettingsPreferenceFragment
 
         Intent launcherIntent = new Intent(Intent.ACTION_MAIN);
         launcherIntent.addCategory(Intent.CATEGORY_LAUNCHER);
-        List<ResolveInfo> apps = pm.queryIntentActivities(launcherIntent, 0);
+        List<ResolveInfo> apps = InstalledPackagesSnapshot.getInstance(context)
+                .queryIntentActivities(launcherIntent, 0 /* flags */, UserHandle.myUserId());
         for (ResolveInfo app : apps) {
             String packageName = app.activityInfo.applicationInfo.packageName;
             ListPreference p = new ListPreference(getPrefContext());
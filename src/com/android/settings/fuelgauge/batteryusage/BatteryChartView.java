@@ -70,6 +70,13 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     private final Rect mIndent = new Rect();
     private final Rect[] mPercentageBounds = new Rect[]{new Rect(), new Rect(), new Rect()};
     private final List<Rect> mAxisLabelsBounds = new ArrayList<>();
+    // Reused across frames to keep the draw path allocation free.
+    private final Path mTrapezoidPath = new Path();
+
+    // Cached geometry, only recomputed when the data, size or indent is changed.
+    private boolean mGeometryDirty = true;
+    private float mUnitWidth;
+    private Rect[] mAxisLabelDisplayAreas = new Rect[0];
 
     private BatteryChartViewModel mViewModel;
     private int mHoveredIndex = BatteryChartViewModel.SELECTED_INDEX_INVALID;
@@ -120,6 +127,7 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         initializeAxisLabelsBounds();
         initializeTrapezoidSlots(viewModel.size() - 1);
         setClickable(hasAnyValidTrapezoid(viewModel));
+        invalidateGeometry();
         requestLayout();
     }
 
@@ -168,6 +176,13 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         } else {
             mIndent.set(0, 0, 0, 0);
         }
+        invalidateGeometry();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        invalidateGeometry();
     }
 
     @Override
@@ -179,6 +194,7 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         if (mViewModel == null) {
             return;
         }
+        updateGeometryIfNeeded();
         drawVerticalDividers(canvas);
         drawTrapezoids(canvas);
     }
@@ -359,58 +375,79 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         }
     }
 
-    private void drawVerticalDividers(Canvas canvas) {
+    private void invalidateGeometry() {
+        mGeometryDirty = true;
+    }
+
+    /** Recomputes the trapezoid slots and axis label areas if data or size has changed. */
+    @VisibleForTesting
+    void updateGeometryIfNeeded() {
+        if (!mGeometryDirty || mViewModel == null || mTrapezoidSlots == null) {
+            return;
+        }
+        mGeometryDirty = false;
         final int width = getWidth() - mIndent.right;
         final int dividerCount = mTrapezoidSlots.length + 1;
         final float dividerSpace = dividerCount * mDividerWidth;
-        final float unitWidth = (width - dividerSpace) / (float) mTrapezoidSlots.length;
+        mUnitWidth = (width - dividerSpace) / (float) mTrapezoidSlots.length;
+        final float trapezoidSlotOffset = mTrapezoidHOffset + mDividerWidth * .5f;
+        // Updates the trapezoid slots for drawing.
+        float startX = mDividerWidth * .5f;
+        for (int index = 0; index < mTrapezoidSlots.length; index++) {
+            final float nextX = startX + mDividerWidth + mUnitWidth;
+            mTrapezoidSlots[index].mLeft = round(startX + trapezoidSlotOffset);
+            mTrapezoidSlots[index].mRight = round(nextX - trapezoidSlotOffset);
+            startX = nextX;
+        }
+        // Updates the axis label slot information.
+        final float baselineY = getHeight() - mTextPadding;
+        switch (mViewModel.axisLabelPosition()) {
+            case CENTER_OF_TRAPEZOIDS:
+                updateAxisLabelDisplayAreas(
+                        /* size= */ mViewModel.size() - 1,
+                        /* baselineX= */ mDividerWidth + mUnitWidth * .5f,
+                        /* offsetX= */ mDividerWidth + mUnitWidth,
+                        baselineY,
+                        /* shiftFirstAndLast= */ false);
+                break;
+            case BETWEEN_TRAPEZOIDS:
+            default:
+                updateAxisLabelDisplayAreas(
+                        /* size= */ mViewModel.size(),
+                        /* baselineX= */ mDividerWidth * .5f,
+                        /* offsetX= */ mDividerWidth + mUnitWidth,
+                        baselineY,
+                        /* shiftFirstAndLast= */ true);
+                break;
+        }
+    }
+
+    private void drawVerticalDividers(Canvas canvas) {
+        final int dividerCount = mTrapezoidSlots.length + 1;
         final float bottomY = getHeight() - mIndent.bottom;
         final float startY = bottomY - mDividerHeight;
-        final float trapezoidSlotOffset = mTrapezoidHOffset + mDividerWidth * .5f;
         // Draws each vertical dividers.
         float startX = mDividerWidth * .5f;
         for (int index = 0; index < dividerCount; index++) {
             canvas.drawLine(startX, startY, startX, bottomY, mDividerPaint);
-            final float nextX = startX + mDividerWidth + unitWidth;
-            // Updates the trapezoid slots for drawing.
-            if (index < mTrapezoidSlots.length) {
-                mTrapezoidSlots[index].mLeft = round(startX + trapezoidSlotOffset);
-                mTrapezoidSlots[index].mRight = round(nextX - trapezoidSlotOffset);
-            }
-            startX = nextX;
+            startX += mDividerWidth + mUnitWidth;
         }
         // Draws the axis label slot information.
-        if (mViewModel != null) {
-            final float baselineY = getHeight() - mTextPadding;
-            Rect[] axisLabelDisplayAreas;
-            switch (mViewModel.axisLabelPosition()) {
-                case CENTER_OF_TRAPEZOIDS:
-                    axisLabelDisplayAreas = getAxisLabelDisplayAreas(
-                            /* size= */ mViewModel.size() - 1,
-                            /* baselineX= */ mDividerWidth + unitWidth * .5f,
-                            /* offsetX= */ mDividerWidth + unitWidth,
-                            baselineY,
-                            /* shiftFirstAndLast= */ false);
-                    break;
-                case BETWEEN_TRAPEZOIDS:
-                default:
-                    axisLabelDisplayAreas = getAxisLabelDisplayAreas(
-                            /* size= */ mViewModel.size(),
-                            /* baselineX= */ mDividerWidth * .5f,
-                            /* offsetX= */ mDividerWidth + unitWidth,
-                            baselineY,
-                            /* shiftFirstAndLast= */ true);
-                    break;
-            }
-            drawAxisLabels(canvas, axisLabelDisplayAreas, baselineY);
+        if (mViewModel != null && mTextPaint != null && mAxisLabelDisplayAreas.length > 0) {
+            drawAxisLabels(canvas, mAxisLabelDisplayAreas, getHeight() - mTextPadding);
         }
     }
 
-    /** Gets all the axis label texts displaying area positions if they are shown. */
-    private Rect[] getAxisLabelDisplayAreas(final int size, final float baselineX,
+    /** Updates all the axis label texts displaying area positions if they are shown. */
+    private void updateAxisLabelDisplayAreas(final int size, final float baselineX,
             final float offsetX, final float baselineY, final boolean shiftFirstAndLast) {
-        final Rect[] result = new Rect[size];
-        for (int index = 0; index < result.length; index++) {
+        if (mAxisLabelDisplayAreas.length != size) {
+            mAxisLabelDisplayAreas = new Rect[size];
+            for (int index = 0; index < size; index++) {
+                mAxisLabelDisplayAreas[index] = new Rect();
+            }
+        }
+        for (int index = 0; index < size; index++) {
             final float width = mAxisLabelsBounds.get(index).width();
             float middle = baselineX + index * offsetX;
             if (shiftFirstAndLast) {
@@ -425,9 +462,9 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
             final float right = left + width;
             final float top = baselineY + mAxisLabelsBounds.get(index).top;
             final float bottom = top + mAxisLabelsBounds.get(index).height();
-            result[index] = new Rect(round(left), round(top), round(right), round(bottom));
+            mAxisLabelDisplayAreas[index].set(
+                    round(left), round(top), round(right), round(bottom));
         }
-        return result;
     }
 
     private void drawAxisLabels(Canvas canvas, final Rect[] displayAreas, final float baselineY) {
@@ -508,8 +545,7 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
                 trapezoidBottom - mDividerWidth * .5f - mIndent.top - mTrapezoidVOffset;
         final float unitHeight = availableSpace / 100f;
         // Draws all trapezoid shapes into the canvas.
-        final Path trapezoidPath = new Path();
-        Path trapezoidCurvePath = null;
+        final Path trapezoidPath = mTrapezoidPath;
         for (int index = 0; index < mTrapezoidSlots.length; index++) {
             // Not draws the trapezoid for corner or not initialization cases.
             if (!isValidToDraw(mViewModel, index)) {
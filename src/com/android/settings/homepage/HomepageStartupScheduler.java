@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+import android.util.Pair;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the homepage startup work in two phases: the components needed for the first frame right
+ * away, and the secondary ones once the first frame has been drawn. Every component is traced
+ * as "Homepage#<name>" and its duration is logged.
+ */
+class HomepageStartupScheduler {
+
+    private static final String TAG = "HomepageStartup";
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final List<Pair<String, Runnable>> mDeferredTasks = new ArrayList<>();
+    private boolean mFirstFrameDrawn;
+
+    /** Runs {@code task} now, as part of the first frame. */
+    void runNow(String name, Runnable task) {
+        run(name, task);
+    }
+
+    /** Runs {@code task} once the first frame has been drawn, in the order of the calls. */
+    void runAfterFirstFrame(String name, Runnable task) {
+        if (mFirstFrameDrawn) {
+            run(name, task);
+        } else {
+            mDeferredTasks.add(Pair.create(name, task));
+        }
+    }
+
+    /** Waits for {@code view} to draw its first frame before running the deferred tasks. */
+    void start(View view) {
+        if (mDeferredTasks.isEmpty()) {
+            mFirstFrameDrawn = true;
+            return;
+        }
+        final ViewTreeObserver.OnDrawListener listener = new ViewTreeObserver.OnDrawListener() {
+            @Override
+            public void onDraw() {
+                // Listeners cannot be removed while they are being called, and the deferred
+                // tasks should not delay the frame being drawn.
+                mHandler.postAtFrontOfQueue(() -> {
+                    if (view.getViewTreeObserver().isAlive()) {
+                        view.getViewTreeObserver().removeOnDrawListener(this);
+                    }
+                    onFirstFrameDrawn();
+                });
+            }
+        };
+        view.getViewTreeObserver().addOnDrawListener(listener);
+    }
+
+    /** Drops the deferred tasks that have not run yet. */
+    void cancel() {
+        mDeferredTasks.clear();
+    }
+
+    @VisibleForTesting
+    void onFirstFrameDrawn() {
+        if (mFirstFrameDrawn) {
+            return;
+        }
+        mFirstFrameDrawn = true;
+        final List<Pair<String, Runnable>> tasks = new ArrayList<>(mDeferredTasks);
+        mDeferredTasks.clear();
+        for (Pair<String, Runnable> task : tasks) {
+            run(task.first, task.second);
+        }
+    }
+
+    private static void run(String name, Runnable task) {
+        Trace.beginSection("Homepage#" + name);
+        final long startTime = SystemClock.elapsedRealtime();
+        try {
+            task.run();
+        } finally {
+            Trace.endSection();
+            Log.d(TAG, name + " took " + (SystemClock.elapsedRealtime() - startTime) + " ms");
+        }
+    }
+}
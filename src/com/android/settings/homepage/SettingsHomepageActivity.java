@@ -105,6 +105,7 @@ public class SettingsHomepageActivity extends FragmentActivity implements
     private View mSuggestionView;
     private View mTwoPaneSuggestionView;
     private CategoryMixin mCategoryMixin;
+    private HomepageStartupScheduler mStartupScheduler;
     private Set<HomepageLoadedListener> mLoadedListeners;
     private ActivityEmbeddingController mActivityEmbeddingController;
     private boolean mIsEmbeddingActivityEnabled;
@@ -195,19 +196,25 @@ public class SettingsHomepageActivity extends FragmentActivity implements
             }
         }
 
-        setupEdgeToEdge();
-        setContentView(R.layout.settings_homepage_container);
+        final HomepageStartupScheduler scheduler = new HomepageStartupScheduler();
+        mStartupScheduler = scheduler;
+        scheduler.runNow("setContentView", () -> {
+            setupEdgeToEdge();
+            setContentView(R.layout.settings_homepage_container);
+        });
 
         mActivityEmbeddingController = ActivityEmbeddingController.getInstance(this);
         mIsTwoPane = mActivityEmbeddingController.isActivityEmbedded(this);
 
-        updateAppBarMinHeight();
-        initHomepageContainer();
-        updateHomepageAppBar();
-        updateHomepageBackground();
+        scheduler.runNow("initHomepageContainer", () -> {
+            updateAppBarMinHeight();
+            initHomepageContainer();
+            updateHomepageAppBar();
+            updateHomepageBackground();
+        });
         mLoadedListeners = new ArraySet<>();
 
-        initSearchBarView();
+        scheduler.runNow("initSearchBarView", this::initSearchBarView);
 
         getLifecycle().addObserver(new HideNonSystemOverlayMixin(this));
         mCategoryMixin = new CategoryMixin(this);
@@ -216,27 +223,37 @@ public class SettingsHomepageActivity extends FragmentActivity implements
         final String highlightMenuKey = getHighlightMenuKey();
         // Only allow features on high ram devices.
         if (!getSystemService(ActivityManager.class).isLowRamDevice()) {
-            initAvatarView();
+            scheduler.runNow("initAvatarView", this::initAvatarView);
             final boolean scrollNeeded = mIsEmbeddingActivityEnabled
                     && !TextUtils.equals(getString(DEFAULT_HIGHLIGHT_MENU_KEY), highlightMenuKey);
-            showSuggestionFragment(scrollNeeded);
+            // The suggestion decides whether the homepage is shown, so it is not deferred.
+            scheduler.runNow("showSuggestionFragment", () -> showSuggestionFragment(scrollNeeded));
             if (FeatureFlagUtils.isEnabled(this, FeatureFlags.CONTEXTUAL_HOME)) {
-                showFragment(() -> new ContextualCardsFragment(), R.id.contextual_cards_content);
-                ((FrameLayout) findViewById(R.id.main_content))
-                        .getLayoutTransition().enableTransitionType(LayoutTransition.CHANGING);
+                scheduler.runAfterFirstFrame("showContextualCards", () -> {
+                    if (isFinishing() || getSupportFragmentManager().isStateSaved()) {
+                        return;
+                    }
+                    showFragment(() -> new ContextualCardsFragment(),
+                            R.id.contextual_cards_content);
+                    ((FrameLayout) findViewById(R.id.main_content))
+                            .getLayoutTransition().enableTransitionType(LayoutTransition.CHANGING);
+                });
             }
         }
-        mMainFragment = showFragment(() -> {
+        scheduler.runNow("showTopLevelSettings", () -> mMainFragment = showFragment(() -> {
             final TopLevelSettings fragment = new TopLevelSettings();
             fragment.getArguments().putString(SettingsActivity.EXTRA_FRAGMENT_ARG_KEY,
                     highlightMenuKey);
             return fragment;
-        }, R.id.main_content);
+        }, R.id.main_content));
 
         // Launch the intent from deep link for large screen devices.
         launchDeepLinkIntentToRight();
-        updateHomepagePaddings();
-        updateSplitLayout();
+        scheduler.runNow("updateSplitLayout", () -> {
+            updateHomepagePaddings();
+            updateSplitLayout();
+        });
+        scheduler.start(getWindow().getDecorView());
     }
 
     @Override
@@ -245,6 +262,14 @@ public class SettingsHomepageActivity extends FragmentActivity implements
         super.onStart();
     }
 
+    @Override
+    protected void onDestroy() {
+        if (mStartupScheduler != null) {
+            mStartupScheduler.cancel();
+        }
+        super.onDestroy();
+    }
+
     @Override
     protected void onNewIntent(Intent intent) {
         super.onNewIntent(intent);
@@ -349,12 +374,16 @@ public class SettingsHomepageActivity extends FragmentActivity implements
         final ImageView avatarTwoPaneView = findViewById(R.id.account_avatar_two_pane_version);
         if (AvatarViewMixin.isAvatarSupported(this)) {
             avatarView.setVisibility(View.VISIBLE);
-            getLifecycle().addObserver(new AvatarViewMixin(this, avatarView));
-
             if (mIsEmbeddingActivityEnabled) {
                 avatarTwoPaneView.setVisibility(View.VISIBLE);
-                getLifecycle().addObserver(new AvatarViewMixin(this, avatarTwoPaneView));
             }
+            // The account avatar is loaded once the homepage is shown.
+            mStartupScheduler.runAfterFirstFrame("loadAvatar", () -> {
+                getLifecycle().addObserver(new AvatarViewMixin(this, avatarView));
+                if (mIsEmbeddingActivityEnabled) {
+                    getLifecycle().addObserver(new AvatarViewMixin(this, avatarTwoPaneView));
+                }
+            });
         }
     }
 
@@ -71,6 +71,7 @@ public class TopLevelSettings extends DashboardFragment implements SplitLayoutLi
     private boolean mScrollNeeded = true;
     private boolean mFirstStarted = true;
     private ActivityEmbeddingController mActivityEmbeddingController;
+    private TopLevelSummaryCache mSummaryCache;
 
     public TopLevelSettings() {
         final Bundle args = new Bundle();
@@ -99,6 +100,7 @@ public class TopLevelSettings extends DashboardFragment implements SplitLayoutLi
         super.onAttach(context);
         HighlightableMenu.fromXml(context, getPreferenceScreenResId());
         use(SupportPreferenceController.class).setActivity(getActivity());
+        mSummaryCache = new TopLevelSummaryCache(context);
         updateDerpSummary();
     }
 
@@ -192,6 +194,15 @@ public class TopLevelSettings extends DashboardFragment implements SplitLayoutLi
         super.onStart();
     }
 
+    @Override
+    public void onStop() {
+        super.onStop();
+        final PreferenceScreen screen = getPreferenceScreen();
+        if (mSummaryCache != null && screen != null) {
+            mSummaryCache.save(screen, getLocaleTags(), System.currentTimeMillis());
+        }
+    }
+
     private boolean isOnlyOneActivityInTask() {
         final ActivityManager.RunningTaskInfo taskInfo = getSystemService(ActivityManager.class)
                 .getRunningTasks(1).get(0);
@@ -216,6 +227,15 @@ public class TopLevelSettings extends DashboardFragment implements SplitLayoutLi
                 icon.setTint(tintColor);
             }
         });
+        // Show the last known summaries until the controllers load fresh ones.
+        final PreferenceScreen screen = getPreferenceScreen();
+        if (mSummaryCache != null && screen != null) {
+            mSummaryCache.restore(screen, getLocaleTags(), System.currentTimeMillis());
+        }
+    }
+
+    private String getLocaleTags() {
+        return getContext().getResources().getConfiguration().getLocales().toLanguageTags();
     }
 
     @Override
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.text.TextUtils;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+import androidx.preference.Preference;
+import androidx.preference.PreferenceGroup;
+
+import com.android.settings.core.SettingsStateStore;
+
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Persists the summaries last shown on the homepage, so that entries whose summary is computed
+ * asynchronously, such as battery and storage, show their last known summary on the first frame
+ * instead of a placeholder. The controllers then replace them with fresh values as usual.
+ *
+ * <p>The cache is read once the store has loaded it, which on a cold start can be after the
+ * first frame. Summaries a controller has set by then are kept.
+ */
+class TopLevelSummaryCache {
+
+    private static final String TAG = "TopLevelSummaryCache";
+    private static final String PREF_FILE = "top_level_summary_cache";
+    private static final String KEY_LOCALE = "locale";
+    private static final String KEY_SAVED_TIME = "saved_time";
+    private static final String KEY_PREFIX_SUMMARY = "summary:";
+
+    private final SettingsStateStore mStore;
+    private final Executor mMainExecutor;
+    private final SharedPreferences mSharedPreferences;
+    // Summaries shown from the cache, by preference key.
+    private final ArrayMap<String, String> mRestoredSummaries = new ArrayMap<>();
+    private long mRestoredAgeMs = -1;
+    private int mLastStaleCount;
+    // Incremented by each restore and save, so that a late restore does not apply.
+    private int mGeneration;
+
+    TopLevelSummaryCache(Context context) {
+        mStore = SettingsStateStore.getInstance(context);
+        mMainExecutor = context.getMainExecutor();
+        mSharedPreferences = mStore.getNamespace(PREF_FILE);
+    }
+
+    /**
+     * Shows the cached summaries of the preferences in {@code group} once they are loaded,
+     * unless they were saved in another locale.
+     */
+    void restore(PreferenceGroup group, String locale, long currentTime) {
+        mRestoredSummaries.clear();
+        final int generation = ++mGeneration;
+        // The summaries shown now, which the controllers may replace before the cache is loaded.
+        final ArrayMap<Preference, CharSequence> initialSummaries = new ArrayMap<>();
+        for (int i = 0; i < group.getPreferenceCount(); i++) {
+            final Preference preference = group.getPreference(i);
+            if (preference.getKey() != null) {
+                initialSummaries.put(preference, preference.getSummary());
+            }
+        }
+        mStore.getNamespace(PREF_FILE, mMainExecutor, prefs -> {
+            if (generation == mGeneration) {
+                applySummaries(prefs.getAll(), initialSummaries, locale, currentTime);
+            }
+        });
+    }
+
+    private void applySummaries(Map<String, ?> entries,
+            ArrayMap<Preference, CharSequence> initialSummaries, String locale,
+            long currentTime) {
+        if (!TextUtils.equals(locale, (String) entries.get(KEY_LOCALE))) {
+            return;
+        }
+        final Object savedTime = entries.get(KEY_SAVED_TIME);
+        mRestoredAgeMs = savedTime instanceof Long ? currentTime - (Long) savedTime : -1;
+        for (int i = 0; i < initialSummaries.size(); i++) {
+            final Preference preference = initialSummaries.keyAt(i);
+            if (!TextUtils.equals(preference.getSummary(), initialSummaries.valueAt(i))) {
+                // Already set by its controller.
+                continue;
+            }
+            final String key = preference.getKey();
+            final Object summary = entries.get(KEY_PREFIX_SUMMARY + key);
+            if (summary instanceof String) {
+                preference.setSummary((String) summary);
+                mRestoredSummaries.put(key, (String) summary);
+            }
+        }
+    }
+
+    /**
+     * Saves the summaries currently shown for the preferences in {@code group}, and logs how
+     * many of the restored ones were out of date.
+     */
+    void save(PreferenceGroup group, String locale, long currentTime) {
+        mGeneration++;
+        final SharedPreferences.Editor editor = mSharedPreferences.edit()
+                .clear()
+                .putString(KEY_LOCALE, locale)
+                .putLong(KEY_SAVED_TIME, currentTime);
+        int staleCount = 0;
+        for (int i = 0; i < group.getPreferenceCount(); i++) {
+            final Preference preference = group.getPreference(i);
+            final String key = preference.getKey();
+            final CharSequence summary = preference.getSummary();
+            if (key == null || summary == null || TextUtils.getTrimmedLength(summary) == 0) {
+                continue;
+            }
+            final String value = summary.toString();
+            editor.putString(KEY_PREFIX_SUMMARY + key, value);
+            if (mRestoredSummaries.containsKey(key)
+                    && !TextUtils.equals(mRestoredSummaries.get(key), value)) {
+                staleCount++;
+            }
+        }
+        editor.apply();
+        if (!mRestoredSummaries.isEmpty()) {
+            Log.d(TAG, "Restored " + mRestoredSummaries.size() + " summaries saved "
+                    + mRestoredAgeMs + " ms before, " + staleCount + " were stale");
+        }
+        mRestoredSummaries.clear();
+        mLastStaleCount = staleCount;
+    }
+
+    /** Returns how many restored summaries had changed by the last {@link #save}. */
+    @VisibleForTesting
+    int getLastStaleCount() {
+        return mLastStaleCount;
+    }
+}
@@ -29,13 +29,19 @@ import android.content.IntentFilter;
 import android.os.PersistableBundle;
 import android.telephony.CarrierConfigManager;
 import android.telephony.SubscriptionManager;
+import android.util.ArraySet;
 import android.util.Log;
 
 import androidx.annotation.GuardedBy;
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settingslib.utils.ThreadUtils;
+
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This is a singleton class for Carrier-Configuration cache.
@@ -62,9 +68,19 @@ public class CarrierConfigCache {
     @VisibleForTesting
     protected static final Map<Integer, PersistableBundle> sCarrierConfigs =
             new ConcurrentHashMap<>();
+    /**
+     * The Carrier-Configurations being fetched, by subscription ID. Concurrent callers for the
+     * same subscription wait for the same fetch, while different subscriptions load in parallel.
+     */
+    private static final Map<Integer, CompletableFuture<PersistableBundle>> sLoadingConfigs =
+            new ConcurrentHashMap<>();
     @VisibleForTesting
     protected static CarrierConfigManager sCarrierConfigManager;
 
+    private static final AtomicInteger sHitCount = new AtomicInteger();
+    private static final AtomicInteger sMissCount = new AtomicInteger();
+    private static final AtomicInteger sSharedLoadCount = new AtomicInteger();
+
     /**
      * Static method to create a singleton class for Carrier-Configuration cache.
      *
@@ -139,18 +155,72 @@ public class CarrierConfigCache {
     public PersistableBundle getConfigForSubId(int subId) {
         if (sCarrierConfigManager == null) return null;
 
-        synchronized (sCarrierConfigs) {
-            if (sCarrierConfigs.containsKey(subId)) {
-                return sCarrierConfigs.get(subId);
-            }
-            final PersistableBundle config = sCarrierConfigManager.getConfigForSubId(subId);
-            if (config == null) {
-                Log.e(TAG, "Could not get carrier config, subId:" + subId);
-                return null;
+        final PersistableBundle cachedConfig = sCarrierConfigs.get(subId);
+        if (cachedConfig != null) {
+            sHitCount.incrementAndGet();
+            return cachedConfig;
+        }
+
+        final CompletableFuture<PersistableBundle> newLoad = new CompletableFuture<>();
+        final CompletableFuture<PersistableBundle> currentLoad =
+                sLoadingConfigs.putIfAbsent(subId, newLoad);
+        if (currentLoad != null) {
+            sSharedLoadCount.incrementAndGet();
+            return currentLoad.join();
+        }
+
+        sMissCount.incrementAndGet();
+        PersistableBundle config = null;
+        try {
+            config = sCarrierConfigManager.getConfigForSubId(subId);
+        } finally {
+            synchronized (sCarrierConfigs) {
+                // A config change during the fetch drops the load, so that it is not cached.
+                if (sLoadingConfigs.remove(subId, newLoad) && config != null) {
+                    sCarrierConfigs.put(subId, config);
+                }
             }
-            sCarrierConfigs.put(subId, config);
-            return config;
+            newLoad.complete(config);
+        }
+        if (config == null) {
+            Log.e(TAG, "Could not get carrier config, subId:" + subId);
         }
+        return config;
+    }
+
+    /**
+     * Loads the Carrier-Configurations of all active subscriptions in the background, so that
+     * the mobile network pages find them cached.
+     */
+    public void preloadActiveSubscriptions(@NonNull Context context) {
+        if (sCarrierConfigManager == null) return;
+
+        final SubscriptionManager subscriptionManager =
+                context.getSystemService(SubscriptionManager.class);
+        if (subscriptionManager == null) return;
+
+        ThreadUtils.postOnBackgroundThread(() -> {
+            for (int subId : subscriptionManager.getActiveSubscriptionIdList()) {
+                if (!sCarrierConfigs.containsKey(subId)) {
+                    ThreadUtils.postOnBackgroundThread(() -> getConfigForSubId(subId));
+                }
+            }
+        });
+    }
+
+    /** Returns how many requests were answered from the cache. */
+    public int getHitCount() {
+        return sHitCount.get();
+    }
+
+    /** Returns how many requests fetched the Carrier-Configuration. */
+    public int getMissCount() {
+        return sMissCount.get();
+    }
+
+    /** Returns how many requests waited for a fetch started by another request. */
+    public int getSharedLoadCount() {
+        return sSharedLoadCount.get();
     }
 
     /**
@@ -170,13 +240,39 @@ public class CarrierConfigCache {
             if (!ACTION_CARRIER_CONFIG_CHANGED.equals(intent.getAction())) return;
 
             final int subId = intent.getIntExtra(EXTRA_SUBSCRIPTION_INDEX, INVALID_SUBSCRIPTION_ID);
-            synchronized (sCarrierConfigs) {
-                if (SubscriptionManager.isValidSubscriptionId(subId)) {
+            if (SubscriptionManager.isValidSubscriptionId(subId)) {
+                synchronized (sCarrierConfigs) {
                     sCarrierConfigs.remove(subId);
-                } else {
-                    sCarrierConfigs.clear();
+                    sLoadingConfigs.remove(subId);
+                }
+                return;
+            }
+            // The SIM of some slot went away, so only keep the active subscriptions. They are
+            // queried in the background, without holding the lock.
+            final PendingResult pendingResult = goAsync();
+            ThreadUtils.postOnBackgroundThread(() -> {
+                try {
+                    final Set<Integer> activeSubIds = getActiveSubIds(context);
+                    synchronized (sCarrierConfigs) {
+                        sCarrierConfigs.keySet().removeIf(id -> !activeSubIds.contains(id));
+                        sLoadingConfigs.keySet().removeIf(id -> !activeSubIds.contains(id));
+                    }
+                } finally {
+                    pendingResult.finish();
+                }
+            });
+        }
+
+        private static Set<Integer> getActiveSubIds(Context context) {
+            final Set<Integer> activeSubIds = new ArraySet<>();
+            final SubscriptionManager subscriptionManager =
+                    context.getSystemService(SubscriptionManager.class);
+            if (subscriptionManager != null) {
+                for (int id : subscriptionManager.getActiveSubscriptionIdList()) {
+                    activeSubIds.add(id);
                 }
             }
+            return activeSubIds;
         }
     }
 }
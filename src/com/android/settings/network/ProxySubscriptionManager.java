@@ -20,13 +20,18 @@ import static androidx.lifecycle.Lifecycle.Event.ON_DESTROY;
 import static androidx.lifecycle.Lifecycle.Event.ON_START;
 import static androidx.lifecycle.Lifecycle.Event.ON_STOP;
 
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.os.Looper;
 import android.provider.Settings;
 import android.telephony.SubscriptionInfo;
 import android.telephony.SubscriptionManager;
+import android.telephony.TelephonyManager;
 import android.util.Log;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.Keep;
 import androidx.annotation.VisibleForTesting;
 import androidx.lifecycle.Lifecycle;
@@ -36,6 +41,7 @@ import androidx.lifecycle.OnLifecycleEvent;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -80,6 +86,15 @@ public class ProxySubscriptionManager implements LifecycleObserver {
         return sSingleton;
     }
 
+    /**
+     * Get proxy instance to subscription manager, if it has been created
+     *
+     * @return proxy to subscription manager, or null
+     */
+    public static ProxySubscriptionManager peekInstance() {
+        return sSingleton;
+    }
+
     private static ProxySubscriptionManager sSingleton;
 
     private ProxySubscriptionManager(Context context) {
@@ -115,6 +130,15 @@ public class ProxySubscriptionManager implements LifecycleObserver {
         mSubscriptionMonitor = activeSubscriptionsListener;
         mAirplaneModeMonitor = airplaneModeOnSettingsChangeListener;
 
+        mContext = context;
+        mSnapshots = new WeakHashMap<SubscriptionManager, SubscriptionSnapshot>();
+        mSlotStatusChangeReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                clearSnapshots();
+            }
+        };
+
         mSubscriptionMonitor.start();
     }
 
@@ -125,9 +149,21 @@ public class ProxySubscriptionManager implements LifecycleObserver {
     private List<OnActiveSubscriptionChangedListener> mActiveSubscriptionsListeners;
     private List<OnActiveSubscriptionChangedListener> mPendingNotifyListeners;
 
+    private Context mContext;
+    private BroadcastReceiver mSlotStatusChangeReceiver;
+    private volatile boolean mIsSnapshotShared;
+    /**
+     * Snapshots by the {@link SubscriptionManager} they query, shared while the subscriptions
+     * and UICC slots are being monitored.
+     */
+    @GuardedBy("mSnapshots")
+    private Map<SubscriptionManager, SubscriptionSnapshot> mSnapshots;
+
     @Keep
     @VisibleForTesting
     protected void notifySubscriptionInfoMightChanged() {
+        clearSnapshots();
+
         // create a merged list for processing all listeners
         List<OnActiveSubscriptionChangedListener> listeners =
                 new ArrayList<OnActiveSubscriptionChangedListener>(mPendingNotifyListeners);
@@ -160,6 +196,7 @@ public class ProxySubscriptionManager implements LifecycleObserver {
     @OnLifecycleEvent(ON_START)
     void onStart() {
         mSubscriptionMonitor.start();
+        startSharingSnapshots();
 
         // callback notify those listener(s) which back to active state
         List<OnActiveSubscriptionChangedListener> listeners = mPendingNotifyListeners;
@@ -170,10 +207,12 @@ public class ProxySubscriptionManager implements LifecycleObserver {
     @OnLifecycleEvent(ON_STOP)
     void onStop() {
         mSubscriptionMonitor.stop();
+        stopSharingSnapshots();
     }
 
     @OnLifecycleEvent(ON_DESTROY)
     void onDestroy() {
+        stopSharingSnapshots();
         mSubscriptionMonitor.close();
         mAirplaneModeMonitor.close();
 
@@ -241,11 +280,59 @@ public class ProxySubscriptionManager implements LifecycleObserver {
         return mSubscriptionMonitor.getAccessibleSubscriptionInfo(subId);
     }
 
+    /**
+     * Get a snapshot of the subscriptions and UICC slots. While the proxy is started, the
+     * snapshot is shared by all the callers until the subscriptions or UICC slots change.
+     *
+     * @param subscriptionManager SubscriptionManager the snapshot queries
+     * @return a snapshot of the subscriptions and UICC slots
+     */
+    public SubscriptionSnapshot getSnapshot(SubscriptionManager subscriptionManager) {
+        if (!mIsSnapshotShared) {
+            return new SubscriptionSnapshot(subscriptionManager);
+        }
+        synchronized (mSnapshots) {
+            SubscriptionSnapshot snapshot = mSnapshots.get(subscriptionManager);
+            if (snapshot == null) {
+                snapshot = new SubscriptionSnapshot(subscriptionManager);
+                mSnapshots.put(subscriptionManager, snapshot);
+            }
+            return snapshot;
+        }
+    }
+
     /**
      * Clear data cached within proxy
      */
     public void clearCache() {
         mSubscriptionMonitor.clearCache();
+        clearSnapshots();
+    }
+
+    private void startSharingSnapshots() {
+        if (mIsSnapshotShared) {
+            return;
+        }
+        clearSnapshots();
+        mContext.registerReceiver(mSlotStatusChangeReceiver,
+                new IntentFilter(TelephonyManager.ACTION_SIM_SLOT_STATUS_CHANGED),
+                Context.RECEIVER_EXPORTED_UNAUDITED);
+        mIsSnapshotShared = true;
+    }
+
+    private void stopSharingSnapshots() {
+        if (!mIsSnapshotShared) {
+            return;
+        }
+        mIsSnapshotShared = false;
+        mContext.unregisterReceiver(mSlotStatusChangeReceiver);
+        clearSnapshots();
+    }
+
+    private void clearSnapshots() {
+        synchronized (mSnapshots) {
+            mSnapshots.clear();
+        }
     }
 
     /**
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import android.annotation.Nullable;
+import android.telephony.SubscriptionInfo;
+import android.telephony.SubscriptionManager;
+import android.telephony.TelephonyManager;
+import android.telephony.UiccCardInfo;
+import android.telephony.UiccSlotInfo;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A snapshot of the subscriptions and UICC slots, shared by the helpers of
+ * {@link SubscriptionUtil} until {@link ProxySubscriptionManager} sees them change.
+ *
+ * Each part is queried on its first use only, and never changes afterwards.
+ */
+public class SubscriptionSnapshot {
+
+    private final SubscriptionManager mSubscriptionManager;
+
+    private boolean mAvailableLoaded;
+    private List<SubscriptionInfo> mAvailableSubscriptions;
+    private boolean mAllLoaded;
+    private List<SubscriptionInfo> mAllSubscriptions;
+    private boolean mSlotsLoaded;
+    private UiccSlotInfo[] mUiccSlotsInfo;
+    private boolean mCardsLoaded;
+    private List<UiccCardInfo> mUiccCardsInfo;
+
+    SubscriptionSnapshot(SubscriptionManager subscriptionManager) {
+        mSubscriptionManager = subscriptionManager;
+    }
+
+    /**
+     * Get the result of {@link SubscriptionManager#getAvailableSubscriptionInfoList()}
+     *
+     * @return an unmodifiable list of available subscription info, or null
+     */
+    @Nullable
+    public synchronized List<SubscriptionInfo> getAvailableSubscriptionInfoList() {
+        if (!mAvailableLoaded) {
+            mAvailableSubscriptions =
+                    unmodifiable(mSubscriptionManager.getAvailableSubscriptionInfoList());
+            mAvailableLoaded = true;
+        }
+        return mAvailableSubscriptions;
+    }
+
+    /**
+     * Get the result of {@link SubscriptionManager#getAllSubscriptionInfoList()}
+     *
+     * @return an unmodifiable list of all subscription info
+     */
+    public synchronized List<SubscriptionInfo> getAllSubscriptionInfoList() {
+        if (!mAllLoaded) {
+            mAllSubscriptions = unmodifiable(mSubscriptionManager.getAllSubscriptionInfoList());
+            mAllLoaded = true;
+        }
+        return mAllSubscriptions;
+    }
+
+    /**
+     * Get the result of {@link TelephonyManager#getUiccSlotsInfo()}
+     *
+     * @param telephonyManager used on the first query only
+     * @return a copy of the UICC slots info, or null
+     */
+    @Nullable
+    public synchronized UiccSlotInfo[] getUiccSlotsInfo(TelephonyManager telephonyManager) {
+        if (!mSlotsLoaded) {
+            mUiccSlotsInfo = telephonyManager.getUiccSlotsInfo();
+            mSlotsLoaded = true;
+        }
+        return (mUiccSlotsInfo == null) ? null : mUiccSlotsInfo.clone();
+    }
+
+    /**
+     * Get the result of {@link TelephonyManager#getUiccCardsInfo()}
+     *
+     * @param telephonyManager used on the first query only
+     * @return an unmodifiable list of UICC cards info, or null
+     */
+    @Nullable
+    public synchronized List<UiccCardInfo> getUiccCardsInfo(TelephonyManager telephonyManager) {
+        if (!mCardsLoaded) {
+            mUiccCardsInfo = unmodifiable(telephonyManager.getUiccCardsInfo());
+            mCardsLoaded = true;
+        }
+        return mUiccCardsInfo;
+    }
+
+    private static <T> List<T> unmodifiable(List<T> list) {
+        return (list == null) ? null : Collections.unmodifiableList(list);
+    }
+}
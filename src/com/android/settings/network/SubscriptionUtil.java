@@ -149,7 +149,20 @@ public class SubscriptionUtil {
 
     private static UiccSlotInfo [] getUiccSlotsInfo(Context context) {
         final TelephonyManager telMgr = context.getSystemService(TelephonyManager.class);
-        return telMgr.getUiccSlotsInfo();
+        return getSnapshot(context.getSystemService(SubscriptionManager.class))
+                .getUiccSlotsInfo(telMgr);
+    }
+
+    /**
+     * Get the snapshot of subscriptions and UICC slots which is shared by the pages currently
+     * showing, so that the helpers do not query them again and again.
+     */
+    private static SubscriptionSnapshot getSnapshot(SubscriptionManager subscriptionManager) {
+        final ProxySubscriptionManager proxy = ProxySubscriptionManager.peekInstance();
+        if (proxy == null) {
+            return new SubscriptionSnapshot(subscriptionManager);
+        }
+        return proxy.getSnapshot(subscriptionManager);
     }
 
     private static boolean isPrimarySubscriptionWithinSameUuid(UiccSlotInfo[] slotsInfo,
@@ -261,8 +274,9 @@ public class SubscriptionUtil {
         }
 
         // Map of SubscriptionId to DisplayName
+        final List<SubscriptionInfo> subscriptions = getAvailableSubscriptions(context);
         final Supplier<Stream<DisplayInfo>> originalInfos =
-                () -> getAvailableSubscriptions(context)
+                () -> subscriptions
                 .stream()
                 .filter(i -> {
                     // Filter out null values.
@@ -406,7 +420,8 @@ public class SubscriptionUtil {
      */
     public static List<SubscriptionInfo> getSelectableSubscriptionInfoList(Context context) {
         SubscriptionManager subManager = context.getSystemService(SubscriptionManager.class);
-        List<SubscriptionInfo> availableList = subManager.getAvailableSubscriptionInfoList();
+        List<SubscriptionInfo> availableList =
+                getSnapshot(subManager).getAvailableSubscriptionInfoList();
         if (availableList == null) {
             return null;
         } else {
@@ -482,7 +497,7 @@ public class SubscriptionUtil {
         if (subId == SubscriptionManager.INVALID_SUBSCRIPTION_ID) {
             return null;
         }
-        return subscriptionManager
+        return getSnapshot(subscriptionManager)
                 .getAllSubscriptionInfoList()
                 .stream()
                 .filter(subInfo -> subInfo.getSubscriptionId() == subId)
@@ -529,7 +544,7 @@ public class SubscriptionUtil {
         }
         ParcelUuid groupUuid = subscription.getGroupUuid();
         List<SubscriptionInfo> availableSubscriptions =
-                subscriptionManager.getAvailableSubscriptionInfoList();
+                getSnapshot(subscriptionManager).getAvailableSubscriptionInfoList();
 
         if (availableSubscriptions == null
                 || availableSubscriptions.isEmpty()
@@ -572,12 +587,13 @@ public class SubscriptionUtil {
         TelephonyManager telephonyManager = context.getSystemService(TelephonyManager.class);
         SubscriptionManager subscriptionManager =
                 context.getSystemService(SubscriptionManager.class);
-        List<UiccCardInfo> cardInfos = telephonyManager.getUiccCardsInfo();
+        SubscriptionSnapshot snapshot = getSnapshot(subscriptionManager);
+        List<UiccCardInfo> cardInfos = snapshot.getUiccCardsInfo(telephonyManager);
         if (cardInfos == null) {
             Log.w(TAG, "UICC cards info list is empty.");
             return null;
         }
-        List<SubscriptionInfo> allSubscriptions = subscriptionManager.getAllSubscriptionInfoList();
+        List<SubscriptionInfo> allSubscriptions = snapshot.getAllSubscriptionInfoList();
         if (allSubscriptions == null) {
             Log.w(TAG, "All subscription info list is empty.");
             return null;
@@ -26,6 +26,7 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
@@ -45,6 +46,7 @@ import android.telephony.SubscriptionManager;
 import android.telephony.TelephonyManager;
 import android.telephony.data.ApnSetting;
 import android.text.TextUtils;
+import android.util.ArrayMap;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuInflater;
@@ -52,15 +54,21 @@ import android.view.MenuItem;
 import android.view.MotionEvent;
 import android.widget.Toast;
 
+import androidx.annotation.VisibleForTesting;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceGroup;
 
 import com.android.settings.R;
 import com.android.settings.RestrictedSettingsFragment;
+import com.android.settings.network.CarrierConfigCache;
 import com.android.settings.network.SubscriptionUtil;
 import com.android.settingslib.RestrictedLockUtils.EnforcedAdmin;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /** Handle each different apn setting. */
 public class ApnSettings extends RestrictedSettingsFragment
@@ -133,9 +141,22 @@ public class ApnSettings extends RestrictedSettingsFragment
 
     private boolean mUnavailable;
 
-    private boolean mHideImsApn;
     private boolean mAllowAddingApns;
-    private boolean mHidePresetApnDetails;
+
+    /** The APN rows shown, by APN id. */
+    private final Map<String, ApnRow> mShownApns = new ArrayMap<>();
+    private boolean mIsLoading;
+    private boolean mIsReloadPending;
+
+    private final ContentObserver mApnObserver = new ContentObserver(
+            new Handler(Looper.getMainLooper())) {
+        @Override
+        public void onChange(boolean selfChange) {
+            if (!mRestoreDefaultApnMode) {
+                fillList();
+            }
+        }
+    };
 
     public ApnSettings() {
         super(UserManager.DISALLOW_CONFIG_MOBILE_NETWORKS);
@@ -225,22 +246,6 @@ public class ApnSettings extends RestrictedSettingsFragment
 
         mSubscriptionInfo = getSubscriptionInfo(mSubId);
         mTelephonyManager = activity.getSystemService(TelephonyManager.class);
-
-        final CarrierConfigManager configManager = (CarrierConfigManager)
-                getSystemService(Context.CARRIER_CONFIG_SERVICE);
-        final PersistableBundle b = configManager.getConfigForSubId(mSubId);
-        mHideImsApn = b.getBoolean(CarrierConfigManager.KEY_HIDE_IMS_APN_BOOL);
-        mAllowAddingApns = b.getBoolean(CarrierConfigManager.KEY_ALLOW_ADDING_APNS_BOOL);
-        if (mAllowAddingApns) {
-            final String[] readOnlyApnTypes = b.getStringArray(
-                    CarrierConfigManager.KEY_READ_ONLY_APN_TYPES_STRING_ARRAY);
-            // if no apn type can be edited, do not allow adding APNs
-            if (ApnEditor.hasAllApns(readOnlyApnTypes)) {
-                Log.d(TAG, "not allowing adding APN because all APN types are read only");
-                mAllowAddingApns = false;
-            }
-        }
-        mHidePresetApnDetails = b.getBoolean(CarrierConfigManager.KEY_HIDE_PRESET_APN_DETAILS_BOOL);
         mUserManager = UserManager.get(activity);
     }
 
@@ -270,6 +275,9 @@ public class ApnSettings extends RestrictedSettingsFragment
         getActivity().registerReceiver(mReceiver, mIntentFilter,
                 Context.RECEIVER_EXPORTED_UNAUDITED);
 
+        getContentResolver().registerContentObserver(Telephony.Carriers.CONTENT_URI,
+                true /* notifyForDescendants */, mApnObserver);
+
         restartPhoneStateListener(mSubId);
 
         if (!mRestoreDefaultApnMode) {
@@ -286,6 +294,7 @@ public class ApnSettings extends RestrictedSettingsFragment
         }
 
         getActivity().unregisterReceiver(mReceiver);
+        getContentResolver().unregisterContentObserver(mApnObserver);
 
         mTelephonyManager.listen(mPhoneStateListener,
                 PhoneStateListener.LISTEN_NONE);
@@ -315,9 +324,120 @@ public class ApnSettings extends RestrictedSettingsFragment
         return SubscriptionManager.from(getActivity()).getActiveSubscriptionInfo(subId);
     }
 
-    private void fillList() {
+    /**
+     * Load the APN list in the background, then update the preferences of the changed APNs.
+     */
+    @VisibleForTesting
+    void fillList() {
+        if (mIsLoading) {
+            mIsReloadPending = true;
+            return;
+        }
+        mIsLoading = true;
+        mIsReloadPending = false;
+
         final int subId = mSubscriptionInfo != null ? mSubscriptionInfo.getSubscriptionId()
                 : SubscriptionManager.INVALID_SUBSCRIPTION_ID;
+        final int configSubId = mSubId;
+        final Context context = getContext().getApplicationContext();
+        final Uri preferApnUri = getUriForCurrSubId(PREFERAPN_URI);
+        ThreadUtils.postOnBackgroundThread(() -> {
+            final ApnList apnList = loadApnList(context, subId, configSubId, preferApnUri);
+            ThreadUtils.postOnMainThread(() -> onApnListLoaded(apnList));
+        });
+    }
+
+    private void onApnListLoaded(ApnList apnList) {
+        mIsLoading = false;
+        if (getActivity() == null) {
+            return;
+        }
+        if (mIsReloadPending) {
+            fillList();
+            return;
+        }
+        if (mAllowAddingApns != apnList.mAllowAddingApns) {
+            mAllowAddingApns = apnList.mAllowAddingApns;
+            getActivity().invalidateOptionsMenu();
+        }
+        if (apnList.mRows == null) {
+            return;
+        }
+
+        mSelectedKey = apnList.mSelectedKey;
+        mMvnoType = apnList.mMvnoType;
+        mMvnoMatchData = apnList.mMvnoMatchData;
+        final PreferenceGroup apnPrefList = (PreferenceGroup) findPreference("apn_list");
+        final Map<String, ApnRow> shownApns = new ArrayMap<>(mShownApns);
+        mShownApns.clear();
+        int order = 0;
+        for (ApnRow row : apnList.mRows) {
+            ApnPreference pref = apnPrefList.findPreference(row.mKey);
+            if (pref != null && !row.equals(shownApns.remove(row.mKey))) {
+                apnPrefList.removePreference(pref);
+                pref = null;
+            }
+            if (pref == null) {
+                pref = createApnPreference(row);
+                apnPrefList.addPreference(pref);
+            }
+            if (row.mChecked) {
+                pref.setChecked();
+            }
+            pref.setOrder(order++);
+            mShownApns.put(row.mKey, row);
+        }
+        // Drop the APNs which are gone
+        for (String key : shownApns.keySet()) {
+            final Preference pref = apnPrefList.findPreference(key);
+            if (pref != null) {
+                apnPrefList.removePreference(pref);
+            }
+        }
+    }
+
+    private ApnPreference createApnPreference(ApnRow row) {
+        final ApnPreference pref = new ApnPreference(getPrefContext());
+
+        pref.setKey(row.mKey);
+        pref.setTitle(row.mName);
+        pref.setPersistent(false);
+        pref.setOnPreferenceChangeListener(this);
+        pref.setSubId(row.mSubId);
+        if (row.mHideDetails) {
+            pref.setHideDetails();
+        } else {
+            pref.setSummary(row.mApn);
+        }
+        pref.setSelectable(row.mSelectable);
+        return pref;
+    }
+
+    /**
+     * Query the APNs to show and the carrier configuration they depend on. Selectable APNs
+     * come first, followed by the other ones.
+     */
+    private static ApnList loadApnList(Context context, int subId, int configSubId,
+            Uri preferApnUri) {
+        final ApnList apnList = new ApnList();
+        final PersistableBundle b =
+                CarrierConfigCache.getInstance(context).getConfigForSubId(configSubId);
+        final boolean hideImsApn = (b != null)
+                && b.getBoolean(CarrierConfigManager.KEY_HIDE_IMS_APN_BOOL);
+        final boolean hidePresetApnDetails = (b != null)
+                && b.getBoolean(CarrierConfigManager.KEY_HIDE_PRESET_APN_DETAILS_BOOL);
+        apnList.mAllowAddingApns = (b != null)
+                && b.getBoolean(CarrierConfigManager.KEY_ALLOW_ADDING_APNS_BOOL);
+        if (apnList.mAllowAddingApns) {
+            final String[] readOnlyApnTypes = b.getStringArray(
+                    CarrierConfigManager.KEY_READ_ONLY_APN_TYPES_STRING_ARRAY);
+            // if no apn type can be edited, do not allow adding APNs
+            if (ApnEditor.hasAllApns(readOnlyApnTypes)) {
+                Log.d(TAG, "not allowing adding APN because all APN types are read only");
+                apnList.mAllowAddingApns = false;
+            }
+        }
+
         final Uri simApnUri = Uri.withAppendedPath(Telephony.Carriers.SIM_APN_URI,
                 String.valueOf(subId));
         final StringBuilder where =
@@ -326,67 +446,49 @@ public class ApnSettings extends RestrictedSettingsFragment
         // Remove Emergency type, users should not mess with that
         where.append(" AND NOT (type='emergency')");
 
-        if (mHideImsApn) {
+        if (hideImsApn) {
             where.append(" AND NOT (type='ims')");
         }
 
-        final Cursor cursor = getContentResolver().query(simApnUri,
+        final ContentResolver resolver = context.getContentResolver();
+        final Cursor cursor = resolver.query(simApnUri,
                 CARRIERS_PROJECTION, where.toString(), null,
                 Telephony.Carriers.DEFAULT_SORT_ORDER);
 
         if (cursor != null) {
-            final PreferenceGroup apnPrefList = (PreferenceGroup) findPreference("apn_list");
-            apnPrefList.removeAll();
-
-            final ArrayList<ApnPreference> apnList = new ArrayList<ApnPreference>();
-            final ArrayList<ApnPreference> mmsApnList = new ArrayList<ApnPreference>();
+            final List<ApnRow> apnRows = new ArrayList<>();
+            final List<ApnRow> mmsApnRows = new ArrayList<>();
 
-            mSelectedKey = getSelectedApnKey();
+            apnList.mSelectedKey = getSelectedApnKey(resolver, preferApnUri);
             cursor.moveToFirst();
             while (!cursor.isAfterLast()) {
-                final String name = cursor.getString(NAME_INDEX);
-                final String apn = cursor.getString(APN_INDEX);
-                final String key = cursor.getString(ID_INDEX);
-                final String type = cursor.getString(TYPES_INDEX);
-                final int edited = cursor.getInt(EDITED_INDEX);
-                mMvnoType = cursor.getString(MVNO_TYPE_INDEX);
-                mMvnoMatchData = cursor.getString(MVNO_MATCH_DATA_INDEX);
-
-                final ApnPreference pref = new ApnPreference(getPrefContext());
-
-                pref.setKey(key);
-                pref.setTitle(name);
-                pref.setPersistent(false);
-                pref.setOnPreferenceChangeListener(this);
-                pref.setSubId(subId);
-                if (mHidePresetApnDetails && edited == Telephony.Carriers.UNEDITED) {
-                    pref.setHideDetails();
-                } else {
-                    pref.setSummary(apn);
-                }
+                final ApnRow row = new ApnRow();
+                row.mKey = cursor.getString(ID_INDEX);
+                row.mName = cursor.getString(NAME_INDEX);
+                row.mApn = cursor.getString(APN_INDEX);
+                row.mSubId = subId;
+                row.mHideDetails = hidePresetApnDetails
+                        && cursor.getInt(EDITED_INDEX) == Telephony.Carriers.UNEDITED;
+                apnList.mMvnoType = cursor.getString(MVNO_TYPE_INDEX);
+                apnList.mMvnoMatchData = cursor.getString(MVNO_MATCH_DATA_INDEX);
 
-                final boolean selectable =
+                final String type = cursor.getString(TYPES_INDEX);
+                row.mSelectable =
                         ((type == null) || type.contains(ApnSetting.TYPE_DEFAULT_STRING));
-                pref.setSelectable(selectable);
-                if (selectable) {
-                    if ((mSelectedKey != null) && mSelectedKey.equals(key)) {
-                        pref.setChecked();
-                    }
-                    apnList.add(pref);
+                if (row.mSelectable) {
+                    row.mChecked = row.mKey.equals(apnList.mSelectedKey);
+                    apnRows.add(row);
                 } else {
-                    mmsApnList.add(pref);
+                    mmsApnRows.add(row);
                 }
                 cursor.moveToNext();
             }
             cursor.close();
 
-            for (Preference preference : apnList) {
-                apnPrefList.addPreference(preference);
-            }
-            for (Preference preference : mmsApnList) {
-                apnPrefList.addPreference(preference);
-            }
+            apnRows.addAll(mmsApnRows);
+            apnList.mRows = apnRows;
         }
+        return apnList;
     }
 
     @Override
@@ -453,10 +555,10 @@ public class ApnSettings extends RestrictedSettingsFragment
         resolver.update(getUriForCurrSubId(PREFERAPN_URI), values, null, null);
     }
 
-    private String getSelectedApnKey() {
+    private static String getSelectedApnKey(ContentResolver resolver, Uri preferApnUri) {
         String key = null;
 
-        final Cursor cursor = getContentResolver().query(getUriForCurrSubId(PREFERAPN_URI),
+        final Cursor cursor = resolver.query(preferApnUri,
                 new String[] {"_id"}, null, null, Telephony.Carriers.DEFAULT_SORT_ORDER);
         if (cursor.getCount() > 0) {
             cursor.moveToFirst();
@@ -569,4 +671,43 @@ public class ApnSettings extends RestrictedSettingsFragment
         }
         return 0;
     }
+
+    /** The APNs and the carrier configuration loaded in the background. */
+    private static class ApnList {
+        List<ApnRow> mRows;
+        String mSelectedKey;
+        String mMvnoType;
+        String mMvnoMatchData;
+        boolean mAllowAddingApns;
+    }
+
+    /** What an {@link ApnPreference} shows of an APN. */
+    private static class ApnRow {
+        String mKey;
+        String mName;
+        String mApn;
+        int mSubId;
+        boolean mHideDetails;
+        boolean mSelectable;
+        boolean mChecked;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ApnRow)) return false;
+            final ApnRow row = (ApnRow) o;
+            return TextUtils.equals(mKey, row.mKey)
+                    && TextUtils.equals(mName, row.mName)
+                    && TextUtils.equals(mApn, row.mApn)
+                    && mSubId == row.mSubId
+                    && mHideDetails == row.mHideDetails
+                    && mSelectable == row.mSelectable
+                    && mChecked == row.mChecked;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mKey, mName, mApn, mSubId, mHideDetails, mSelectable, mChecked);
+        }
+    }
 }
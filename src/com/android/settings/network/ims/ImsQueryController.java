@@ -16,25 +16,64 @@
 
 package com.android.settings.network.ims;
 
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.telephony.AccessNetworkConstants;
+import android.telephony.CarrierConfigManager;
 import android.telephony.SubscriptionManager;
 import android.telephony.ims.ImsException;
 import android.telephony.ims.ImsMmTelManager;
 import android.telephony.ims.feature.ImsFeature;
 import android.telephony.ims.feature.MmTelFeature;
 import android.telephony.ims.stub.ImsRegistrationImplBase;
+import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * Controller class for querying IMS status
  */
 abstract class ImsQueryController {
 
-    private static final long TIMEOUT_MILLIS = 2000;
+    private static final String LOG_TAG = "ImsQueryController";
+
+    @VisibleForTesting
+    static final long TIMEOUT_MILLIS = 2000;
+    @VisibleForTesting
+    static final long RESULT_CACHE_MILLIS = 5000;
+
+    /**
+     * Results of the IMS queries by key, kept for {@link #RESULT_CACHE_MILLIS} or until the
+     * subscriptions or carrier configs change.
+     */
+    private static final Map<String, CachedResult> sResults = new ConcurrentHashMap<>();
+    /**
+     * IMS queries waiting for a result by key, shared by the callers of identical queries.
+     */
+    private static final Map<String, CompletableFuture<?>> sPendingQueries =
+            new ConcurrentHashMap<>();
+    /**
+     * Incremented when the results are invalidated, so that queries started before are not
+     * cached.
+     */
+    private static final AtomicInteger sResultsGeneration = new AtomicInteger();
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+    private static boolean sInvalidationRegistered;
 
     private volatile int mCapability;
     private volatile int mTech;
@@ -43,17 +82,19 @@ abstract class ImsQueryController {
     /**
      * Constructor for query IMS status
      *
+     * @param context {@link Context}
      * @param capability {@link MmTelFeature.MmTelCapabilities#MmTelCapability}
      * @param tech {@link ImsRegistrationImplBase#ImsRegistrationTech}
      * @param transportType {@link AccessNetworkConstants#TransportType}
      */
-    ImsQueryController(
+    ImsQueryController(Context context,
             @MmTelFeature.MmTelCapabilities.MmTelCapability int capability,
             @ImsRegistrationImplBase.ImsRegistrationTech int tech,
             @AccessNetworkConstants.TransportType int transportType) {
         mCapability = capability;
         mTech = tech;
         mTransportType = transportType;
+        registerInvalidation(context);
     }
 
     abstract boolean isEnabledByUser(int subId);
@@ -71,14 +112,8 @@ abstract class ImsQueryController {
         }
 
         final ImsMmTelManager imsMmTelManager = ImsMmTelManager.createForSubscriptionId(subId);
-        // TODO: have a shared thread pool instead of create ExecutorService
-        //       everytime to improve performance.
-        final ExecutorService executor = Executors.newSingleThreadExecutor();
-        final BooleanConsumer booleanResult = new BooleanConsumer();
-        imsMmTelManager.isSupported(mCapability, mTransportType, executor, booleanResult);
-        // get() will be blocked until end of execution(isSupported()) within thread(executor)
-        // or timeout after TIMEOUT_MILLIS milliseconds
-        return booleanResult.get(TIMEOUT_MILLIS);
+        return getResult(getSupportedKey(subId), false, callback -> imsMmTelManager.isSupported(
+                mCapability, mTransportType, Runnable::run, callback));
     }
 
     @VisibleForTesting
@@ -97,11 +132,212 @@ abstract class ImsQueryController {
         }
 
         final ImsMmTelManager imsMmTelManager = ImsMmTelManager.createForSubscriptionId(subId);
-        // TODO: have a shared thread pool instead of create ExecutorService
-        //       everytime to improve performance.
-        final ExecutorService executor = Executors.newSingleThreadExecutor();
-        final IntegerConsumer intResult = new IntegerConsumer();
-        imsMmTelManager.getFeatureState(executor, intResult);
-        return (intResult.get(TIMEOUT_MILLIS) == ImsFeature.STATE_READY);
+        final int state = getResult("state:" + subId, ImsFeature.STATE_UNAVAILABLE,
+                callback -> imsMmTelManager.getFeatureState(Runnable::run, callback));
+        return (state == ImsFeature.STATE_READY);
+    }
+
+    /**
+     * Check without blocking whether the capability is provisioned, supported by the platform
+     * and its IMS service ready.
+     *
+     * @param subId subscription id
+     * @param callback called once on the main thread with the result
+     */
+    void isReady(int subId, Consumer<Boolean> callback) {
+        if (!isProvisionedOnDevice(subId)) {
+            sMainHandler.post(() -> callback.accept(false));
+            return;
+        }
+
+        final ImsMmTelManager imsMmTelManager = ImsMmTelManager.createForSubscriptionId(subId);
+        final AsyncQuery<Boolean> supportedQuery = supportedCallback ->
+                imsMmTelManager.isSupported(mCapability, mTransportType, Runnable::run,
+                        supportedCallback);
+        final AsyncQuery<Integer> stateQuery = stateCallback ->
+                imsMmTelManager.getFeatureState(Runnable::run, stateCallback);
+        getResult(getSupportedKey(subId), false, supportedQuery, supported -> {
+            if (!supported) {
+                callback.accept(false);
+                return;
+            }
+            getResult("state:" + subId, ImsFeature.STATE_UNAVAILABLE, stateQuery,
+                    state -> callback.accept(state == ImsFeature.STATE_READY));
+        });
+    }
+
+    private String getSupportedKey(int subId) {
+        return "supported:" + subId + ":" + mCapability + ":" + mTransportType;
+    }
+
+    /**
+     * An IMS query which reports its result through a callback.
+     */
+    @VisibleForTesting
+    interface AsyncQuery<T> {
+        void start(Consumer<T> callback) throws ImsException;
+    }
+
+    /**
+     * Get the result of an IMS query, from the cache when it has been answered recently or
+     * from the identical query in flight if any.
+     *
+     * @param key identifies the query and its subscription
+     * @param defaultValue result when IMS does not answer within {@link #TIMEOUT_MILLIS}
+     * @param query starts the query when needed
+     * @return result of query
+     */
+    @VisibleForTesting
+    static <T> T getResult(String key, T defaultValue, AsyncQuery<T> query)
+            throws InterruptedException, ImsException {
+        final CompletableFuture<T> pendingQuery = startQuery(key, query);
+        try {
+            final T value = pendingQuery.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            return (value == null) ? defaultValue : value;
+        } catch (TimeoutException exception) {
+            // Let the next caller query again rather than wait on an unanswered query.
+            sPendingQueries.remove(key, pendingQuery);
+            Log.w(LOG_TAG, "IMS query timeout. " + key);
+        } catch (ExecutionException exception) {
+            Log.w(LOG_TAG, "IMS query failed. " + key, exception.getCause());
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Get the result of an IMS query like {@link #getResult(String, Object, AsyncQuery)}, but
+     * without blocking the caller.
+     *
+     * @param key identifies the query and its subscription
+     * @param defaultValue result when the query fails or IMS does not answer within
+     *        {@link #TIMEOUT_MILLIS}
+     * @param query starts the query when needed
+     * @param callback called once on the main thread with the result of query
+     */
+    @VisibleForTesting
+    static <T> void getResult(String key, T defaultValue, AsyncQuery<T> query,
+            Consumer<T> callback) {
+        final CompletableFuture<T> pendingQuery;
+        try {
+            pendingQuery = startQuery(key, query);
+        } catch (ImsException | RuntimeException exception) {
+            Log.w(LOG_TAG, "IMS query failed. " + key, exception);
+            sMainHandler.post(() -> callback.accept(defaultValue));
+            return;
+        }
+
+        final AtomicBoolean delivered = new AtomicBoolean();
+        final Runnable timeout = () -> {
+            if (delivered.compareAndSet(false, true)) {
+                // Let the next caller query again rather than wait on an unanswered query.
+                sPendingQueries.remove(key, pendingQuery);
+                Log.w(LOG_TAG, "IMS query timeout. " + key);
+                callback.accept(defaultValue);
+            }
+        };
+        sMainHandler.postDelayed(timeout, TIMEOUT_MILLIS);
+        pendingQuery.whenComplete((value, exception) -> sMainHandler.post(() -> {
+            if (!delivered.compareAndSet(false, true)) {
+                return;
+            }
+            sMainHandler.removeCallbacks(timeout);
+            if (exception != null) {
+                Log.w(LOG_TAG, "IMS query failed. " + key, exception);
+            }
+            callback.accept((value == null) ? defaultValue : value);
+        }));
+    }
+
+    /**
+     * Start an IMS query, or join the identical query in flight.
+     *
+     * @return the query, already completed when it has been answered recently
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> CompletableFuture<T> startQuery(String key, AsyncQuery<T> query)
+            throws ImsException {
+        final CachedResult cachedResult = sResults.get(key);
+        if (cachedResult != null) {
+            if (SystemClock.elapsedRealtime() - cachedResult.mTime < RESULT_CACHE_MILLIS) {
+                return CompletableFuture.completedFuture((T) cachedResult.mValue);
+            }
+            sResults.remove(key, cachedResult);
+        }
+
+        final int generation = sResultsGeneration.get();
+        final CompletableFuture<T> newQuery = new CompletableFuture<>();
+        final CompletableFuture<T> pendingQuery =
+                (CompletableFuture<T>) sPendingQueries.putIfAbsent(key, newQuery);
+        if (pendingQuery != null) {
+            return pendingQuery;
+        }
+        try {
+            query.start(value -> {
+                if (sPendingQueries.remove(key, newQuery) && (value != null)
+                        && (generation == sResultsGeneration.get())) {
+                    sResults.put(key, new CachedResult(value));
+                }
+                newQuery.complete(value);
+            });
+        } catch (ImsException | RuntimeException exception) {
+            sPendingQueries.remove(key, newQuery);
+            newQuery.completeExceptionally(exception);
+            throw exception;
+        }
+        return newQuery;
+    }
+
+    /**
+     * Drop the cached results and the queries in flight, which may no longer be valid for the
+     * current subscriptions and carrier configs.
+     */
+    @VisibleForTesting
+    static void invalidateResults() {
+        sResultsGeneration.incrementAndGet();
+        sResults.clear();
+        sPendingQueries.clear();
+    }
+
+    @VisibleForTesting
+    static void clearResults() {
+        sResults.clear();
+        sPendingQueries.clear();
+    }
+
+    private static synchronized void registerInvalidation(Context context) {
+        if (sInvalidationRegistered || (context == null)) {
+            return;
+        }
+        final Context appContext = (context.getApplicationContext() != null)
+                ? context.getApplicationContext() : context;
+        final SubscriptionManager subscriptionManager =
+                appContext.getSystemService(SubscriptionManager.class);
+        if (subscriptionManager == null) {
+            return;
+        }
+        sInvalidationRegistered = true;
+        subscriptionManager.addOnSubscriptionsChangedListener(Runnable::run,
+                new SubscriptionManager.OnSubscriptionsChangedListener() {
+                    @Override
+                    public void onSubscriptionsChanged() {
+                        invalidateResults();
+                    }
+                });
+        appContext.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                invalidateResults();
+            }
+        }, new IntentFilter(CarrierConfigManager.ACTION_CARRIER_CONFIG_CHANGED));
+    }
+
+    private static class CachedResult {
+        private final Object mValue;
+        private final long mTime;
+
+        CachedResult(Object value) {
+            mValue = value;
+            mTime = SystemClock.elapsedRealtime();
+        }
     }
 }
@@ -30,6 +30,8 @@ import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
 
+import java.util.function.Consumer;
+
 /**
  * Controller class for querying Volte status
  */
@@ -47,7 +49,7 @@ public class VolteQueryImsState extends ImsQueryController {
      * @param subId subscription's id
      */
     public VolteQueryImsState(Context context, int subId) {
-        super(MmTelFeature.MmTelCapabilities.CAPABILITY_TYPE_VOICE,
+        super(context, MmTelFeature.MmTelCapabilities.CAPABILITY_TYPE_VOICE,
                 ImsRegistrationImplBase.REGISTRATION_TECH_LTE,
                 AccessNetworkConstants.TRANSPORT_TYPE_WWAN);
         mContext = context;
@@ -105,6 +107,17 @@ public class VolteQueryImsState extends ImsQueryController {
         return false;
     }
 
+    /**
+     * Check whether VoLTE can be perform or not on this subscription, without blocking the
+     * caller while IMS answers
+     *
+     * @param callback called on the main thread with true when VoLTE can be performed,
+     *        otherwise false
+     */
+    public void isReadyToVoLte(Consumer<Boolean> callback) {
+        isReady(mSubId, callback);
+    }
+
     /**
      * Get allowance status for user to alter configuration
      *
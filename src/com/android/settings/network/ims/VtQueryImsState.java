@@ -44,7 +44,7 @@ public class VtQueryImsState extends ImsQueryController {
      * @param subId subscription's id
      */
     public VtQueryImsState(Context context, int subId) {
-        super(MmTelFeature.MmTelCapabilities.CAPABILITY_TYPE_VIDEO,
+        super(context, MmTelFeature.MmTelCapabilities.CAPABILITY_TYPE_VIDEO,
                 ImsRegistrationImplBase.REGISTRATION_TECH_LTE,
                 AccessNetworkConstants.TRANSPORT_TYPE_WWAN);
         mContext = context;
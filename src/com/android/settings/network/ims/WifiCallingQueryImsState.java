@@ -27,6 +27,8 @@ import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
 
+import java.util.function.Consumer;
+
 /**
  * Controller class for querying Wifi calling status
  */
@@ -44,7 +46,7 @@ public class WifiCallingQueryImsState extends ImsQueryController  {
      * @param subId subscription's id
      */
     public WifiCallingQueryImsState(Context context, int subId) {
-        super(MmTelFeature.MmTelCapabilities.CAPABILITY_TYPE_VOICE,
+        super(context, MmTelFeature.MmTelCapabilities.CAPABILITY_TYPE_VOICE,
                 ImsRegistrationImplBase.REGISTRATION_TECH_IWLAN,
                 AccessNetworkConstants.TRANSPORT_TYPE_WLAN);
         mContext = context;
@@ -108,6 +110,17 @@ public class WifiCallingQueryImsState extends ImsQueryController  {
         return false;
     }
 
+    /**
+     * Check whether Wifi Calling can be perform or not on this subscription, without blocking the
+     * caller while IMS answers
+     *
+     * @param callback called on the main thread with true when Wifi Calling can be performed,
+     *        otherwise false
+     */
+    public void isReadyToWifiCalling(Consumer<Boolean> callback) {
+        isReady(mSubId, callback);
+    }
+
     /**
      * Get allowance status for user to alter configuration
      *
@@ -40,6 +40,7 @@ import com.android.settings.network.ims.VolteQueryImsState;
 import com.android.settingslib.core.lifecycle.LifecycleObserver;
 import com.android.settingslib.core.lifecycle.events.OnStart;
 import com.android.settingslib.core.lifecycle.events.OnStop;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -59,6 +60,9 @@ public class Enhanced4gBasePreferenceController extends TelephonyTogglePreferenc
     boolean mIsNrEnabledFromCarrierConfig;
     private boolean mHas5gCapability;
     private Integer mCallState;
+    // Whether VoLTE is ready as last answered by IMS, null until IMS answers.
+    private Boolean mReadyToVoLte;
+    private boolean mReadyToVoLteQueried;
     private final List<On4gLteUpdateListener> m4gLteListeners;
 
     protected static final int MODE_NONE = -1;
@@ -77,6 +81,10 @@ public class Enhanced4gBasePreferenceController extends TelephonyTogglePreferenc
             mTelephonyCallback = new PhoneCallStateTelephonyCallback();
         }
 
+        if (subId != mSubId) {
+            mReadyToVoLte = null;
+            mReadyToVoLteQueried = false;
+        }
         mSubId = subId;
         final PersistableBundle carrierConfig = getCarrierConfigForSubId(subId);
         if (carrierConfig == null) {
@@ -118,7 +126,7 @@ public class Enhanced4gBasePreferenceController extends TelephonyTogglePreferenc
             return CONDITIONALLY_UNAVAILABLE;
         }
 
-        if (!queryState.isReadyToVoLte()) {
+        if (!isReadyToVoLte(queryState)) {
             return CONDITIONALLY_UNAVAILABLE;
         }
         return (isUserControlAllowed(carrierConfig) && queryState.isAllowUserControl())
@@ -133,6 +141,8 @@ public class Enhanced4gBasePreferenceController extends TelephonyTogglePreferenc
 
     @Override
     public void onStart() {
+        // Refresh the last answer of IMS when the availability is checked again.
+        mReadyToVoLteQueried = false;
         if (mTelephonyCallback == null) {
             return;
         }
@@ -210,6 +220,31 @@ public class Enhanced4gBasePreferenceController extends TelephonyTogglePreferenc
         return (mCallState != null) && (mCallState == TelephonyManager.CALL_STATE_IDLE);
     }
 
+    /**
+     * Off the main thread, waits for IMS to answer. On the main thread, answers from the last
+     * result of IMS, and updates the preference once IMS answers the query started here.
+     */
+    private boolean isReadyToVoLte(VolteQueryImsState queryState) {
+        if (!ThreadUtils.isMainThread()) {
+            return queryState.isReadyToVoLte();
+        }
+        if (!mReadyToVoLteQueried) {
+            mReadyToVoLteQueried = true;
+            final int subId = mSubId;
+            queryState.isReadyToVoLte(ready -> {
+                if ((subId != mSubId) || ready.equals(mReadyToVoLte)) {
+                    return;
+                }
+                mReadyToVoLte = ready;
+                if (mPreference != null) {
+                    mPreference.setVisible(isAvailable());
+                    updateState(mPreference);
+                }
+            });
+        }
+        return Boolean.TRUE.equals(mReadyToVoLte);
+    }
+
     private boolean isUserControlAllowed(final PersistableBundle carrierConfig) {
         return isCallStateIdle()
                 && (carrierConfig != null)
@@ -34,6 +34,7 @@ import android.telephony.ServiceState;
 import android.telephony.SignalStrength;
 import android.telephony.SubscriptionManager;
 import android.telephony.TelephonyManager;
+import android.util.ArrayMap;
 import android.util.Log;
 import android.view.View;
 
@@ -51,8 +52,9 @@ import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -356,31 +358,34 @@ public class NetworkSelectSettings extends DashboardFragment {
             return new ArrayList<>(cellInfoListInput);
         }
         ArrayList<CellInfo> aggregatedList = new ArrayList<>();
+        // Index within aggregatedList of each PLMN and RAT
+        Map<String, Integer> aggregatedIndexes = new ArrayMap<>();
         for (CellInfo cellInfo : cellInfoListInput) {
-            String plmn = CellInfoUtil.getNetworkTitle(cellInfo.getCellIdentity(),
-                    CellInfoUtil.getCellIdentityMccMnc(cellInfo.getCellIdentity()));
-            Class className = cellInfo.getClass();
-
-            Optional<CellInfo> itemInTheList = aggregatedList.stream().filter(
-                    item -> {
-                        String itemPlmn = CellInfoUtil.getNetworkTitle(item.getCellIdentity(),
-                                CellInfoUtil.getCellIdentityMccMnc(item.getCellIdentity()));
-                        return itemPlmn.equals(plmn) && item.getClass().equals(className);
-                    })
-                    .findFirst();
-            if (itemInTheList.isPresent()) {
-                if (cellInfo.isRegistered() && !itemInTheList.get().isRegistered()) {
+            String key = getOperatorKey(cellInfo);
+            Integer index = aggregatedIndexes.get(key);
+            if (index != null) {
+                if (cellInfo.isRegistered() && !aggregatedList.get(index).isRegistered()) {
                     // Adding the registered cellinfo item into list. If there are two registered
                     // cellinfo items, then select first one from source list.
-                    aggregatedList.set(aggregatedList.indexOf(itemInTheList.get()), cellInfo);
+                    aggregatedList.set(index, cellInfo);
                 }
                 continue;
             }
+            aggregatedIndexes.put(key, aggregatedList.size());
             aggregatedList.add(cellInfo);
         }
         return aggregatedList;
     }
 
+    /**
+     * Get the key of the operator of a cell, made of its PLMN and its RAT.
+     */
+    private static String getOperatorKey(CellInfo cellInfo) {
+        final CellIdentity cellId = cellInfo.getCellIdentity();
+        return CellInfoUtil.getNetworkTitle(cellId, CellInfoUtil.getCellIdentityMccMnc(cellId))
+                + "/" + cellInfo.getClass().getSimpleName();
+    }
+
     private final NetworkScanHelper.NetworkScanCallback mCallback =
             new NetworkScanHelper.NetworkScanCallback() {
                 public void onResults(List<CellInfo> results) {
@@ -444,60 +449,74 @@ public class NetworkSelectSettings extends DashboardFragment {
     }
 
     /**
-     * Update the content of network operators list.
+     * Update the content of network operators list. Operators are kept by PLMN and RAT across
+     * the scan results, so the ones already shown are updated in place and the new ones are
+     * inserted in order: the registered one first, then by name.
      *
      * @return preference which shows connected
      */
     private NetworkOperatorPreference updateAllPreferenceCategory() {
-        int numberOfPreferences = mPreferenceCategory.getPreferenceCount();
+        // index the operators shown, and remove the other preferences like status message
+        final Map<String, NetworkOperatorPreference> shownPreferences = new ArrayMap<>();
+        for (int index = mPreferenceCategory.getPreferenceCount() - 1; index >= 0; index--) {
+            final Preference rawPref = mPreferenceCategory.getPreference(index);
+            if ((rawPref instanceof NetworkOperatorPreference) && (rawPref.getKey() != null)) {
+                shownPreferences.put(rawPref.getKey(), (NetworkOperatorPreference) rawPref);
+            } else {
+                mPreferenceCategory.removePreference(rawPref);
+            }
+        }
 
-        // remove unused preferences
-        while (numberOfPreferences > mCellInfoList.size()) {
-            numberOfPreferences--;
-            mPreferenceCategory.removePreference(
-                    mPreferenceCategory.getPreference(numberOfPreferences));
+        // when not aggregated, tell apart the cells of the same operator
+        final Map<String, Integer> numberOfCells = new ArrayMap<>();
+        final List<String> keys = new ArrayList<>();
+        final List<Integer> sortedIndexes = new ArrayList<>();
+        for (int index = 0; index < mCellInfoList.size(); index++) {
+            final String operatorKey = getOperatorKey(mCellInfoList.get(index));
+            final int number = numberOfCells.getOrDefault(operatorKey, 0);
+            numberOfCells.put(operatorKey, number + 1);
+            keys.add((number == 0) ? operatorKey : operatorKey + "#" + number);
+            sortedIndexes.add(index);
         }
+        sortedIndexes.sort(Comparator
+                .comparing((Integer index) -> !mCellInfoList.get(index).isRegistered())
+                .thenComparing(index -> keys.get(index), String.CASE_INSENSITIVE_ORDER));
 
-        // update the content of preference
         NetworkOperatorPreference connectedPref = null;
-        for (int index = 0; index < mCellInfoList.size(); index++) {
-            final CellInfo cellInfo = mCellInfoList.get(index);
-
-            NetworkOperatorPreference pref = null;
-            if (index < numberOfPreferences) {
-                final Preference rawPref = mPreferenceCategory.getPreference(index);
-                if (rawPref instanceof NetworkOperatorPreference) {
-                    // replace existing preference
-                    pref = (NetworkOperatorPreference) rawPref;
-                    pref.updateCell(cellInfo);
-                } else {
-                    mPreferenceCategory.removePreference(rawPref);
-                }
-            }
-            if (pref == null) {
+        NetworkOperatorPreference selectedPref = mSelectedPreference;
+        for (int order = 0; order < sortedIndexes.size(); order++) {
+            final CellInfo cellInfo = mCellInfoList.get(sortedIndexes.get(order));
+            final String key = keys.get(sortedIndexes.get(order));
+
+            final boolean isSelected = (mSelectedPreference != null)
+                    && mSelectedPreference.isSameCell(cellInfo);
+            NetworkOperatorPreference pref = shownPreferences.remove(key);
+            if (pref != null) {
+                // update signal strength of existing preference
+                pref.updateCell(cellInfo);
+            } else {
                 // add new preference
                 pref = createNetworkOperatorPreference(cellInfo);
-                pref.setOrder(index);
+                pref.setKey(key);
                 mPreferenceCategory.addPreference(pref);
             }
-            pref.setKey(pref.getOperatorName());
+            pref.setOrder(order);
 
-            if (mCellInfoList.get(index).isRegistered()) {
+            if (cellInfo.isRegistered()) {
                 pref.setSummary(R.string.network_connected);
                 connectedPref = pref;
             } else {
                 pref.setSummary(null);
             }
+            if (isSelected) {
+                selectedPref = pref;
+            }
         }
+        mSelectedPreference = selectedPref;
 
-        // update selected preference instance by index
-        for (int index = 0; index < mCellInfoList.size(); index++) {
-            final CellInfo cellInfo = mCellInfoList.get(index);
-
-            if ((mSelectedPreference != null) && mSelectedPreference.isSameCell(cellInfo)) {
-                mSelectedPreference = (NetworkOperatorPreference)
-                        (mPreferenceCategory.getPreference(index));
-            }
+        // remove operators which are not found anymore
+        for (NetworkOperatorPreference pref : shownPreferences.values()) {
+            mPreferenceCategory.removePreference(pref);
         }
 
         return connectedPref;
@@ -41,6 +41,7 @@ import com.android.settings.network.ims.WifiCallingQueryImsState;
 import com.android.settingslib.core.lifecycle.LifecycleObserver;
 import com.android.settingslib.core.lifecycle.events.OnStart;
 import com.android.settingslib.core.lifecycle.events.OnStop;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.List;
 
@@ -62,6 +63,9 @@ public class WifiCallingPreferenceController extends TelephonyBasePreferenceCont
     PhoneAccountHandle mSimCallManager;
     private PhoneTelephonyCallback mTelephonyCallback;
     private Preference mPreference;
+    // Whether Wi-Fi calling is ready as last answered by IMS, null until IMS answers.
+    private Boolean mReadyToWifiCalling;
+    private boolean mReadyToWifiCallingQueried;
 
     public WifiCallingPreferenceController(Context context, String key) {
         super(context, key);
@@ -71,14 +75,28 @@ public class WifiCallingPreferenceController extends TelephonyBasePreferenceCont
 
     @Override
     public int getAvailabilityStatus(int subId) {
-        return SubscriptionManager.isValidSubscriptionId(subId)
-                && MobileNetworkUtils.isWifiCallingEnabled(mContext, subId, null, null)
+        if (!SubscriptionManager.isValidSubscriptionId(subId)) {
+            return UNSUPPORTED_ON_DEVICE;
+        }
+        final PhoneAccountHandle simCallManager = mContext.getSystemService(TelecomManager.class)
+                .getSimCallManagerForSubscription(subId);
+        if ((simCallManager == null) && (subId == mSubId) && ThreadUtils.isMainThread()) {
+            // Don't wait for IMS on the main thread, the preference shows once IMS answers.
+            queryReadyToWifiCalling(subId);
+            if (mReadyToWifiCalling == null) {
+                return CONDITIONALLY_UNAVAILABLE;
+            }
+            return mReadyToWifiCalling ? AVAILABLE : UNSUPPORTED_ON_DEVICE;
+        }
+        return MobileNetworkUtils.isWifiCallingEnabled(mContext, subId, null, simCallManager)
                 ? AVAILABLE
                 : UNSUPPORTED_ON_DEVICE;
     }
 
     @Override
     public void onStart() {
+        // Refresh the last answer of IMS when the availability is checked again.
+        mReadyToWifiCallingQueried = false;
         mTelephonyCallback.register(mContext, mSubId);
     }
 
@@ -163,6 +181,10 @@ public class WifiCallingPreferenceController extends TelephonyBasePreferenceCont
     }
 
     public WifiCallingPreferenceController init(int subId) {
+        if (subId != mSubId) {
+            mReadyToWifiCalling = null;
+            mReadyToWifiCallingQueried = false;
+        }
         mSubId = subId;
         mImsMmTelManager = getImsMmTelManager(mSubId);
         mSimCallManager = mContext.getSystemService(TelecomManager.class)
@@ -171,6 +193,27 @@ public class WifiCallingPreferenceController extends TelephonyBasePreferenceCont
         return this;
     }
 
+    /**
+     * Query IMS once per start without blocking, and update the preference when the answer
+     * differs from the last one.
+     */
+    private void queryReadyToWifiCalling(int subId) {
+        if (mReadyToWifiCallingQueried) {
+            return;
+        }
+        mReadyToWifiCallingQueried = true;
+        queryImsState(subId).isReadyToWifiCalling(ready -> {
+            if ((subId != mSubId) || ready.equals(mReadyToWifiCalling)) {
+                return;
+            }
+            mReadyToWifiCalling = ready;
+            if (mPreference != null) {
+                mPreference.setVisible(isAvailable());
+                updateState(mPreference);
+            }
+        });
+    }
+
     @VisibleForTesting
     WifiCallingQueryImsState queryImsState(int subId) {
         return new WifiCallingQueryImsState(mContext, subId);
@@ -28,6 +28,8 @@ import android.content.pm.ServiceInfo;
 import android.util.ArraySet;
 import android.util.Slog;
 
+import com.android.settings.applications.InstalledPackagesSnapshot;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -72,8 +74,9 @@ public class ZenServiceListing {
 
         List<String> enabledNotificationListenerPkgs = mNm.getEnabledNotificationListenerPackages();
         List<ComponentInfo> components = new ArrayList<>();
-        getServices(mConfig, components, mContext.getPackageManager());
-        getActivities(mConfig, components, mContext.getPackageManager());
+        final InstalledPackagesSnapshot snapshot = InstalledPackagesSnapshot.getInstance(mContext);
+        getServices(mConfig, components, snapshot);
+        getActivities(mConfig, components, snapshot);
         for (ComponentInfo componentInfo : components) {
             final String pkg = componentInfo.getComponentName().getPackageName();
             if (mNm.isNotificationPolicyAccessGrantedForPackage(pkg)
@@ -90,10 +93,10 @@ public class ZenServiceListing {
     }
 
     private static void getServices(ManagedServiceSettings.Config c, List<ComponentInfo> list,
-            PackageManager pm) {
+            InstalledPackagesSnapshot snapshot) {
         final int user = ActivityManager.getCurrentUser();
 
-        List<ResolveInfo> installedServices = pm.queryIntentServicesAsUser(
+        List<ResolveInfo> installedServices = snapshot.queryIntentServices(
                 new Intent(c.intentAction),
                 PackageManager.GET_SERVICES | PackageManager.GET_META_DATA,
                 user);
@@ -116,10 +119,10 @@ public class ZenServiceListing {
     }
 
     private static void getActivities(ManagedServiceSettings.Config c, List<ComponentInfo> list,
-            PackageManager pm) {
+            InstalledPackagesSnapshot snapshot) {
         final int user = ActivityManager.getCurrentUser();
 
-        List<ResolveInfo> resolveInfos = pm.queryIntentActivitiesAsUser(
+        List<ResolveInfo> resolveInfos = snapshot.queryIntentActivities(
                 new Intent(c.configIntentAction),
                 PackageManager.GET_ACTIVITIES | PackageManager.GET_META_DATA,
                 user);
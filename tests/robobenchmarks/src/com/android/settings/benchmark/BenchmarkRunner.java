@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.benchmark;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import static org.junit.Assume.assumeTrue;
+
+import android.os.Bundle;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput and allocation rate of an operation, and compares its allocations
+ * against the baseline in {@code benchmark_baseline.properties}.
+ *
+ * Throughput is only reported. It depends on the load of the host too much to fail a build,
+ * while the allocations of an operation are stable from one run to the next. Results are
+ * reported as instrumentation status, and in the failure message of the benchmark. A benchmark
+ * without a baseline fails, unless a new baseline is being recorded.
+ */
+public final class BenchmarkRunner {
+
+    private static final String BASELINE_RESOURCE = "/benchmark_baseline.properties";
+    private static final String ENV_BASELINE_OUT = "SETTINGS_BENCHMARK_BASELINE_OUT";
+    private static final String KEY_BYTES_PER_OP = ".bytesPerOp";
+
+    private static final long WARMUP_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MEASURE_NANOS = TimeUnit.SECONDS.toNanos(3);
+    private static final int MIN_ITERATIONS = 5;
+
+    /** How much more than its baseline a benchmark may allocate. */
+    private static final double ALLOCATION_TOLERANCE = 0.1;
+
+    private static Properties sBaseline;
+
+    private BenchmarkRunner() {
+    }
+
+    /** The outcome of a benchmark. */
+    public static final class Result {
+        public final String name;
+        public final double opsPerSecond;
+        /** Bytes allocated per operation, or -1 if the JVM cannot measure them. */
+        public final long bytesPerOp;
+
+        Result(String name, double opsPerSecond, long bytesPerOp) {
+            this.name = name;
+            this.opsPerSecond = opsPerSecond;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        /** Bytes allocated per second, or -1 if the JVM cannot measure them. */
+        public double getBytesPerSecond() {
+            return bytesPerOp < 0 ? -1 : bytesPerOp * opsPerSecond;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: %.1f ops/s, %d bytes/op, %.1f MB/s", name,
+                    opsPerSecond, bytesPerOp, getBytesPerSecond() / (1024 * 1024));
+        }
+    }
+
+    /**
+     * Runs {@code operation} repeatedly, reports its throughput and allocation rate, and fails
+     * if it allocates more than in the baseline.
+     */
+    public static Result run(String name, Runnable operation) {
+        runFor(operation, WARMUP_NANOS);
+
+        final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        final long startBytes = getAllocatedBytes(threadBean, threadId);
+        final long startTime = System.nanoTime();
+        final int iterations = runFor(operation, MEASURE_NANOS);
+        final long elapsedNanos = System.nanoTime() - startTime;
+        final long endBytes = getAllocatedBytes(threadBean, threadId);
+
+        final Result result = new Result(name,
+                iterations * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos,
+                (startBytes < 0 || endBytes < 0) ? -1 : (endBytes - startBytes) / iterations);
+        report(result);
+        writeBaseline(result);
+        checkBaseline(result);
+        return result;
+    }
+
+    private static int runFor(Runnable operation, long durationNanos) {
+        final long startTime = System.nanoTime();
+        int iterations = 0;
+        while (iterations < MIN_ITERATIONS || System.nanoTime() - startTime < durationNanos) {
+            operation.run();
+            iterations++;
+        }
+        return iterations;
+    }
+
+    private static long getAllocatedBytes(ThreadMXBean threadBean, long threadId) {
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadBean)
+                    .getThreadAllocatedBytes(threadId);
+        }
+        return -1;
+    }
+
+    private static void report(Result result) {
+        final Bundle status = new Bundle();
+        status.putString(result.name + "_ops_per_second",
+                String.format(Locale.US, "%.1f", result.opsPerSecond));
+        status.putString(result.name + "_bytes_per_op", String.valueOf(result.bytesPerOp));
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, status);
+    }
+
+    private static void checkBaseline(Result result) {
+        if (System.getenv(ENV_BASELINE_OUT) != null) {
+            // The baseline is being recorded, so it does not gate the run.
+            return;
+        }
+        assumeTrue("Cannot measure the allocations of " + result, result.bytesPerOp >= 0);
+
+        final String bytesPerOp = getBaseline().getProperty(result.name + KEY_BYTES_PER_OP);
+        assertWithMessage(result + "\nNo baseline in " + BASELINE_RESOURCE + ", record one with "
+                + ENV_BASELINE_OUT).that(bytesPerOp).isNotNull();
+        final double maxBytesPerOp =
+                Double.parseDouble(bytesPerOp) * (1 + ALLOCATION_TOLERANCE);
+        assertWithMessage(result + "\nAllocation (bytes/op) over the baseline of " + bytesPerOp)
+                .that((double) result.bytesPerOp).isAtMost(maxBytesPerOp);
+    }
+
+    private static synchronized Properties getBaseline() {
+        if (sBaseline == null) {
+            sBaseline = new Properties();
+            try (InputStream in = BenchmarkRunner.class.getResourceAsStream(BASELINE_RESOURCE)) {
+                if (in != null) {
+                    sBaseline.load(in);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot read " + BASELINE_RESOURCE, e);
+            }
+        }
+        return sBaseline;
+    }
+
+    private static void writeBaseline(Result result) {
+        final String path = System.getenv(ENV_BASELINE_OUT);
+        if (path == null) {
+            return;
+        }
+        if (result.bytesPerOp < 0) {
+            return;
+        }
+        try (Writer writer = new FileWriter(path, /* append= */ true)) {
+            writer.write(result.name + KEY_BYTES_PER_OP + "=" + result.bytesPerOp
+                    + System.lineSeparator());
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write " + path, e);
+        }
+    }
+}
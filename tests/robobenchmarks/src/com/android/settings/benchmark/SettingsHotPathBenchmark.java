@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.benchmark;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.when;
+
+import android.Manifest;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.pm.ProviderInfo;
+import android.database.Cursor;
+
+import com.android.settings.R;
+import com.android.settings.core.PreferenceXmlParserUtils;
+import com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag;
+import com.android.settings.fuelgauge.batteryusage.BatteryHistEntry;
+import com.android.settings.fuelgauge.batteryusage.ConvertUtils;
+import com.android.settings.fuelgauge.batteryusage.DataProcessor;
+import com.android.settings.homepage.TopLevelSettings;
+import com.android.settings.search.SearchFeatureProviderImpl;
+import com.android.settings.search.SettingsSearchIndexablesProvider;
+import com.android.settings.slices.SliceDataConverter;
+import com.android.settings.testutils.FakeFeatureFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Benchmarks of Settings hot paths. See {@link BenchmarkRunner} for how they are measured and
+ * checked against the baseline.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SettingsHotPathBenchmark {
+
+    // Timezone GMT+8: 2022-01-01 00:00:00
+    private static final long START_TIMESTAMP = 1640966400000L;
+    private static final long HOUR_IN_MILLIS = 60 * 60 * 1000L;
+    private static final int HISTORY_HOURS = 48;
+    private static final int APP_COUNT = 30;
+    private static final int TIME_SLOT_SIZE = 2;
+
+    private Context mContext;
+    private FakeFeatureFactory mFeatureFactory;
+    private TimeZone mDefaultTimeZone;
+    /** Keeps the results alive so that the operations cannot be optimized away. */
+    private Object mSink;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mFeatureFactory = FakeFeatureFactory.setupForTest();
+        mFeatureFactory.searchFeatureProvider = new SearchFeatureProviderImpl();
+        when(mFeatureFactory.dashboardFeatureProvider
+                .getTilesForCategory(nullable(String.class)))
+                .thenReturn(null);
+        mDefaultTimeZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("GMT+8"));
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(mDefaultTimeZone);
+    }
+
+    @Test
+    public void preferenceXmlParserUtils_extractMetadata() {
+        BenchmarkRunner.run("PreferenceXmlParserUtils.extractMetadata", () -> {
+            try {
+                mSink = PreferenceXmlParserUtils.extractMetadata(mContext,
+                        R.xml.top_level_settings,
+                        MetadataFlag.FLAG_NEED_KEY | MetadataFlag.FLAG_NEED_PREF_CONTROLLER
+                                | MetadataFlag.FLAG_INCLUDE_PREF_SCREEN
+                                | MetadataFlag.FLAG_FOR_WORK);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(mSink).isNotNull();
+    }
+
+    @Test
+    public void sliceDataConverter_getSliceData() {
+        final SliceDataConverter converter = new SliceDataConverter(mContext);
+
+        BenchmarkRunner.run("SliceDataConverter.getSliceData",
+                () -> mSink = converter.getSliceData());
+        assertThat(mSink).isNotNull();
+    }
+
+    @Test
+    public void settingsSearchIndexablesProvider_query() {
+        final SettingsSearchIndexablesProvider provider = new SettingsSearchIndexablesProvider();
+        final ProviderInfo info = new ProviderInfo();
+        info.exported = true;
+        info.grantUriPermissions = true;
+        info.authority = mContext.getPackageName();
+        info.readPermission = Manifest.permission.READ_SEARCH_INDEXABLES;
+        provider.attachInfo(mContext, info);
+
+        BenchmarkRunner.run("SettingsSearchIndexablesProvider.query", () -> {
+            try (Cursor xmlResources = provider.queryXmlResources(null);
+                 Cursor nonIndexableKeys = provider.queryNonIndexableKeys(null)) {
+                mSink = xmlResources.getCount() + nonIndexableKeys.getCount();
+            }
+        });
+        assertThat(mSink).isNotNull();
+    }
+
+    @Test
+    public void dataProcessor_getBatteryUsageData() {
+        final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap =
+                createBatteryHistoryMap(createTimestamps());
+
+        BenchmarkRunner.run("DataProcessor.getBatteryUsageData",
+                () -> mSink = DataProcessor.getBatteryUsageData(mContext, batteryHistoryMap));
+        assertThat(mSink).isNotNull();
+    }
+
+    @Test
+    public void convertUtils_getIndexedUsageMap() {
+        final long[] timestamps = createTimestamps();
+        final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap =
+                createBatteryHistoryMap(timestamps);
+
+        BenchmarkRunner.run("ConvertUtils.getIndexedUsageMap",
+                () -> mSink = ConvertUtils.getIndexedUsageMap(mContext, TIME_SLOT_SIZE,
+                        timestamps, batteryHistoryMap,
+                        /* purgeLowPercentageAndFakeData= */ true));
+        assertThat(mSink).isNotNull();
+    }
+
+    @Test
+    public void dashboardFragment_onAttach() {
+        BenchmarkRunner.run("DashboardFragment.onAttach", () -> {
+            final TopLevelSettings fragment = new TopLevelSettings() {
+                @Override
+                public Context getContext() {
+                    return mContext;
+                }
+            };
+            fragment.onAttach(mContext);
+            mSink = fragment;
+        });
+        assertThat(mSink).isNotNull();
+    }
+
+    private static long[] createTimestamps() {
+        final long[] timestamps = new long[HISTORY_HOURS + 1];
+        for (int index = 0; index < timestamps.length; index++) {
+            timestamps[index] = START_TIMESTAMP + index * HOUR_IN_MILLIS;
+        }
+        return timestamps;
+    }
+
+    /** Creates a history where every app uses more battery each hour. */
+    private static Map<Long, Map<String, BatteryHistEntry>> createBatteryHistoryMap(
+            long[] timestamps) {
+        final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap = new HashMap<>();
+        for (int index = 0; index < timestamps.length; index++) {
+            final Map<String, BatteryHistEntry> entryMap = new HashMap<>();
+            for (int app = 0; app < APP_COUNT; app++) {
+                final ContentValues values = new ContentValues();
+                values.put(BatteryHistEntry.KEY_PACKAGE_NAME, "package" + app);
+                values.put(BatteryHistEntry.KEY_APP_LABEL, "label" + app);
+                values.put(BatteryHistEntry.KEY_UID, 10000L + app);
+                values.put(BatteryHistEntry.KEY_USER_ID, 0L);
+                values.put(BatteryHistEntry.KEY_CONSUMER_TYPE,
+                        ConvertUtils.CONSUMER_TYPE_UID_BATTERY);
+                values.put(BatteryHistEntry.KEY_CONSUME_POWER, (double) (index * (app + 1)));
+                values.put(BatteryHistEntry.KEY_FOREGROUND_USAGE_TIME, index * 60000L);
+                values.put(BatteryHistEntry.KEY_BACKGROUND_USAGE_TIME, index * 30000L);
+                values.put(BatteryHistEntry.KEY_TIMESTAMP, timestamps[index]);
+                values.put(BatteryHistEntry.KEY_BATTERY_LEVEL, 100 - index);
+                final BatteryHistEntry entry = new BatteryHistEntry(values);
+                entryMap.put(entry.getKey(), entry);
+            }
+            batteryHistoryMap.put(timestamps[index], entryMap);
+        }
+        return batteryHistoryMap;
+    }
+}
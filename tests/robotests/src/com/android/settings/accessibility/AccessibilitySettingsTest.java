@@ -49,6 +49,7 @@ import android.provider.Settings;
 import android.view.accessibility.AccessibilityManager;
 
 import androidx.fragment.app.FragmentActivity;
+import androidx.preference.Preference;
 import androidx.preference.PreferenceManager;
 import androidx.test.core.app.ApplicationProvider;
 
@@ -80,12 +81,15 @@ import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /** Test for {@link AccessibilitySettings}. */
 @RunWith(RobolectricTestRunner.class)
 public class AccessibilitySettingsTest {
     private static final String PACKAGE_NAME = "com.android.test";
+    private static final String OTHER_PACKAGE_NAME = "com.android.test.other";
     private static final String CLASS_NAME = PACKAGE_NAME + ".test_a11y_service";
     private static final ComponentName COMPONENT_NAME = new ComponentName(PACKAGE_NAME, CLASS_NAME);
     private static final String EMPTY_STRING = "";
@@ -324,6 +328,29 @@ public class AccessibilitySettingsTest {
 
     }
 
+    @Test
+    @Config(shadows = {ShadowFragment.class, ShadowUserManager.class})
+    public void onPackagesChanged_shouldOnlyUpdateChangedPackages() {
+        final AccessibilityServiceInfo otherServiceInfo = getMockAccessibilityServiceInfo(
+                OTHER_PACKAGE_NAME, CLASS_NAME);
+        final ComponentName otherComponentName = new ComponentName(OTHER_PACKAGE_NAME,
+                CLASS_NAME);
+        mShadowAccessibilityManager.setInstalledAccessibilityServiceList(
+                singletonList(otherServiceInfo));
+        setupFragment();
+        final Preference otherPreference = mFragment.getPreferenceScreen().findPreference(
+                otherComponentName.flattenToString());
+        mShadowAccessibilityManager.setInstalledAccessibilityServiceList(
+                Arrays.asList(mServiceInfo, otherServiceInfo));
+
+        mFragment.onPackagesChanged(Collections.singleton(PACKAGE_NAME));
+
+        assertThat(mFragment.getPreferenceScreen().<Preference>findPreference(
+                COMPONENT_NAME.flattenToString())).isNotNull();
+        assertThat(mFragment.getPreferenceScreen().<Preference>findPreference(
+                otherComponentName.flattenToString())).isSameInstanceAs(otherPreference);
+    }
+
     private AccessibilityServiceInfo getMockAccessibilityServiceInfo(String packageName,
             String className) {
         final ApplicationInfo applicationInfo = new ApplicationInfo();
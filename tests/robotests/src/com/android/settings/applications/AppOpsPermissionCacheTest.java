@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.app.AppOpsManager;
+import android.content.pm.IPackageManager;
+import android.os.RemoteException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppOpsPermissionCacheTest {
+
+    private static final String PERMISSION = "android.permission.SYSTEM_ALERT_WINDOW";
+    private static final String PACKAGE_NAME = "com.example.app";
+    private static final int USER_ID = 0;
+    private static final int[] OPS = {AppOpsManager.OP_SYSTEM_ALERT_WINDOW};
+
+    @Mock
+    private IPackageManager mPackageManager;
+    @Mock
+    private AppOpsManager mAppOpsManager;
+
+    private AppOpsPermissionCache mCache;
+
+    @Before
+    public void setUp() throws RemoteException {
+        MockitoAnnotations.initMocks(this);
+        when(mPackageManager.getAppOpPermissionPackages(PERMISSION))
+                .thenReturn(new String[] {PACKAGE_NAME});
+        when(mPackageManager.isPackageAvailable(PACKAGE_NAME, USER_ID)).thenReturn(true);
+        when(mAppOpsManager.getPackagesForOps(any(int[].class))).thenReturn(new ArrayList<>());
+        mCache = new AppOpsPermissionCache(mPackageManager, mAppOpsManager);
+    }
+
+    @Test
+    public void getAppOpPermissionPackages_calledTwice_shouldQueryOnce() throws RemoteException {
+        assertThat(mCache.getAppOpPermissionPackages(PERMISSION)).asList()
+                .containsExactly(PACKAGE_NAME);
+        assertThat(mCache.getAppOpPermissionPackages(PERMISSION)).asList()
+                .containsExactly(PACKAGE_NAME);
+
+        verify(mPackageManager, times(1)).getAppOpPermissionPackages(PERMISSION);
+    }
+
+    @Test
+    public void isPackageAvailable_afterPackageChanged_shouldQueryAgain() throws RemoteException {
+        assertThat(mCache.isPackageAvailable(PACKAGE_NAME, USER_ID)).isTrue();
+        mCache.onPackageChanged(PACKAGE_NAME, USER_ID);
+        assertThat(mCache.isPackageAvailable(PACKAGE_NAME, USER_ID)).isTrue();
+
+        verify(mPackageManager, times(2)).isPackageAvailable(PACKAGE_NAME, USER_ID);
+    }
+
+    @Test
+    public void getPackagesForOps_afterUnrelatedOpChanged_shouldNotQueryAgain() {
+        mCache.getPackagesForOps(OPS);
+        mCache.onOpChanged(AppOpsManager.OP_WRITE_SETTINGS);
+        mCache.getPackagesForOps(OPS);
+
+        verify(mAppOpsManager, times(1)).getPackagesForOps(OPS);
+    }
+
+    @Test
+    public void getPackagesForOps_afterOpChanged_shouldQueryAgain() {
+        mCache.getPackagesForOps(OPS);
+        mCache.onOpChanged(AppOpsManager.OP_SYSTEM_ALERT_WINDOW);
+        mCache.getPackagesForOps(OPS);
+
+        verify(mAppOpsManager, times(2)).getPackagesForOps(OPS);
+    }
+
+    @Test
+    public void onOpChanged_shouldNotifyListenerAfterDroppingOps() {
+        final List<Integer> changedOps = new ArrayList<>();
+        mCache.getPackagesForOps(OPS);
+        mCache.addOnOpChangedListener(op -> {
+            // Reloading from the listener must see the change.
+            mCache.getPackagesForOps(OPS);
+            changedOps.add(op);
+        });
+
+        mCache.onOpChanged(AppOpsManager.OP_SYSTEM_ALERT_WINDOW);
+
+        assertThat(changedOps).containsExactly(AppOpsManager.OP_SYSTEM_ALERT_WINDOW);
+        verify(mAppOpsManager, times(2)).getPackagesForOps(OPS);
+    }
+
+    @Test
+    public void getPackagesForOps_opChangedWhileLoading_shouldNotCacheResult() {
+        when(mAppOpsManager.getPackagesForOps(OPS)).thenAnswer(invocation -> {
+            mCache.onOpChanged(AppOpsManager.OP_SYSTEM_ALERT_WINDOW);
+            return new ArrayList<>();
+        }).thenReturn(new ArrayList<>());
+
+        mCache.getPackagesForOps(OPS);
+        mCache.getPackagesForOps(OPS);
+
+        verify(mAppOpsManager, times(2)).getPackagesForOps(OPS);
+    }
+}
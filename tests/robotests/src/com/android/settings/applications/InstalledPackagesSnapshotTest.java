@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.ComponentCallbacks2;
+import android.content.Intent;
+import android.content.pm.ActivityInfo;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class InstalledPackagesSnapshotTest {
+
+    private static final int USER_ID = 0;
+    private static final int OTHER_USER_ID = 10;
+    private static final String PACKAGE_1 = "com.example.app1";
+    private static final String PACKAGE_2 = "com.example.app2";
+    private static final String PACKAGE_3 = "com.example.app3";
+
+    @Mock
+    private PackageManager mPackageManager;
+
+    private InstalledPackagesSnapshot mSnapshot;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mSnapshot = new InstalledPackagesSnapshot(mPackageManager);
+    }
+
+    @Test
+    public void getInstalledApplications_calledTwice_shouldLoadOnce() {
+        when(mPackageManager.getInstalledApplicationsAsUser(0, USER_ID))
+                .thenReturn(createApplications(PACKAGE_1, PACKAGE_2));
+
+        mSnapshot.getInstalledApplications(0, USER_ID);
+        final List<ApplicationInfo> applications = mSnapshot.getInstalledApplications(0, USER_ID);
+
+        assertThat(applications).hasSize(2);
+        verify(mPackageManager, times(1)).getInstalledApplicationsAsUser(0, USER_ID);
+        assertThat(mSnapshot.getMissCount()).isEqualTo(1);
+        assertThat(mSnapshot.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void getInstalledApplications_withFilter_shouldReturnAcceptedApplications() {
+        when(mPackageManager.getInstalledApplicationsAsUser(0, USER_ID))
+                .thenReturn(createApplications(PACKAGE_1, PACKAGE_2));
+
+        final List<ApplicationInfo> applications = mSnapshot.getInstalledApplications(0, USER_ID,
+                info -> PACKAGE_2.equals(info.packageName));
+
+        assertThat(applications).hasSize(1);
+        assertThat(applications.get(0).packageName).isEqualTo(PACKAGE_2);
+    }
+
+    @Test
+    public void onPackageChanged_shouldOnlyReloadChangedPackage() throws Exception {
+        when(mPackageManager.getInstalledApplicationsAsUser(0, USER_ID))
+                .thenReturn(createApplications(PACKAGE_1, PACKAGE_2));
+        when(mPackageManager.getApplicationInfoAsUser(PACKAGE_2, 0, USER_ID))
+                .thenThrow(new PackageManager.NameNotFoundException());
+        mSnapshot.getInstalledApplications(0, USER_ID);
+
+        mSnapshot.onPackageChanged(PACKAGE_2, USER_ID);
+        final List<ApplicationInfo> applications = mSnapshot.getInstalledApplications(0, USER_ID);
+
+        assertThat(applications).hasSize(1);
+        assertThat(applications.get(0).packageName).isEqualTo(PACKAGE_1);
+        verify(mPackageManager, times(1)).getInstalledApplicationsAsUser(0, USER_ID);
+        verify(mPackageManager, never()).getApplicationInfoAsUser(eq(PACKAGE_1), anyInt(),
+                anyInt());
+    }
+
+    @Test
+    public void onPackageChanged_otherUser_shouldNotReload() throws Exception {
+        when(mPackageManager.getInstalledApplicationsAsUser(0, USER_ID))
+                .thenReturn(createApplications(PACKAGE_1));
+        mSnapshot.getInstalledApplications(0, USER_ID);
+
+        mSnapshot.onPackageChanged(PACKAGE_1, OTHER_USER_ID);
+        mSnapshot.getInstalledApplications(0, USER_ID);
+
+        verify(mPackageManager, never()).getApplicationInfoAsUser(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void onPackageChanged_shouldKeepOrderOfApplications() throws Exception {
+        when(mPackageManager.getInstalledApplicationsAsUser(0, USER_ID))
+                .thenReturn(createApplications(PACKAGE_1, PACKAGE_2, PACKAGE_3));
+        final ApplicationInfo updatedInfo = createApplications(PACKAGE_2).get(0);
+        when(mPackageManager.getApplicationInfoAsUser(PACKAGE_2, 0, USER_ID))
+                .thenReturn(updatedInfo);
+        mSnapshot.getInstalledApplications(0, USER_ID);
+
+        mSnapshot.onPackageChanged(PACKAGE_2, USER_ID);
+        final List<ApplicationInfo> applications = mSnapshot.getInstalledApplications(0, USER_ID);
+
+        assertThat(applications).hasSize(3);
+        assertThat(applications.get(0).packageName).isEqualTo(PACKAGE_1);
+        assertThat(applications.get(1)).isSameInstanceAs(updatedInfo);
+        assertThat(applications.get(2).packageName).isEqualTo(PACKAGE_3);
+    }
+
+    @Test
+    public void queryIntentActivities_packageAdded_shouldQueryAgainInPriorityOrder() {
+        final Intent intent = new Intent(Intent.ACTION_MAIN).addCategory(Intent.CATEGORY_LAUNCHER);
+        when(mPackageManager.queryIntentActivitiesAsUser(any(Intent.class), anyInt(),
+                eq(USER_ID)))
+                .thenReturn(createResolveInfos(PACKAGE_1))
+                .thenReturn(createResolveInfos(PACKAGE_2, PACKAGE_1));
+        mSnapshot.queryIntentActivities(intent, 0, USER_ID);
+
+        mSnapshot.onPackageChanged(PACKAGE_2, USER_ID);
+        final List<ResolveInfo> resolveInfos = mSnapshot.queryIntentActivities(intent, 0, USER_ID);
+
+        assertThat(resolveInfos).hasSize(2);
+        assertThat(resolveInfos.get(0).activityInfo.packageName).isEqualTo(PACKAGE_2);
+        assertThat(resolveInfos.get(1).activityInfo.packageName).isEqualTo(PACKAGE_1);
+    }
+
+    @Test
+    public void onUserRemoved_shouldDropQueriesOfUser() {
+        when(mPackageManager.getInstalledApplicationsAsUser(0, OTHER_USER_ID))
+                .thenReturn(createApplications(PACKAGE_1));
+        mSnapshot.getInstalledApplications(0, OTHER_USER_ID);
+
+        mSnapshot.onUserRemoved(OTHER_USER_ID);
+        mSnapshot.getInstalledApplications(0, OTHER_USER_ID);
+
+        verify(mPackageManager, times(2)).getInstalledApplicationsAsUser(0, OTHER_USER_ID);
+    }
+
+    @Test
+    public void invalidate_shouldReloadEverything() {
+        when(mPackageManager.getInstalledApplicationsAsUser(0, USER_ID))
+                .thenReturn(createApplications(PACKAGE_1));
+        mSnapshot.getInstalledApplications(0, USER_ID);
+
+        mSnapshot.invalidate();
+        mSnapshot.getInstalledApplications(0, USER_ID);
+
+        verify(mPackageManager, times(2)).getInstalledApplicationsAsUser(0, USER_ID);
+        assertThat(mSnapshot.getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void getInstalledApplications_whileLoading_shouldLoadOnceAndNotBlockOtherQueries()
+            throws Exception {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch loaded = new CountDownLatch(1);
+        when(mPackageManager.getInstalledApplicationsAsUser(0, USER_ID)).thenAnswer(invocation -> {
+            loading.countDown();
+            loaded.await(5, TimeUnit.SECONDS);
+            return createApplications(PACKAGE_1);
+        });
+        when(mPackageManager.getInstalledApplicationsAsUser(0, OTHER_USER_ID))
+                .thenReturn(createApplications(PACKAGE_2));
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final Future<List<ApplicationInfo>> first =
+                executor.submit(() -> mSnapshot.getInstalledApplications(0, USER_ID));
+        loading.await(5, TimeUnit.SECONDS);
+        final Future<List<ApplicationInfo>> second =
+                executor.submit(() -> mSnapshot.getInstalledApplications(0, USER_ID));
+
+        assertThat(mSnapshot.getInstalledApplications(0, OTHER_USER_ID)).hasSize(1);
+        loaded.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).hasSize(1);
+        assertThat(second.get(5, TimeUnit.SECONDS)).hasSize(1);
+        verify(mPackageManager, times(1)).getInstalledApplicationsAsUser(0, USER_ID);
+        executor.shutdown();
+    }
+
+    @Test
+    public void getInstalledApplications_unusedForTimeout_shouldReload() {
+        when(mPackageManager.getInstalledApplicationsAsUser(0, USER_ID))
+                .thenReturn(createApplications(PACKAGE_1));
+        mSnapshot.getInstalledApplications(0, USER_ID);
+
+        ShadowSystemClock.advanceBy(
+                Duration.ofMillis(InstalledPackagesSnapshot.UNUSED_ENTRY_TIMEOUT_MS));
+        mSnapshot.getInstalledApplications(0, USER_ID);
+
+        verify(mPackageManager, times(2)).getInstalledApplicationsAsUser(0, USER_ID);
+    }
+
+    @Test
+    public void onTrimMemory_background_shouldDropQueries() {
+        when(mPackageManager.getInstalledApplicationsAsUser(0, USER_ID))
+                .thenReturn(createApplications(PACKAGE_1));
+        mSnapshot.getInstalledApplications(0, USER_ID);
+
+        mSnapshot.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        mSnapshot.getInstalledApplications(0, USER_ID);
+        mSnapshot.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        mSnapshot.getInstalledApplications(0, USER_ID);
+
+        verify(mPackageManager, times(2)).getInstalledApplicationsAsUser(0, USER_ID);
+    }
+
+    private static List<ApplicationInfo> createApplications(String... packageNames) {
+        final List<ApplicationInfo> applications = new ArrayList<>();
+        for (String packageName : packageNames) {
+            final ApplicationInfo info = new ApplicationInfo();
+            info.packageName = packageName;
+            applications.add(info);
+        }
+        return applications;
+    }
+
+    private static List<ResolveInfo> createResolveInfos(String... packageNames) {
+        final List<ResolveInfo> resolveInfos = new ArrayList<>();
+        for (String packageName : packageNames) {
+            final ResolveInfo resolveInfo = new ResolveInfo();
+            resolveInfo.activityInfo = new ActivityInfo();
+            resolveInfo.activityInfo.packageName = packageName;
+            resolveInfos.add(resolveInfo);
+        }
+        return resolveInfos;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.internal.app.procstats.ProcessStats;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.time.Duration;
+
+@RunWith(RobolectricTestRunner.class)
+public class ProcStatsDataTest {
+
+    private static final long DURATION_3_HOURS = 3 * 60 * 60 * 1000L;
+    private static final long DURATION_1_DAY = 24 * 60 * 60 * 1000L;
+
+    private ProcStatsData mProcStatsData;
+
+    @Before
+    public void setUp() {
+        mProcStatsData = new ProcStatsData(ApplicationProvider.getApplicationContext(),
+                /* useXfer= */ false);
+    }
+
+    @Test
+    public void getCachedStats_freshStats_shouldReturnLoadedStats() {
+        final ProcessStats stats = new ProcessStats(false);
+        mProcStatsData.putCachedStats(DURATION_3_HOURS, stats);
+
+        assertThat(mProcStatsData.getCachedStats(DURATION_3_HOURS)).isSameInstanceAs(stats);
+        assertThat(mProcStatsData.getCachedStats(DURATION_1_DAY)).isNull();
+    }
+
+    @Test
+    public void getCachedStats_expired_shouldDropStats() {
+        mProcStatsData.putCachedStats(DURATION_3_HOURS, new ProcessStats(false));
+
+        ShadowSystemClock.advanceBy(Duration.ofMillis(ProcStatsData.CACHE_VALIDITY_MS));
+
+        assertThat(mProcStatsData.getCachedStats(DURATION_3_HOURS)).isNull();
+        assertThat(mProcStatsData.getCachedStatsCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void putCachedStats_otherDurationExpired_shouldDropExpiredStats() {
+        mProcStatsData.putCachedStats(DURATION_3_HOURS, new ProcessStats(false));
+        ShadowSystemClock.advanceBy(Duration.ofMillis(ProcStatsData.CACHE_VALIDITY_MS));
+
+        final ProcessStats stats = new ProcessStats(false);
+        mProcStatsData.putCachedStats(DURATION_1_DAY, stats);
+
+        assertThat(mProcStatsData.getCachedStatsCount()).isEqualTo(1);
+        assertThat(mProcStatsData.getCachedStats(DURATION_1_DAY)).isSameInstanceAs(stats);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class RunningStateTest {
+
+    private static final int USER_ID = 0;
+
+    private Context mContext;
+    private RunningState.ProcessItem mProcessItem;
+    private RunningState.MergedItem mMergedItem;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mProcessItem = new RunningState.ProcessItem(mContext, 10001, "com.example.app");
+        mProcessItem.mPid = 1234;
+        mMergedItem = new RunningState.MergedItem(USER_ID);
+        mMergedItem.mProcess = mProcessItem;
+    }
+
+    @Test
+    public void mergedItemUpdate_unchanged_shouldReportNoChange() {
+        assertThat(mMergedItem.update(mContext, false)).isTrue();
+
+        assertThat(mMergedItem.update(mContext, false)).isFalse();
+    }
+
+    @Test
+    public void mergedItemUpdate_backgroundChanged_shouldReportChange() {
+        mMergedItem.update(mContext, false);
+
+        assertThat(mMergedItem.update(mContext, true)).isTrue();
+    }
+
+    @Test
+    public void mergedItemUpdateSize_sameSize_shouldReportNoChange() {
+        mProcessItem.mSize = 1024 * 1024;
+        assertThat(mMergedItem.updateSize(mContext)).isTrue();
+
+        assertThat(mMergedItem.updateSize(mContext)).isFalse();
+    }
+
+    @Test
+    public void mergedItemUpdateSize_sizeChanged_shouldReportChange() {
+        mProcessItem.mSize = 1024 * 1024;
+        mMergedItem.updateSize(mContext);
+
+        mProcessItem.mSize = 64 * 1024 * 1024;
+
+        assertThat(mMergedItem.updateSize(mContext)).isTrue();
+    }
+
+    @Test
+    public void itemRow_shouldNotChangeWithItem() {
+        mProcessItem.mSize = 1024 * 1024;
+        mMergedItem.update(mContext, false);
+        mMergedItem.updateSize(mContext);
+        final RunningState.ItemRow row = new RunningState.ItemRow(mMergedItem);
+        final String sizeStr = row.mSizeStr;
+
+        mProcessItem.mSize = 64 * 1024 * 1024;
+        mMergedItem.updateSize(mContext);
+        mMergedItem.update(mContext, true);
+
+        assertThat(row.mSizeStr).isEqualTo(sizeStr);
+        assertThat(row.mBackground).isFalse();
+        assertThat(new RunningState.ItemRow(mMergedItem).mSizeStr).isNotEqualTo(sizeStr);
+    }
+
+    @Test
+    public void itemRow_mergedItemWithoutLabel_shouldUseProcessLabel() {
+        final ApplicationInfo info = new ApplicationInfo();
+        info.packageName = "com.example.app";
+        mProcessItem.mPackageInfo = info;
+        mProcessItem.mDisplayLabel = "Example";
+
+        final RunningState.ItemRow row = new RunningState.ItemRow(mMergedItem);
+
+        assertThat(row.mItem).isSameInstanceAs(mMergedItem);
+        assertThat(row.mPackageInfo).isSameInstanceAs(info);
+        assertThat(row.mDisplayLabel.toString()).isEqualTo("Example");
+        assertThat(row.mUid).isEqualTo(10001);
+        assertThat(row.mProcessName).isEqualTo("com.example.app");
+        assertThat(row.mHasServices).isFalse();
+    }
+}
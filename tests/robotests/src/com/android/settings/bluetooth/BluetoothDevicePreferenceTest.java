@@ -18,6 +18,7 @@ package com.android.settings.bluetooth;
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -28,6 +29,8 @@ import static org.mockito.Mockito.when;
 
 import android.bluetooth.BluetoothDevice;
 import android.content.Context;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.UserManager;
 import android.util.Pair;
@@ -48,6 +51,7 @@ import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
 import org.robolectric.util.ReflectionHelpers;
 
 import java.util.ArrayList;
@@ -290,4 +294,55 @@ public class BluetoothDevicePreferenceTest {
 
         verify(mCachedBluetoothDevice, times(2)).registerCallback(any());
     }
+
+    @Test
+    public void scheduleAttributesUpdate_severalChanges_updateOnceOnNextFrame() {
+        when(mCachedBluetoothDevice.getName()).thenReturn("name");
+
+        mPreference.scheduleAttributesUpdate();
+        mPreference.scheduleAttributesUpdate();
+
+        assertThat(mPreference.getTitle()).isNull();
+
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertThat(mPreference.getTitle().toString()).isEqualTo("name");
+        verify(mCachedBluetoothDevice, times(2)).getName();
+        verify(mCachedBluetoothDevice).getDrawableWithDescription();
+    }
+
+    @Test
+    public void onPreferenceAttributesChanged_bondedDevice_resolveIconEveryTime() {
+        when(mCachedBluetoothDevice.getBondState()).thenReturn(BluetoothDevice.BOND_BONDED);
+        clearInvocations(mCachedBluetoothDevice);
+
+        mPreference.onPreferenceAttributesChanged();
+        mPreference.onPreferenceAttributesChanged();
+
+        // The metadata icon of a bonded device may have been loaded in between.
+        verify(mCachedBluetoothDevice, times(2)).getDrawableWithDescription();
+    }
+
+    @Test
+    public void onPreferenceAttributesChanged_unbondedDevices_shareIconOfSameColorOnly() {
+        final Pair<Drawable, String> icon =
+                new Pair<>(new ColorDrawable(Color.BLUE), FAKE_DESCRIPTION);
+        when(mCachedDevice1.getGroupId()).thenReturn(1);
+        when(mCachedDevice1.getDrawableWithDescription()).thenReturn(icon);
+        when(mCachedDevice2.getGroupId()).thenReturn(2);
+        when(mCachedDevice2.getDrawableWithDescription()).thenReturn(icon);
+        when(mCachedDevice3.getGroupId()).thenReturn(1);
+        when(mCachedDevice3.getDrawableWithDescription()).thenReturn(icon);
+
+        new BluetoothDevicePreference(mContext, mCachedDevice1, SHOW_DEVICES_WITHOUT_NAMES,
+                BluetoothDevicePreference.SortType.TYPE_DEFAULT);
+        new BluetoothDevicePreference(mContext, mCachedDevice2, SHOW_DEVICES_WITHOUT_NAMES,
+                BluetoothDevicePreference.SortType.TYPE_DEFAULT);
+        new BluetoothDevicePreference(mContext, mCachedDevice3, SHOW_DEVICES_WITHOUT_NAMES,
+                BluetoothDevicePreference.SortType.TYPE_DEFAULT);
+
+        // Devices of the same class are tinted in the colors of their group or address.
+        verify(mCachedDevice2).getDrawableWithDescription();
+        verify(mCachedDevice3, never()).getDrawableWithDescription();
+    }
 }
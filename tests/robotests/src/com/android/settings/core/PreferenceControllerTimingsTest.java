@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.os.SystemClock;
+
+import androidx.preference.Preference;
+
+import com.android.settingslib.core.AbstractPreferenceController;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class PreferenceControllerTimingsTest {
+
+    @Before
+    public void setUp() {
+        PreferenceControllerTimings.clear();
+    }
+
+    @Test
+    public void isAvailable_shouldReturnControllerResultAndRecordPhase() throws JSONException {
+        final AbstractPreferenceController controller = mock(AbstractPreferenceController.class);
+        when(controller.isAvailable()).thenReturn(true);
+
+        assertThat(PreferenceControllerTimings.isAvailable(controller)).isTrue();
+
+        final JSONObject phase = getPhase(controller.getClass(), "isAvailable");
+        assertThat(phase.getLong("count")).isEqualTo(1L);
+    }
+
+    @Test
+    public void updateState_shouldCallControllerAndRecordPhase() throws JSONException {
+        final AbstractPreferenceController controller = mock(AbstractPreferenceController.class);
+        final Preference preference = mock(Preference.class);
+
+        PreferenceControllerTimings.updateState(controller, preference);
+        PreferenceControllerTimings.updateState(controller, preference);
+
+        verify(controller, times(2)).updateState(preference);
+        assertThat(getPhase(controller.getClass(), "updateState").getLong("count"))
+                .isEqualTo(2L);
+    }
+
+    @Test
+    public void record_shouldCountTimeInMatchingBucket() throws JSONException {
+        // The clock does not move under Robolectric, so the time falls in the first bucket.
+        PreferenceControllerTimings.record(String.class,
+                PreferenceControllerTimings.PHASE_CONSTRUCT, SystemClock.elapsedRealtimeNanos());
+
+        final JSONObject phase = getPhase(String.class, "construct");
+        final JSONArray buckets = phase.getJSONArray("buckets");
+        assertThat(buckets.length())
+                .isEqualTo(PreferenceControllerTimings.BUCKET_LIMITS_US.length + 1);
+        assertThat(buckets.getLong(0)).isEqualTo(1L);
+    }
+
+    private static JSONObject getPhase(Class<?> owner, String phase) throws JSONException {
+        return PreferenceControllerTimings.dumpToJson().getJSONObject(owner.getName())
+                .getJSONObject(phase);
+    }
+}
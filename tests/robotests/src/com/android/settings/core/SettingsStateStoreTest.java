@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Looper;
+import android.util.ArraySet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class SettingsStateStoreTest {
+
+    private static final String NAMESPACE = "test_namespace";
+
+    private Context mContext;
+    private File mFile;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mFile = new File(mContext.getFilesDir(), "settings_state_test.kv");
+        mFile.delete();
+    }
+
+    @Test
+    public void apply_shouldBeReadableRightAway() {
+        final SharedPreferences prefs = createStore().getNamespace(NAMESPACE);
+
+        prefs.edit().putInt("int", 1).putString("string", "value").apply();
+
+        assertThat(prefs.getInt("int", 0)).isEqualTo(1);
+        assertThat(prefs.getString("string", null)).isEqualTo("value");
+        assertThat(mFile.exists()).isFalse();
+    }
+
+    @Test
+    public void apply_afterWriteDelay_shouldPersistAllValues() {
+        final SettingsStateStore store = createStore();
+        final Set<String> set = new ArraySet<>();
+        set.add("a");
+        set.add("b");
+        store.getNamespace(NAMESPACE).edit()
+                .putBoolean("boolean", true)
+                .putInt("int", 1)
+                .putLong("long", 2L)
+                .putFloat("float", 3f)
+                .putString("string", "value")
+                .putStringSet("set", set)
+                .apply();
+        store.getNamespace("other").edit().putInt("int", 4).apply();
+
+        ShadowLooper.idleMainLooper(SettingsStateStore.WRITE_DELAY_MS, TimeUnit.MILLISECONDS);
+        final SettingsStateStore reloaded = createStore();
+        final SharedPreferences prefs = reloaded.getNamespace(NAMESPACE);
+
+        assertThat(prefs.getBoolean("boolean", false)).isTrue();
+        assertThat(prefs.getInt("int", 0)).isEqualTo(1);
+        assertThat(prefs.getLong("long", 0L)).isEqualTo(2L);
+        assertThat(prefs.getFloat("float", 0f)).isEqualTo(3f);
+        assertThat(prefs.getString("string", null)).isEqualTo("value");
+        assertThat(prefs.getStringSet("set", null)).containsExactly("a", "b");
+        assertThat(reloaded.getNamespace("other").getInt("int", 0)).isEqualTo(4);
+    }
+
+    @Test
+    public void commit_shouldPersistRightAway() {
+        createStore().getNamespace(NAMESPACE).edit().putInt("int", 1).commit();
+
+        assertThat(createStore().getNamespace(NAMESPACE).getInt("int", 0)).isEqualTo(1);
+    }
+
+    @Test
+    public void clear_shouldOnlyRemoveKeysOfNamespace() {
+        final SettingsStateStore store = createStore();
+        store.getNamespace(NAMESPACE).edit().putInt("int", 1).apply();
+        store.getNamespace("other").edit().putInt("int", 2).apply();
+
+        store.getNamespace(NAMESPACE).edit().clear().apply();
+
+        assertThat(store.getNamespace(NAMESPACE).getAll()).isEmpty();
+        assertThat(store.getNamespace("other").getInt("int", 0)).isEqualTo(2);
+    }
+
+    @Test
+    public void getNamespace_legacySharedPreferences_shouldMigrateValues() {
+        mContext.getSharedPreferences(NAMESPACE, Context.MODE_PRIVATE).edit()
+                .putInt("int", 1).commit();
+
+        final SharedPreferences prefs = createStore().getNamespace(NAMESPACE);
+        // Run the migration posted to the handler.
+        ShadowLooper.idleMainLooper();
+
+        assertThat(prefs.getInt("int", 0)).isEqualTo(1);
+        assertThat(mContext.getSharedPreferences(NAMESPACE, Context.MODE_PRIVATE).getAll())
+                .isEmpty();
+    }
+
+    @Test
+    public void getNamespace_legacySharedPreferences_shouldPersistBeforeDeletingFile() {
+        mContext.getSharedPreferences(NAMESPACE, Context.MODE_PRIVATE).edit()
+                .putInt("int", 1).commit();
+
+        createStore().getNamespace(NAMESPACE);
+        // Run the migration, but not the writes scheduled after it.
+        ShadowLooper.idleMainLooper();
+        final SettingsStateStore reloaded = createStore();
+
+        assertThat(reloaded.getNamespace(NAMESPACE).getInt("int", 0)).isEqualTo(1);
+    }
+
+    @Test
+    public void getNamespace_beforeLoad_shouldNotWaitAndKeepNewerWrites() {
+        final SettingsStateStore store = createStore();
+        store.getNamespace(NAMESPACE).edit().putInt("int", 1).putInt("other", 2).commit();
+
+        final SettingsStateStore reloaded = new SettingsStateStore(mContext, mFile,
+                Looper.getMainLooper());
+        final SharedPreferences prefs = reloaded.getNamespace(NAMESPACE);
+        assertThat(prefs.getAll()).isEmpty();
+        prefs.edit().putInt("int", 3).apply();
+        ShadowLooper.idleMainLooper();
+
+        assertThat(prefs.getInt("int", 0)).isEqualTo(3);
+        assertThat(prefs.getInt("other", 0)).isEqualTo(2);
+    }
+
+    @Test
+    public void getNamespace_withCallback_shouldCallBackAfterLoadAndMigration() {
+        mContext.getSharedPreferences(NAMESPACE, Context.MODE_PRIVATE).edit()
+                .putInt("int", 1).commit();
+        final SettingsStateStore store = new SettingsStateStore(mContext, mFile,
+                Looper.getMainLooper());
+        final List<Integer> values = new ArrayList<>();
+
+        store.getNamespace(NAMESPACE, Runnable::run, prefs -> values.add(prefs.getInt("int", 0)));
+        assertThat(values).isEmpty();
+        ShadowLooper.idleMainLooper();
+
+        assertThat(values).containsExactly(1);
+    }
+
+    @Test
+    public void registerListener_apply_shouldNotifyChangedKeys() {
+        final SharedPreferences prefs = createStore().getNamespace(NAMESPACE);
+        final Set<String> changedKeys = new ArraySet<>();
+        final SharedPreferences.OnSharedPreferenceChangeListener listener =
+                (sharedPreferences, key) -> changedKeys.add(key);
+        prefs.registerOnSharedPreferenceChangeListener(listener);
+        prefs.edit().putInt("int", 1).apply();
+
+        prefs.edit().putInt("int", 1).putInt("other", 2).apply();
+        ShadowLooper.idleMainLooper();
+
+        assertThat(changedKeys).containsExactly("int", "other");
+    }
+
+    private SettingsStateStore createStore() {
+        final SettingsStateStore store = new SettingsStateStore(mContext, mFile,
+                Looper.getMainLooper());
+        // Run the load posted to the handler.
+        ShadowLooper.idleMainLooper();
+        return store;
+    }
+}
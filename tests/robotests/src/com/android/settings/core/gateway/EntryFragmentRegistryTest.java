@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.gateway;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.android.settings.DisplaySettings;
+import com.android.settings.fuelgauge.batteryusage.PowerUsageSummary;
+import com.android.settings.wifi.WifiSettings;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class EntryFragmentRegistryTest {
+
+    private SharedPreferences mPrefs;
+
+    @Before
+    public void setUp() {
+        mPrefs = RuntimeEnvironment.application.getSharedPreferences("entry_fragment_test",
+                Context.MODE_PRIVATE);
+        mPrefs.edit().clear().commit();
+    }
+
+    @Test
+    public void isEntryFragment_entryFragment_shouldReturnTrue() {
+        for (String fragmentName : SettingsGateway.ENTRY_FRAGMENTS) {
+            assertThat(EntryFragmentRegistry.isEntryFragment(fragmentName)).isTrue();
+        }
+    }
+
+    @Test
+    public void isEntryFragment_otherFragment_shouldReturnFalse() {
+        assertThat(EntryFragmentRegistry.isEntryFragment("com.example.Fragment")).isFalse();
+        assertThat(EntryFragmentRegistry.isEntryFragment(null)).isFalse();
+    }
+
+    @Test
+    public void getLikelyFragments_shouldOrderByLaunchCount() {
+        EntryFragmentRegistry.recordLaunch(mPrefs, WifiSettings.class.getName());
+        EntryFragmentRegistry.recordLaunch(mPrefs, DisplaySettings.class.getName());
+        EntryFragmentRegistry.recordLaunch(mPrefs, DisplaySettings.class.getName());
+
+        assertThat(EntryFragmentRegistry.getLikelyFragments(mPrefs)).containsExactly(
+                DisplaySettings.class.getName(), WifiSettings.class.getName()).inOrder();
+    }
+
+    @Test
+    public void recordLaunch_otherFragment_shouldNotRecord() {
+        EntryFragmentRegistry.recordLaunch(mPrefs, "com.example.Fragment");
+
+        assertThat(mPrefs.getAll()).isEmpty();
+    }
+
+    @Test
+    public void recordLaunch_tooManyLaunches_shouldHalveCounts() {
+        mPrefs.edit()
+                .putInt(WifiSettings.class.getName(), EntryFragmentRegistry.MAX_TOTAL_LAUNCHES)
+                .putInt(DisplaySettings.class.getName(), 1)
+                .commit();
+
+        EntryFragmentRegistry.recordLaunch(mPrefs, PowerUsageSummary.class.getName());
+
+        assertThat(mPrefs.getInt(WifiSettings.class.getName(), 0))
+                .isEqualTo(EntryFragmentRegistry.MAX_TOTAL_LAUNCHES / 2);
+        assertThat(mPrefs.contains(DisplaySettings.class.getName())).isFalse();
+        assertThat(mPrefs.getInt(PowerUsageSummary.class.getName(), 0)).isEqualTo(1);
+    }
+}
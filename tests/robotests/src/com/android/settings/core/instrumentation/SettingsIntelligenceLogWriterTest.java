@@ -18,29 +18,53 @@ package com.android.settings.core.instrumentation;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
 import android.app.settings.SettingsEnums;
 import android.content.Context;
+import android.content.Intent;
+import android.os.Looper;
+import android.os.UserHandle;
 
+import com.android.settings.R;
 import com.android.settings.intelligence.LogProto.SettingsLog;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
 
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+@RunWith(RobolectricTestRunner.class)
 public class SettingsIntelligenceLogWriterTest {
+    private static final String LOG_ACTION = "com.example.action.LOG";
+    private static final int MAX_COUNT = 3;
+    private static final int MAX_BYTES = 32 * 1024;
+    private static final long MAX_DELAY_MILLIS = 1000;
+
     private Context mContext;
 
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
-        mContext = RuntimeEnvironment.application;
+        mContext = spy(RuntimeEnvironment.application);
+        doReturn(LOG_ACTION).when(mContext)
+                .getString(R.string.config_settingsintelligence_log_action);
     }
 
     @Test
@@ -75,4 +99,128 @@ public class SettingsIntelligenceLogWriterTest {
         assertThat(settingsLog.getChangedPreferenceKey()).isEqualTo("package");
         assertThat(settingsLog.getChangedPreferenceIntValue()).isEqualTo(100);
     }
+
+    @Test
+    public void serialize_hasMultipleLogs_returnAllLogsInOrder() throws IOException {
+        final List<SettingsLog> events = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            events.add(createLog(i));
+        }
+
+        final byte[] data = SettingsIntelligenceLogWriter.serialize(events);
+
+        assertThat(parse(data)).containsExactlyElementsIn(events).inOrder();
+    }
+
+    @Test
+    public void logBuffer_clear_shouldReuseBufferForNextLogs() throws IOException {
+        final SettingsIntelligenceLogWriter.LogBuffer buffer =
+                new SettingsIntelligenceLogWriter.LogBuffer();
+        buffer.append(createLog(1));
+        buffer.clear();
+
+        buffer.append(createLog(2));
+
+        assertThat(buffer.getCount()).isEqualTo(1);
+        assertThat(parse(buffer.toByteArray())).containsExactly(createLog(2));
+    }
+
+    @Test
+    public void action_belowThresholds_shouldNotSend() {
+        final SettingsIntelligenceLogWriter writer = createWriter(MAX_BYTES, false);
+
+        log(writer, MAX_COUNT - 1);
+        ShadowLooper.idleMainLooper();
+
+        verify(mContext, never()).sendBroadcastAsUser(any(Intent.class), any(UserHandle.class));
+    }
+
+    @Test
+    public void action_reachMaxCount_shouldSendAllLogs() throws IOException {
+        final SettingsIntelligenceLogWriter writer = createWriter(MAX_BYTES, false);
+
+        log(writer, MAX_COUNT);
+        ShadowLooper.idleMainLooper();
+
+        assertThat(getSentLogs()).hasSize(MAX_COUNT);
+    }
+
+    @Test
+    public void action_reachMaxBytes_shouldSend() throws IOException {
+        final SettingsIntelligenceLogWriter writer = createWriter(1 /* maxBytes */, false);
+
+        log(writer, 1);
+        ShadowLooper.idleMainLooper();
+
+        assertThat(getSentLogs()).hasSize(1);
+    }
+
+    @Test
+    public void action_maxDelayElapsed_shouldSend() throws IOException {
+        final SettingsIntelligenceLogWriter writer = createWriter(MAX_BYTES, false);
+        log(writer, 1);
+        ShadowLooper.idleMainLooper();
+        verify(mContext, never()).sendBroadcastAsUser(any(Intent.class), any(UserHandle.class));
+
+        ShadowLooper.idleMainLooper(MAX_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+
+        assertThat(getSentLogs()).hasSize(1);
+    }
+
+    @Test
+    public void screenOff_hasLogs_shouldSend() throws IOException {
+        final SettingsIntelligenceLogWriter writer = createWriter(MAX_BYTES, true);
+        log(writer, 1);
+        ShadowLooper.idleMainLooper();
+
+        mContext.sendBroadcast(new Intent(Intent.ACTION_SCREEN_OFF));
+        ShadowLooper.idleMainLooper();
+
+        assertThat(getSentLogs()).hasSize(1);
+    }
+
+    private SettingsIntelligenceLogWriter createWriter(int maxBytes, boolean flushOnScreenOff) {
+        return new SettingsIntelligenceLogWriter(mContext, Looper.getMainLooper(),
+                new SettingsIntelligenceLogWriter.FlushPolicy(MAX_COUNT, maxBytes,
+                        MAX_DELAY_MILLIS, flushOnScreenOff));
+    }
+
+    private static void log(SettingsIntelligenceLogWriter writer, int count) {
+        for (int i = 0; i < count; i++) {
+            writer.action(SettingsEnums.DASHBOARD_SUMMARY, SettingsEnums.ACTION_SET_NEW_PASSWORD,
+                    SettingsEnums.SET_NEW_PASSWORD_ACTIVITY, "package" + i, i);
+        }
+    }
+
+    private List<SettingsLog> getSentLogs() throws IOException {
+        final ArgumentCaptor<Intent> captor = ArgumentCaptor.forClass(Intent.class);
+        verify(mContext).sendBroadcastAsUser(captor.capture(), eq(UserHandle.CURRENT));
+        assertThat(captor.getValue().getAction()).isEqualTo(LOG_ACTION);
+        return parse(captor.getValue().getByteArrayExtra("logs"));
+    }
+
+    private static SettingsLog createLog(int value) {
+        return SettingsLog.newBuilder()
+                .setAttribution(SettingsEnums.DASHBOARD_SUMMARY)
+                .setAction(SettingsEnums.ACTION_SET_NEW_PASSWORD)
+                .setPageId(SettingsEnums.SET_NEW_PASSWORD_ACTIVITY)
+                .setChangedPreferenceKey("package" + value)
+                .setChangedPreferenceIntValue(value)
+                .build();
+    }
+
+    private static List<SettingsLog> parse(byte[] data) throws IOException {
+        final List<SettingsLog> logs = new ArrayList<>();
+        try (DataInputStream inputStream =
+                     new DataInputStream(new ByteArrayInputStream(data))) {
+            final int size = inputStream.readInt();
+            for (int i = 0; i < size; i++) {
+                final byte[] change = new byte[inputStream.readInt()];
+                inputStream.readFully(change);
+                logs.add(SettingsLog.parseFrom(change));
+            }
+            assertThat(inputStream.available()).isEqualTo(0);
+        }
+        return logs;
+    }
 }
@@ -34,6 +34,7 @@ import androidx.fragment.app.FragmentActivity;
 
 import com.android.internal.logging.nano.MetricsProto;
 import com.android.settings.R;
+import com.android.settings.testutils.XmlTestUtils;
 import com.android.settings.testutils.shadow.ShadowAlertDialogCompat;
 import com.android.settings.widget.SettingsMainSwitchBar;
 import com.android.settingslib.development.AbstractEnableAdbPreferenceController;
@@ -55,7 +56,9 @@ import org.robolectric.shadows.ShadowUserManager;
 import org.robolectric.shadows.androidx.fragment.FragmentController;
 import org.robolectric.util.ReflectionHelpers;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(shadows = {ShadowUserManager.class, ShadowAlertDialogCompat.class})
@@ -289,6 +292,22 @@ public class DevelopmentSettingsDashboardFragmentTest {
         assertThat(mDashboard.shouldSkipForInitialSUW()).isTrue();
     }
 
+    @Test
+    public void controllerDescriptors_shouldHaveUniqueKeysOfScreen() {
+        final List<String> screenKeys =
+                XmlTestUtils.getKeysFromPreferenceXml(mContext, R.xml.development_settings);
+        final Set<String> keys = new HashSet<>();
+
+        for (PreferenceControllerDescriptor descriptor :
+                DevelopmentSettingsDashboardFragment.buildControllerDescriptors(mContext,
+                        null /* activity */, null /* lifecycle */,
+                        null /* devOptionsDashboardFragment */,
+                        null /* bluetoothA2dpConfigStore */)) {
+            assertThat(keys.add(descriptor.mKey)).isTrue();
+            assertThat(screenKeys).contains(descriptor.mKey);
+        }
+    }
+
     @Implements(EnableDevelopmentSettingWarningDialog.class)
     public static class ShadowEnableDevelopmentSettingWarningDialog {
 
@@ -19,14 +19,19 @@ package com.android.settings.deviceinfo.storage;
 import static com.google.common.truth.Truth.assertThat;
 
 import android.content.Context;
+import android.os.HandlerThread;
+import android.os.Looper;
 import android.os.UserHandle;
 
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 
+import com.android.settings.core.SettingsStateStore;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.robolectric.shadows.ShadowLooper;
 
 @RunWith(AndroidJUnit4.class)
 public class StorageCacheHelperTest {
@@ -48,6 +53,8 @@ public class StorageCacheHelperTest {
     @Before
     public void setUp() {
         mContext = ApplicationProvider.getApplicationContext();
+        SettingsStateStore.setupForTest(mContext, Looper.getMainLooper());
+        ShadowLooper.idleMainLooper();
         mHelper = new StorageCacheHelper(mContext, UserHandle.myUserId());
     }
 
@@ -63,6 +70,23 @@ public class StorageCacheHelperTest {
         assertThat(mHelper.hasCachedSizeInfo()).isTrue();
     }
 
+    @Test
+    public void retrieveCachedSize_beforeStoreLoaded_shouldReturnStoredSize() {
+        // Sizes cached by a previous process, before the store existed.
+        mContext.getSharedPreferences("StorageCache" + UserHandle.myUserId(),
+                Context.MODE_PRIVATE).edit().putLong("images_size_key", FAKE_IMAGES_SIZE).commit();
+        final HandlerThread thread = new HandlerThread("StorageCacheHelperTest");
+        thread.start();
+        SettingsStateStore.setupForTest(mContext, thread.getLooper());
+
+        // Read without idling the looper of the store.
+        final StorageCacheHelper helper = new StorageCacheHelper(mContext,
+                UserHandle.myUserId());
+
+        assertThat(helper.retrieveCachedSize().imagesSize).isEqualTo(FAKE_IMAGES_SIZE);
+        thread.quitSafely();
+    }
+
     @Test
     public void cacheSizeInfo_shouldSaveToSharedPreference() {
         mHelper.cacheSizeInfo(getFakeStorageCache());
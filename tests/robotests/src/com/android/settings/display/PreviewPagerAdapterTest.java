@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.display;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.content.res.Configuration;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.settings.R;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class PreviewPagerAdapterTest {
+
+    private static final int[] PREVIEW_SAMPLE_RES_IDS = new int[]{
+            R.layout.screen_zoom_preview_1,
+            R.layout.screen_zoom_preview_1};
+    private static final int LAYER_COUNT = 10;
+
+    private PreviewPagerAdapter mAdapter;
+
+    @Before
+    public void setUp() {
+        final Context context = ApplicationProvider.getApplicationContext();
+        final Configuration[] configurations = new Configuration[LAYER_COUNT];
+        for (int i = 0; i < LAYER_COUNT; ++i) {
+            configurations[i] = new Configuration();
+        }
+        mAdapter = new PreviewPagerAdapter(context, /* isLayoutRtl= */ false,
+                PREVIEW_SAMPLE_RES_IDS, configurations);
+    }
+
+    @Test
+    public void setPreviewLayer_shouldOnlyInflateCurrentFrame() {
+        mAdapter.setPreviewLayer(/* newLayerIndex= */ 3, /* currentLayerIndex= */ -1,
+                /* currentFrameIndex= */ 0, /* animate= */ false);
+
+        assertThat(mAdapter.isLayerInflated(0, 3)).isTrue();
+        assertThat(mAdapter.isLayerInflated(1, 3)).isFalse();
+        assertThat(mAdapter.isLayerInflated(0, 2)).isFalse();
+        assertThat(mAdapter.isLayerInflated(0, 4)).isFalse();
+    }
+
+    @Test
+    public void preInflateNextLayer_shouldInflateOtherFramesThenNeighbors() {
+        mAdapter.setPreviewLayer(/* newLayerIndex= */ 3, /* currentLayerIndex= */ -1,
+                /* currentFrameIndex= */ 0, /* animate= */ false);
+
+        while (mAdapter.preInflateNextLayer()) {
+            // Inflate everything needed soon.
+        }
+
+        assertThat(mAdapter.isLayerInflated(1, 3)).isTrue();
+        assertThat(mAdapter.isLayerInflated(0, 2)).isTrue();
+        assertThat(mAdapter.isLayerInflated(0, 4)).isTrue();
+        assertThat(mAdapter.isLayerInflated(0, 5)).isFalse();
+        assertThat(mAdapter.isLayerInflated(1, 2)).isFalse();
+    }
+
+    @Test
+    public void setPreviewLayer_acrossAllLayers_shouldReleaseDistantLayers() {
+        int currentLayer = -1;
+        for (int layer = 0; layer < LAYER_COUNT; ++layer) {
+            mAdapter.setPreviewLayer(layer, currentLayer, /* currentFrameIndex= */ 0,
+                    /* animate= */ false);
+            currentLayer = layer;
+        }
+
+        int inflatedCount = 0;
+        for (int layer = 0; layer < LAYER_COUNT; ++layer) {
+            if (mAdapter.isLayerInflated(0, layer)) {
+                inflatedCount++;
+            }
+        }
+        assertThat(inflatedCount).isAtMost(PreviewPagerAdapter.MAX_INFLATED_LAYERS);
+        assertThat(mAdapter.isLayerInflated(0, LAYER_COUNT - 1)).isTrue();
+        assertThat(mAdapter.isLayerInflated(0, 0)).isFalse();
+    }
+}
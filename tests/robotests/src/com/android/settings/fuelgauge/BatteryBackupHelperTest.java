@@ -28,6 +28,7 @@ import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
@@ -247,6 +248,76 @@ public final class BatteryBackupHelperTest {
         verifyBackupData(expectedResult);
     }
 
+    @Test
+    public void backupOptimizationMode_unchangedSinceLastBackup_skipBackup() throws Exception {
+        final List<String> allowlistedApps = Arrays.asList(PACKAGE_NAME1);
+        createTestingData(PACKAGE_NAME1, PACKAGE_NAME2, PACKAGE_NAME3);
+        final int generation = mBatteryBackupHelper.backupOptimizationMode(
+                mBackupDataOutput, allowlistedApps, BatteryOptimizeJournal.NO_GENERATION);
+        clearInvocations(mBackupDataOutput);
+
+        mBatteryBackupHelper.backupOptimizationMode(
+                mBackupDataOutput, allowlistedApps, generation);
+
+        verify(mBackupDataOutput, never()).writeEntityHeader(anyString(), anyInt());
+    }
+
+    @Test
+    public void backupOptimizationMode_changedPackage_onlyUpdateChangedPackage()
+            throws Exception {
+        final List<String> allowlistedApps = Arrays.asList(PACKAGE_NAME1);
+        createTestingData(PACKAGE_NAME1, PACKAGE_NAME2, PACKAGE_NAME3);
+        final int generation = mBatteryBackupHelper.backupOptimizationMode(
+                mBackupDataOutput, allowlistedApps, BatteryOptimizeJournal.NO_GENERATION);
+        clearInvocations(mBackupDataOutput);
+        // A full snapshot would find no applications and skip the backup.
+        mBatteryBackupHelper.mTestApplicationInfoList = new ArraySet<>();
+        // "com.android.testing.2" is back to the default optimized mode.
+        doReturn(1002).when(mPackageManager).getPackageUidAsUser(PACKAGE_NAME2, 0);
+        new BatteryOptimizeJournal(mContext).recordChange(2, PACKAGE_NAME2);
+
+        mBatteryBackupHelper.backupOptimizationMode(
+                mBackupDataOutput, allowlistedApps, generation);
+
+        verifyBackupData(PACKAGE_NAME1 + ":2,");
+    }
+
+    @Test
+    public void backupOptimizationMode_changedPackageInOtherUser_checkPackageOfThatUser()
+            throws Exception {
+        final List<String> allowlistedApps = Arrays.asList(PACKAGE_NAME1);
+        createTestingData(PACKAGE_NAME1, PACKAGE_NAME2, PACKAGE_NAME3);
+        final int generation = mBatteryBackupHelper.backupOptimizationMode(
+                mBackupDataOutput, allowlistedApps, BatteryOptimizeJournal.NO_GENERATION);
+        clearInvocations(mBackupDataOutput);
+        // "com.android.testing.2" was removed from the user 10.
+        final int otherUserId = 10;
+        doThrow(new PackageManager.NameNotFoundException()).when(mPackageManager)
+                .getPackageUidAsUser(PACKAGE_NAME2, otherUserId);
+        new BatteryOptimizeJournal(mContext).recordChange(
+                UserHandle.getUid(otherUserId, 2), PACKAGE_NAME2);
+
+        mBatteryBackupHelper.backupOptimizationMode(
+                mBackupDataOutput, allowlistedApps, generation);
+
+        verify(mPackageManager).getPackageUidAsUser(PACKAGE_NAME2, otherUserId);
+        verifyBackupData(PACKAGE_NAME1 + ":2,");
+    }
+
+    @Test
+    public void backupOptimizationMode_allowlistChanged_backupFullSnapshot() throws Exception {
+        createTestingData(PACKAGE_NAME1, PACKAGE_NAME2, PACKAGE_NAME3);
+        final int generation = mBatteryBackupHelper.backupOptimizationMode(mBackupDataOutput,
+                Arrays.asList(PACKAGE_NAME1), BatteryOptimizeJournal.NO_GENERATION);
+        clearInvocations(mBackupDataOutput);
+
+        mBatteryBackupHelper.backupOptimizationMode(
+                mBackupDataOutput, Arrays.asList(PACKAGE_NAME3), generation);
+
+        // "com.android.testing.1" is optimized now and "com.android.testing.3" is unrestricted.
+        verifyBackupData(PACKAGE_NAME2 + ":1," + PACKAGE_NAME3 + ":2,");
+    }
+
     @Test
     public void restoreEntity_nonOwner_notReadBackupData() throws Exception {
         ShadowUserHandle.setUid(1);
@@ -51,6 +51,7 @@ import android.os.BatteryUsageStats;
 import android.os.Build;
 import android.os.Process;
 import android.os.SystemClock;
+import android.util.ArraySet;
 
 import com.android.settings.fuelgauge.batterytip.AnomalyDatabaseHelper;
 import com.android.settings.fuelgauge.batterytip.AnomalyInfo;
@@ -372,6 +373,19 @@ public class BatteryUtilsTest {
                 eq(HIGH_SDK_PACKAGE), anyLong());
     }
 
+    @Test
+    public void testSetForceAppStandby_recordChangeForBackup() {
+        final BatteryOptimizeJournal journal = new BatteryOptimizeJournal(mContext);
+        journal.commit(/* content= */ "", /* allowlist= */ "", System.currentTimeMillis(),
+                /* fullSnapshot= */ true, new ArraySet<>());
+
+        mBatteryUtils.setForceAppStandby(UID, HIGH_SDK_PACKAGE, AppOpsManager.MODE_IGNORED);
+
+        final String change = journal.getChanges().valueAt(0);
+        assertThat(BatteryOptimizeJournal.getPackageName(change)).isEqualTo(HIGH_SDK_PACKAGE);
+        assertThat(BatteryOptimizeJournal.getUid(change)).isEqualTo(UID);
+    }
+
     @Test
     public void testSetForceAppStandby_unrestrictApp_deleteTime() {
         mBatteryUtils.setForceAppStandby(UID, HIGH_SDK_PACKAGE, AppOpsManager.MODE_ALLOWED);
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class HomepageStartupSchedulerTest {
+
+    private HomepageStartupScheduler mScheduler;
+    private List<String> mCalls;
+
+    @Before
+    public void setUp() {
+        mScheduler = new HomepageStartupScheduler();
+        mCalls = new ArrayList<>();
+    }
+
+    @Test
+    public void runNow_shouldRunImmediately() {
+        mScheduler.runNow("task", () -> mCalls.add("task"));
+
+        assertThat(mCalls).containsExactly("task");
+    }
+
+    @Test
+    public void runAfterFirstFrame_shouldWaitForFirstFrameInOrder() {
+        mScheduler.runAfterFirstFrame("first", () -> mCalls.add("first"));
+        mScheduler.runNow("critical", () -> mCalls.add("critical"));
+        mScheduler.runAfterFirstFrame("second", () -> mCalls.add("second"));
+
+        assertThat(mCalls).containsExactly("critical");
+
+        mScheduler.onFirstFrameDrawn();
+
+        assertThat(mCalls).containsExactly("critical", "first", "second").inOrder();
+    }
+
+    @Test
+    public void runAfterFirstFrame_afterFirstFrame_shouldRunImmediately() {
+        mScheduler.onFirstFrameDrawn();
+
+        mScheduler.runAfterFirstFrame("task", () -> mCalls.add("task"));
+
+        assertThat(mCalls).containsExactly("task");
+    }
+
+    @Test
+    public void cancel_shouldDropDeferredTasks() {
+        mScheduler.runAfterFirstFrame("task", () -> mCalls.add("task"));
+
+        mScheduler.cancel();
+        mScheduler.onFirstFrameDrawn();
+
+        assertThat(mCalls).isEmpty();
+    }
+}
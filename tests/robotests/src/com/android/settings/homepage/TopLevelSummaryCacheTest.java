@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.os.Looper;
+
+import androidx.preference.Preference;
+import androidx.preference.PreferenceManager;
+import androidx.preference.PreferenceScreen;
+
+import com.android.settings.core.SettingsStateStore;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+public class TopLevelSummaryCacheTest {
+
+    private static final String KEY_BATTERY = "top_level_battery";
+    private static final String KEY_STORAGE = "top_level_storage";
+    private static final String LOCALE = "en-US";
+
+    private Context mContext;
+    private PreferenceScreen mScreen;
+    private Preference mBatteryPreference;
+    private Preference mStoragePreference;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        SettingsStateStore.setupForTest(mContext, Looper.getMainLooper());
+        ShadowLooper.idleMainLooper();
+        mScreen = new PreferenceManager(mContext).createPreferenceScreen(mContext);
+        mBatteryPreference = createPreference(KEY_BATTERY);
+        mStoragePreference = createPreference(KEY_STORAGE);
+    }
+
+    @Test
+    public void restore_afterSave_shouldShowSavedSummaries() {
+        mBatteryPreference.setSummary("50%");
+        mStoragePreference.setSummary("20% used");
+        new TopLevelSummaryCache(mContext).save(mScreen, LOCALE, 0L);
+        mBatteryPreference.setSummary(" ");
+        mStoragePreference.setSummary(" ");
+
+        new TopLevelSummaryCache(mContext).restore(mScreen, LOCALE, 1000L);
+        ShadowLooper.idleMainLooper();
+
+        assertThat(mBatteryPreference.getSummary().toString()).isEqualTo("50%");
+        assertThat(mStoragePreference.getSummary().toString()).isEqualTo("20% used");
+    }
+
+    @Test
+    public void restore_otherLocale_shouldNotShowSavedSummaries() {
+        mBatteryPreference.setSummary("50%");
+        new TopLevelSummaryCache(mContext).save(mScreen, LOCALE, 0L);
+        mBatteryPreference.setSummary(" ");
+
+        new TopLevelSummaryCache(mContext).restore(mScreen, "fr-FR", 1000L);
+        ShadowLooper.idleMainLooper();
+
+        assertThat(mBatteryPreference.getSummary().toString()).isEqualTo(" ");
+    }
+
+    @Test
+    public void save_placeholderSummary_shouldNotBeSaved() {
+        mBatteryPreference.setSummary("50%");
+        new TopLevelSummaryCache(mContext).save(mScreen, LOCALE, 0L);
+        mBatteryPreference.setSummary(" ");
+        new TopLevelSummaryCache(mContext).save(mScreen, LOCALE, 0L);
+        mBatteryPreference.setSummary("placeholder");
+
+        new TopLevelSummaryCache(mContext).restore(mScreen, LOCALE, 1000L);
+        ShadowLooper.idleMainLooper();
+
+        assertThat(mBatteryPreference.getSummary().toString()).isEqualTo("placeholder");
+    }
+
+    @Test
+    public void save_summaryChangedSinceRestore_shouldCountStale() {
+        mBatteryPreference.setSummary("50%");
+        mStoragePreference.setSummary("20% used");
+        new TopLevelSummaryCache(mContext).save(mScreen, LOCALE, 0L);
+        final TopLevelSummaryCache cache = new TopLevelSummaryCache(mContext);
+        cache.restore(mScreen, LOCALE, 1000L);
+        ShadowLooper.idleMainLooper();
+
+        mBatteryPreference.setSummary("49%");
+        cache.save(mScreen, LOCALE, 2000L);
+
+        assertThat(cache.getLastStaleCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void restore_coldStart_shouldShowSavedSummariesOnceLoaded() {
+        mBatteryPreference.setSummary("50%");
+        mStoragePreference.setSummary("20% used");
+        new TopLevelSummaryCache(mContext).save(mScreen, LOCALE, 0L);
+        // Run the delayed write, then start over with a store that is not loaded yet.
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        SettingsStateStore.setupForTest(mContext, Looper.getMainLooper());
+        mBatteryPreference.setSummary(" ");
+        mStoragePreference.setSummary(" ");
+
+        new TopLevelSummaryCache(mContext).restore(mScreen, LOCALE, 1000L);
+        assertThat(mBatteryPreference.getSummary().toString()).isEqualTo(" ");
+        ShadowLooper.idleMainLooper();
+
+        assertThat(mBatteryPreference.getSummary().toString()).isEqualTo("50%");
+        assertThat(mStoragePreference.getSummary().toString()).isEqualTo("20% used");
+    }
+
+    @Test
+    public void restore_coldStart_summarySetBeforeLoaded_shouldKeepIt() {
+        mBatteryPreference.setSummary("50%");
+        mStoragePreference.setSummary("20% used");
+        new TopLevelSummaryCache(mContext).save(mScreen, LOCALE, 0L);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        SettingsStateStore.setupForTest(mContext, Looper.getMainLooper());
+        mBatteryPreference.setSummary(" ");
+        mStoragePreference.setSummary(" ");
+
+        new TopLevelSummaryCache(mContext).restore(mScreen, LOCALE, 1000L);
+        mBatteryPreference.setSummary("49%");
+        ShadowLooper.idleMainLooper();
+
+        assertThat(mBatteryPreference.getSummary().toString()).isEqualTo("49%");
+        assertThat(mStoragePreference.getSummary().toString()).isEqualTo("20% used");
+    }
+
+    private Preference createPreference(String key) {
+        final Preference preference = new Preference(mContext);
+        preference.setKey(key);
+        mScreen.addPreference(preference);
+        return preference;
+    }
+}
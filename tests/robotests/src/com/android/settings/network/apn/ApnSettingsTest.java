@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network.apn;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.provider.Telephony;
+
+import androidx.fragment.app.FragmentActivity;
+import androidx.preference.PreferenceCategory;
+import androidx.preference.PreferenceManager;
+import androidx.preference.PreferenceScreen;
+
+import com.android.settings.network.CarrierConfigCache;
+import com.android.settings.testutils.shadow.ShadowThreadUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowContentResolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = ShadowThreadUtils.class)
+public class ApnSettingsTest {
+
+    private static final String APN_LIST_KEY = "apn_list";
+
+    private Context mContext;
+    private FakeCarriersProvider mProvider;
+    private PreferenceCategory mApnList;
+    private ApnSettings mFragment;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        CarrierConfigCache.setTestInstance(mContext, mock(CarrierConfigCache.class));
+        mProvider = new FakeCarriersProvider();
+        ShadowContentResolver.registerProviderInternal(
+                Telephony.Carriers.CONTENT_URI.getAuthority(), mProvider);
+
+        final PreferenceManager preferenceManager = new PreferenceManager(mContext);
+        final PreferenceScreen screen = preferenceManager.createPreferenceScreen(mContext);
+        mApnList = new PreferenceCategory(mContext);
+        mApnList.setKey(APN_LIST_KEY);
+        screen.addPreference(mApnList);
+
+        mFragment = spy(new ApnSettings());
+        doReturn(mock(FragmentActivity.class)).when(mFragment).getActivity();
+        doReturn(mContext).when(mFragment).getContext();
+        doReturn(preferenceManager).when(mFragment).getPreferenceManager();
+        doReturn(mApnList).when(mFragment).findPreference(APN_LIST_KEY);
+    }
+
+    @Test
+    public void fillList_shouldShowSelectableApnsFirst() {
+        mProvider.addRow("1", "mms", "mms.apn", "mms");
+        mProvider.addRow("2", "internet", "internet.apn", "default");
+
+        mFragment.fillList();
+
+        assertThat(mApnList.getPreferenceCount()).isEqualTo(2);
+        assertThat(getApn("2").getOrder()).isLessThan(getApn("1").getOrder());
+        assertThat(getApn("2").getSummary().toString()).isEqualTo("internet.apn");
+    }
+
+    @Test
+    public void fillList_unchangedRow_shouldKeepPreference() {
+        mProvider.addRow("1", "internet", "internet.apn", "default");
+        mProvider.addRow("2", "other", "other.apn", "default");
+        mFragment.fillList();
+        final ApnPreference unchanged = getApn("1");
+
+        mProvider.setRow("2", "renamed", "other.apn", "default");
+        mFragment.fillList();
+
+        assertThat(getApn("1")).isSameInstanceAs(unchanged);
+    }
+
+    @Test
+    public void fillList_changedRow_shouldReplacePreference() {
+        mProvider.addRow("1", "internet", "internet.apn", "default");
+        mFragment.fillList();
+        final ApnPreference changed = getApn("1");
+
+        mProvider.setRow("1", "renamed", "internet.apn", "default");
+        mFragment.fillList();
+
+        assertThat(getApn("1")).isNotSameInstanceAs(changed);
+        assertThat(getApn("1").getTitle().toString()).isEqualTo("renamed");
+        assertThat(mApnList.getPreferenceCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void fillList_removedRow_shouldDropPreference() {
+        mProvider.addRow("1", "internet", "internet.apn", "default");
+        mProvider.addRow("2", "other", "other.apn", "default");
+        mFragment.fillList();
+
+        mProvider.removeRow("2");
+        mFragment.fillList();
+
+        assertThat(getApn("2")).isNull();
+        assertThat(mApnList.getPreferenceCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void fillList_preferredApnChanged_shouldCheckPreferredApn() {
+        mProvider.addRow("1", "internet", "internet.apn", "default");
+        mProvider.addRow("2", "other", "other.apn", "default");
+        mProvider.mPreferredKey = "1";
+        mFragment.fillList();
+        assertThat(getApn("1").isChecked()).isTrue();
+
+        mProvider.mPreferredKey = "2";
+        mFragment.fillList();
+
+        assertThat(getApn("1").isChecked()).isFalse();
+        assertThat(getApn("2").isChecked()).isTrue();
+    }
+
+    @Test
+    public void fillList_reloadRequestedWhileLoading_shouldLoadOnceMore() {
+        mProvider.addRow("1", "internet", "internet.apn", "default");
+        mProvider.mOnQuery = () -> {
+            mProvider.mOnQuery = null;
+            mProvider.addRow("2", "other", "other.apn", "default");
+            mFragment.fillList();
+            mFragment.fillList();
+        };
+
+        mFragment.fillList();
+
+        assertThat(mProvider.mQueryCount).isEqualTo(2);
+        assertThat(getApn("2")).isNotNull();
+    }
+
+    private ApnPreference getApn(String key) {
+        return mApnList.findPreference(key);
+    }
+
+    /** Serves the APNs of the SIM and the preferred APN. */
+    private static class FakeCarriersProvider extends ContentProvider {
+        private static final String[] COLUMNS = new String[] {
+                Telephony.Carriers._ID,
+                Telephony.Carriers.NAME,
+                Telephony.Carriers.APN,
+                Telephony.Carriers.TYPE,
+                Telephony.Carriers.MVNO_TYPE,
+                Telephony.Carriers.MVNO_MATCH_DATA,
+                Telephony.Carriers.EDITED_STATUS,
+        };
+
+        private final List<Object[]> mRows = new ArrayList<>();
+        String mPreferredKey;
+        int mQueryCount;
+        // Runs after the APNs are queried, as if they changed while loading.
+        Runnable mOnQuery;
+
+        void addRow(String id, String name, String apn, String type) {
+            mRows.add(new Object[] {id, name, apn, type, "", "", Telephony.Carriers.UNEDITED});
+        }
+
+        void setRow(String id, String name, String apn, String type) {
+            mRows.set(indexOf(id),
+                    new Object[] {id, name, apn, type, "", "", Telephony.Carriers.UNEDITED});
+        }
+
+        void removeRow(String id) {
+            mRows.remove(indexOf(id));
+        }
+
+        private int indexOf(String id) {
+            for (int i = 0; i < mRows.size(); i++) {
+                if (id.equals(mRows.get(i)[0])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public boolean onCreate() {
+            return false;
+        }
+
+        @Override
+        public Cursor query(Uri uri, String[] projection, String selection,
+                String[] selectionArgs, String sortOrder) {
+            if (uri.toString().startsWith(ApnSettings.PREFERRED_APN_URI)) {
+                final MatrixCursor cursor = new MatrixCursor(new String[] {"_id"});
+                if (mPreferredKey != null) {
+                    cursor.addRow(new Object[] {mPreferredKey});
+                }
+                return cursor;
+            }
+
+            mQueryCount++;
+            final MatrixCursor cursor = new MatrixCursor(COLUMNS);
+            for (Object[] row : mRows) {
+                cursor.addRow(row);
+            }
+            if (mOnQuery != null) {
+                mOnQuery.run();
+            }
+            return cursor;
+        }
+
+        @Override
+        public String getType(Uri uri) {
+            return null;
+        }
+
+        @Override
+        public Uri insert(Uri uri, ContentValues values) {
+            return null;
+        }
+
+        @Override
+        public int delete(Uri uri, String selection, String[] selectionArgs) {
+            return 0;
+        }
+
+        @Override
+        public int update(Uri uri, ContentValues values, String selection,
+                String[] selectionArgs) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network.ims;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+@RunWith(RobolectricTestRunner.class)
+public class ImsQueryControllerTest {
+
+    private static final String KEY = "supported:1";
+
+    private final AtomicInteger mQueryCount = new AtomicInteger();
+
+    @After
+    public void tearDown() {
+        ImsQueryController.clearResults();
+    }
+
+    @Test
+    public void getResult_queryAnswered_returnResult() throws Exception {
+        assertThat(getResult(true)).isTrue();
+        assertThat(mQueryCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void getResult_queryTwice_queryOnce() throws Exception {
+        getResult(true);
+
+        assertThat(getResult(false)).isTrue();
+        assertThat(mQueryCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void getResult_resultExpired_queryAgain() throws Exception {
+        getResult(true);
+
+        ShadowSystemClock.advanceBy(Duration.ofMillis(ImsQueryController.RESULT_CACHE_MILLIS));
+
+        assertThat(getResult(false)).isFalse();
+        assertThat(mQueryCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void getResult_noAnswer_returnDefaultValueAndQueryAgain() throws Exception {
+        final ImsQueryController.AsyncQuery<Boolean> unanswered =
+                callback -> mQueryCount.incrementAndGet();
+
+        assertThat(ImsQueryController.getResult(KEY, false, unanswered)).isFalse();
+        assertThat(ImsQueryController.getResult(KEY, false, unanswered)).isFalse();
+        assertThat(mQueryCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void getResult_resultsInvalidated_queryAgain() throws Exception {
+        getResult(true);
+
+        ImsQueryController.invalidateResults();
+
+        assertThat(getResult(false)).isFalse();
+        assertThat(mQueryCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void getResult_answeredAfterInvalidation_notCached() throws Exception {
+        ImsQueryController.getResult(KEY, false, callback -> {
+            mQueryCount.incrementAndGet();
+            ImsQueryController.invalidateResults();
+            callback.accept(true);
+        });
+
+        assertThat(getResult(false)).isFalse();
+        assertThat(mQueryCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void getResultAsync_queryAnswered_callBackOnMainThread() {
+        final List<Boolean> results = new ArrayList<>();
+        final AtomicReference<Consumer<Boolean>> answer = new AtomicReference<>();
+
+        ImsQueryController.getResult(KEY, false, callback -> {
+            mQueryCount.incrementAndGet();
+            answer.set(callback);
+        }, results::add);
+        answer.get().accept(true);
+        assertThat(results).isEmpty();
+        ShadowLooper.idleMainLooper();
+
+        assertThat(results).containsExactly(true);
+        assertThat(mQueryCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void getResultAsync_resultCached_callBackWithoutQuery() throws Exception {
+        final List<Boolean> results = new ArrayList<>();
+        getResult(true);
+
+        ImsQueryController.getResult(KEY, false, callback -> mQueryCount.incrementAndGet(),
+                results::add);
+        ShadowLooper.idleMainLooper();
+
+        assertThat(results).containsExactly(true);
+        assertThat(mQueryCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void getResultAsync_noAnswer_callBackDefaultValueOnceAndQueryAgain() {
+        final List<Boolean> results = new ArrayList<>();
+        final AtomicReference<Consumer<Boolean>> answer = new AtomicReference<>();
+        final ImsQueryController.AsyncQuery<Boolean> unanswered = callback -> {
+            mQueryCount.incrementAndGet();
+            answer.set(callback);
+        };
+
+        ImsQueryController.getResult(KEY, false, unanswered, results::add);
+        ShadowLooper.idleMainLooper(ImsQueryController.TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        answer.get().accept(true);
+        ShadowLooper.idleMainLooper();
+        ImsQueryController.getResult(KEY, false, unanswered, results::add);
+
+        assertThat(results).containsExactly(false);
+        assertThat(mQueryCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void getResultAsync_queryFailed_callBackDefaultValue() {
+        final List<Boolean> results = new ArrayList<>();
+
+        ImsQueryController.getResult(KEY, false, callback -> {
+            throw new IllegalStateException();
+        }, results::add);
+        ShadowLooper.idleMainLooper();
+
+        assertThat(results).containsExactly(false);
+    }
+
+    private boolean getResult(boolean answer) throws Exception {
+        return ImsQueryController.getResult(KEY, false, callback -> {
+            mQueryCount.incrementAndGet();
+            callback.accept(answer);
+        });
+    }
+}
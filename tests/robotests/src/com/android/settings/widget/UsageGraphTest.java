@@ -18,14 +18,17 @@ package com.android.settings.widget;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.content.Context;
 import android.content.res.Resources;
-import android.graphics.Canvas;
-import android.graphics.Paint;
+import android.graphics.Path;
 import android.util.SparseIntArray;
 
 import com.android.settingslib.R;
@@ -181,12 +184,26 @@ public class UsageGraphTest {
     }
 
     @Test
-    public void drawFilledPath_emptyPath_shouldNotCrash() {
-        final Canvas canvas = new Canvas();
+    public void buildFilledPath_emptyPath_shouldNotCrash() {
         final SparseIntArray localPaths = new SparseIntArray();
-        final Paint paint = new Paint();
+        final Path path = new Path();
 
         // Should not crash
-        mGraph.drawFilledPath(canvas, localPaths, paint);
+        mGraph.buildFilledPath(localPaths, path);
+
+        assertThat(path.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void setMax_sameValue_shouldNotRecalculatePaths() {
+        SparseIntArray paths = new SparseIntArray();
+        paths.append(0, 100);
+        paths.append(500, 50);
+        mGraph.addPath(paths);
+        clearInvocations(mGraph);
+
+        mGraph.setMax(500, 100);
+
+        verify(mGraph, never()).calculateLocalPaths(any(), any());
     }
 }
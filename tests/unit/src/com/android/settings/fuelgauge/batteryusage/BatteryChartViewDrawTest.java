@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Bundle;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.view.ContextThemeWrapper;
+import android.view.View.MeasureSpec;
+import android.widget.TextView;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.android.settings.R;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+/** Measures the per-frame draw time and allocations of {@link BatteryChartView}. */
+@RunWith(AndroidJUnit4.class)
+public class BatteryChartViewDrawTest {
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 600;
+    private static final int WARM_UP_FRAMES = 10;
+    private static final int MEASURED_FRAMES = 200;
+    // Allows a few one-off allocations in the framework, far fewer than one per frame.
+    private static final int MAX_ALLOCATIONS = 5;
+
+    private final Bundle mResults = new Bundle();
+
+    private BatteryChartView mBatteryChartView;
+    private Canvas mCanvas;
+
+    @Before
+    public void setUp() {
+        final Context context = new ContextThemeWrapper(
+                ApplicationProvider.getApplicationContext(), R.style.Theme_Settings);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            mBatteryChartView = new BatteryChartView(context, /* attrs= */ null);
+            mBatteryChartView.setCompanionTextView(new TextView(context));
+            mBatteryChartView.setViewModel(new BatteryChartViewModel(
+                    List.of(100, 96, 90, 85, 77, 70, 62, 55, 50, 41, 33, 26, 20),
+                    List.of(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L),
+                    BatteryChartViewModel.AxisLabelPosition.BETWEEN_TRAPEZOIDS,
+                    new BatteryChartViewModel.LabelTextGenerator() {
+                        @Override
+                        public String generateText(List<Long> timestamps, int index) {
+                            return index + "h";
+                        }
+
+                        @Override
+                        public String generateFullText(List<Long> timestamps, int index) {
+                            return index + " hours";
+                        }
+                    }));
+            mBatteryChartView.measure(
+                    MeasureSpec.makeMeasureSpec(WIDTH, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(HEIGHT, MeasureSpec.EXACTLY));
+            mBatteryChartView.layout(0, 0, WIDTH, HEIGHT);
+        });
+        mCanvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+    }
+
+    @After
+    public void tearDown() {
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, mResults);
+    }
+
+    @Test
+    public void draw_afterFirstFrame_doesNotAllocate() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            for (int i = 0; i < WARM_UP_FRAMES; i++) {
+                mBatteryChartView.draw(mCanvas);
+            }
+
+            Debug.resetThreadAllocCount();
+            Debug.startAllocCounting();
+            final long startTime = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < MEASURED_FRAMES; i++) {
+                mBatteryChartView.draw(mCanvas);
+            }
+            final long elapsedTime = SystemClock.elapsedRealtimeNanos() - startTime;
+            Debug.stopAllocCounting();
+            final int allocCount = Debug.getThreadAllocCount();
+
+            mResults.putLong("battery_chart_draw_ns_per_frame", elapsedTime / MEASURED_FRAMES);
+            mResults.putInt("battery_chart_draw_allocs", allocCount);
+            assertThat(allocCount).isAtMost(MAX_ALLOCATIONS);
+        });
+    }
+}
@@ -44,6 +44,7 @@ public class CarrierConfigCacheTest {
 
     static final int ONCE_SUB_ID = 11;
     static final int TWICE_SUB_ID = 12;
+    static final int COUNT_SUB_ID = 13;
 
     @Rule
     public final MockitoRule mMockitoRule = MockitoJUnit.rule();
@@ -98,4 +99,17 @@ public class CarrierConfigCacheTest {
 
         verify(mCarrierConfigManager, times(1)).getConfigForSubId(TWICE_SUB_ID);
     }
+
+    @Test
+    public void getConfigForSubId_getTwice_countOneMissAndOneHit() {
+        when(mCarrierConfigManager.getConfigForSubId(COUNT_SUB_ID)).thenReturn(mCarrierConfig);
+        final int missCount = mCarrierConfigCache.getMissCount();
+        final int hitCount = mCarrierConfigCache.getHitCount();
+
+        mCarrierConfigCache.getConfigForSubId(COUNT_SUB_ID);
+        mCarrierConfigCache.getConfigForSubId(COUNT_SUB_ID);
+
+        assertThat(mCarrierConfigCache.getMissCount()).isEqualTo(missCount + 1);
+        assertThat(mCarrierConfigCache.getHitCount()).isEqualTo(hitCount + 1);
+    }
 }
@@ -23,6 +23,8 @@ import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
 import android.content.Context;
+import android.telephony.SubscriptionInfo;
+import android.telephony.SubscriptionManager;
 
 import androidx.lifecycle.Lifecycle;
 import androidx.test.annotation.UiThreadTest;
@@ -37,6 +39,8 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
+import java.util.Arrays;
+
 @RunWith(AndroidJUnit4.class)
 public class ProxySubscriptionManagerTest {
 
@@ -225,4 +229,37 @@ public class ProxySubscriptionManagerTest {
         proxy.notifySubscriptionInfoMightChanged();
         assertThat(mClient1.getCallbackCount()).isEqualTo(1);
     }
+
+    @Test
+    @UiThreadTest
+    public void getSnapshot_started_shareSnapshotUntilSubscriptionsChanged() {
+        ProxySubscriptionManager proxy = getInstance(mContext);
+        SubscriptionManager subscriptionManager = mock(SubscriptionManager.class);
+        when(subscriptionManager.getAvailableSubscriptionInfoList())
+                .thenReturn(Arrays.asList(mock(SubscriptionInfo.class)));
+        proxy.onStart();
+
+        SubscriptionSnapshot snapshot = proxy.getSnapshot(subscriptionManager);
+        snapshot.getAvailableSubscriptionInfoList();
+        proxy.getSnapshot(subscriptionManager).getAvailableSubscriptionInfoList();
+
+        assertThat(proxy.getSnapshot(subscriptionManager)).isSameInstanceAs(snapshot);
+        Mockito.verify(subscriptionManager, Mockito.times(1)).getAvailableSubscriptionInfoList();
+
+        proxy.notifySubscriptionInfoMightChanged();
+
+        assertThat(proxy.getSnapshot(subscriptionManager)).isNotSameInstanceAs(snapshot);
+        proxy.onStop();
+    }
+
+    @Test
+    @UiThreadTest
+    public void getSnapshot_stopped_notShareSnapshot() {
+        ProxySubscriptionManager proxy = getInstance(mContext);
+        SubscriptionManager subscriptionManager = mock(SubscriptionManager.class);
+
+        SubscriptionSnapshot snapshot = proxy.getSnapshot(subscriptionManager);
+
+        assertThat(proxy.getSnapshot(subscriptionManager)).isNotSameInstanceAs(snapshot);
+    }
 }
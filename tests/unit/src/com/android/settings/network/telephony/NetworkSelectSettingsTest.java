@@ -199,6 +199,31 @@ public class NetworkSelectSettingsTest {
         assertThat(preference.getOperatorName()).isEqualTo(mCellId2.getOperatorAlphaLong());
     }
 
+    @Test
+    @UiThreadTest
+    public void updateAllPreferenceCategory_nextScanResult_keepSameOperatorPreference() {
+        mNetworkSelectSettings.onCreateInitialization();
+        mNetworkSelectSettings.enablePreferenceScreen(true);
+        mNetworkSelectSettings.scanResultHandler(Arrays.asList(mCellInfo2));
+        final NetworkOperatorPreference preference =
+                (NetworkOperatorPreference) mPreferenceCategory.getPreference(0);
+
+        mNetworkSelectSettings.scanResultHandler(Arrays.asList(mCellInfo2, mCellInfo1));
+
+        // The preferences keep the position they were added at, so check the order and keys.
+        assertThat(mPreferenceCategory.getPreferenceCount()).isEqualTo(2);
+        assertThat((Object) mPreferenceCategory.findPreference(preference.getKey()))
+                .isSameInstanceAs(preference);
+        assertThat(preference.getOrder()).isEqualTo(1);
+        final NetworkOperatorPreference addedPreference = (NetworkOperatorPreference)
+                (mPreferenceCategory.getPreference(0) == preference
+                        ? mPreferenceCategory.getPreference(1)
+                        : mPreferenceCategory.getPreference(0));
+        assertThat(addedPreference.getOperatorName())
+                .isEqualTo(mCellId1.getOperatorAlphaLong());
+        assertThat(addedPreference.getOrder()).isEqualTo(0);
+    }
+
     @Test
     @UiThreadTest
     public void updateForbiddenPlmns_forbiddenPlmnsNull_shouldNotCrash() {